@@ -3,11 +3,13 @@ package org.iba;
 import org.iba.db.BaumRepository;
 import org.iba.db.MesswerteRepository;
 import org.iba.db.ParzelleRepository;
+import org.iba.db.SchemaManager;
 import org.iba.model.Baum;
 import org.iba.model.Parzelle;
 import org.iba.model.Messwerte;
 import org.iba.service.BerechnungService;
 
+import java.time.LocalDate;
 import java.util.Map;
 
 /**
@@ -19,6 +21,12 @@ import java.util.Map;
 public class Main {
 
     public static void main(String[] args) {
+        // Wartungsbefehl: Stunden-/Tageswerte neu aufbauen, z.B. "rollups-neu 2026-01-01 2026-01-31"
+        if (args.length == 3 && args[0].equals("rollups-neu")) {
+            baueRollupsNeu(LocalDate.parse(args[1]), LocalDate.parse(args[2]));
+            return;
+        }
+
         System.out.println("--- IBA Bewaesserungs-Assistent: Systemstart ---");
 
         // 1. Initialisierung der Persistenzschicht
@@ -49,6 +57,19 @@ public class Main {
         System.out.println("\n--- Systemende ---");
     }
 
+    /**
+     * Baut die Stunden- und Tageswerte eines Zeitraums aus den Rohdaten neu auf (Backfill).
+     */
+    private static void baueRollupsNeu(LocalDate von, LocalDate bis) {
+        try {
+            new SchemaManager().migriere();
+            int tage = new MesswerteRepository().baueRollupsNeu(von, bis);
+            System.out.println("Stunden-/Tageswerte für " + tage + " Tage neu aufgebaut.");
+        } catch (Exception e) {
+            System.err.println("Neuaufbau der Stunden-/Tageswerte fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
     /**
      * Setzt die Datenbank mit Testdaten auf.
      * Löscht vorhandene Daten in den Baum- und Parzellen-Tabellen.
@@ -57,6 +78,9 @@ public class Main {
         try {
             System.out.println("Lösche vorhandene Testdaten und erstelle neue...");
 
+            // 0. Schema anlegen bzw. auf den neuesten Stand bringen
+            new SchemaManager().migriere();
+
             // 1. Bereinigung (in umgekehrter Abhängigkeitsreihenfolge)
             // HINWEIS: Ein echtes Repository benötigt eine Methode zum Löschen aller Daten, hier wird es simuliert
 
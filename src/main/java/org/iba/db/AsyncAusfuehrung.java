@@ -0,0 +1,219 @@
+package org.iba.db;
+
+import org.iba.exception.DatenbankTimeoutException;
+import org.iba.util.Frist;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Führt blockierende Repository-Aufrufe auf virtuellen Threads aus (die *Async-Methoden der Repositories).
+ * - Pro Aufruf ein virtueller Thread, Fan-out über tausende Parzellen braucht keinen Thread-Pool
+ * - Höchstens "async.maxParallel" Aufrufe laufen gleichzeitig (Standard: pool.maxSize des aktiven
+ *   Profils); weitere warten ohne Verbindung, statt sich am Pool zu stauen
+ * - cancel() auf dem gelieferten Future bricht das laufende Statement per Statement.cancel() ab,
+ *   sonst (Warten auf Freigabe, Verbindung oder Sperre) wird der Thread unterbrochen
+ *
+ * Jeder Aufruf läuft in einem eigenen Thread und damit außerhalb einer Transaktion des Aufrufers
+ * (eigene Verbindung, Auto-Commit). Fehler schließen das Future mit der Exception des Repositorys ab.
+ */
+public final class AsyncAusfuehrung {
+
+    private static final ExecutorService VIRTUELLE_THREADS =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("iba-async-", 0).factory());
+
+    // Aufruf, der im aktuellen (virtuellen) Thread läuft; null außerhalb von AsyncAusfuehrung
+    private static final ThreadLocal<Aufruf<?>> AKTUELLER_AUFRUF = new ThreadLocal<>();
+
+    // Wird neu angelegt, wenn sich das Limit ändert (z.B. nach Profilwechsel)
+    private static Semaphore begrenzung;
+    private static int begrenzungGroesse;
+
+    private AsyncAusfuehrung() {
+        // Utility-Klasse, keine Instanzierung
+    }
+
+    /**
+     * Startet die Operation auf einem virtuellen Thread. Eine Frist des Aufrufers (siehe Frist)
+     * gilt auch für die Operation und das Warten auf einen freien Platz.
+     * @return Future mit dem Ergebnis; cancel(true) und cancel(false) brechen gleichermaßen ab.
+     */
+    public static <T> CompletableFuture<T> starte(Operation<T> operation) {
+        Aufruf<T> aufruf = new Aufruf<>();
+        Frist frist = Frist.aktuelle();
+        VIRTUELLE_THREADS.execute(() -> fuehreAus(aufruf, frist, operation));
+        return aufruf;
+    }
+
+    /**
+     * Anzahl Aufrufe, die derzeit laufen dürfen, aber noch nicht laufen.
+     */
+    public static synchronized int getFreiePlaetze() {
+        return begrenzung == null ? DBConnector.getAsyncMaxParallel() : begrenzung.availablePermits();
+    }
+
+    private static <T> void fuehreAus(Aufruf<T> aufruf, Frist frist, Operation<T> operation) {
+        if (!aufruf.beginne()) {
+            return; // Schon vor dem Start abgebrochen
+        }
+
+        Semaphore plaetze = getBegrenzung();
+        boolean erhalten = false;
+        AKTUELLER_AUFRUF.set(aufruf);
+        try {
+            if (frist == null) {
+                plaetze.acquire();
+            } else if (!plaetze.tryAcquire(frist.getRestMs(), TimeUnit.MILLISECONDS)) {
+                throw new DatenbankTimeoutException("Frist abgelaufen beim Warten auf einen freien Platz");
+            }
+            erhalten = true;
+            aufruf.complete(Frist.unter(frist, operation::execute));
+        } catch (InterruptedException e) {
+            aufruf.completeExceptionally(new CancellationException("Asynchroner Aufruf abgebrochen"));
+        } catch (Throwable e) {
+            aufruf.completeExceptionally(e);
+        } finally {
+            AKTUELLER_AUFRUF.remove();
+            aufruf.beende();
+            if (erhalten) {
+                plaetze.release();
+            }
+        }
+    }
+
+    private static synchronized Semaphore getBegrenzung() {
+        int groesse = DBConnector.getAsyncMaxParallel();
+        if (begrenzung == null || begrenzungGroesse != groesse) {
+            // Laufende Aufrufe geben ihren Platz im alten Semaphore zurück
+            begrenzung = new Semaphore(groesse, true);
+            begrenzungGroesse = groesse;
+        }
+        return begrenzung;
+    }
+
+    /**
+     * Meldet ein gerade vorbereitetes Statement beim asynchronen Aufruf des aktuellen Threads an,
+     * damit ein cancel() es abbrechen kann, solange es offen ist. Das gelieferte Statement meldet
+     * sich vor dem Schließen wieder ab (es kann danach einem anderen Aufrufer derselben Verbindung
+     * gehören, z.B. über den Statement-Cache). Ohne asynchronen Aufruf bleibt es unverändert.
+     * @throws SQLException wenn der Aufruf bereits abgebrochen wurde (das Statement ist dann geschlossen).
+     */
+    static PreparedStatement beobachte(PreparedStatement stmt) throws SQLException {
+        Aufruf<?> aufruf = AKTUELLER_AUFRUF.get();
+        if (aufruf == null) {
+            return stmt;
+        }
+        try {
+            aufruf.meldeAn(stmt);
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (args == null && method.getName().equals("close")) {
+                        aufruf.meldeAb(stmt);
+                    }
+                    try {
+                        return method.invoke(stmt, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Future eines asynchronen Aufrufs, das den Abbruch an Statement bzw. Thread weitergibt.
+     */
+    private static final class Aufruf<T> extends CompletableFuture<T> {
+
+        private Thread thread;
+        // Offene Statements des Aufrufs (z.B. Insert und Projektionen einer Transaktion)
+        private final Set<Statement> statements = Collections.newSetFromMap(new IdentityHashMap<>());
+        private boolean beendet;
+
+        synchronized boolean beginne() {
+            if (isDone()) {
+                return false;
+            }
+            thread = Thread.currentThread();
+            return true;
+        }
+
+        synchronized void beende() {
+            beendet = true;
+            thread = null;
+            statements.clear();
+        }
+
+        synchronized void meldeAn(Statement stmt) throws SQLException {
+            if (isCancelled()) {
+                throw new SQLException("Asynchroner Aufruf abgebrochen", "70100");
+            }
+            statements.add(stmt);
+        }
+
+        synchronized void meldeAb(Statement stmt) {
+            statements.remove(stmt);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean abgebrochen = super.cancel(mayInterruptIfRunning);
+            if (abgebrochen) {
+                brecheLaufendeOperationAb();
+            }
+            return abgebrochen;
+        }
+
+        /**
+         * Bricht unter derselben Sperre ab, unter der close() und beende() die Statements
+         * abmelden: cancel() trifft so nie ein bereits geschlossenes Statement, dessen Verbindung
+         * schon an einen anderen Aufrufer weitergegeben sein könnte (KILL QUERY auf der
+         * Verbindungs-ID). Der Aufruf-Thread wartet dafür höchstens so lange wie cancel().
+         * Welches offene Statement gerade läuft, ist unbekannt; cancel() auf einem nicht
+         * laufenden Statement bewirkt nichts.
+         */
+        private synchronized void brecheLaufendeOperationAb() {
+            if (beendet || thread == null) {
+                return;
+            }
+
+            boolean abgebrochen = false;
+            for (Statement stmt : statements) {
+                try {
+                    stmt.cancel();
+                    abgebrochen = true;
+                } catch (SQLException e) {
+                    System.err.println("[Async] Statement konnte nicht abgebrochen werden: " + e.getMessage());
+                }
+            }
+            if (abgebrochen) {
+                return;
+            }
+            // Jeder Aufruf hat seinen eigenen virtuellen Thread, eine späte Unterbrechung trifft keinen anderen
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Functional Interface für eine asynchron auszuführende Repository-Operation.
+     */
+    @FunctionalInterface
+    public interface Operation<T> {
+        T execute() throws Exception;
+    }
+}
@@ -1,16 +1,43 @@
 package org.iba.db;
 
+import org.iba.db.cache.EntityCache;
+import org.iba.db.cache.EntityCaches;
+import org.iba.db.embedded.LokalerSpeicher;
+import org.iba.db.statistik.AbfrageStatistik;
 import org.iba.db.transaction.TransactionManager;
 import org.iba.exception.DatabaseException;
+import org.iba.exception.UncheckedDatabaseException;
 import org.iba.util.ExceptionUtils;
+import org.iba.util.Frist;
 
 import java.sql.*;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Basis-Repository-Klasse die DBConnector verwendet.
+ * PreparedStatements werden pro gepoolter Verbindung gecacht (pool.statementCacheSize);
+ * das Schließen eines Statements legt es lediglich in den Cache zurück.
+ * Statements aus vorbereiten() werden in der AbfrageStatistik erfasst.
  */
 public abstract class BaseRepository {
 
+    /**
+     * Tabellenausdruck für eine als JSON-Array übergebene ID-Liste (genau ein Parameter, Spalte "id").
+     * Der SQL-Text bleibt unabhängig von der Listengröße gleich, das Prepared Statement ist wiederverwendbar.
+     */
+    protected static final String JSON_ID_LISTE_SQL =
+            "SELECT j.id FROM JSON_TABLE(CAST(? AS JSON), '$[*]' COLUMNS (id INT PATH '$')) AS j";
+
+    // Maximale Anzahl IDs pro Abfrage bei Mengenoperationen
+    protected static final int ID_CHUNK_GROESSE = 1000;
+
     /**
      * Öffnet eine Datenbankverbindung mit Exception-Handling.
      * Nutzt DBConnector für zentrale Konfiguration.
@@ -25,6 +52,62 @@ public abstract class BaseRepository {
         return DBConnector.getConnection();
     }
 
+    /**
+     * Verbindung für reine Lesezugriffe: in einer Transaktion deren Connection,
+     * sonst eine Replikat-Verbindung (falls konfiguriert, siehe DBConnector.getReadConnection()).
+     */
+    protected Connection getLeseConnection() throws DatabaseException {
+        if (TransactionManager.isTransactionActive()) {
+            return TransactionManager.getCurrentConnection();
+        }
+        return DBConnector.getReadConnection();
+    }
+
+    /**
+     * Speicher im eigenen Prozess, falls das Profil EMBEDDED oder MEMORY aktiv ist, sonst null.
+     * Repositories führen ihre Operationen dann dort statt per JDBC aus.
+     */
+    protected LokalerSpeicher lokalerSpeicher() throws DatabaseException {
+        return DBConnector.getLokalerSpeicher();
+    }
+
+    /**
+     * Führt eine Repository-Operation asynchron auf einem virtuellen Thread aus (siehe AsyncAusfuehrung).
+     * Die Operation läuft nicht in der Transaktion des Aufrufers.
+     */
+    protected <T> CompletableFuture<T> async(AsyncAusfuehrung.Operation<T> operation) {
+        return AsyncAusfuehrung.starte(operation);
+    }
+
+    /**
+     * Bereitet ein Statement vor, dessen Ausführungen in der AbfrageStatistik erfasst werden.
+     * Unter einer Frist (siehe Frist) erhält es die Restzeit als Query-Timeout, in einem
+     * asynchronen Aufruf bricht cancel() es ab, solange es offen ist (siehe AsyncAusfuehrung).
+     */
+    protected static PreparedStatement vorbereiten(Connection conn, String sql) throws SQLException {
+        pruefeFrist();
+        return AsyncAusfuehrung.beobachte(mitFrist(AbfrageStatistik.messe(conn, conn.prepareStatement(sql), sql)));
+    }
+
+    protected static PreparedStatement vorbereiten(Connection conn, String sql, int autoGeneratedKeys)
+            throws SQLException {
+        pruefeFrist();
+        return AsyncAusfuehrung.beobachte(
+                mitFrist(AbfrageStatistik.messe(conn, conn.prepareStatement(sql, autoGeneratedKeys), sql)));
+    }
+
+    private static void pruefeFrist() throws SQLTimeoutException {
+        if (Frist.istAbgelaufen()) {
+            throw new SQLTimeoutException("Frist abgelaufen: " + Frist.aktuelle(), "HYT00");
+        }
+    }
+
+    private static PreparedStatement mitFrist(PreparedStatement stmt) throws SQLException {
+        // Immer setzen (auch 0): Statements aus dem Statement-Cache behalten ihren letzten Timeout
+        stmt.setQueryTimeout(Frist.abfrageTimeoutSekunden());
+        return stmt;
+    }
+
     /**
      * Führt ein SQL-Statement aus mit automatischem Resource-Management.
      */
@@ -36,8 +119,8 @@ public abstract class BaseRepository {
         ResultSet rs = null;
 
         try {
-            conn = getConnection();
-            stmt = conn.prepareStatement(sql);
+            conn = getLeseConnection();
+            stmt = vorbereiten(conn, sql);
 
             // Setze Parameter
             for (int i = 0; i < params.length; i++) {
@@ -60,6 +143,105 @@ public abstract class BaseRepository {
         }
     }
 
+    /**
+     * Führt eine Abfrage zeilenweise aus, ohne das Ergebnis clientseitig zu puffern.
+     * Je nach Profil streamt der Treiber die Zeilen (fetchSize = Integer.MIN_VALUE) oder
+     * holt sie blockweise über einen serverseitigen Cursor (positive fetchSize).
+     * Während der Verarbeitung darf auf derselben Verbindung kein weiteres Statement laufen.
+     */
+    protected void executeStreamingQuery(String sql, RowCallback callback, Object... params)
+            throws DatabaseException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = getLeseConnection();
+            stmt = prepareStreaming(conn, sql, params);
+            rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                callback.accept(rs);
+            }
+
+        } catch (SQLException e) {
+            throw ExceptionUtils.wrapSQLException(e, "Streaming-Abfrage ausführen");
+        } finally {
+            if (!TransactionManager.isTransactionActive()) {
+                closeResources(rs, stmt, conn);
+            } else {
+                closeStatementAndResultSet(rs, stmt);
+            }
+        }
+    }
+
+    /**
+     * Führt eine Abfrage aus und liefert die Zeilen als lazy Stream (konstanter Heap-Verbrauch).
+     * Der Stream hält Verbindung und Cursor offen und MUSS geschlossen werden (try-with-resources).
+     * Fehler beim Weiterlesen werden als UncheckedDatabaseException geworfen.
+     */
+    protected <T> Stream<T> executeStreamQuery(String sql, RowMapper<T> mapper, Object... params)
+            throws DatabaseException {
+
+        boolean inTransaktion = TransactionManager.isTransactionActive();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+
+        try {
+            conn = getLeseConnection();
+            stmt = prepareStreaming(conn, sql, params);
+            rs = stmt.executeQuery();
+
+        } catch (SQLException e) {
+            schliesseStream(rs, stmt, conn, inTransaktion);
+            throw ExceptionUtils.wrapSQLException(e, "Streaming-Abfrage ausführen");
+        }
+
+        ResultSet cursor = rs;
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(cursor));
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedDatabaseException(
+                            ExceptionUtils.wrapSQLException(e, "Streaming-Abfrage lesen"));
+                }
+            }
+        };
+
+        Connection streamConn = conn;
+        PreparedStatement streamStmt = stmt;
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> schliesseStream(cursor, streamStmt, streamConn, inTransaktion));
+    }
+
+    private PreparedStatement prepareStreaming(Connection conn, String sql, Object... params) throws SQLException {
+        // prepareStatement(sql) ist TYPE_FORWARD_ONLY / CONCUR_READ_ONLY, wie fürs Streaming nötig
+        PreparedStatement stmt = vorbereiten(conn, sql);
+        stmt.setFetchSize(DBConnector.getStreamingFetchSize());
+
+        for (int i = 0; i < params.length; i++) {
+            stmt.setObject(i + 1, params[i]);
+        }
+        return stmt;
+    }
+
+    private void schliesseStream(ResultSet rs, Statement stmt, Connection conn, boolean inTransaktion) {
+        if (inTransaktion) {
+            closeStatementAndResultSet(rs, stmt);
+        } else {
+            closeResources(rs, stmt, conn);
+        }
+    }
+
     /**
      * Führt ein Update-Statement aus.
      */
@@ -69,7 +251,7 @@ public abstract class BaseRepository {
 
         try {
             conn = getConnection();
-            stmt = conn.prepareStatement(sql);
+            stmt = vorbereiten(conn, sql);
 
             for (int i = 0; i < params.length; i++) {
                 stmt.setObject(i + 1, params[i]);
@@ -88,6 +270,133 @@ public abstract class BaseRepository {
         }
     }
 
+    /**
+     * Wandelt eine ID-Liste in ein JSON-Array für JSON_ID_LISTE_SQL um (null-Einträge werden übersprungen).
+     */
+    protected static String alsJsonArray(Collection<Integer> ids) {
+        StringBuilder json = new StringBuilder("[");
+        for (Integer id : ids) {
+            if (id == null) {
+                continue;
+            }
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(id.intValue());
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Führt ein INSERT aus und liefert den generierten Primärschlüssel
+     * (ohne zusätzliche Abfrage, auch bei parallelen Inserts korrekt).
+     */
+    protected int executeInsert(String sql, Object... params) throws DatabaseException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet keys = null;
+
+        try {
+            conn = getConnection();
+            stmt = vorbereiten(conn, sql, Statement.RETURN_GENERATED_KEYS);
+
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+
+            if (stmt.executeUpdate() == 0) {
+                throw new DatabaseException("Insert hat keine Zeile erzeugt", null, -1);
+            }
+
+            keys = stmt.getGeneratedKeys();
+            if (!keys.next()) {
+                throw new DatabaseException("Keine generierte ID erhalten", null, -1);
+            }
+            return keys.getInt(1);
+
+        } catch (SQLException e) {
+            throw ExceptionUtils.wrapSQLException(e, "Insert ausführen");
+        } finally {
+            if (!TransactionManager.isTransactionActive()) {
+                closeResources(keys, stmt, conn);
+            } else {
+                closeStatementAndResultSet(keys, stmt);
+            }
+        }
+    }
+
+    /**
+     * Führt ein INSERT für mehrere Zeilen als JDBC-Batch aus und liefert die
+     * generierten Primärschlüssel in der Reihenfolge der Zeilen.
+     */
+    protected int[] executeInsertBatch(String sql, List<Object[]> zeilen) throws DatabaseException {
+        if (zeilen.isEmpty()) {
+            return new int[0];
+        }
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet keys = null;
+
+        try {
+            conn = getConnection();
+            stmt = vorbereiten(conn, sql, Statement.RETURN_GENERATED_KEYS);
+
+            for (Object[] params : zeilen) {
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            int[] ids = new int[zeilen.size()];
+            keys = stmt.getGeneratedKeys();
+            for (int i = 0; i < ids.length; i++) {
+                if (!keys.next()) {
+                    throw new DatabaseException("Keine generierte ID für Zeile " + i + " erhalten", null, -1);
+                }
+                ids[i] = keys.getInt(1);
+            }
+            return ids;
+
+        } catch (SQLException e) {
+            throw ExceptionUtils.wrapSQLException(e, "Batch-Insert ausführen");
+        } finally {
+            if (!TransactionManager.isTransactionActive()) {
+                closeResources(keys, stmt, conn);
+            } else {
+                closeStatementAndResultSet(keys, stmt);
+            }
+        }
+    }
+
+    /**
+     * Liest über den Entity-Cache, sofern aktiviert.
+     * Innerhalb einer Transaktion wird der Cache umgangen: die Transaktion soll ihre
+     * eigenen, noch nicht committeten Änderungen sehen, und diese dürfen nicht in
+     * den Cache gelangen.
+     */
+    protected <K, V> V ausCache(EntityCache<K, V> cache, K key, EntityCache.Lader<V> lader)
+            throws DatabaseException {
+        if (cache == null || TransactionManager.isTransactionActive()) {
+            return lader.lade();
+        }
+        // Vom Primärserver laden, damit ein nachhängendes Replikat keine alten Stände in den Cache bringt
+        return cache.hole(key, () -> DBConnector.lesePrimaer(lader::lade));
+    }
+
+    /**
+     * Invalidiert Cache-Einträge nach einem Schreibzugriff.
+     * In einer Transaktion erst nach deren Abschluss, damit zwischenzeitlich von
+     * anderen Threads gelesene alte Stände nicht im Cache zurückbleiben.
+     */
+    protected void invalidiereCache(Runnable invalidierung) {
+        if (EntityCaches.isAktiviert()) {
+            TransactionManager.nachAbschluss(invalidierung);
+        }
+    }
+
     /**
      * Schließt alle JDBC-Ressourcen sicher.
      */
@@ -107,7 +416,9 @@ public abstract class BaseRepository {
         }
 
         try {
-            if (stmt != null) stmt.close();
+            if (stmt != null) {
+                stmt.close();
+            }
         } catch (SQLException e) {
             System.err.println("Fehler beim Schließen des Statement: " + e.getMessage());
         }
@@ -124,6 +435,22 @@ public abstract class BaseRepository {
         }
     }
 
+    /**
+     * Functional Interface für die Verarbeitung einer einzelnen Zeile beim Streaming.
+     */
+    @FunctionalInterface
+    protected interface RowCallback {
+        void accept(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Functional Interface zum Mappen der aktuellen Zeile auf ein Objekt.
+     */
+    @FunctionalInterface
+    protected interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
     /**
      * Functional Interface für ResultSet-Verarbeitung.
      */
@@ -0,0 +1,79 @@
+package org.iba.db;
+
+import org.iba.exception.IbaException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ergebnis einer Batch-Operation mit Fehlern pro Zeile.
+ * Einzelne fehlerhafte Zeilen brechen den Batch nicht ab, sondern werden hier gesammelt.
+ */
+public class BatchErgebnis<T> {
+
+    private int anzahlGespeichert = 0;
+    private final List<Fehler<T>> fehler = new ArrayList<>();
+
+    void addGespeichert(int anzahl) {
+        anzahlGespeichert += anzahl;
+    }
+
+    void addFehler(int index, T element, IbaException ursache) {
+        fehler.add(new Fehler<>(index, element, ursache));
+    }
+
+    void uebernehme(BatchErgebnis<T> teil) {
+        anzahlGespeichert += teil.anzahlGespeichert;
+        fehler.addAll(teil.fehler);
+    }
+
+    public int getAnzahlGespeichert() {
+        return anzahlGespeichert;
+    }
+
+    public List<Fehler<T>> getFehler() {
+        return Collections.unmodifiableList(fehler);
+    }
+
+    public boolean hatFehler() {
+        return !fehler.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchErgebnis{gespeichert=" + anzahlGespeichert + ", fehler=" + fehler.size() + '}';
+    }
+
+    /**
+     * Eine fehlgeschlagene Zeile mit ihrer Position in der Eingabe.
+     */
+    public static class Fehler<T> {
+        private final int index;
+        private final T element;
+        private final IbaException ursache;
+
+        Fehler(int index, T element, IbaException ursache) {
+            this.index = index;
+            this.element = element;
+            this.ursache = ursache;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public T getElement() {
+            return element;
+        }
+
+        public IbaException getUrsache() {
+            return ursache;
+        }
+
+        @Override
+        public String toString() {
+            return "Fehler{index=" + index + ", ursache=" + ursache.getMessage() + '}';
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package org.iba.db;
 
+import org.iba.db.cache.EntityCaches;
+import org.iba.db.embedded.LokalerSpeicher;
 import org.iba.exception.DatabaseException;
 import org.iba.exception.ValidationException;
 import org.iba.model.Baum;
 import org.iba.util.ExceptionUtils;
+import org.iba.util.IntMap;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Vollständige BaumRepository-Implementierung mit allen benötigten Methoden.
@@ -29,76 +35,76 @@ public class BaumRepository extends BaseRepository {
                     "Basisbedarf muss größer als 0 sein");
         }
 
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.speichereBaum(baum);
+        }
+
         String sql = "INSERT INTO baum (parzelle_id, alter_jahre, pflanzenart_id, basis_bedarf) " +
                 "VALUES (?, ?, ?, ?)";
 
         try {
-            // Mit RETURN_GENERATED_KEYS für die ID
-            Connection conn = getConnection();
-            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-                stmt.setInt(1, baum.getParzelleId());
-                stmt.setInt(2, baum.getAlterJahre());
-                stmt.setInt(3, baum.getPflanzenartId());
-                stmt.setDouble(4, baum.getBasisBedarf());
-
-                int affectedRows = stmt.executeUpdate();
-
-                if (affectedRows == 0) {
-                    throw new DatabaseException("Baum konnte nicht gespeichert werden",
-                            null, -1);
-                }
-
-                // Generierte ID holen
-                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        baum.setBaumId(generatedKeys.getInt(1));
-                    } else {
-                        throw new DatabaseException("Konnte keine ID für Baum generieren",
-                                null, -1);
-                    }
-                }
+            // Generierte ID direkt aus dem INSERT übernehmen
+            int baumId = executeInsert(sql,
+                    baum.getParzelleId(),
+                    baum.getAlterJahre(),
+                    baum.getPflanzenartId(),
+                    baum.getBasisBedarf());
 
-                return baum;
-            }
+            baum.setBaumId(baumId);
+            invalidiereCache(() -> EntityCaches.invalidiereBaumliste(baum.getParzelleId()));
+            return baum;
 
-        } catch (SQLException e) {
+        } catch (DatabaseException e) {
             // Spezifische Fehlerbehandlung
-            if (ExceptionUtils.isConstraintViolation(e) && e.getErrorCode() == 1452) {
-                throw new ValidationException("parzelleId", baum.getParzelleId(),
-                        "Die angegebene Parzelle existiert nicht");
+            if (e.getCause() instanceof SQLException) {
+                SQLException sqlEx = (SQLException) e.getCause();
+                if (ExceptionUtils.isConstraintViolation(sqlEx) && sqlEx.getErrorCode() == 1452) {
+                    throw new ValidationException("parzelleId", baum.getParzelleId(),
+                            "Die angegebene Parzelle existiert nicht");
+                }
             }
-            throw ExceptionUtils.wrapSQLException(e, "Speichern von Baum");
+            throw e;
         }
     }
 
     /**
-     * Findet einen Baum anhand seiner ID.
+     * Findet einen Baum anhand seiner ID (über den Entity-Cache, sofern aktiviert).
      */
     public Baum findById(int baumId) throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeBaum(baumId);
+        }
+
         String sql = "SELECT * FROM baum WHERE baum_id = ?";
 
-        return executeQuery(sql, rs -> {
+        return ausCache(EntityCaches.baeumeNachId(), baumId, () -> executeQuery(sql, rs -> {
             if (rs.next()) {
                 return mapToBaum(rs);
             }
             return null;
-        }, baumId);
+        }, baumId));
     }
 
     /**
-     * Findet alle Bäume einer Parzelle.
+     * Findet alle Bäume einer Parzelle (über den Entity-Cache, sofern aktiviert).
      */
     public List<Baum> findByParzelleId(int parzelleId) throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeBaeumeDerParzelle(parzelleId);
+        }
+
         String sql = "SELECT * FROM baum WHERE parzelle_id = ? ORDER BY baum_id";
 
-        return executeQuery(sql, rs -> {
+        return ausCache(EntityCaches.baeumeNachParzelle(), parzelleId, () -> executeQuery(sql, rs -> {
             List<Baum> baeume = new ArrayList<>();
             while (rs.next()) {
                 baeume.add(mapToBaum(rs));
             }
             return baeume;
-        }, parzelleId);
+        }, parzelleId));
     }
 
     /**
@@ -116,6 +122,11 @@ public class BaumRepository extends BaseRepository {
                     "Basisbedarf muss größer als 0 sein");
         }
 
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.aktualisiereBaum(baum);
+        }
+
         String sql = "UPDATE baum SET parzelle_id = ?, alter_jahre = ?, " +
                 "pflanzenart_id = ?, basis_bedarf = ? WHERE baum_id = ?";
 
@@ -127,6 +138,11 @@ public class BaumRepository extends BaseRepository {
                     baum.getBasisBedarf(),
                     baum.getBaumId());
 
+            // Auch die Liste einer eventuell neuen Parzelle enthält den Baum danach
+            invalidiereCache(() -> {
+                EntityCaches.invalidiereBaum(baum.getBaumId());
+                EntityCaches.invalidiereBaumliste(baum.getParzelleId());
+            });
             return affectedRows > 0;
 
         } catch (DatabaseException e) {
@@ -145,9 +161,15 @@ public class BaumRepository extends BaseRepository {
      * Löscht einen Baum anhand seiner ID.
      */
     public boolean loesche(int baumId) throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.loescheBaum(baumId);
+        }
+
         String sql = "DELETE FROM baum WHERE baum_id = ?";
 
         int affectedRows = executeUpdate(sql, baumId);
+        invalidiereCache(() -> EntityCaches.invalidiereBaum(baumId));
         return affectedRows > 0;
     }
 
@@ -155,9 +177,15 @@ public class BaumRepository extends BaseRepository {
      * Löscht alle Bäume einer Parzelle.
      */
     public boolean loescheAlleVonParzelle(int parzelleId) throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.loescheBaeumeDerParzelle(parzelleId);
+        }
+
         String sql = "DELETE FROM baum WHERE parzelle_id = ?";
 
         int affectedRows = executeUpdate(sql, parzelleId);
+        invalidiereCache(() -> EntityCaches.invalidiereBaeumeDerParzelle(parzelleId));
         return affectedRows > 0;
     }
 
@@ -165,6 +193,11 @@ public class BaumRepository extends BaseRepository {
      * Findet alle Bäume (für Berechnungen).
      */
     public List<Baum> findAlle() throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeAlleBaeume();
+        }
+
         String sql = "SELECT * FROM baum ORDER BY baum_id";
 
         return executeQuery(sql, rs -> {
@@ -176,6 +209,99 @@ public class BaumRepository extends BaseRepository {
         });
     }
 
+    /**
+     * Übergibt alle Bäume einzeln an den Consumer, ohne die Tabelle im Speicher zu halten.
+     */
+    public void fuerJedenBaum(Consumer<Baum> verarbeitung) throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            speicher.findeAlleBaeume().forEach(verarbeitung);
+            return;
+        }
+
+        String sql = "SELECT * FROM baum ORDER BY baum_id";
+
+        executeStreamingQuery(sql, rs -> verarbeitung.accept(mapToBaum(rs)));
+    }
+
+    /**
+     * Liefert alle Bäume als lazy Stream. Muss geschlossen werden (try-with-resources).
+     */
+    public Stream<Baum> streamAlle() throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeAlleBaeume().stream();
+        }
+
+        String sql = "SELECT * FROM baum ORDER BY baum_id";
+
+        return executeStreamQuery(sql, this::mapToBaum);
+    }
+
+    /**
+     * Liest alle Bäume in einem Durchlauf, sortiert nach Parzelle, und übergibt die Bäume
+     * jeder Parzelle einzeln an den Callback. Es wird immer nur die Liste der aktuellen
+     * Parzelle im Speicher gehalten; Parzellen ohne Bäume werden nicht gemeldet.
+     */
+    public void fuerJedeParzelle(IntMap.IntObjConsumer<List<Baum>> verarbeitung) throws DatabaseException {
+        String sql = "SELECT * FROM baum ORDER BY parzelle_id, baum_id";
+
+        ParzellenGruppierung gruppierung = new ParzellenGruppierung(verarbeitung);
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            speicher.findeAlleBaeumeNachParzelle().forEach(gruppierung::hinzufuegen);
+        } else {
+            executeStreamingQuery(sql, rs -> gruppierung.hinzufuegen(mapToBaum(rs)));
+        }
+        gruppierung.abschliessen();
+    }
+
+    /**
+     * Lädt alle Bäume gruppiert nach Parzelle mit einer einzigen Abfrage.
+     * @return Index parzelleId -> Bäume der Parzelle (nach baum_id sortiert).
+     */
+    public IntMap<List<Baum>> findAlleGruppiertNachParzelle() throws DatabaseException {
+        IntMap<List<Baum>> index = new IntMap<>();
+        fuerJedeParzelle(index::put);
+        return index;
+    }
+
+    // ========================================================================
+    // ASYNCHRONE VARIANTEN (virtuelle Threads, siehe AsyncAusfuehrung)
+    // ========================================================================
+
+    public CompletableFuture<Baum> speichereAsync(Baum baum) {
+        return async(() -> speichere(baum));
+    }
+
+    public CompletableFuture<Baum> findByIdAsync(int baumId) {
+        return async(() -> findById(baumId));
+    }
+
+    public CompletableFuture<List<Baum>> findByParzelleIdAsync(int parzelleId) {
+        return async(() -> findByParzelleId(parzelleId));
+    }
+
+    public CompletableFuture<Boolean> aktualisiereAsync(Baum baum) {
+        return async(() -> aktualisiere(baum));
+    }
+
+    public CompletableFuture<Boolean> loescheAsync(int baumId) {
+        return async(() -> loesche(baumId));
+    }
+
+    public CompletableFuture<Boolean> loescheAlleVonParzelleAsync(int parzelleId) {
+        return async(() -> loescheAlleVonParzelle(parzelleId));
+    }
+
+    public CompletableFuture<List<Baum>> findAlleAsync() {
+        return async(this::findAlle);
+    }
+
+    public CompletableFuture<IntMap<List<Baum>>> findAlleGruppiertNachParzelleAsync() {
+        return async(this::findAlleGruppiertNachParzelle);
+    }
+
     /**
      * Mappt ein ResultSet zu einem Baum-Objekt.
      */
@@ -188,4 +314,33 @@ public class BaumRepository extends BaseRepository {
                 rs.getDouble("basis_bedarf")
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Sammelt aufeinanderfolgende Bäume derselben Parzelle und gibt die Gruppe
+     * weiter, sobald eine neue Parzelle beginnt (Eingabe muss nach parzelle_id sortiert sein).
+     */
+    private static class ParzellenGruppierung {
+        private final IntMap.IntObjConsumer<List<Baum>> verarbeitung;
+        private List<Baum> gruppe = new ArrayList<>();
+        private int aktuelleParzelleId;
+
+        ParzellenGruppierung(IntMap.IntObjConsumer<List<Baum>> verarbeitung) {
+            this.verarbeitung = verarbeitung;
+        }
+
+        void hinzufuegen(Baum baum) {
+            if (!gruppe.isEmpty() && baum.getParzelleId() != aktuelleParzelleId) {
+                abschliessen();
+            }
+            aktuelleParzelleId = baum.getParzelleId();
+            gruppe.add(baum);
+        }
+
+        void abschliessen() {
+            if (!gruppe.isEmpty()) {
+                verarbeitung.accept(aktuelleParzelleId, gruppe);
+                gruppe = new ArrayList<>();
+            }
+        }
+    }
+}
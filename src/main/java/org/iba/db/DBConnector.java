@@ -1,16 +1,38 @@
 package org.iba.db;
 
+import org.iba.db.cache.CacheConfig;
+import org.iba.db.cache.EntityCaches;
+import org.iba.db.embedded.EmbeddedConfig;
+import org.iba.db.embedded.EmbeddedSpeicher;
+import org.iba.db.embedded.InMemorySpeicher;
+import org.iba.db.embedded.LokalerSpeicher;
+import org.iba.db.pool.ConnectionPool;
+import org.iba.db.pool.PoolConfig;
+import org.iba.db.pool.ReplicaSet;
+import org.iba.db.statistik.StatistikConfig;
+import org.iba.db.transaction.RetryConfig;
 import org.iba.exception.DatabaseException;
 import org.iba.util.ExceptionUtils;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
  * Zentrale Klasse zur Verwaltung von Datenbankverbindungen.
- * Unterstützt verschiedene Profile und Connection-Pooling (erweiterbar).
+ * Unterstützt verschiedene Profile und Connection-Pooling.
+ * Ist für ein Profil "pool.enabled" gesetzt, liefert getConnection()
+ * Verbindungen aus einem Pool; close() gibt sie dorthin zurück.
+ * Sind für ein Profil "replica.urls" gesetzt, liefert getReadConnection()
+ * Verbindungen zu den Lese-Replikaten (Round-Robin mit Health-Checks).
+ * Die Profile EMBEDDED und MEMORY kommen ohne MySQL aus: die Repositories arbeiten
+ * dann auf einem Speicher im eigenen Prozess (siehe getLokalerSpeicher()).
  */
 public class DBConnector {
 
@@ -18,7 +40,9 @@ public class DBConnector {
     public enum Profile {
         DEVELOPMENT,
         TEST,
-        PRODUCTION
+        PRODUCTION,
+        EMBEDDED,
+        MEMORY
     }
 
     // Aktives Profil (default: DEVELOPMENT)
@@ -28,6 +52,21 @@ public class DBConnector {
     private static final Properties DEV_CONFIG = new Properties();
     private static final Properties TEST_CONFIG = new Properties();
     private static final Properties PROD_CONFIG = new Properties();
+    private static final Properties EMBEDDED_CONFIG = new Properties();
+    private static final Properties MEMORY_CONFIG = new Properties();
+
+    // Ein Pool pro Profil, wird beim ersten Zugriff erzeugt
+    private static final Map<Profile, ConnectionPool> POOLS = new EnumMap<>(Profile.class);
+
+    // Lese-Replikate pro Profil, werden beim ersten Lesezugriff erzeugt
+    private static final Map<Profile, ReplicaSet> REPLICAS = new EnumMap<>(Profile.class);
+
+    // Read-your-writes: Lesezugriffe dieses Threads gehen an den Primärserver
+    private static final ThreadLocal<Integer> PRIMAER_ERZWUNGEN = ThreadLocal.withInitial(() -> 0);
+
+    // Speicher des Profils EMBEDDED bzw. MEMORY, wird beim ersten Zugriff geöffnet
+    private static LokalerSpeicher lokalerSpeicher;
+    private static Profile lokalerSpeicherProfil;
 
     static {
         // Entwicklungsumgebung (deine lokale DB)
@@ -37,6 +76,29 @@ public class DBConnector {
         DEV_CONFIG.setProperty("charset", "UTF-8");
         DEV_CONFIG.setProperty("useSSL", "false");
         DEV_CONFIG.setProperty("serverTimezone", "UTC");
+        DEV_CONFIG.setProperty("isolation", "READ_COMMITTED");
+        DEV_CONFIG.setProperty("tx.retry.maxAttempts", "3");
+        DEV_CONFIG.setProperty("tx.retry.backoffMs", "50");
+        DEV_CONFIG.setProperty("tx.retry.maxBackoffMs", "1000");
+        DEV_CONFIG.setProperty("tx.timeoutMs", "60000");
+        DEV_CONFIG.setProperty("streaming.fetchSize", "-2147483648");
+        DEV_CONFIG.setProperty("pool.enabled", "true");
+        DEV_CONFIG.setProperty("pool.minSize", "1");
+        DEV_CONFIG.setProperty("pool.maxSize", "5");
+        DEV_CONFIG.setProperty("pool.idleTimeoutMs", "300000");
+        DEV_CONFIG.setProperty("pool.validateOnBorrow", "true");
+        DEV_CONFIG.setProperty("pool.maxLifetimeMs", "1800000");
+        DEV_CONFIG.setProperty("pool.statementCacheSize", "50");
+        DEV_CONFIG.setProperty("pool.borrowTimeoutMs", "10000");
+        DEV_CONFIG.setProperty("async.maxParallel", "5");
+        DEV_CONFIG.setProperty("cache.enabled", "true");
+        DEV_CONFIG.setProperty("cache.maxEntries", "10000");
+        DEV_CONFIG.setProperty("cache.ttlMs", "300000");
+        DEV_CONFIG.setProperty("replica.urls", "");
+        DEV_CONFIG.setProperty("replica.healthCheckIntervalMs", "5000");
+        DEV_CONFIG.setProperty("stats.enabled", "true");
+        DEV_CONFIG.setProperty("stats.slowQueryMs", "200");
+        DEV_CONFIG.setProperty("stats.explain", "true");
 
         // Testumgebung
         TEST_CONFIG.setProperty("url", "jdbc:mysql://localhost:3306/IBA_Olive_TEST");
@@ -45,6 +107,30 @@ public class DBConnector {
         TEST_CONFIG.setProperty("charset", "UTF-8");
         TEST_CONFIG.setProperty("useSSL", "false");
         TEST_CONFIG.setProperty("serverTimezone", "UTC");
+        TEST_CONFIG.setProperty("isolation", "READ_COMMITTED");
+        TEST_CONFIG.setProperty("tx.retry.maxAttempts", "3");
+        TEST_CONFIG.setProperty("tx.retry.backoffMs", "50");
+        TEST_CONFIG.setProperty("tx.retry.maxBackoffMs", "1000");
+        TEST_CONFIG.setProperty("tx.timeoutMs", "30000");
+        TEST_CONFIG.setProperty("streaming.fetchSize", "-2147483648");
+        TEST_CONFIG.setProperty("pool.enabled", "true");
+        TEST_CONFIG.setProperty("pool.minSize", "0");
+        TEST_CONFIG.setProperty("pool.maxSize", "4");
+        TEST_CONFIG.setProperty("pool.idleTimeoutMs", "60000");
+        TEST_CONFIG.setProperty("pool.validateOnBorrow", "true");
+        TEST_CONFIG.setProperty("pool.maxLifetimeMs", "600000");
+        TEST_CONFIG.setProperty("pool.statementCacheSize", "25");
+        TEST_CONFIG.setProperty("pool.borrowTimeoutMs", "5000");
+        TEST_CONFIG.setProperty("async.maxParallel", "4");
+        TEST_CONFIG.setProperty("cache.enabled", "false");
+        TEST_CONFIG.setProperty("cache.maxEntries", "1000");
+        TEST_CONFIG.setProperty("cache.ttlMs", "60000");
+        // Z.B. -Diba.test.replicaUrls=jdbc:mysql://localhost:3307/IBA_Olive_TEST
+        TEST_CONFIG.setProperty("replica.urls", System.getProperty("iba.test.replicaUrls", ""));
+        TEST_CONFIG.setProperty("replica.healthCheckIntervalMs", "1000");
+        TEST_CONFIG.setProperty("stats.enabled", "true");
+        TEST_CONFIG.setProperty("stats.slowQueryMs", "500");
+        TEST_CONFIG.setProperty("stats.explain", "false");
 
         // Produktionsumgebung (Beispiel)
         PROD_CONFIG.setProperty("url", "jdbc:mysql://prod-db.example.com:3306/IBA_Olive_PROD");
@@ -53,6 +139,55 @@ public class DBConnector {
         PROD_CONFIG.setProperty("charset", "UTF-8");
         PROD_CONFIG.setProperty("useSSL", "true");
         PROD_CONFIG.setProperty("serverTimezone", "UTC");
+        PROD_CONFIG.setProperty("isolation", "READ_COMMITTED");
+        PROD_CONFIG.setProperty("tx.retry.maxAttempts", "3");
+        PROD_CONFIG.setProperty("tx.retry.backoffMs", "50");
+        PROD_CONFIG.setProperty("tx.retry.maxBackoffMs", "1000");
+        PROD_CONFIG.setProperty("tx.timeoutMs", "30000");
+        PROD_CONFIG.setProperty("streaming.fetchSize", "1000");
+        PROD_CONFIG.setProperty("pool.enabled", "true");
+        PROD_CONFIG.setProperty("pool.minSize", "5");
+        PROD_CONFIG.setProperty("pool.maxSize", "30");
+        PROD_CONFIG.setProperty("pool.idleTimeoutMs", "600000");
+        PROD_CONFIG.setProperty("pool.validateOnBorrow", "true");
+        PROD_CONFIG.setProperty("pool.maxLifetimeMs", "1800000");
+        PROD_CONFIG.setProperty("pool.statementCacheSize", "100");
+        PROD_CONFIG.setProperty("pool.borrowTimeoutMs", "30000");
+        PROD_CONFIG.setProperty("async.maxParallel", "30");
+        PROD_CONFIG.setProperty("cache.enabled", "true");
+        PROD_CONFIG.setProperty("cache.maxEntries", "50000");
+        PROD_CONFIG.setProperty("cache.ttlMs", "600000");
+        PROD_CONFIG.setProperty("replica.urls", "");
+        PROD_CONFIG.setProperty("replica.healthCheckIntervalMs", "5000");
+        PROD_CONFIG.setProperty("stats.enabled", "true");
+        PROD_CONFIG.setProperty("stats.slowQueryMs", "1000");
+        PROD_CONFIG.setProperty("stats.explain", "false");
+
+        // Eingebetteter Speicher (Feldstation ohne Datenbankserver)
+        // Z.B. -Diba.embedded.dir=/var/lib/iba
+        EMBEDDED_CONFIG.setProperty("embedded.dir", System.getProperty("iba.embedded.dir", "iba-daten"));
+        EMBEDDED_CONFIG.setProperty("embedded.fsyncOnCommit", "false");
+        EMBEDDED_CONFIG.setProperty("embedded.syncIntervalMs", "1000");
+        EMBEDDED_CONFIG.setProperty("embedded.compactionIntervalMs", "600000");
+        EMBEDDED_CONFIG.setProperty("embedded.compactionGarbageRatio", "0.5");
+        EMBEDDED_CONFIG.setProperty("embedded.compactionMinBytes", "16777216");
+        EMBEDDED_CONFIG.setProperty("async.maxParallel", "8");
+        EMBEDDED_CONFIG.setProperty("pool.enabled", "false");
+        EMBEDDED_CONFIG.setProperty("cache.enabled", "false");
+        EMBEDDED_CONFIG.setProperty("replica.urls", "");
+
+        // Flüchtiger Speicher für Last- und Skalierungstests (ohne Datenbankserver)
+        MEMORY_CONFIG.setProperty("memory.stripes", "64");
+        MEMORY_CONFIG.setProperty("memory.lockTimeoutMs", "5000");
+        MEMORY_CONFIG.setProperty("isolation", "READ_COMMITTED");
+        MEMORY_CONFIG.setProperty("tx.retry.maxAttempts", "3");
+        MEMORY_CONFIG.setProperty("tx.retry.backoffMs", "20");
+        MEMORY_CONFIG.setProperty("tx.retry.maxBackoffMs", "200");
+        MEMORY_CONFIG.setProperty("tx.timeoutMs", "30000");
+        MEMORY_CONFIG.setProperty("async.maxParallel", "256");
+        MEMORY_CONFIG.setProperty("pool.enabled", "false");
+        MEMORY_CONFIG.setProperty("cache.enabled", "false");
+        MEMORY_CONFIG.setProperty("replica.urls", "");
     }
 
     /**
@@ -60,18 +195,35 @@ public class DBConnector {
      */
     public static void setActiveProfile(Profile profile) {
         activeProfile = profile;
+        // Gecachte Entitäten gehören zur Datenbank des alten Profils
+        EntityCaches.zuruecksetzen();
         System.out.println("DB Profil gewechselt zu: " + profile);
     }
 
+    public static Profile getActiveProfile() {
+        return activeProfile;
+    }
+
     /**
      * Gibt die aktuelle Konfiguration zurück.
      */
     private static Properties getCurrentConfig() {
-        switch (activeProfile) {
+        return getConfig(activeProfile);
+    }
+
+    /**
+     * Gibt die Konfiguration eines bestimmten Profils zurück.
+     */
+    private static Properties getConfig(Profile profile) {
+        switch (profile) {
             case TEST:
                 return TEST_CONFIG;
             case PRODUCTION:
                 return PROD_CONFIG;
+            case EMBEDDED:
+                return EMBEDDED_CONFIG;
+            case MEMORY:
+                return MEMORY_CONFIG;
             case DEVELOPMENT:
             default:
                 return DEV_CONFIG;
@@ -80,53 +232,341 @@ public class DBConnector {
 
     /**
      * Stellt eine Verbindung zur MySQL-Datenbank her.
+     * Bei aktiviertem Pooling stammt die Verbindung aus dem Pool des aktiven Profils.
      * @return Eine aktive JDBC Connection.
      * @throws DatabaseException falls die Verbindung fehlschlägt.
      */
     public static Connection getConnection() throws DatabaseException {
-        Properties config = getCurrentConfig();
+        Profile profile = activeProfile;
+        if (profile == Profile.EMBEDDED) {
+            throw new DatabaseException("Profil EMBEDDED hat keine JDBC-Verbindungen", null, -1);
+        }
+        if (profile == Profile.MEMORY) {
+            // Nur für Transaktionsgrenzen (TransactionManager), ohne SQL
+            return ((InMemorySpeicher) getLokalerSpeicher()).neueVerbindung();
+        }
 
         try {
-            // Treiber laden (für Kompatibilität)
-            Class.forName("com.mysql.cj.jdbc.Driver");
+            if (isPoolingEnabled(profile)) {
+                return getPool(profile).getConnection();
+            }
+            ladeTreiber();
+            return erstellePhysischeVerbindung(profile, getConfig(profile).getProperty("url"), false);
+
+        } catch (SQLException e) {
+            throw ExceptionUtils.wrapSQLException(e, "Verbindungsaufbau zu " + profile);
+        }
+    }
+
+    /**
+     * Liefert eine Verbindung für reine Lesezugriffe außerhalb einer Transaktion.
+     * Sind Replikate konfiguriert, stammt sie reihum von einem gesunden Replikat;
+     * ohne Replikate, wenn keines erreichbar ist oder innerhalb von lesePrimaer()
+     * kommt sie vom Primärserver. Replikate können dem Primärserver hinterherhinken.
+     */
+    public static Connection getReadConnection() throws DatabaseException {
+        Profile profile = activeProfile;
+
+        if (PRIMAER_ERZWUNGEN.get() > 0) {
+            return getConnection();
+        }
+        ReplicaSet replikate = getReplicaSet(profile);
+        if (replikate == null) {
+            return getConnection();
+        }
+
+        try {
+            return replikate.getConnection();
+        } catch (SQLException e) {
+            System.err.println("[DBConnector] Lesen vom Primärserver: " + e.getMessage());
+            return getConnection();
+        }
+    }
+
+    /**
+     * Führt die Operation aus, wobei alle Lesezugriffe dieses Threads an den
+     * Primärserver gehen (Read-your-writes, z.B. direkt nach einem Schreibvorgang).
+     */
+    public static <T> T lesePrimaer(LeseOperation<T> operation) throws DatabaseException {
+        PRIMAER_ERZWUNGEN.set(PRIMAER_ERZWUNGEN.get() + 1);
+        try {
+            return operation.ausfuehren();
+        } finally {
+            int tiefe = PRIMAER_ERZWUNGEN.get() - 1;
+            if (tiefe == 0) {
+                PRIMAER_ERZWUNGEN.remove();
+            } else {
+                PRIMAER_ERZWUNGEN.set(tiefe);
+            }
+        }
+    }
 
-            // Verbindung herstellen mit zusätzlichen Parametern
-            String url = config.getProperty("url");
-            String user = config.getProperty("user");
-            String password = config.getProperty("password");
-
-            // Zusätzliche Connection Properties
-            Properties connectionProps = new Properties();
-            connectionProps.setProperty("user", user);
-            connectionProps.setProperty("password", password);
-            connectionProps.setProperty("characterEncoding", config.getProperty("charset", "UTF-8"));
-            connectionProps.setProperty("useSSL", config.getProperty("useSSL", "false"));
-            connectionProps.setProperty("serverTimezone", config.getProperty("serverTimezone", "UTC"));
-
-            // Debug-Info
-            if (activeProfile == Profile.DEVELOPMENT) {
-                System.out.println("Verbindung wird hergestellt zu: " + url);
+    /**
+     * Liefert den Speicher im eigenen Prozess, falls das Profil EMBEDDED oder MEMORY
+     * aktiv ist (sonst null), und öffnet ihn beim ersten Zugriff.
+     */
+    public static LokalerSpeicher getLokalerSpeicher() throws DatabaseException {
+        Profile profile = activeProfile;
+        if (profile != Profile.EMBEDDED && profile != Profile.MEMORY) {
+            return null;
+        }
+        synchronized (DBConnector.class) {
+            if (lokalerSpeicher != null && (lokalerSpeicherProfil != profile || lokalerSpeicher.isGeschlossen())) {
+                lokalerSpeicher.close();
+                lokalerSpeicher = null;
+            }
+            if (lokalerSpeicher == null) {
+                if (profile == Profile.EMBEDDED) {
+                    EmbeddedConfig config = EmbeddedConfig.fromProperties(EMBEDDED_CONFIG);
+                    lokalerSpeicher = new EmbeddedSpeicher(config);
+                } else {
+                    lokalerSpeicher = new InMemorySpeicher(
+                            Integer.parseInt(MEMORY_CONFIG.getProperty("memory.stripes", "64")),
+                            Long.parseLong(MEMORY_CONFIG.getProperty("memory.lockTimeoutMs", "5000")));
+                }
+                lokalerSpeicherProfil = profile;
+                System.out.println("[DBConnector] Lokaler Speicher geöffnet: " + lokalerSpeicher);
             }
+            return lokalerSpeicher;
+        }
+    }
 
-            Connection connection = DriverManager.getConnection(url, connectionProps);
+    /**
+     * Gibt die DataSource des aktiven Profils zurück (gepoolt, falls aktiviert).
+     */
+    public static DataSource getDataSource() throws DatabaseException {
+        if (!isPoolingEnabled(activeProfile)) {
+            throw new DatabaseException("Pooling ist für Profil " + activeProfile + " deaktiviert",
+                    null, -1);
+        }
+        return getPool(activeProfile);
+    }
 
-            // Optimale Connection-Einstellungen
-            connection.setAutoCommit(true); // Standard: Auto-Commit
-            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+    /**
+     * Schließt alle Connection-Pools (z.B. beim Beenden der Anwendung).
+     */
+    public static synchronized void shutdown() {
+        for (ConnectionPool pool : POOLS.values()) {
+            pool.close();
+        }
+        POOLS.clear();
+        for (ReplicaSet replikate : REPLICAS.values()) {
+            replikate.close();
+        }
+        REPLICAS.clear();
+        if (lokalerSpeicher != null) {
+            lokalerSpeicher.close();
+            lokalerSpeicher = null;
+        }
+    }
 
-            return connection;
+    private static boolean isPoolingEnabled(Profile profile) {
+        return Boolean.parseBoolean(getConfig(profile).getProperty("pool.enabled", "false"));
+    }
 
+    /**
+     * Liefert den Pool eines Profils und legt ihn beim ersten Zugriff an.
+     */
+    private static synchronized ConnectionPool getPool(Profile profile) throws DatabaseException {
+        ConnectionPool pool = POOLS.get(profile);
+
+        if (pool == null || pool.isClosed()) {
+            ladeTreiber();
+            PoolConfig poolConfig = PoolConfig.fromProperties(getConfig(profile));
+            String url = getConfig(profile).getProperty("url");
+            pool = new ConnectionPool(profile.name(), poolConfig, () -> erstellePhysischeVerbindung(profile, url, false));
+            POOLS.put(profile, pool);
+            System.out.println("[DBConnector] Connection-Pool erstellt: " + poolConfig);
+        }
+        return pool;
+    }
+
+    /**
+     * Liefert die Replikate eines Profils (null, wenn keine konfiguriert sind)
+     * und legt sie beim ersten Zugriff an. Jedes Replikat erhält einen eigenen Pool.
+     */
+    private static synchronized ReplicaSet getReplicaSet(Profile profile) throws DatabaseException {
+        List<String> urls = getReplicaUrls(profile);
+        if (urls.isEmpty()) {
+            return null;
+        }
+
+        ReplicaSet replikate = REPLICAS.get(profile);
+        if (replikate == null) {
+            ladeTreiber();
+            Properties config = getConfig(profile);
+            PoolConfig poolConfig = PoolConfig.fromProperties(config);
+            List<ConnectionPool> pools = new ArrayList<>();
+            for (int i = 0; i < urls.size(); i++) {
+                String url = urls.get(i);
+                pools.add(new ConnectionPool(profile.name() + "-replica-" + (i + 1), poolConfig,
+                        () -> erstellePhysischeVerbindung(profile, url, true)));
+            }
+            replikate = new ReplicaSet(profile.name(), pools,
+                    Long.parseLong(config.getProperty("replica.healthCheckIntervalMs", "5000")));
+            REPLICAS.put(profile, replikate);
+            System.out.println("[DBConnector] Lese-Replikate erstellt: " + urls);
+        }
+        return replikate;
+    }
+
+    private static List<String> getReplicaUrls(Profile profile) {
+        List<String> urls = new ArrayList<>();
+        for (String url : getConfig(profile).getProperty("replica.urls", "").split(",")) {
+            if (!url.isBlank()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls;
+    }
+
+    private static void ladeTreiber() throws DatabaseException {
+        try {
+            // Treiber laden (für Kompatibilität)
+            Class.forName("com.mysql.cj.jdbc.Driver");
         } catch (ClassNotFoundException e) {
             throw new DatabaseException("MySQL JDBC Driver nicht gefunden.", e);
-        } catch (SQLException e) {
-            throw ExceptionUtils.wrapSQLException(e, "Verbindungsaufbau zu " + activeProfile);
         }
     }
 
+    /**
+     * Baut eine neue physische Verbindung für das angegebene Profil auf.
+     * Verbindungen zu einem Replikat werden als read-only markiert.
+     */
+    private static Connection erstellePhysischeVerbindung(Profile profile, String url, boolean replikat)
+            throws SQLException {
+        Properties config = getConfig(profile);
+
+        // Verbindung herstellen mit zusätzlichen Parametern
+        String user = config.getProperty("user");
+        String password = config.getProperty("password");
+
+        // Zusätzliche Connection Properties
+        Properties connectionProps = new Properties();
+        connectionProps.setProperty("user", user);
+        connectionProps.setProperty("password", password);
+        connectionProps.setProperty("characterEncoding", config.getProperty("charset", "UTF-8"));
+        connectionProps.setProperty("useSSL", config.getProperty("useSSL", "false"));
+        connectionProps.setProperty("serverTimezone", config.getProperty("serverTimezone", "UTC"));
+
+        // Mit Statement-Cache lohnen sich serverseitige Prepared Statements (einmal parsen, oft ausführen)
+        boolean statementCache = Integer.parseInt(config.getProperty("pool.statementCacheSize", "0")) > 0;
+        connectionProps.setProperty("useServerPrepStmts", String.valueOf(statementCache));
+
+        // Positive Streaming-Fetchsize = serverseitiger Cursor, der Treiber holt blockweise
+        connectionProps.setProperty("useCursorFetch", String.valueOf(getStreamingFetchSize(profile) > 0));
+
+        // JDBC-Batches vom Treiber zu mehrzeiligen INSERTs zusammenfassen lassen
+        connectionProps.setProperty("rewriteBatchedStatements",
+                config.getProperty("rewriteBatchedStatements", "true"));
+
+        // Debug-Info
+        if (profile == Profile.DEVELOPMENT) {
+            System.out.println("Verbindung wird hergestellt zu: " + url);
+        }
+
+        Connection connection = DriverManager.getConnection(url, connectionProps);
+
+        // Optimale Connection-Einstellungen (der Pool stellt sie bei Rückgabe wieder her)
+        connection.setAutoCommit(true); // Standard: Auto-Commit
+        connection.setTransactionIsolation(getTransactionIsolation(profile));
+        if (replikat) {
+            connection.setReadOnly(true);
+        }
+
+        return connection;
+    }
+
+    /**
+     * Gibt das Isolationslevel des aktiven Profils zurück (Property "isolation").
+     */
+    public static int getTransactionIsolation() {
+        return getTransactionIsolation(activeProfile);
+    }
+
+    private static int getTransactionIsolation(Profile profile) {
+        String isolation = getConfig(profile).getProperty("isolation", "READ_COMMITTED");
+
+        switch (isolation) {
+            case "READ_UNCOMMITTED":
+                return Connection.TRANSACTION_READ_UNCOMMITTED;
+            case "REPEATABLE_READ":
+                return Connection.TRANSACTION_REPEATABLE_READ;
+            case "SERIALIZABLE":
+                return Connection.TRANSACTION_SERIALIZABLE;
+            case "READ_COMMITTED":
+                return Connection.TRANSACTION_READ_COMMITTED;
+            default:
+                throw new IllegalStateException("Unbekanntes Isolationslevel im Profil " +
+                        profile + ": " + isolation);
+        }
+    }
+
+    /**
+     * Wiederholungsstrategie für Transaktionen des aktiven Profils ("tx.retry.*"-Properties).
+     */
+    public static RetryConfig getRetryConfig() {
+        return RetryConfig.fromProperties(getCurrentConfig());
+    }
+
+    /**
+     * Frist für Schreibtransaktionen des aktiven Profils in Millisekunden
+     * (Property "tx.timeoutMs", 0 = ohne Frist), siehe TransactionManager.
+     */
+    public static long getTransaktionsTimeoutMs() {
+        return Long.parseLong(getCurrentConfig().getProperty("tx.timeoutMs", "0"));
+    }
+
+    /**
+     * Fetchsize für Streaming-Abfragen des aktiven Profils (Property "streaming.fetchSize").
+     * Integer.MIN_VALUE lässt den MySQL-Treiber Zeile für Zeile streamen,
+     * ein positiver Wert nutzt einen serverseitigen Cursor mit dieser Blockgröße.
+     */
+    public static int getStreamingFetchSize() {
+        return getStreamingFetchSize(activeProfile);
+    }
+
+    private static int getStreamingFetchSize(Profile profile) {
+        return Integer.parseInt(getConfig(profile).getProperty("streaming.fetchSize",
+                String.valueOf(Integer.MIN_VALUE)));
+    }
+
+    /**
+     * Maximale Anzahl gleichzeitig laufender asynchroner Repository-Aufrufe des aktiven Profils
+     * (Property "async.maxParallel", sonst pool.maxSize), siehe AsyncAusfuehrung.
+     */
+    public static int getAsyncMaxParallel() {
+        Properties config = getCurrentConfig();
+        String standard = config.getProperty("pool.maxSize", "10");
+        return Math.max(1, Integer.parseInt(config.getProperty("async.maxParallel", standard)));
+    }
+
+    /**
+     * Entity-Cache-Einstellungen des aktiven Profils ("cache.*"-Properties).
+     */
+    public static CacheConfig getCacheConfig() {
+        return CacheConfig.fromProperties(getCurrentConfig());
+    }
+
+    /**
+     * Einstellungen der Abfrage-Statistik des aktiven Profils ("stats.*"-Properties).
+     */
+    public static StatistikConfig getStatistikConfig() {
+        return StatistikConfig.fromProperties(getCurrentConfig());
+    }
+
     /**
      * Testet die Datenbankverbindung.
      */
     public static boolean testConnection() {
+        if (activeProfile == Profile.EMBEDDED || activeProfile == Profile.MEMORY) {
+            try {
+                return !getLokalerSpeicher().isGeschlossen();
+            } catch (DatabaseException e) {
+                System.err.println("Verbindungstest fehlgeschlagen: " + e.getMessage());
+                return false;
+            }
+        }
         try (Connection conn = getConnection()) {
             return conn.isValid(2); // 2 Sekunden Timeout
         } catch (Exception e) {
@@ -140,11 +580,38 @@ public class DBConnector {
      */
     public static String getConnectionInfo() {
         Properties config = getCurrentConfig();
+        if (activeProfile == Profile.EMBEDDED || activeProfile == Profile.MEMORY) {
+            LokalerSpeicher speicher;
+            synchronized (DBConnector.class) {
+                speicher = lokalerSpeicherProfil == activeProfile ? lokalerSpeicher : null;
+            }
+            return String.format("DB Profil: %s\nSpeicher: %s",
+                    activeProfile,
+                    speicher != null ? speicher : "noch nicht geöffnet");
+        }
+        ConnectionPool pool;
+        ReplicaSet replikate;
+        synchronized (DBConnector.class) {
+            pool = POOLS.get(activeProfile);
+            replikate = REPLICAS.get(activeProfile);
+        }
         return String.format(
-                "DB Profil: %s\nURL: %s\nUser: %s",
+                "DB Profil: %s\nURL: %s\nUser: %s\nPool: %s\nReplikate: %s\nCache: %s",
                 activeProfile,
                 config.getProperty("url"),
-                config.getProperty("user")
+                config.getProperty("user"),
+                pool != null ? pool : (isPoolingEnabled(activeProfile) ? "noch nicht initialisiert" : "deaktiviert"),
+                replikate != null ? replikate
+                        : (getReplicaUrls(activeProfile).isEmpty() ? "keine" : "noch nicht initialisiert"),
+                EntityCaches.getStatistik()
         );
     }
+
+    /**
+     * Lesende Operation für lesePrimaer().
+     */
+    @FunctionalInterface
+    public interface LeseOperation<T> {
+        T ausfuehren() throws DatabaseException;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+package org.iba.db;
+
+import org.iba.model.Messung;
+import org.iba.util.IntMap;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pflegt die aus messwerte abgeleiteten Tabellen auf der Connection des Inserts
+ * (also in derselben Transaktion):
+ * - messwerte_aktuell: neueste Messung pro Parzelle
+ * - messwerte_stuendlich / messwerte_taeglich: Min/Max/Summe der Temperatur,
+ *   Niederschlagssumme und Anzahl pro Parzelle und Stunde bzw. Tag
+ *
+ * Stunde und Tag einer Messung bestimmt der Server aus dem gebundenen zeitstempel, mit
+ * denselben Ausdrücken wie der Neuaufbau (zeitstempel wird vom Treiber zwischen JVM- und
+ * Sitzungszeitzone umgerechnet, eine Rundung in der JVM ergäbe andere Perioden).
+ *
+ * Messungen werden vor dem Schreiben pro Parzelle und Viertelstunde vorverdichtet,
+ * sodass ein Chunk höchstens eine Zeile pro betroffener Viertelstunde schreibt.
+ */
+class MesswerteProjektionen implements AutoCloseable {
+
+    // Ältere Messungen überschreiben die neueste nicht.
+    // zeitstempel wird zuletzt zugewiesen, da MySQL die Zuweisungen von links nach rechts auswertet.
+    private static final String UPSERT_AKTUELL_SQL =
+            "INSERT INTO messwerte_aktuell (parzelle_id, temperatur, niederschlag, zeitstempel) " +
+                    "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                    "temperatur = IF(VALUES(zeitstempel) >= zeitstempel, VALUES(temperatur), temperatur), " +
+                    "niederschlag = IF(VALUES(zeitstempel) >= zeitstempel, VALUES(niederschlag), niederschlag), " +
+                    "zeitstempel = GREATEST(zeitstempel, VALUES(zeitstempel))";
+
+    private static final String ROLLUP_UPDATE =
+            " ON DUPLICATE KEY UPDATE " +
+                    "temperatur_min = LEAST(temperatur_min, VALUES(temperatur_min)), " +
+                    "temperatur_max = GREATEST(temperatur_max, VALUES(temperatur_max)), " +
+                    "temperatur_summe = temperatur_summe + VALUES(temperatur_summe), " +
+                    "niederschlag_summe = niederschlag_summe + VALUES(niederschlag_summe), " +
+                    "anzahl = anzahl + VALUES(anzahl)";
+
+    static final String UPSERT_STUENDLICH_SQL = rollupUpsert("messwerte_stuendlich", stundeVon("?"));
+
+    static final String UPSERT_TAEGLICH_SQL = rollupUpsert("messwerte_taeglich", tagVon("?"));
+
+    // Neuaufbau aus den Rohdaten für den Zeitraum [?, ?): Stundenwerte aus messwerte,
+    // Tageswerte aus den Stundenwerten
+    static final String NEUAUFBAU_STUENDLICH_SQL =
+            "INSERT INTO messwerte_stuendlich (parzelle_id, periode, temperatur_min, temperatur_max, " +
+                    "temperatur_summe, niederschlag_summe, anzahl) " +
+                    "SELECT parzelle_id, " + stundeVon("zeitstempel") + ", MIN(temperatur), " +
+                    "MAX(temperatur), SUM(temperatur), SUM(niederschlag), COUNT(*) FROM messwerte " +
+                    "WHERE zeitstempel >= ? AND zeitstempel < ? " +
+                    "GROUP BY parzelle_id, " + stundeVon("zeitstempel");
+
+    static final String NEUAUFBAU_TAEGLICH_SQL =
+            "INSERT INTO messwerte_taeglich (parzelle_id, periode, temperatur_min, temperatur_max, " +
+                    "temperatur_summe, niederschlag_summe, anzahl) " +
+                    "SELECT parzelle_id, " + tagVon("periode") + ", MIN(temperatur_min), MAX(temperatur_max), " +
+                    "SUM(temperatur_summe), SUM(niederschlag_summe), SUM(anzahl) FROM messwerte_stuendlich " +
+                    "WHERE periode >= ? AND periode < ? " +
+                    "GROUP BY parzelle_id, " + tagVon("periode");
+
+    private final PreparedStatement aktuell;
+    private final PreparedStatement stuendlich;
+    private final PreparedStatement taeglich;
+
+    MesswerteProjektionen(Connection connection) throws SQLException {
+        this.aktuell = BaseRepository.vorbereiten(connection, UPSERT_AKTUELL_SQL);
+        this.stuendlich = BaseRepository.vorbereiten(connection, UPSERT_STUENDLICH_SQL);
+        this.taeglich = BaseRepository.vorbereiten(connection, UPSERT_TAEGLICH_SQL);
+    }
+
+    /**
+     * Beginn der Stunde eines DATETIME-Ausdrucks, berechnet vom Server.
+     */
+    static String stundeVon(String ausdruck) {
+        return "DATE_FORMAT(" + ausdruck + ", '%Y-%m-%d %H:00:00')";
+    }
+
+    /**
+     * Beginn des Tages eines DATETIME-Ausdrucks, berechnet vom Server.
+     */
+    static String tagVon(String ausdruck) {
+        return "DATE(" + ausdruck + ")";
+    }
+
+    private static String rollupUpsert(String tabelle, String periode) {
+        return "INSERT INTO " + tabelle + " (parzelle_id, periode, temperatur_min, temperatur_max, " +
+                "temperatur_summe, niederschlag_summe, anzahl) VALUES (?, " + periode + ", ?, ?, ?, ?, ?)" +
+                ROLLUP_UPDATE;
+    }
+
+    /**
+     * Übernimmt bereits in messwerte geschriebene Messungen in alle Projektionen.
+     */
+    void schreibe(List<Messung> messungen) throws SQLException {
+        schreibeAktuell(messungen);
+        Map<Periode, Verdichtung> verdichtet = verdichte(messungen);
+        schreibeRollup(stuendlich, verdichtet);
+        schreibeRollup(taeglich, verdichtet);
+    }
+
+    /**
+     * Verwirft noch nicht ausgeführte Batches (nach einem fehlgeschlagenen Chunk).
+     */
+    void verwerfe() throws SQLException {
+        aktuell.clearBatch();
+        stuendlich.clearBatch();
+        taeglich.clearBatch();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            aktuell.close();
+        } finally {
+            try {
+                stuendlich.close();
+            } finally {
+                taeglich.close();
+            }
+        }
+    }
+
+    private void schreibeAktuell(List<Messung> messungen) throws SQLException {
+        IntMap<Messung> neueste = new IntMap<>(messungen.size());
+        for (Messung messung : messungen) {
+            Messung bisher = neueste.get(messung.getParzelleId());
+            if (bisher == null || !messung.getZeitstempel().isBefore(bisher.getZeitstempel())) {
+                neueste.put(messung.getParzelleId(), messung);
+            }
+        }
+
+        for (int parzelleId : neueste.keys()) {
+            Messung messung = neueste.get(parzelleId);
+            aktuell.setInt(1, parzelleId);
+            aktuell.setDouble(2, messung.getMesswerte().getTemperatur());
+            aktuell.setDouble(3, messung.getMesswerte().getNiederschlag());
+            aktuell.setTimestamp(4, Timestamp.valueOf(messung.getZeitstempel()));
+            aktuell.addBatch();
+        }
+        aktuell.executeBatch();
+    }
+
+    // Viertelstunden: Zeitzonen-Versätze sind Vielfache von 15 Minuten, eine Viertelstunde der
+    // JVM liegt daher in genau einer Stunde und einem Tag der Datenbank-Sitzung
+    private static Map<Periode, Verdichtung> verdichte(List<Messung> messungen) {
+        Map<Periode, Verdichtung> verdichtet = new LinkedHashMap<>();
+        for (Messung messung : messungen) {
+            LocalDateTime zeitstempel = messung.getZeitstempel();
+            Periode schluessel = new Periode(messung.getParzelleId(),
+                    zeitstempel.truncatedTo(ChronoUnit.HOURS).plusMinutes(zeitstempel.getMinute() / 15 * 15));
+            verdichtet.computeIfAbsent(schluessel, k -> new Verdichtung(zeitstempel)).add(messung);
+        }
+        return verdichtet;
+    }
+
+    private void schreibeRollup(PreparedStatement stmt, Map<Periode, Verdichtung> verdichtet)
+            throws SQLException {
+
+        for (Map.Entry<Periode, Verdichtung> eintrag : verdichtet.entrySet()) {
+            Verdichtung v = eintrag.getValue();
+            stmt.setInt(1, eintrag.getKey().parzelleId());
+            // Wie in messwerte gebunden; die Periode berechnet der Server
+            stmt.setTimestamp(2, Timestamp.valueOf(v.zeitstempel));
+            stmt.setDouble(3, v.temperaturMin);
+            stmt.setDouble(4, v.temperaturMax);
+            stmt.setDouble(5, v.temperaturSumme);
+            stmt.setDouble(6, v.niederschlagSumme);
+            stmt.setInt(7, v.anzahl);
+            stmt.addBatch();
+        }
+        stmt.executeBatch();
+    }
+
+    private record Periode(int parzelleId, LocalDateTime beginn) {
+    }
+
+    private static class Verdichtung {
+        // Zeitstempel einer der verdichteten Messungen, liegt in derselben Periode wie alle
+        final LocalDateTime zeitstempel;
+        double temperaturMin = Double.POSITIVE_INFINITY;
+        double temperaturMax = Double.NEGATIVE_INFINITY;
+        double temperaturSumme = 0;
+        double niederschlagSumme = 0;
+        int anzahl = 0;
+
+        Verdichtung(LocalDateTime zeitstempel) {
+            this.zeitstempel = zeitstempel;
+        }
+
+        void add(Messung messung) {
+            double temperatur = messung.getMesswerte().getTemperatur();
+            temperaturMin = Math.min(temperaturMin, temperatur);
+            temperaturMax = Math.max(temperaturMax, temperatur);
+            temperaturSumme += temperatur;
+            niederschlagSumme += messung.getMesswerte().getNiederschlag();
+            anzahl++;
+        }
+    }
+}
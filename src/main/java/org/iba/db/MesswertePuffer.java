@@ -0,0 +1,324 @@
+package org.iba.db;
+
+import org.iba.exception.DatabaseException;
+import org.iba.exception.ValidationException;
+import org.iba.model.Messung;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-Behind-Puffer für Messwerte mit Group-Commit.
+ * - Aufrufer reihen Messungen in einen begrenzten Puffer ein und warten nicht auf die Datenbank
+ * - Ein Hintergrund-Thread schreibt gesammelte Messungen als Batch in einer Transaktion,
+ *   sobald die Batchgröße erreicht oder die maximale Wartezeit abgelaufen ist
+ * - Backpressure: ist der Puffer voll, blockiert das Einreihen bis zum Einreih-Timeout
+ * - close() (und ein Shutdown-Hook) schreiben alle noch gepufferten Messungen
+ *
+ * Jede eingereihte Messung liefert ein Future, das nach dem Commit abgeschlossen wird
+ * (bzw. mit dem Fehler ihrer Zeile). Wer Dauerhaftigkeit braucht, wartet darauf oder
+ * benutzt speichereUndWarte() bzw. flush().
+ */
+public class MesswertePuffer implements AutoCloseable {
+
+    public static final int STANDARD_KAPAZITAET = 10_000;
+    public static final long STANDARD_MAX_WARTEZEIT_MS = 200;
+    public static final long STANDARD_EINREIH_TIMEOUT_MS = 5_000;
+
+    private final BatchSchreiber schreiber;
+    private final BlockingQueue<Auftrag> puffer;
+    private final int batchGroesse;
+    private final long maxWartezeitNanos;
+    private final long einreihTimeoutMs;
+
+    private final Thread writer;
+    private final Thread shutdownHook;
+    private volatile boolean geschlossen = false;
+    // Einreihen (Lesesperre) und Schließen (Schreibsperre) schließen sich aus: nach close()
+    // landet kein Auftrag mehr im Puffer, der weder vom Writer noch vom Rest-Schreiben erfasst wird
+    private final ReentrantReadWriteLock einreihSperre = new ReentrantReadWriteLock();
+
+    private final AtomicLong geschrieben = new AtomicLong();
+    private final AtomicLong fehlgeschlagen = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * Puffer mit Standardeinstellungen, der über speichereBatch() schreibt.
+     */
+    public MesswertePuffer(MesswerteRepository repository) {
+        this(repository::speichereBatch, STANDARD_KAPAZITAET, MesswerteRepository.STANDARD_BATCH_GROESSE,
+                STANDARD_MAX_WARTEZEIT_MS, STANDARD_EINREIH_TIMEOUT_MS);
+    }
+
+    /**
+     * @param schreiber Schreibt einen Batch dauerhaft (eigene Transaktion).
+     * @param kapazitaet Maximale Anzahl gepufferter Messungen.
+     * @param batchGroesse Maximale Anzahl Messungen pro Schreibvorgang.
+     * @param maxWartezeitMs Maximale Zeit, die eine Messung auf weitere Messungen für ihren Batch wartet.
+     * @param einreihTimeoutMs Maximale Wartezeit beim Einreihen in einen vollen Puffer.
+     */
+    public MesswertePuffer(BatchSchreiber schreiber, int kapazitaet, int batchGroesse,
+                           long maxWartezeitMs, long einreihTimeoutMs) {
+        if (kapazitaet <= 0 || batchGroesse <= 0 || maxWartezeitMs <= 0 || einreihTimeoutMs <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Ungültige Puffer-Einstellungen: kapazitaet=%d, batchGroesse=%d, maxWartezeit=%dms, einreihTimeout=%dms",
+                    kapazitaet, batchGroesse, maxWartezeitMs, einreihTimeoutMs));
+        }
+
+        this.schreiber = schreiber;
+        this.puffer = new ArrayBlockingQueue<>(kapazitaet);
+        this.batchGroesse = batchGroesse;
+        this.maxWartezeitNanos = TimeUnit.MILLISECONDS.toNanos(maxWartezeitMs);
+        this.einreihTimeoutMs = einreihTimeoutMs;
+
+        this.writer = new Thread(this::schreibeSchleife, "iba-messwerte-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+
+        // Gepufferte Messungen auch beim Beenden der JVM noch schreiben
+        this.shutdownHook = new Thread(this::close, "iba-messwerte-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Reiht eine Messung zum Schreiben ein.
+     * @return Future, das nach dem Commit der Messung abgeschlossen wird.
+     * @throws DatabaseException wenn der Puffer geschlossen ist oder bis zum Timeout voll bleibt.
+     */
+    public CompletableFuture<Void> einreihen(Messung messung) throws DatabaseException, ValidationException {
+        if (messung == null) {
+            throw new ValidationException("messung", null, "Messung darf nicht null sein");
+        }
+        Auftrag auftrag = new Auftrag(messung, new CompletableFuture<>(), false);
+        stelleEin(auftrag);
+        return auftrag.bestaetigung();
+    }
+
+    /**
+     * Reiht eine Messung ein und wartet, bis sie dauerhaft gespeichert ist.
+     */
+    public void speichereUndWarte(Messung messung) throws DatabaseException, ValidationException {
+        warte(einreihen(messung));
+    }
+
+    /**
+     * Schreibt alle bisher eingereihten Messungen sofort und wartet auf deren Commit.
+     * Fehler einzelner Messungen werden nur über deren Futures gemeldet.
+     */
+    public void flush() throws DatabaseException, ValidationException {
+        Auftrag marker = new Auftrag(null, new CompletableFuture<>(), false);
+        stelleEin(marker);
+        warte(marker.bestaetigung());
+    }
+
+    /**
+     * Nimmt keine neuen Messungen mehr an, schreibt alle gepufferten und beendet den Writer.
+     * Wartet dazu auf Aufrufer, die gerade in einen vollen Puffer einreihen (höchstens bis
+     * zu deren Einreih-Timeout).
+     */
+    @Override
+    public void close() {
+        einreihSperre.writeLock().lock();
+        try {
+            if (geschlossen) {
+                return;
+            }
+            geschlossen = true;
+        } finally {
+            einreihSperre.writeLock().unlock();
+        }
+
+        try {
+            puffer.put(new Auftrag(null, new CompletableFuture<>(), true));
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Reste hinter dem Stopp-Marker (nur nach Unterbrechung möglich) direkt schreiben
+        List<Auftrag> rest = new ArrayList<>();
+        puffer.drainTo(rest);
+        rest.removeIf(auftrag -> {
+            if (auftrag.messung() == null) {
+                auftrag.bestaetigung().complete(null);
+                return true;
+            }
+            return false;
+        });
+        schreibe(rest);
+
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM wird bereits beendet
+            }
+        }
+        System.out.println("[MesswertePuffer] Geschlossen: " + this);
+    }
+
+    // ========================================================================
+    // HINTERGRUND-WRITER
+    // ========================================================================
+
+    private void stelleEin(Auftrag auftrag) throws DatabaseException {
+        einreihSperre.readLock().lock();
+        try {
+            if (geschlossen) {
+                throw new DatabaseException("Messwerte-Puffer ist geschlossen", null, -1);
+            }
+            if (!puffer.offer(auftrag, einreihTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new DatabaseException(String.format(
+                        "Messwerte-Puffer nach %d ms noch voll (%d Messungen ausstehend)",
+                        einreihTimeoutMs, puffer.size()), null, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Einreihen in den Messwerte-Puffer unterbrochen", e);
+        } finally {
+            einreihSperre.readLock().unlock();
+        }
+    }
+
+    private void schreibeSchleife() {
+        List<Auftrag> batch = new ArrayList<>(batchGroesse);
+
+        while (true) {
+            Auftrag marker = null;
+            try {
+                Auftrag auftrag = puffer.take();
+                long frist = System.nanoTime() + maxWartezeitNanos;
+
+                // Batch sammeln, bis er voll ist, die Wartezeit abläuft oder ein Marker kommt
+                while (auftrag != null) {
+                    if (auftrag.messung() == null) {
+                        marker = auftrag;
+                        break;
+                    }
+                    batch.add(auftrag);
+                    if (batch.size() >= batchGroesse) {
+                        break;
+                    }
+                    auftrag = puffer.poll(frist - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                // Writer wird nur über den Stopp-Marker beendet
+            }
+
+            schreibe(batch);
+            batch.clear();
+
+            if (marker != null) {
+                marker.bestaetigung().complete(null);
+                if (marker.stopp()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void schreibe(List<Auftrag> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Messung> messungen = new ArrayList<>(batch.size());
+        for (Auftrag auftrag : batch) {
+            messungen.add(auftrag.messung());
+        }
+
+        // Zähler vor dem Abschließen der Futures setzen, damit wartende Aufrufer sie bereits sehen
+        batches.incrementAndGet();
+        try {
+            BatchErgebnis<Messung> ergebnis = schreiber.schreibe(messungen);
+            geschrieben.addAndGet(ergebnis.getAnzahlGespeichert());
+            fehlgeschlagen.addAndGet(ergebnis.getFehler().size());
+
+            for (BatchErgebnis.Fehler<Messung> fehler : ergebnis.getFehler()) {
+                batch.get(fehler.getIndex()).bestaetigung().completeExceptionally(fehler.getUrsache());
+            }
+            for (Auftrag auftrag : batch) {
+                auftrag.bestaetigung().complete(null);
+            }
+
+        } catch (Exception e) {
+            System.err.println("[MesswertePuffer] Batch mit " + batch.size() +
+                    " Messungen fehlgeschlagen: " + e.getMessage());
+            fehlgeschlagen.addAndGet(batch.size());
+            for (Auftrag auftrag : batch) {
+                auftrag.bestaetigung().completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void warte(CompletableFuture<Void> bestaetigung) throws DatabaseException, ValidationException {
+        try {
+            bestaetigung.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Warten auf das Schreiben der Messwerte unterbrochen", e);
+        } catch (ExecutionException e) {
+            Throwable ursache = e.getCause();
+            if (ursache instanceof ValidationException) {
+                throw (ValidationException) ursache;
+            }
+            if (ursache instanceof DatabaseException) {
+                throw (DatabaseException) ursache;
+            }
+            throw new DatabaseException("Messwerte konnten nicht geschrieben werden: " +
+                    ursache.getMessage(), ursache);
+        }
+    }
+
+    // ========================================================================
+    // STATISTIK
+    // ========================================================================
+
+    public int getAnzahlGepuffert() {
+        return puffer.size();
+    }
+
+    public long getAnzahlGeschrieben() {
+        return geschrieben.get();
+    }
+
+    public long getAnzahlFehlgeschlagen() {
+        return fehlgeschlagen.get();
+    }
+
+    public long getAnzahlBatches() {
+        return batches.get();
+    }
+
+    public boolean isGeschlossen() {
+        return geschlossen;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MesswertePuffer{gepuffert=%d, geschrieben=%d, fehlgeschlagen=%d, batches=%d}",
+                getAnzahlGepuffert(), getAnzahlGeschrieben(), getAnzahlFehlgeschlagen(), getAnzahlBatches());
+    }
+
+    /**
+     * Eine Messung mit ihrer Bestätigung; messung == null kennzeichnet einen
+     * Flush- bzw. Stopp-Marker.
+     */
+    private record Auftrag(Messung messung, CompletableFuture<Void> bestaetigung, boolean stopp) {
+    }
+
+    /**
+     * Schreibt einen Batch von Messungen dauerhaft (z.B. MesswerteRepository::speichereBatch).
+     */
+    @FunctionalInterface
+    public interface BatchSchreiber {
+        BatchErgebnis<Messung> schreibe(List<Messung> messungen) throws DatabaseException, ValidationException;
+    }
+}
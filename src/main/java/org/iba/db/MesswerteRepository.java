@@ -1,34 +1,73 @@
 package org.iba.db;
 
+import org.iba.db.embedded.LokalerSpeicher;
+import org.iba.db.transaction.Propagation;
+import org.iba.db.transaction.TransactionManager;
 import org.iba.exception.DatabaseException;
+import org.iba.exception.IbaException;
 import org.iba.exception.ValidationException;
+import org.iba.model.Messung;
+import org.iba.model.MesswerteAggregat;
 import org.iba.model.Messwerte;
 import org.iba.util.ExceptionUtils;
+import org.iba.util.IntMap;
 
-import java.sql.ResultSet;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public class MesswerteRepository extends BaseRepository {
 
+    // Standard-Chunkgröße für speichereBatch
+    public static final int STANDARD_BATCH_GROESSE = 500;
+
+    private static final String INSERT_MIT_ZEITSTEMPEL_SQL =
+            "INSERT INTO messwerte (parzelle_id, temperatur, niederschlag, zeitstempel) " +
+                    "VALUES (?, ?, ?, ?)";
+
+    /**
+     * Speichert eine Messung (Zeitpunkt: jetzt) und aktualisiert die abgeleiteten Tabellen
+     * (messwerte_aktuell, Stunden- und Tageswerte) in derselben Transaktion.
+     * Innerhalb einer laufenden Transaktion wird ohne Savepoint teilgenommen (Propagation.REQUIRED):
+     * scheitert die Messung, wird die gesamte Transaktion zurückgerollt.
+     */
     public void speichere(Messwerte messwerte, int parzelleId)
             throws DatabaseException, ValidationException {
 
         // Validierung könnte hier sein, aber Messwerte-Klasse validiert bereits
-        // Wir validieren nur die Parzellen-ID
+        // Wir validieren nur die Parzellen-ID (über den Fremdschlüssel von messwerte_aktuell)
 
-        String sql = "INSERT INTO messwerte (parzelle_id, temperatur, niederschlag) " +
-                "VALUES (?, ?, ?)";
+        Messung messung = new Messung(parzelleId, messwerte, null);
+
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            speicher.speichereMessung(messung);
+            return;
+        }
 
         try {
-            int affectedRows = executeUpdate(sql,
-                    parzelleId,
-                    messwerte.getTemperatur(),
-                    messwerte.getNiederschlag());
-
-            if (affectedRows == 0) {
-                throw new DatabaseException("Messwerte konnten nicht gespeichert werden",
-                        null, -1);
-            }
+            TransactionManager.executeInTransaction(Propagation.REQUIRED, connection -> {
+                try (PreparedStatement insert = vorbereiten(connection, INSERT_MIT_ZEITSTEMPEL_SQL);
+                     MesswerteProjektionen projektionen = new MesswerteProjektionen(connection)) {
+                    bindeMessung(insert, messung);
+                    if (insert.executeUpdate() == 0) {
+                        throw new DatabaseException("Messwerte konnten nicht gespeichert werden",
+                                null, -1);
+                    }
+                    projektionen.schreibe(List.of(messung));
+                }
+                return null;
+            });
 
         } catch (DatabaseException e) {
             if (e.getCause() instanceof SQLException) {
@@ -43,10 +82,190 @@ public class MesswerteRepository extends BaseRepository {
         }
     }
 
+    /**
+     * Speichert viele Messungen mit JDBC-Batching in Chunks der Standardgröße.
+     */
+    public BatchErgebnis<Messung> speichereBatch(Collection<Messung> messungen)
+            throws DatabaseException, ValidationException {
+        return speichereBatch(messungen, STANDARD_BATCH_GROESSE);
+    }
+
+    /**
+     * Speichert viele Messungen mit JDBC-Batching (vom Treiber zu mehrzeiligen INSERTs umgeschrieben).
+     * Jeder Chunk wird atomar geschrieben. Schlägt ein Chunk fehl, werden seine Zeilen einzeln
+     * geschrieben, damit nur die fehlerhaften Zeilen im Ergebnis landen; Fremdschlüsselfehler
+     * (unbekannte Parzelle) werden dabei als ValidationException gemeldet.
+     * Jeder Chunk läuft über den TransactionManager (Propagation.NESTED): ohne aktive Transaktion
+     * als eigene Transaktion mit Wiederholung bei Deadlock/Lock-Timeout und Transaktions-Frist,
+     * innerhalb einer aktiven Transaktion mit eigenem Savepoint.
+     *
+     * @param messungen Die zu speichernden Messungen.
+     * @param chunkGroesse Anzahl Zeilen pro executeBatch().
+     * @return Anzahl gespeicherter Zeilen und Fehler pro Zeile (Index in der Eingabe).
+     */
+    public BatchErgebnis<Messung> speichereBatch(Collection<Messung> messungen, int chunkGroesse)
+            throws DatabaseException, ValidationException {
+
+        if (chunkGroesse <= 0) {
+            throw new ValidationException("chunkGroesse", chunkGroesse, "Chunkgröße muss größer als 0 sein");
+        }
+
+        BatchErgebnis<Messung> ergebnis = new BatchErgebnis<>();
+        List<Messung> liste = new ArrayList<>(messungen);
+
+        // Offensichtlich ungültige Zeilen gar nicht erst senden
+        List<Integer> gueltigeIndizes = new ArrayList<>(liste.size());
+        for (int i = 0; i < liste.size(); i++) {
+            Messung messung = liste.get(i);
+            if (messung == null) {
+                ergebnis.addFehler(i, null, new ValidationException("messungen[" + i + "]", null,
+                        "Messung darf nicht null sein"));
+            } else if (messung.getParzelleId() <= 0) {
+                ergebnis.addFehler(i, messung, new ValidationException("parzelleId", messung.getParzelleId(),
+                        "Ungültige Parzellen-ID"));
+            } else {
+                gueltigeIndizes.add(i);
+            }
+        }
+
+        if (gueltigeIndizes.isEmpty()) {
+            return ergebnis;
+        }
+
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            speichereLokal(speicher, liste, gueltigeIndizes, ergebnis);
+            return ergebnis;
+        }
+
+        for (int start = 0; start < gueltigeIndizes.size(); start += chunkGroesse) {
+            List<Integer> chunk = gueltigeIndizes.subList(start,
+                    Math.min(start + chunkGroesse, gueltigeIndizes.size()));
+            // Ergebnis erst nach erfolgreichem Abschluss übernehmen (der Chunk kann wiederholt werden)
+            ergebnis.uebernehme(TransactionManager.executeInTransaction(Propagation.NESTED, connection -> {
+                try {
+                    return speichereChunk(connection, liste, chunk);
+                } catch (SQLException e) {
+                    throw ExceptionUtils.wrapSQLException(e, "Batch-Speichern von Messwerten");
+                }
+            }));
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Schreibt alle gültigen Zeilen in einem Schritt in den lokalen Speicher; Zeilen zu
+     * unbekannten Parzellen werden wie beim Fremdschlüsselfehler einzeln gemeldet.
+     */
+    private void speichereLokal(LokalerSpeicher speicher, List<Messung> liste, List<Integer> gueltigeIndizes,
+                                      BatchErgebnis<Messung> ergebnis) throws DatabaseException {
+        List<Messung> gueltig = new ArrayList<>(gueltigeIndizes.size());
+        for (int index : gueltigeIndizes) {
+            gueltig.add(liste.get(index));
+        }
+
+        List<Integer> abgelehnt = speicher.speichereMessungen(gueltig);
+        for (int lokal : abgelehnt) {
+            Messung messung = gueltig.get(lokal);
+            ergebnis.addFehler(gueltigeIndizes.get(lokal), messung, new ValidationException("parzelleId",
+                    messung.getParzelleId(), "Die angegebene Parzelle existiert nicht"));
+        }
+        ergebnis.addGespeichert(gueltig.size() - abgelehnt.size());
+    }
+
+    private BatchErgebnis<Messung> speichereChunk(Connection conn, List<Messung> liste, List<Integer> chunk)
+            throws SQLException {
+
+        BatchErgebnis<Messung> ergebnis = new BatchErgebnis<>();
+
+        try (PreparedStatement stmt = vorbereiten(conn, INSERT_MIT_ZEITSTEMPEL_SQL);
+             MesswerteProjektionen projektionen = new MesswerteProjektionen(conn)) {
+            Savepoint savepoint = conn.setSavepoint();
+
+            try {
+                List<Messung> messungen = new ArrayList<>(chunk.size());
+                for (int index : chunk) {
+                    Messung messung = liste.get(index);
+                    bindeMessung(stmt, messung);
+                    stmt.addBatch();
+                    messungen.add(messung);
+                }
+                stmt.executeBatch();
+
+                // Abgeleitete Tabellen im selben Chunk; scheitert das (unbekannte Parzelle), wird der Chunk wiederholt
+                projektionen.schreibe(messungen);
+
+                conn.releaseSavepoint(savepoint);
+                ergebnis.addGespeichert(chunk.size());
+
+            } catch (BatchUpdateException e) {
+                if (ExceptionUtils.isVoruebergehend(e) || ExceptionUtils.isTimeout(e)) {
+                    // MySQL hat die Transaktion bereits zurückgerollt; der TransactionManager wiederholt sie
+                    throw e;
+                }
+
+                // Chunk verwerfen und Zeile für Zeile wiederholen, um die fehlerhaften Zeilen zu finden
+                stmt.clearBatch();
+                projektionen.verwerfe();
+                conn.rollback(savepoint);
+                conn.releaseSavepoint(savepoint);
+
+                speichereEinzeln(conn, stmt, projektionen, liste, chunk, ergebnis);
+            }
+        }
+
+        return ergebnis;
+    }
+
+    private void speichereEinzeln(Connection conn, PreparedStatement stmt, MesswerteProjektionen projektionen,
+                                  List<Messung> liste, List<Integer> chunk,
+                                  BatchErgebnis<Messung> ergebnis) throws SQLException {
+        for (int index : chunk) {
+            Messung messung = liste.get(index);
+            // Messung und abgeleitete Tabellen gemeinsam zurücknehmen, wenn ein Schritt scheitert
+            Savepoint zeile = conn.setSavepoint();
+            try {
+                bindeMessung(stmt, messung);
+                stmt.executeUpdate();
+                projektionen.schreibe(List.of(messung));
+                conn.releaseSavepoint(zeile);
+                ergebnis.addGespeichert(1);
+
+            } catch (SQLException e) {
+                if (ExceptionUtils.isVoruebergehend(e) || ExceptionUtils.isTimeout(e)) {
+                    throw e;
+                }
+                projektionen.verwerfe();
+                conn.rollback(zeile);
+                conn.releaseSavepoint(zeile);
+                ergebnis.addFehler(index, messung, mappeZeilenFehler(e, messung));
+            }
+        }
+    }
+
+    private IbaException mappeZeilenFehler(SQLException e, Messung messung) {
+        if (ExceptionUtils.isConstraintViolation(e) && e.getErrorCode() == 1452) {
+            return new ValidationException("parzelleId", messung.getParzelleId(),
+                    "Die angegebene Parzelle existiert nicht", e);
+        }
+        return ExceptionUtils.wrapSQLException(e, "Speichern von Messung");
+    }
+
+    private void bindeMessung(PreparedStatement stmt, Messung messung) throws SQLException {
+        stmt.setInt(1, messung.getParzelleId());
+        stmt.setDouble(2, messung.getMesswerte().getTemperatur());
+        stmt.setDouble(3, messung.getMesswerte().getNiederschlag());
+        stmt.setTimestamp(4, Timestamp.valueOf(messung.getZeitstempel()));
+    }
+
     public Messwerte findeLetzteMessung(int parzelleId) throws DatabaseException {
-        String sql = "SELECT temperatur, niederschlag FROM messwerte " +
-                "WHERE parzelle_id = ? " +
-                "ORDER BY zeitstempel DESC LIMIT 1";
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeLetzteMessung(parzelleId);
+        }
+
+        // Primärschlüssel-Zugriff auf die Projektion, unabhängig vom Umfang der Historie
+        String sql = "SELECT temperatur, niederschlag FROM messwerte_aktuell WHERE parzelle_id = ?";
 
         return executeQuery(sql, rs -> {
             if (rs.next()) {
@@ -58,4 +277,188 @@ public class MesswerteRepository extends BaseRepository {
             return null;
         }, parzelleId);
     }
-}
\ No newline at end of file
+
+    /**
+     * Lädt die jeweils letzte Messung für viele Parzellen mit einer Abfrage pro
+     * ID_CHUNK_GROESSE Parzellen (statt einer Abfrage pro Parzelle) aus messwerte_aktuell.
+     *
+     * @return Map parzelleId -> letzte Messwerte; Parzellen ohne Messung fehlen in der Map.
+     */
+    public IntMap<Messwerte> findeLetzteMessungen(Collection<Integer> parzelleIds) throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeLetzteMessungen(parzelleIds);
+        }
+
+        String sql = "SELECT parzelle_id, temperatur, niederschlag FROM messwerte_aktuell " +
+                "WHERE parzelle_id IN (" + JSON_ID_LISTE_SQL + ")";
+
+        List<Integer> ids = new ArrayList<>(parzelleIds);
+        IntMap<Messwerte> ergebnis = new IntMap<>(ids.size());
+
+        for (int start = 0; start < ids.size(); start += ID_CHUNK_GROESSE) {
+            List<Integer> chunk = ids.subList(start, Math.min(start + ID_CHUNK_GROESSE, ids.size()));
+
+            executeQuery(sql, rs -> {
+                while (rs.next()) {
+                    ergebnis.put(rs.getInt("parzelle_id"), new Messwerte(
+                            rs.getDouble("temperatur"),
+                            rs.getDouble("niederschlag")));
+                }
+                return null;
+            }, alsJsonArray(chunk));
+        }
+
+        return ergebnis;
+    }
+
+    /**
+     * Liefert alle Messungen eines Zeitraums [von, bis) als lazy Stream, sortiert nach Parzelle und Zeit.
+     * Muss geschlossen werden (try-with-resources).
+     */
+    public Stream<Messung> streamMessungen(LocalDateTime von, LocalDateTime bis) throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeMessungen(von, bis).stream();
+        }
+
+        String sql = "SELECT parzelle_id, temperatur, niederschlag, zeitstempel FROM messwerte " +
+                "WHERE zeitstempel >= ? AND zeitstempel < ? " +
+                "ORDER BY parzelle_id, zeitstempel";
+
+        return executeStreamQuery(sql, rs -> new Messung(
+                rs.getInt("parzelle_id"),
+                new Messwerte(rs.getDouble("temperatur"), rs.getDouble("niederschlag")),
+                rs.getTimestamp("zeitstempel").toLocalDateTime()
+        ), Timestamp.valueOf(von), Timestamp.valueOf(bis));
+    }
+
+    // ========================================================================
+    // STUNDEN- UND TAGESWERTE
+    // ========================================================================
+
+    /**
+     * Liefert die Stundenwerte einer Parzelle im Zeitraum [von, bis), aufsteigend nach Zeit.
+     */
+    public List<MesswerteAggregat> findeStundenwerte(int parzelleId, LocalDateTime von, LocalDateTime bis)
+            throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeAggregate(parzelleId, true, von, bis);
+        }
+        return findeAggregate("messwerte_stuendlich", parzelleId, von, bis);
+    }
+
+    /**
+     * Liefert die Tageswerte einer Parzelle für die Tage von..bis (jeweils einschließlich).
+     */
+    public List<MesswerteAggregat> findeTageswerte(int parzelleId, LocalDate von, LocalDate bis)
+            throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeAggregate(parzelleId, false, von.atStartOfDay(), bis.plusDays(1).atStartOfDay());
+        }
+        return findeAggregate("messwerte_taeglich", parzelleId, von.atStartOfDay(),
+                bis.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Baut Stunden- und Tageswerte für die Tage von..bis (jeweils einschließlich) aus den
+     * Rohdaten neu auf, z.B. nach einem Backfill direkt in messwerte. Jeder Tag wird in
+     * einer eigenen Transaktion ersetzt; der Zeitraum sollte nicht gleichzeitig erfasst werden.
+     * Die Tage gelten in der Zeitzone der Datenbank-Sitzung, wie die Perioden der Rollups.
+     *
+     * @return Anzahl der neu aufgebauten Tage.
+     */
+    public int baueRollupsNeu(LocalDate von, LocalDate bis) throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.baueRollupsNeu(von, bis);
+        }
+
+        int tage = 0;
+
+        for (LocalDate tag = von; !tag.isAfter(bis); tag = tag.plusDays(1)) {
+            // LocalDateTime bindet der Treiber ohne Zeitzonen-Umrechnung: Tagesgrenzen der Sitzung
+            LocalDateTime beginn = tag.atStartOfDay();
+            LocalDateTime ende = tag.plusDays(1).atStartOfDay();
+
+            TransactionManager.executeInTransaction(Propagation.REQUIRED, connection -> {
+                for (String sql : new String[]{
+                        "DELETE FROM messwerte_stuendlich WHERE periode >= ? AND periode < ?",
+                        "DELETE FROM messwerte_taeglich WHERE periode >= ? AND periode < ?",
+                        MesswerteProjektionen.NEUAUFBAU_STUENDLICH_SQL,
+                        MesswerteProjektionen.NEUAUFBAU_TAEGLICH_SQL}) {
+                    try (PreparedStatement stmt = vorbereiten(connection, sql)) {
+                        stmt.setObject(1, beginn);
+                        stmt.setObject(2, ende);
+                        stmt.executeUpdate();
+                    }
+                }
+                return null;
+            });
+            tage++;
+        }
+
+        System.out.println("[MesswerteRepository] Stunden-/Tageswerte neu aufgebaut: " +
+                von + " bis " + bis + " (" + tage + " Tage)");
+        return tage;
+    }
+
+    // ========================================================================
+    // ASYNCHRONE VARIANTEN (virtuelle Threads, siehe AsyncAusfuehrung)
+    // ========================================================================
+
+    public CompletableFuture<Void> speichereAsync(Messwerte messwerte, int parzelleId) {
+        return async(() -> {
+            speichere(messwerte, parzelleId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<BatchErgebnis<Messung>> speichereBatchAsync(Collection<Messung> messungen) {
+        return async(() -> speichereBatch(messungen));
+    }
+
+    public CompletableFuture<Messwerte> findeLetzteMessungAsync(int parzelleId) {
+        return async(() -> findeLetzteMessung(parzelleId));
+    }
+
+    public CompletableFuture<IntMap<Messwerte>> findeLetzteMessungenAsync(Collection<Integer> parzelleIds) {
+        return async(() -> findeLetzteMessungen(parzelleIds));
+    }
+
+    public CompletableFuture<List<MesswerteAggregat>> findeStundenwerteAsync(int parzelleId, LocalDateTime von,
+                                                                           LocalDateTime bis) {
+        return async(() -> findeStundenwerte(parzelleId, von, bis));
+    }
+
+    public CompletableFuture<List<MesswerteAggregat>> findeTageswerteAsync(int parzelleId, LocalDate von,
+                                                                         LocalDate bis) {
+        return async(() -> findeTageswerte(parzelleId, von, bis));
+    }
+
+    private List<MesswerteAggregat> findeAggregate(String tabelle, int parzelleId,
+                                                   LocalDateTime von, LocalDateTime bis)
+            throws DatabaseException {
+        String sql = "SELECT parzelle_id, periode, temperatur_min, temperatur_max, temperatur_summe, " +
+                "niederschlag_summe, anzahl FROM " + tabelle + " " +
+                "WHERE parzelle_id = ? AND periode >= ? AND periode < ? ORDER BY periode";
+
+        return executeQuery(sql, rs -> {
+            List<MesswerteAggregat> aggregate = new ArrayList<>();
+            while (rs.next()) {
+                int anzahl = rs.getInt("anzahl");
+                aggregate.add(new MesswerteAggregat(
+                        rs.getInt("parzelle_id"),
+                        rs.getTimestamp("periode").toLocalDateTime(),
+                        rs.getDouble("temperatur_min"),
+                        rs.getDouble("temperatur_max"),
+                        rs.getDouble("temperatur_summe") / anzahl,
+                        rs.getDouble("niederschlag_summe"),
+                        anzahl));
+            }
+            return aggregate;
+        }, parzelleId, Timestamp.valueOf(von), Timestamp.valueOf(bis));
+    }
+}
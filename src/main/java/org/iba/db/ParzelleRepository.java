@@ -1,5 +1,7 @@
 package org.iba.db;
 
+import org.iba.db.cache.EntityCaches;
+import org.iba.db.embedded.LokalerSpeicher;
 import org.iba.db.transaction.TransactionManager;
 import org.iba.exception.*;
 import org.iba.model.Baum;
@@ -8,13 +10,20 @@ import org.iba.util.ExceptionUtils;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Vollständiges ParzelleRepository mit transaktionalen Operationen.
  */
 public class ParzelleRepository extends BaseRepository {
 
+    // Maximale Anzahl Bäume pro executeBatch() (begrenzt die Größe des umgeschriebenen INSERTs)
+    private static final int BAUM_BATCH_GROESSE = 1000;
+
     // ========================================================================
     // TRANSAKTIONELLE METHODEN
     // ========================================================================
@@ -29,17 +38,26 @@ public class ParzelleRepository extends BaseRepository {
         validateParzelle(parzelle);
         validateBaeume(baeume);
 
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.speichereParzelleMitBaeumen(parzelle, baeume);
+        }
+
         // Transaktionale Operation
         return TransactionManager.executeInTransaction(connection -> {
             try {
                 // 1. Parzelle speichern
                 int parzelleId = speichereParzelleInConnection(connection, parzelle);
+                invalidiereCache(() -> {
+                    EntityCaches.invalidiereParzellen();
+                    EntityCaches.invalidiereBaumliste(parzelleId);
+                });
 
-                // 2. Bäume speichern
+                // 2. Bäume speichern (JDBC-Batch, IDs werden in die Baum-Objekte übernommen)
                 for (Baum baum : baeume) {
                     baum.setParzelleId(parzelleId);
-                    speichereBaumInConnection(connection, baum);
                 }
+                speichereBaeumeInConnection(connection, baeume);
 
                 // 3. Parzellen-Zähler aktualisieren
                 aktualisiereAnzahlBaeumeInConnection(connection, parzelleId, baeume.size());
@@ -59,8 +77,18 @@ public class ParzelleRepository extends BaseRepository {
     public boolean loescheParzelleKomplett(int parzelleId)
             throws DatabaseException, BusinessException {
 
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.loescheParzelleKomplett(parzelleId);
+        }
+
         return TransactionManager.executeInTransaction(connection -> {
             try {
+                invalidiereCache(() -> {
+                    EntityCaches.invalidiereParzellen();
+                    EntityCaches.invalidiereBaeumeDerParzelle(parzelleId);
+                });
+
                 // 1. Existenz prüfen
                 if (!parzelleExistiertInConnection(connection, parzelleId)) {
                     throw new BusinessException("Parzelle mit ID " + parzelleId + " existiert nicht");
@@ -83,32 +111,64 @@ public class ParzelleRepository extends BaseRepository {
 
     /**
      * Transferiert Bäume von einer Parzelle zur anderen in einer Transaktion.
+     * Mengenbasiert: unabhängig von der Anzahl der Bäume werden konstant vier Statements ausgeführt.
+     * Existiert ein Baum nicht oder gehört er nicht zur Quell-Parzelle, schlägt der gesamte
+     * Transfer mit einer BaumTransferException fehl, die alle betroffenen IDs enthält.
      */
     public void transferiereBaeume(int vonParzelleId, int zuParzelleId, List<Integer> baumIds)
             throws DatabaseException, BusinessException {
 
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            speicher.transferiereBaeume(vonParzelleId, zuParzelleId, baumIds);
+            return;
+        }
+
         TransactionManager.executeInTransaction(connection -> {
             try {
                 // 1. Validierung
-                if (!parzelleExistiertInConnection(connection, vonParzelleId)) {
+                Set<Integer> existierend = existierendeParzellenInConnection(connection, vonParzelleId, zuParzelleId);
+                if (!existierend.contains(vonParzelleId)) {
                     throw new BusinessException("Quell-Parzelle existiert nicht: " + vonParzelleId);
                 }
-                if (!parzelleExistiertInConnection(connection, zuParzelleId)) {
+                if (!existierend.contains(zuParzelleId)) {
                     throw new BusinessException("Ziel-Parzelle existiert nicht: " + zuParzelleId);
                 }
                 if (vonParzelleId == zuParzelleId) {
                     throw new BusinessException("Quell- und Ziel-Parzelle müssen unterschiedlich sein");
                 }
+                if (baumIds.isEmpty()) {
+                    return null;
+                }
 
-                // 2. Bäume transferieren
+                // 2. Zugehörigkeit aller Bäume prüfen (und Zeilen sperren)
+                String baumIdsJson = alsJsonArray(baumIds);
+                Set<Integer> gefunden = sperreBaeumeDerParzelleInConnection(connection, vonParzelleId, baumIdsJson);
+
+                List<Integer> fehlerhaft = new ArrayList<>();
                 for (Integer baumId : baumIds) {
-                    transferiereBaumInConnection(connection, baumId, vonParzelleId, zuParzelleId);
+                    if (baumId == null || !gefunden.contains(baumId)) {
+                        fehlerhaft.add(baumId);
+                    }
+                }
+                if (!fehlerhaft.isEmpty()) {
+                    throw new BaumTransferException(vonParzelleId, fehlerhaft);
                 }
 
-                // 3. Zähler aktualisieren
-                int anzahlTransferiert = baumIds.size();
-                aktualisiereAnzahlBaeumeInConnection(connection, vonParzelleId, -anzahlTransferiert);
-                aktualisiereAnzahlBaeumeInConnection(connection, zuParzelleId, anzahlTransferiert);
+                // 3. Bäume transferieren
+                invalidiereCache(() -> {
+                    EntityCaches.invalidiereParzellen();
+                    EntityCaches.invalidiereBaumliste(vonParzelleId);
+                    EntityCaches.invalidiereBaumliste(zuParzelleId);
+                    for (Integer baumId : baumIds) {
+                        EntityCaches.invalidiereBaum(baumId);
+                    }
+                });
+                int anzahlTransferiert = transferiereBaeumeInConnection(connection, vonParzelleId,
+                        zuParzelleId, baumIdsJson);
+
+                // 4. Zähler aktualisieren
+                verschiebeAnzahlBaeumeInConnection(connection, vonParzelleId, zuParzelleId, anzahlTransferiert);
 
                 return null; // Void-Operation
 
@@ -128,7 +188,7 @@ public class ParzelleRepository extends BaseRepository {
         String sql = "INSERT INTO parzelle (name, anzahl_baeume, flaeche_qm, klima_zone, besitzer_id) " +
                 "VALUES (?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement stmt = vorbereiten(connection, sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, parzelle.getName());
             stmt.setInt(2, parzelle.getAnzahlBaeume());
             stmt.setDouble(3, parzelle.getFlaecheQm());
@@ -151,17 +211,37 @@ public class ParzelleRepository extends BaseRepository {
         }
     }
 
-    private void speichereBaumInConnection(Connection connection, Baum baum) throws SQLException {
+    /**
+     * Speichert Bäume mit einem einzigen PreparedStatement per addBatch/executeBatch
+     * und setzt die generierten baum_ids (in Einfügereihenfolge) auf die Baum-Objekte.
+     */
+    private void speichereBaeumeInConnection(Connection connection, List<Baum> baeume) throws SQLException {
         String sql = "INSERT INTO baum (parzelle_id, alter_jahre, pflanzenart_id, basis_bedarf) " +
                 "VALUES (?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, baum.getParzelleId());
-            stmt.setInt(2, baum.getAlterJahre());
-            stmt.setInt(3, baum.getPflanzenartId());
-            stmt.setDouble(4, baum.getBasisBedarf());
+        try (PreparedStatement stmt = vorbereiten(connection, sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int start = 0; start < baeume.size(); start += BAUM_BATCH_GROESSE) {
+                List<Baum> chunk = baeume.subList(start, Math.min(start + BAUM_BATCH_GROESSE, baeume.size()));
 
-            stmt.executeUpdate();
+                for (Baum baum : chunk) {
+                    stmt.setInt(1, baum.getParzelleId());
+                    stmt.setInt(2, baum.getAlterJahre());
+                    stmt.setInt(3, baum.getPflanzenartId());
+                    stmt.setDouble(4, baum.getBasisBedarf());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                // Generierte IDs in derselben Reihenfolge übernehmen
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    for (Baum baum : chunk) {
+                        if (!generatedKeys.next()) {
+                            throw new SQLException("Konnte keine ID für Baum generieren");
+                        }
+                        baum.setBaumId(generatedKeys.getInt(1));
+                    }
+                }
+            }
         }
     }
 
@@ -170,7 +250,7 @@ public class ParzelleRepository extends BaseRepository {
 
         String sql = "UPDATE parzelle SET anzahl_baeume = anzahl_baeume + ? WHERE parzelle_id = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = vorbereiten(connection, sql)) {
             stmt.setInt(1, delta);
             stmt.setInt(2, parzelleId);
             stmt.executeUpdate();
@@ -180,7 +260,7 @@ public class ParzelleRepository extends BaseRepository {
     private Parzelle ladeParzelleAusConnection(Connection connection, int parzelleId) throws SQLException {
         String sql = "SELECT * FROM parzelle WHERE parzelle_id = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = vorbereiten(connection, sql)) {
             stmt.setInt(1, parzelleId);
 
             try (ResultSet rs = stmt.executeQuery()) {
@@ -195,7 +275,7 @@ public class ParzelleRepository extends BaseRepository {
     private boolean parzelleExistiertInConnection(Connection connection, int parzelleId) throws SQLException {
         String sql = "SELECT 1 FROM parzelle WHERE parzelle_id = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = vorbereiten(connection, sql)) {
             stmt.setInt(1, parzelleId);
 
             try (ResultSet rs = stmt.executeQuery()) {
@@ -207,16 +287,25 @@ public class ParzelleRepository extends BaseRepository {
     private void loescheMesswerteInConnection(Connection connection, int parzelleId) throws SQLException {
         String sql = "DELETE FROM messwerte WHERE parzelle_id = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = vorbereiten(connection, sql)) {
             stmt.setInt(1, parzelleId);
             stmt.executeUpdate();
         }
+
+        // Abgeleitete Tabellen (messwerte_aktuell mit Fremdschlüssel auf parzelle)
+        for (String tabelle : new String[]{"messwerte_aktuell", "messwerte_stuendlich", "messwerte_taeglich"}) {
+            try (PreparedStatement stmt = vorbereiten(connection,
+                    "DELETE FROM " + tabelle + " WHERE parzelle_id = ?")) {
+                stmt.setInt(1, parzelleId);
+                stmt.executeUpdate();
+            }
+        }
     }
 
     private void loescheBaeumeInConnection(Connection connection, int parzelleId) throws SQLException {
         String sql = "DELETE FROM baum WHERE parzelle_id = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = vorbereiten(connection, sql)) {
             stmt.setInt(1, parzelleId);
             stmt.executeUpdate();
         }
@@ -225,38 +314,85 @@ public class ParzelleRepository extends BaseRepository {
     private int loescheParzelleInConnection(Connection connection, int parzelleId) throws SQLException {
         String sql = "DELETE FROM parzelle WHERE parzelle_id = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = vorbereiten(connection, sql)) {
             stmt.setInt(1, parzelleId);
             return stmt.executeUpdate();
         }
     }
 
-    private void transferiereBaumInConnection(Connection connection, int baumId, int vonParzelleId, int zuParzelleId)
-            throws SQLException, BusinessException {
+    private Set<Integer> existierendeParzellenInConnection(Connection connection, int parzelleId1, int parzelleId2)
+            throws SQLException {
 
-        // Prüfe ob Baum existiert und zur Quell-Parzelle gehört
-        String checkSql = "SELECT 1 FROM baum WHERE baum_id = ? AND parzelle_id = ?";
+        String sql = "SELECT parzelle_id FROM parzelle WHERE parzelle_id IN (?, ?)";
 
-        try (PreparedStatement checkStmt = connection.prepareStatement(checkSql)) {
-            checkStmt.setInt(1, baumId);
-            checkStmt.setInt(2, vonParzelleId);
+        try (PreparedStatement stmt = vorbereiten(connection, sql)) {
+            stmt.setInt(1, parzelleId1);
+            stmt.setInt(2, parzelleId2);
 
-            try (ResultSet rs = checkStmt.executeQuery()) {
-                if (!rs.next()) {
-                    throw new BusinessException(
-                            String.format("Baum %d gehört nicht zur Parzelle %d oder existiert nicht",
-                                    baumId, vonParzelleId));
+            Set<Integer> ids = new HashSet<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * Liefert die IDs aus der Liste, die zur Parzelle gehören, und sperrt diese Zeilen.
+     */
+    private Set<Integer> sperreBaeumeDerParzelleInConnection(Connection connection, int parzelleId, String baumIdsJson)
+            throws SQLException {
+
+        String sql = "SELECT baum_id FROM baum WHERE parzelle_id = ? AND baum_id IN (" +
+                JSON_ID_LISTE_SQL + ") FOR UPDATE";
+
+        try (PreparedStatement stmt = vorbereiten(connection, sql)) {
+            stmt.setInt(1, parzelleId);
+            stmt.setString(2, baumIdsJson);
+
+            Set<Integer> ids = new HashSet<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
                 }
             }
+            return ids;
         }
+    }
 
-        // Transfer durchführen
-        String updateSql = "UPDATE baum SET parzelle_id = ? WHERE baum_id = ?";
+    private int transferiereBaeumeInConnection(Connection connection, int vonParzelleId, int zuParzelleId,
+                                               String baumIdsJson) throws SQLException {
 
-        try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
-            updateStmt.setInt(1, zuParzelleId);
-            updateStmt.setInt(2, baumId);
-            updateStmt.executeUpdate();
+        String sql = "UPDATE baum SET parzelle_id = ? WHERE parzelle_id = ? AND baum_id IN (" +
+                JSON_ID_LISTE_SQL + ")";
+
+        try (PreparedStatement stmt = vorbereiten(connection, sql)) {
+            stmt.setInt(1, zuParzelleId);
+            stmt.setInt(2, vonParzelleId);
+            stmt.setString(3, baumIdsJson);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Verschiebt den Baum-Zähler zwischen zwei Parzellen mit einem einzigen Statement.
+     */
+    private void verschiebeAnzahlBaeumeInConnection(Connection connection, int vonParzelleId, int zuParzelleId,
+                                                   int anzahl) throws SQLException {
+
+        String sql = "UPDATE parzelle SET anzahl_baeume = anzahl_baeume + " +
+                "CASE WHEN parzelle_id = ? THEN ? ELSE ? END " +
+                "WHERE parzelle_id IN (?, ?)";
+
+        try (PreparedStatement stmt = vorbereiten(connection, sql)) {
+            stmt.setInt(1, vonParzelleId);
+            stmt.setInt(2, -anzahl);
+            stmt.setInt(3, anzahl);
+            stmt.setInt(4, vonParzelleId);
+            stmt.setInt(5, zuParzelleId);
+            stmt.executeUpdate();
         }
     }
 
@@ -308,23 +444,26 @@ public class ParzelleRepository extends BaseRepository {
     public Parzelle speichere(Parzelle parzelle) throws DatabaseException, ValidationException {
         validateParzelle(parzelle);
 
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.speichereParzelle(parzelle);
+        }
+
         String sql = "INSERT INTO parzelle (name, anzahl_baeume, flaeche_qm, klima_zone, besitzer_id) " +
                 "VALUES (?, ?, ?, ?, ?)";
 
         try {
-            int affectedRows = executeUpdate(sql,
+            // Generierte ID direkt übernehmen (kein zweiter Round Trip, korrekt bei parallelen Inserts)
+            int parzelleId = executeInsert(sql,
                     parzelle.getName(),
                     parzelle.getAnzahlBaeume(),
                     parzelle.getFlaecheQm(),
                     parzelle.getKlimaZone(),
                     parzelle.getBesitzerId());
 
-            if (affectedRows == 0) {
-                throw new DatabaseException("Parzelle konnte nicht gespeichert werden",
-                        null, -1);
-            }
-
-            return findeLetzteParzelle();
+            parzelle.setParzelleId(parzelleId);
+            invalidiereCache(EntityCaches::invalidiereParzellen);
+            return parzelle;
 
         } catch (DatabaseException e) {
             if (e.getCause() instanceof SQLException) {
@@ -339,29 +478,68 @@ public class ParzelleRepository extends BaseRepository {
         }
     }
 
-    private Parzelle findeLetzteParzelle() throws DatabaseException {
-        String sql = "SELECT * FROM parzelle ORDER BY parzelle_id DESC LIMIT 1";
-
-        return executeQuery(sql, rs -> {
-            if (rs.next()) {
-                return mapToParzelle(rs);
-            }
-            return null;
-        });
-    }
-
+    /**
+     * Liefert alle Parzellen (über den Entity-Cache, sofern aktiviert).
+     */
     public List<Parzelle> findAlle() throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeAlleParzellen();
+        }
+
         String sql = "SELECT * FROM parzelle ORDER BY name";
 
-        return executeQuery(sql, rs -> {
+        return ausCache(EntityCaches.parzellen(), EntityCaches.ALLE, () -> executeQuery(sql, rs -> {
             List<Parzelle> parzellen = new ArrayList<>();
             while (rs.next()) {
                 parzellen.add(mapToParzelle(rs));
             }
             return parzellen;
+        }));
+    }
+
+    /**
+     * Liefert alle Parzellen als lazy Stream. Muss geschlossen werden (try-with-resources).
+     */
+    public Stream<Parzelle> streamAlle() throws DatabaseException {
+        LokalerSpeicher speicher = lokalerSpeicher();
+        if (speicher != null) {
+            return speicher.findeAlleParzellen().stream();
+        }
+
+        String sql = "SELECT * FROM parzelle ORDER BY name";
+
+        return executeStreamQuery(sql, this::mapToParzelle);
+    }
+
+    // ========================================================================
+    // ASYNCHRONE VARIANTEN (virtuelle Threads, siehe AsyncAusfuehrung)
+    // ========================================================================
+
+    public CompletableFuture<Parzelle> speichereAsync(Parzelle parzelle) {
+        return async(() -> speichere(parzelle));
+    }
+
+    public CompletableFuture<Parzelle> speichereParzelleMitBaeumenAsync(Parzelle parzelle, List<Baum> baeume) {
+        return async(() -> speichereParzelleMitBaeumen(parzelle, baeume));
+    }
+
+    public CompletableFuture<Boolean> loescheParzelleKomplettAsync(int parzelleId) {
+        return async(() -> loescheParzelleKomplett(parzelleId));
+    }
+
+    public CompletableFuture<Void> transferiereBaeumeAsync(int vonParzelleId, int zuParzelleId,
+                                                          List<Integer> baumIds) {
+        return async(() -> {
+            transferiereBaeume(vonParzelleId, zuParzelleId, baumIds);
+            return null;
         });
     }
 
+    public CompletableFuture<List<Parzelle>> findAlleAsync() {
+        return async(this::findAlle);
+    }
+
     private Parzelle mapToParzelle(ResultSet rs) throws SQLException {
         return new Parzelle(
                 rs.getInt("parzelle_id"),
@@ -0,0 +1,501 @@
+package org.iba.db;
+
+import org.iba.exception.DatabaseException;
+import org.iba.util.ExceptionUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Versionierte Schema-Verwaltung der IBA-Datenbank.
+ * - Migrationen werden der Reihe nach genau einmal angewendet (Tabelle schema_version)
+ * - messwerte ist monatsweise nach zeitstempel partitioniert (RANGE COLUMNS)
+ * - Partitionen für kommende Monate werden automatisch angelegt ("vorgerollt")
+ * - Migrationen und Vorrollen laufen unter einer serverweiten Sperre (GET_LOCK)
+ *
+ * Der Primärschlüssel von messwerte beginnt mit (parzelle_id, zeitstempel). Da InnoDB
+ * die Zeilen im Primärschlüssel speichert, sind "letzte Messung" und Zeitraumabfragen
+ * pro Parzelle reine Index-Bereichszugriffe, Zeitraumabfragen über alle Parzellen
+ * lesen nur die betroffenen Monatspartitionen.
+ *
+ * messwerte_aktuell enthält pro Parzelle nur die neueste Messung (Primärschlüssel
+ * parzelle_id), messwerte_stuendlich und messwerte_taeglich die verdichteten Werte
+ * pro Parzelle und Stunde bzw. Tag. Alle drei werden von MesswerteRepository bei
+ * jedem Insert mitgeführt.
+ *
+ * Hinweis: partitionierte InnoDB-Tabellen unterstützen keine Fremdschlüssel,
+ * messwerte.parzelle_id wird daher über den Fremdschlüssel von messwerte_aktuell
+ * geprüft, das im selben Insert-Vorgang geschrieben wird.
+ */
+public class SchemaManager {
+
+    // Anzahl künftiger Monate, für die Partitionen bereitstehen sollen
+    public static final int MONATE_VORLAUF = 3;
+
+    private static final long VORROLL_INTERVALL_STUNDEN = 24;
+
+    // Serverweite Sperre (GET_LOCK), damit mehrere Instanzen nicht gleichzeitig migrieren
+    private static final String SCHEMA_SPERRE = "iba_schema_migration";
+    private static final int SPERR_TIMEOUT_SEKUNDEN = 60;
+
+    private static final String MESSWERTE_SPALTEN =
+            "messwert_id BIGINT NOT NULL AUTO_INCREMENT, " +
+                    "parzelle_id INT NOT NULL, " +
+                    "temperatur DOUBLE NOT NULL, " +
+                    "niederschlag DOUBLE NOT NULL, " +
+                    "zeitstempel DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    // Partitionsspalte muss in jedem eindeutigen Schlüssel enthalten sein
+                    "PRIMARY KEY (parzelle_id, zeitstempel, messwert_id), " +
+                    "KEY idx_messwerte_id (messwert_id)";
+
+    private final List<Migration> migrationen = List.of(
+            new Migration(1, "Tabellen parzelle und baum", this::erstelleStammdaten),
+            new Migration(2, "Partitionierte Tabelle messwerte", this::erstelleMesswerte),
+            new Migration(3, "Projektion messwerte_aktuell", this::erstelleMesswerteAktuell),
+            new Migration(4, "Stunden- und Tageswerte", this::erstelleRollups)
+    );
+
+    private ScheduledExecutorService vorroller;
+
+    /**
+     * Bringt das Schema auf den neuesten Stand und rollt die Partitionen vor.
+     * @return Anzahl der angewendeten Migrationen.
+     */
+    public int migriere() throws DatabaseException {
+        if (ohneSqlSchema()) {
+            System.out.println("[Schema] Profil " + DBConnector.getActiveProfile() +
+                    ": kein SQL-Schema, Migration übersprungen");
+            return 0;
+        }
+        try (Connection conn = DBConnector.getConnection()) {
+            return migriere(conn);
+        } catch (SQLException e) {
+            throw ExceptionUtils.wrapSQLException(e, "Schema-Migration");
+        }
+    }
+
+    /**
+     * Bringt das Schema über die übergebene Verbindung auf den neuesten Stand. Die Version
+     * wird erst unter der Schema-Sperre gelesen: eine zweite Instanz wartet und findet die
+     * Migrationen danach bereits eingetragen vor.
+     * @return Anzahl der angewendeten Migrationen.
+     */
+    public int migriere(Connection conn) throws DatabaseException {
+        try {
+            return mitSchemaSperre(conn, verbindung -> {
+                erstelleVersionstabelle(verbindung);
+                int version = leseVersion(verbindung);
+                int angewendet = 0;
+
+                for (Migration migration : migrationen) {
+                    if (migration.version() <= version) {
+                        continue;
+                    }
+                    System.out.println("[Schema] Migration " + migration.version() + ": " +
+                            migration.beschreibung());
+                    // DDL wird von MySQL sofort committet; die Version erst nach Erfolg eintragen
+                    migration.schritt().ausfuehren(verbindung);
+                    speichereVersion(verbindung, migration);
+                    angewendet++;
+                }
+
+                rollePartitionenVor(verbindung);
+                return angewendet;
+            });
+        } catch (SQLException e) {
+            throw ExceptionUtils.wrapSQLException(e, "Schema-Migration");
+        }
+    }
+
+    // Profile mit Speicher im eigenen Prozess haben kein SQL-Schema
+    private static boolean ohneSqlSchema() {
+        DBConnector.Profile profile = DBConnector.getActiveProfile();
+        return profile == DBConnector.Profile.EMBEDDED || profile == DBConnector.Profile.MEMORY;
+    }
+
+    /**
+     * Liefert die aktuell installierte Schema-Version (0 = leeres Schema).
+     */
+    public int getAktuelleVersion() throws DatabaseException {
+        try (Connection conn = DBConnector.getConnection()) {
+            erstelleVersionstabelle(conn);
+            return leseVersion(conn);
+        } catch (SQLException e) {
+            throw ExceptionUtils.wrapSQLException(e, "Schema-Version lesen");
+        }
+    }
+
+    /**
+     * Legt fehlende Monatspartitionen bis MONATE_VORLAUF Monate in die Zukunft an.
+     * @return Anzahl neu angelegter Partitionen.
+     */
+    public int rollePartitionenVor() throws DatabaseException {
+        if (ohneSqlSchema()) {
+            return 0;
+        }
+        try (Connection conn = DBConnector.getConnection()) {
+            return mitSchemaSperre(conn, this::rollePartitionenVor);
+        } catch (SQLException e) {
+            throw ExceptionUtils.wrapSQLException(e, "Partitionen vorrollen");
+        }
+    }
+
+    /**
+     * Startet das tägliche automatische Vorrollen der Partitionen (Daemon-Thread).
+     */
+    public synchronized void starteAutomatischesVorrollen() {
+        if (vorroller != null) {
+            return;
+        }
+        vorroller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "iba-schema-partitionen");
+            thread.setDaemon(true);
+            return thread;
+        });
+        vorroller.scheduleWithFixedDelay(() -> {
+            try {
+                rollePartitionenVor();
+            } catch (DatabaseException e) {
+                System.err.println("[Schema] Vorrollen der Partitionen fehlgeschlagen: " + e.getMessage());
+            }
+        }, 0, VORROLL_INTERVALL_STUNDEN, TimeUnit.HOURS);
+    }
+
+    public synchronized void stoppeAutomatischesVorrollen() {
+        if (vorroller != null) {
+            vorroller.shutdownNow();
+            vorroller = null;
+        }
+    }
+
+    // ========================================================================
+    // MIGRATIONEN
+    // ========================================================================
+
+    private void erstelleStammdaten(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS parzelle (" +
+                    "parzelle_id INT NOT NULL AUTO_INCREMENT, " +
+                    "name VARCHAR(100) NOT NULL, " +
+                    "anzahl_baeume INT NOT NULL DEFAULT 0, " +
+                    "flaeche_qm DOUBLE NOT NULL, " +
+                    "klima_zone VARCHAR(50), " +
+                    "besitzer_id INT NOT NULL, " +
+                    "PRIMARY KEY (parzelle_id), " +
+                    "UNIQUE KEY uk_parzelle_name (name)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS baum (" +
+                    "baum_id INT NOT NULL AUTO_INCREMENT, " +
+                    "parzelle_id INT NOT NULL, " +
+                    "alter_jahre INT NOT NULL, " +
+                    "pflanzenart_id INT NOT NULL, " +
+                    "basis_bedarf DOUBLE NOT NULL, " +
+                    "PRIMARY KEY (baum_id), " +
+                    "KEY idx_baum_parzelle (parzelle_id, baum_id), " +
+                    "CONSTRAINT fk_baum_parzelle FOREIGN KEY (parzelle_id) REFERENCES parzelle (parzelle_id)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+        }
+    }
+
+    /**
+     * Legt messwerte partitioniert an. Eine bestehende, nicht partitionierte Tabelle
+     * wird samt messwert_id in die neue Struktur kopiert und anschließend ersetzt.
+     * Ein abgebrochener Lauf wird beim nächsten Start neu aufgesetzt: messwerte bleibt
+     * bis zum atomaren RENAME unverändert, Reste von messwerte_neu/_alt werden entfernt.
+     */
+    private void erstelleMesswerte(Connection conn) throws SQLException {
+        boolean vorhanden = tabelleExistiert(conn, "messwerte");
+        if (vorhanden && !leseMonatspartitionen(conn).isEmpty()) {
+            // Abbruch nach dem RENAME: die Kopie ist bereits aktiv
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE IF EXISTS messwerte_alt");
+            }
+            return;
+        }
+
+        YearMonth start = YearMonth.now();
+        if (vorhanden) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT MIN(zeitstempel) FROM messwerte")) {
+                if (rs.next() && rs.getTimestamp(1) != null) {
+                    start = YearMonth.from(rs.getTimestamp(1).toLocalDateTime());
+                }
+            }
+        }
+
+        String tabelle = vorhanden ? "messwerte_neu" : "messwerte";
+        try (Statement stmt = conn.createStatement()) {
+            if (vorhanden) {
+                stmt.execute("DROP TABLE IF EXISTS messwerte_neu");
+            }
+            stmt.execute("CREATE TABLE " + tabelle + " (" + MESSWERTE_SPALTEN + ") " +
+                    "ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 " +
+                    "PARTITION BY RANGE COLUMNS (zeitstempel) (" +
+                    erstellePartitionsklausel(start, YearMonth.now().plusMonths(MONATE_VORLAUF)) + ")");
+
+            if (vorhanden) {
+                // messwert_id übernehmen, damit Verweise auf einzelne Messungen gültig bleiben
+                String spalten = (spalteExistiert(conn, "messwerte", "messwert_id") ? "messwert_id, " : "") +
+                        "parzelle_id, temperatur, niederschlag, zeitstempel";
+                stmt.execute("INSERT INTO messwerte_neu (" + spalten + ") SELECT " + spalten + " FROM messwerte");
+                stmt.execute("RENAME TABLE messwerte TO messwerte_alt, messwerte_neu TO messwerte");
+                stmt.execute("DROP TABLE messwerte_alt");
+            }
+        }
+    }
+
+    /**
+     * Legt die Projektion der letzten Messung pro Parzelle an und füllt sie aus der Historie.
+     */
+    private void erstelleMesswerteAktuell(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS messwerte_aktuell (" +
+                    "parzelle_id INT NOT NULL, " +
+                    "temperatur DOUBLE NOT NULL, " +
+                    "niederschlag DOUBLE NOT NULL, " +
+                    "zeitstempel DATETIME NOT NULL, " +
+                    "PRIMARY KEY (parzelle_id), " +
+                    "CONSTRAINT fk_messwerte_aktuell_parzelle FOREIGN KEY (parzelle_id) " +
+                    "REFERENCES parzelle (parzelle_id)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+            // IGNORE: bei gleichem Zeitstempel gewinnt die erste Zeile, Messungen
+            // ohne (noch existierende) Parzelle werden übersprungen
+            stmt.execute("INSERT IGNORE INTO messwerte_aktuell (parzelle_id, temperatur, niederschlag, zeitstempel) " +
+                    "SELECT m.parzelle_id, m.temperatur, m.niederschlag, m.zeitstempel FROM messwerte m " +
+                    "JOIN (SELECT parzelle_id, MAX(zeitstempel) AS zeitstempel FROM messwerte " +
+                    "GROUP BY parzelle_id) letzte " +
+                    "ON m.parzelle_id = letzte.parzelle_id AND m.zeitstempel = letzte.zeitstempel");
+        }
+    }
+
+    /**
+     * Legt die Tabellen für Stunden- und Tageswerte an und füllt sie aus der Historie.
+     * Gespeichert wird die Temperatursumme, damit der Durchschnitt inkrementell fortgeschrieben
+     * werden kann (Durchschnitt = temperatur_summe / anzahl).
+     */
+    private void erstelleRollups(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String tabelle : new String[]{"messwerte_stuendlich", "messwerte_taeglich"}) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS " + tabelle + " (" +
+                        "parzelle_id INT NOT NULL, " +
+                        "periode DATETIME NOT NULL, " +
+                        "temperatur_min DOUBLE NOT NULL, " +
+                        "temperatur_max DOUBLE NOT NULL, " +
+                        "temperatur_summe DOUBLE NOT NULL, " +
+                        "niederschlag_summe DOUBLE NOT NULL, " +
+                        "anzahl INT NOT NULL, " +
+                        "PRIMARY KEY (parzelle_id, periode)" +
+                        ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            }
+        }
+
+        Timestamp beginn = Timestamp.valueOf("1000-01-01 00:00:00");
+        Timestamp ende = Timestamp.valueOf("9999-12-31 00:00:00");
+        for (String sql : new String[]{MesswerteProjektionen.NEUAUFBAU_STUENDLICH_SQL,
+                MesswerteProjektionen.NEUAUFBAU_TAEGLICH_SQL}) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setTimestamp(1, beginn);
+                stmt.setTimestamp(2, ende);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    // ========================================================================
+    // PARTITIONEN
+    // ========================================================================
+
+    private int rollePartitionenVor(Connection conn) throws SQLException {
+        Set<String> vorhanden = leseMonatspartitionen(conn);
+        if (vorhanden.isEmpty()) {
+            System.err.println("[Schema] messwerte ist nicht partitioniert, Vorrollen übersprungen");
+            return 0;
+        }
+
+        YearMonth letzte = null;
+        for (String name : vorhanden) {
+            YearMonth monat = YearMonth.of(Integer.parseInt(name.substring(1, 5)),
+                    Integer.parseInt(name.substring(5, 7)));
+            if (letzte == null || monat.isAfter(letzte)) {
+                letzte = monat;
+            }
+        }
+
+        YearMonth ziel = YearMonth.now().plusMonths(MONATE_VORLAUF);
+        if (!letzte.isBefore(ziel)) {
+            return 0;
+        }
+
+        // Eine leere Auffang-Partition pmax wird ohne Datenbewegung aufgeteilt. Enthält sie
+        // Messungen jenseits der letzten Monatspartition, kopiert MySQL diese dabei in die
+        // neuen Partitionen (messwerte bleibt so lange gesperrt)
+        if (!pmaxIstLeer(conn)) {
+            System.err.println("[Schema] pmax enthält Messungen, sie werden in die neuen Partitionen verschoben");
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE messwerte REORGANIZE PARTITION pmax INTO (" +
+                    erstellePartitionsklausel(letzte.plusMonths(1), ziel) + ")");
+        }
+
+        int anzahl = (int) (ziel.getYear() * 12L + ziel.getMonthValue()
+                - letzte.getYear() * 12L - letzte.getMonthValue());
+        System.out.println("[Schema] " + anzahl + " Partition(en) bis " + ziel + " angelegt");
+        return anzahl;
+    }
+
+    private boolean pmaxIstLeer(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1 FROM messwerte PARTITION (pmax) LIMIT 1")) {
+            return !rs.next();
+        }
+    }
+
+    private Set<String> leseMonatspartitionen(Connection conn) throws SQLException {
+        String sql = "SELECT PARTITION_NAME FROM INFORMATION_SCHEMA.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'messwerte' AND PARTITION_NAME IS NOT NULL";
+
+        Set<String> namen = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if (name.matches("p\\d{6}")) {
+                    namen.add(name);
+                }
+            }
+        }
+        return namen;
+    }
+
+    /**
+     * Partitionsdefinitionen für die Monate von..bis (jeweils einschließlich),
+     * abgeschlossen durch die Auffang-Partition pmax.
+     */
+    public static String erstellePartitionsklausel(YearMonth von, YearMonth bis) {
+        List<String> partitionen = new ArrayList<>();
+        for (YearMonth monat = von; !monat.isAfter(bis); monat = monat.plusMonths(1)) {
+            partitionen.add("PARTITION " + partitionsName(monat) +
+                    " VALUES LESS THAN ('" + monat.plusMonths(1).atDay(1) + " 00:00:00')");
+        }
+        partitionen.add("PARTITION pmax VALUES LESS THAN (MAXVALUE)");
+        return String.join(", ", partitionen);
+    }
+
+    /**
+     * Name der Partition eines Monats, z.B. p202610.
+     */
+    public static String partitionsName(YearMonth monat) {
+        return String.format("p%04d%02d", monat.getYear(), monat.getMonthValue());
+    }
+
+    // ========================================================================
+    // VERSIONSTABELLE
+    // ========================================================================
+
+    private void erstelleVersionstabelle(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT NOT NULL, " +
+                    "beschreibung VARCHAR(200) NOT NULL, " +
+                    "angewendet_am DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "PRIMARY KEY (version)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+        }
+    }
+
+    private int leseVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void speichereVersion(Connection conn, Migration migration) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO schema_version (version, beschreibung) VALUES (?, ?)")) {
+            stmt.setInt(1, migration.version());
+            stmt.setString(2, migration.beschreibung());
+            stmt.executeUpdate();
+        }
+    }
+
+    private boolean tabelleExistiert(Connection conn, String tabelle) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT 1 FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            stmt.setString(1, tabelle);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private boolean spalteExistiert(Connection conn, String tabelle, String spalte) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = DATABASE() " +
+                        "AND TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+            stmt.setString(1, tabelle);
+            stmt.setString(2, spalte);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // ========================================================================
+    // SCHEMA-SPERRE
+    // ========================================================================
+
+    /**
+     * Führt den Schritt unter der serverweiten Schema-Sperre aus. Die Sperre gehört der
+     * Sitzung und wird danach ausdrücklich freigegeben (die Verbindung kehrt in den Pool zurück).
+     */
+    private <T> T mitSchemaSperre(Connection conn, GesperrterSchritt<T> schritt) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT GET_LOCK('" + SCHEMA_SPERRE + "', " + SPERR_TIMEOUT_SEKUNDEN + ")")) {
+            // 0 = Timeout, NULL = Fehler
+            if (!rs.next() || rs.getInt(1) != 1) {
+                throw new SQLException("Schema-Sperre " + SCHEMA_SPERRE + " nicht innerhalb von " +
+                        SPERR_TIMEOUT_SEKUNDEN + " s erhalten, läuft eine andere Migration?");
+            }
+        }
+        try {
+            return schritt.ausfuehren(conn);
+        } finally {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT RELEASE_LOCK('" + SCHEMA_SPERRE + "')")) {
+                rs.next();
+            } catch (SQLException e) {
+                System.err.println("[Schema] Freigabe der Schema-Sperre fehlgeschlagen: " + e.getMessage());
+            }
+        }
+    }
+
+    private record Migration(int version, String beschreibung, MigrationsSchritt schritt) {
+    }
+
+    @FunctionalInterface
+    private interface MigrationsSchritt {
+        void ausfuehren(Connection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface GesperrterSchritt<T> {
+        T ausfuehren(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,63 @@
+package org.iba.db.cache;
+
+import java.util.Properties;
+
+/**
+ * Konfiguration des Entity-Caches.
+ * Wird pro DBConnector-Profil aus den "cache.*"-Properties gelesen.
+ */
+public final class CacheConfig {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMs;
+
+    public CacheConfig(boolean enabled, int maxEntries, long ttlMs) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache-Größe muss größer als 0 sein: " + maxEntries);
+        }
+        if (ttlMs <= 0) {
+            throw new IllegalArgumentException("Cache-TTL muss größer als 0 sein: " + ttlMs);
+        }
+
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Liest die Cache-Einstellungen aus einer Profil-Konfiguration.
+     * Ohne Angabe ist der Cache deaktiviert.
+     */
+    public static CacheConfig fromProperties(Properties config) {
+        return new CacheConfig(
+                Boolean.parseBoolean(config.getProperty("cache.enabled", "false")),
+                Integer.parseInt(config.getProperty("cache.maxEntries", "10000")),
+                Long.parseLong(config.getProperty("cache.ttlMs", "300000"))
+        );
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Maximale Anzahl Einträge pro Cache.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheConfig{" +
+                "enabled=" + enabled +
+                ", maxEntries=" + maxEntries +
+                ", ttl=" + ttlMs + "ms" +
+                '}';
+    }
+}
@@ -0,0 +1,188 @@
+package org.iba.db.cache;
+
+import org.iba.exception.DatabaseException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Begrenzter Read-Through-Cache (LRU + TTL) für Entitäten.
+ * - Fehlende oder abgelaufene Einträge werden über den Lader nachgeladen
+ * - Bei Überschreiten der Maximalgröße wird der am längsten ungenutzte Eintrag verdrängt
+ * - Gespeichert und ausgegeben werden Kopien, damit Aufrufer den Cache nicht verändern
+ *
+ * Jede Invalidierung erhöht eine Generation. Ein Ladevorgang, der vor einer
+ * Invalidierung begonnen hat, legt sein (möglicherweise veraltetes) Ergebnis
+ * daher nicht mehr im Cache ab. Thread-sicher.
+ */
+public class EntityCache<K, V> {
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final UnaryOperator<V> kopie;
+
+    private final LinkedHashMap<K, Eintrag<V>> eintraege;
+    private long generation = 0;
+
+    private long treffer = 0;
+    private long fehlgriffe = 0;
+    private long verdraengungen = 0;
+    private long abgelaufen = 0;
+    private long invalidierungen = 0;
+
+    public EntityCache(String name, int maxEntries, long ttlMs, UnaryOperator<V> kopie) {
+        if (maxEntries <= 0 || ttlMs <= 0) {
+            throw new IllegalArgumentException(
+                    "Ungültige Cache-Einstellungen: maxEntries=" + maxEntries + ", ttlMs=" + ttlMs);
+        }
+
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.kopie = kopie;
+
+        // accessOrder = true: Iterationsreihenfolge entspricht der letzten Benutzung
+        this.eintraege = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Eintrag<V>> eldest) {
+                if (size() > EntityCache.this.maxEntries) {
+                    verdraengungen++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Liefert den Wert aus dem Cache oder lädt ihn über den Lader.
+     * null-Ergebnisse werden nicht gecacht.
+     */
+    public V hole(K key, Lader<V> lader) throws DatabaseException {
+        long generationBeimLaden;
+
+        synchronized (this) {
+            Eintrag<V> eintrag = eintraege.get(key);
+            if (eintrag != null) {
+                if (System.nanoTime() - eintrag.geladenAm < ttlNanos) {
+                    treffer++;
+                    return kopie.apply(eintrag.wert);
+                }
+                eintraege.remove(key);
+                abgelaufen++;
+            }
+            fehlgriffe++;
+            generationBeimLaden = generation;
+        }
+
+        // Laden außerhalb der Sperre, damit parallele Zugriffe nicht blockieren
+        V wert = lader.lade();
+
+        if (wert != null) {
+            synchronized (this) {
+                if (generation == generationBeimLaden) {
+                    eintraege.put(key, new Eintrag<>(kopie.apply(wert), System.nanoTime()));
+                }
+            }
+        }
+        return wert;
+    }
+
+    /**
+     * Entfernt den Eintrag eines Schlüssels.
+     */
+    public synchronized void invalidiere(K key) {
+        generation++;
+        if (eintraege.remove(key) != null) {
+            invalidierungen++;
+        }
+    }
+
+    /**
+     * Entfernt alle Einträge, auf die die Bedingung zutrifft.
+     */
+    public synchronized void invalidiereWenn(BiPredicate<? super K, ? super V> bedingung) {
+        generation++;
+        Iterator<Map.Entry<K, Eintrag<V>>> it = eintraege.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Eintrag<V>> entry = it.next();
+            if (bedingung.test(entry.getKey(), entry.getValue().wert)) {
+                it.remove();
+                invalidierungen++;
+            }
+        }
+    }
+
+    /**
+     * Entfernt alle Einträge.
+     */
+    public synchronized void leere() {
+        generation++;
+        invalidierungen += eintraege.size();
+        eintraege.clear();
+    }
+
+    // ========================================================================
+    // STATISTIK
+    // ========================================================================
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int size() {
+        return eintraege.size();
+    }
+
+    public synchronized long getHits() {
+        return treffer;
+    }
+
+    public synchronized long getMisses() {
+        return fehlgriffe;
+    }
+
+    public synchronized long getEvictions() {
+        return verdraengungen;
+    }
+
+    public synchronized long getExpirations() {
+        return abgelaufen;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidierungen;
+    }
+
+    /**
+     * Trefferquote (0.0 bis 1.0).
+     */
+    public synchronized double getHitRate() {
+        long gesamt = treffer + fehlgriffe;
+        return gesamt == 0 ? 0.0 : (double) treffer / gesamt;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "EntityCache{name=%s, eintraege=%d/%d, treffer=%d, fehlgriffe=%d, quote=%.1f%%, " +
+                        "verdraengt=%d, abgelaufen=%d, invalidiert=%d}",
+                name, eintraege.size(), maxEntries, treffer, fehlgriffe, getHitRate() * 100,
+                verdraengungen, abgelaufen, invalidierungen);
+    }
+
+    private record Eintrag<V>(V wert, long geladenAm) {
+    }
+
+    /**
+     * Lädt einen Wert aus der Datenbank.
+     */
+    @FunctionalInterface
+    public interface Lader<V> {
+        V lade() throws DatabaseException;
+    }
+}
@@ -0,0 +1,174 @@
+package org.iba.db.cache;
+
+import org.iba.db.DBConnector;
+import org.iba.model.Baum;
+import org.iba.model.Parzelle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zentrale Entity-Caches der Repositories für das aktive DBConnector-Profil.
+ * Die Caches werden beim ersten Zugriff aus der Profil-Konfiguration angelegt;
+ * ist der Cache im Profil deaktiviert, liefern die Zugriffsmethoden null.
+ */
+public final class EntityCaches {
+
+    /** Schlüssel für die Liste aller Parzellen. */
+    public static final String ALLE = "alle";
+
+    private static Instanzen instanzen;
+
+    private EntityCaches() {
+    }
+
+    /**
+     * Cache für ParzelleRepository.findAlle().
+     */
+    public static EntityCache<String, List<Parzelle>> parzellen() {
+        return getInstanzen().parzellen();
+    }
+
+    /**
+     * Cache für BaumRepository.findById().
+     */
+    public static EntityCache<Integer, Baum> baeumeNachId() {
+        return getInstanzen().baeumeNachId();
+    }
+
+    /**
+     * Cache für BaumRepository.findByParzelleId().
+     */
+    public static EntityCache<Integer, List<Baum>> baeumeNachParzelle() {
+        return getInstanzen().baeumeNachParzelle();
+    }
+
+    // ========================================================================
+    // INVALIDIERUNG NACH SCHREIBZUGRIFFEN
+    // ========================================================================
+
+    /**
+     * Nach Änderungen an Parzellen (auch am Baum-Zähler).
+     */
+    public static void invalidiereParzellen() {
+        EntityCache<String, List<Parzelle>> cache = parzellen();
+        if (cache != null) {
+            cache.invalidiere(ALLE);
+        }
+    }
+
+    /**
+     * Nach Änderung oder Löschen eines einzelnen Baums: der Baum selbst und jede
+     * gecachte Baumliste, die ihn enthält.
+     */
+    public static void invalidiereBaum(int baumId) {
+        EntityCache<Integer, Baum> nachId = baeumeNachId();
+        if (nachId != null) {
+            nachId.invalidiere(baumId);
+        }
+        EntityCache<Integer, List<Baum>> nachParzelle = baeumeNachParzelle();
+        if (nachParzelle != null) {
+            nachParzelle.invalidiereWenn((parzelleId, baeume) -> enthaelt(baeume, baumId));
+        }
+    }
+
+    /**
+     * Nach dem Hinzufügen von Bäumen zu einer Parzelle: nur deren Baumliste.
+     */
+    public static void invalidiereBaumliste(int parzelleId) {
+        EntityCache<Integer, List<Baum>> nachParzelle = baeumeNachParzelle();
+        if (nachParzelle != null) {
+            nachParzelle.invalidiere(parzelleId);
+        }
+    }
+
+    /**
+     * Nach Änderungen an allen Bäumen einer Parzelle: Baumliste und alle Bäume der Parzelle.
+     */
+    public static void invalidiereBaeumeDerParzelle(int parzelleId) {
+        invalidiereBaumliste(parzelleId);
+        EntityCache<Integer, Baum> nachId = baeumeNachId();
+        if (nachId != null) {
+            nachId.invalidiereWenn((baumId, baum) -> baum.getParzelleId() == parzelleId);
+        }
+    }
+
+    public static boolean isAktiviert() {
+        return getInstanzen().config().isEnabled();
+    }
+
+    /**
+     * Verwirft alle Caches; die Konfiguration wird beim nächsten Zugriff neu gelesen
+     * (z.B. nach einem Profilwechsel).
+     */
+    public static synchronized void zuruecksetzen() {
+        instanzen = null;
+    }
+
+    /**
+     * Statistik aller Caches für Diagnoseausgaben.
+     */
+    public static String getStatistik() {
+        Instanzen aktuell = getInstanzen();
+        if (!aktuell.config().isEnabled()) {
+            return "deaktiviert";
+        }
+        return aktuell.parzellen() + "\n" + aktuell.baeumeNachId() + "\n" + aktuell.baeumeNachParzelle();
+    }
+
+    private static synchronized Instanzen getInstanzen() {
+        if (instanzen == null) {
+            CacheConfig config = DBConnector.getCacheConfig();
+            if (config.isEnabled()) {
+                instanzen = new Instanzen(config,
+                        new EntityCache<>("parzellen", config.getMaxEntries(), config.getTtlMs(),
+                                EntityCaches::kopiereParzellen),
+                        new EntityCache<>("baeumeNachId", config.getMaxEntries(), config.getTtlMs(),
+                                EntityCaches::kopiereBaum),
+                        new EntityCache<>("baeumeNachParzelle", config.getMaxEntries(), config.getTtlMs(),
+                                EntityCaches::kopiereBaeume));
+                System.out.println("[EntityCaches] Caches erstellt: " + config);
+            } else {
+                instanzen = new Instanzen(config, null, null, null);
+            }
+        }
+        return instanzen;
+    }
+
+    private static boolean enthaelt(List<Baum> baeume, int baumId) {
+        for (Baum baum : baeume) {
+            if (baum.getBaumId() == baumId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Parzelle> kopiereParzellen(List<Parzelle> parzellen) {
+        List<Parzelle> kopie = new ArrayList<>(parzellen.size());
+        for (Parzelle p : parzellen) {
+            kopie.add(new Parzelle(p.getParzelleId(), p.getName(), p.getAnzahlBaeume(),
+                    p.getFlaecheQm(), p.getKlimaZone(), p.getBesitzerId()));
+        }
+        return kopie;
+    }
+
+    private static Baum kopiereBaum(Baum b) {
+        return new Baum(b.getBaumId(), b.getParzelleId(), b.getAlterJahre(),
+                b.getPflanzenartId(), b.getBasisBedarf());
+    }
+
+    private static List<Baum> kopiereBaeume(List<Baum> baeume) {
+        List<Baum> kopie = new ArrayList<>(baeume.size());
+        for (Baum b : baeume) {
+            kopie.add(kopiereBaum(b));
+        }
+        return kopie;
+    }
+
+    private record Instanzen(CacheConfig config,
+                             EntityCache<String, List<Parzelle>> parzellen,
+                             EntityCache<Integer, Baum> baeumeNachId,
+                             EntityCache<Integer, List<Baum>> baeumeNachParzelle) {
+    }
+}
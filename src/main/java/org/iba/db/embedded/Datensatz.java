@@ -0,0 +1,151 @@
+package org.iba.db.embedded;
+
+import org.iba.model.Baum;
+import org.iba.model.Parzelle;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Baut einen Log-Datensatz aus einer Folge von Operationen auf.
+ * Alle Operationen eines Datensatzes werden gemeinsam (atomar) wirksam.
+ *
+ * Aufbau der Nutzdaten: [Anzahl Operationen][Operation]...,
+ * jede Operation beginnt mit ihrem Typ-Byte (siehe OP_*).
+ */
+class Datensatz {
+
+    static final byte OP_PARZELLE = 1;
+    static final byte OP_PARZELLE_LOESCHEN = 2;
+    static final byte OP_ANZAHL_BAEUME = 3;
+    static final byte OP_BAUM = 4;
+    static final byte OP_BAUM_LOESCHEN = 5;
+    static final byte OP_MESSUNG = 6;
+    static final byte OP_SEQUENZEN = 7;
+
+    // Kopf der LogDatei + Anzahl Operationen
+    private static final int NUTZDATEN_BEGINN = LogDatei.KOPF_BYTES + 4;
+
+    private ByteBuffer puffer = ByteBuffer.allocate(4096);
+    private int anzahlOperationen;
+
+    /**
+     * Leert den Datensatz für die Wiederverwendung.
+     */
+    Datensatz beginne() {
+        puffer.clear().position(NUTZDATEN_BEGINN);
+        anzahlOperationen = 0;
+        return this;
+    }
+
+    void parzelle(Parzelle parzelle) {
+        operation(OP_PARZELLE, 32);
+        puffer.putInt(parzelle.getParzelleId());
+        text(parzelle.getName());
+        puffer.putInt(parzelle.getAnzahlBaeume());
+        puffer.putDouble(parzelle.getFlaecheQm());
+        text(parzelle.getKlimaZone());
+        puffer.putInt(parzelle.getBesitzerId());
+    }
+
+    void parzelleLoeschen(int parzelleId) {
+        operation(OP_PARZELLE_LOESCHEN, 4);
+        puffer.putInt(parzelleId);
+    }
+
+    void anzahlBaeume(int parzelleId, int delta) {
+        operation(OP_ANZAHL_BAEUME, 8);
+        puffer.putInt(parzelleId);
+        puffer.putInt(delta);
+    }
+
+    void baum(Baum baum) {
+        operation(OP_BAUM, 24);
+        puffer.putInt(baum.getBaumId());
+        puffer.putInt(baum.getParzelleId());
+        puffer.putInt(baum.getAlterJahre());
+        puffer.putInt(baum.getPflanzenartId());
+        puffer.putDouble(baum.getBasisBedarf());
+    }
+
+    void baumLoeschen(int baumId) {
+        operation(OP_BAUM_LOESCHEN, 4);
+        puffer.putInt(baumId);
+    }
+
+    void messung(int parzelleId, long zeitpunkt, double temperatur, double niederschlag) {
+        operation(OP_MESSUNG, 28);
+        puffer.putInt(parzelleId);
+        puffer.putLong(zeitpunkt);
+        puffer.putDouble(temperatur);
+        puffer.putDouble(niederschlag);
+    }
+
+    void sequenzen(int naechsteParzelleId, int naechsteBaumId) {
+        operation(OP_SEQUENZEN, 8);
+        puffer.putInt(naechsteParzelleId);
+        puffer.putInt(naechsteBaumId);
+    }
+
+    int getAnzahlOperationen() {
+        return anzahlOperationen;
+    }
+
+    /**
+     * Schließt den Datensatz ab.
+     * @return Gesamtlänge einschließlich Kopf (die Daten liegen in getDaten()).
+     */
+    int abschliessen() {
+        puffer.putInt(LogDatei.KOPF_BYTES, anzahlOperationen);
+        return puffer.position();
+    }
+
+    byte[] getDaten() {
+        return puffer.array();
+    }
+
+    /**
+     * Nutzdaten (ohne Kopf) zum Anwenden auf den Speicherzustand.
+     */
+    ByteBuffer getNutzdaten() {
+        return ByteBuffer.wrap(puffer.array(), LogDatei.KOPF_BYTES, puffer.position() - LogDatei.KOPF_BYTES);
+    }
+
+    static String leseText(ByteBuffer daten) {
+        int laenge = daten.getInt();
+        if (laenge < 0) {
+            return null;
+        }
+        String text = new String(daten.array(), daten.arrayOffset() + daten.position(), laenge,
+                StandardCharsets.UTF_8);
+        daten.position(daten.position() + laenge);
+        return text;
+    }
+
+    private void operation(byte typ, int bytes) {
+        sichere(1 + bytes);
+        puffer.put(typ);
+        anzahlOperationen++;
+    }
+
+    private void text(String text) {
+        if (text == null) {
+            sichere(4);
+            puffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        sichere(4 + bytes.length);
+        puffer.putInt(bytes.length);
+        puffer.put(bytes);
+    }
+
+    private void sichere(int bytes) {
+        if (puffer.remaining() < bytes) {
+            int position = puffer.position();
+            int kapazitaet = Math.max(puffer.capacity() * 2, position + bytes);
+            puffer = ByteBuffer.wrap(Arrays.copyOf(puffer.array(), kapazitaet)).position(position);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.iba.db.embedded;
+
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Konfiguration des eingebetteten Speichers.
+ * Wird aus den "embedded.*"-Properties des DBConnector-Profils gelesen.
+ */
+public final class EmbeddedConfig {
+
+    private final Path verzeichnis;
+    private final boolean fsyncBeiCommit;
+    private final long syncIntervallMs;
+    private final long kompaktierungIntervallMs;
+    private final double kompaktierungMuellAnteil;
+    private final long kompaktierungMindestBytes;
+
+    /**
+     * @param verzeichnis Verzeichnis der Log-Datei.
+     * @param fsyncBeiCommit Jeden Schreibvorgang sofort auf die Platte zwingen (langsam, aber
+     *                       auch bei Stromausfall ohne Verlust bestätigter Schreibvorgänge).
+     * @param syncIntervallMs Abstand der periodischen fsyncs, falls nicht bei jedem Commit.
+     * @param kompaktierungIntervallMs Abstand der Prüfungen, ob kompaktiert werden soll.
+     * @param kompaktierungMuellAnteil Anteil veralteter Bytes im Log, ab dem kompaktiert wird.
+     * @param kompaktierungMindestBytes Veraltete Bytes, unter denen nie kompaktiert wird.
+     */
+    public EmbeddedConfig(Path verzeichnis, boolean fsyncBeiCommit, long syncIntervallMs,
+                          long kompaktierungIntervallMs, double kompaktierungMuellAnteil,
+                          long kompaktierungMindestBytes) {
+        if (syncIntervallMs <= 0 || kompaktierungIntervallMs <= 0) {
+            throw new IllegalArgumentException("Intervalle müssen größer als 0 sein: sync=" +
+                    syncIntervallMs + "ms, kompaktierung=" + kompaktierungIntervallMs + "ms");
+        }
+        if (kompaktierungMuellAnteil <= 0 || kompaktierungMuellAnteil >= 1) {
+            throw new IllegalArgumentException("Müllanteil muss zwischen 0 und 1 liegen: " +
+                    kompaktierungMuellAnteil);
+        }
+
+        this.verzeichnis = verzeichnis;
+        this.fsyncBeiCommit = fsyncBeiCommit;
+        this.syncIntervallMs = syncIntervallMs;
+        this.kompaktierungIntervallMs = kompaktierungIntervallMs;
+        this.kompaktierungMuellAnteil = kompaktierungMuellAnteil;
+        this.kompaktierungMindestBytes = kompaktierungMindestBytes;
+    }
+
+    /**
+     * Liest die Einstellungen aus einer Profil-Konfiguration.
+     */
+    public static EmbeddedConfig fromProperties(Properties config) {
+        return new EmbeddedConfig(
+                Path.of(config.getProperty("embedded.dir", "iba-daten")),
+                Boolean.parseBoolean(config.getProperty("embedded.fsyncOnCommit", "false")),
+                Long.parseLong(config.getProperty("embedded.syncIntervalMs", "1000")),
+                Long.parseLong(config.getProperty("embedded.compactionIntervalMs", "600000")),
+                Double.parseDouble(config.getProperty("embedded.compactionGarbageRatio", "0.5")),
+                Long.parseLong(config.getProperty("embedded.compactionMinBytes", "16777216"))
+        );
+    }
+
+    public Path getVerzeichnis() {
+        return verzeichnis;
+    }
+
+    public boolean isFsyncBeiCommit() {
+        return fsyncBeiCommit;
+    }
+
+    public long getSyncIntervallMs() {
+        return syncIntervallMs;
+    }
+
+    public long getKompaktierungIntervallMs() {
+        return kompaktierungIntervallMs;
+    }
+
+    public double getKompaktierungMuellAnteil() {
+        return kompaktierungMuellAnteil;
+    }
+
+    public long getKompaktierungMindestBytes() {
+        return kompaktierungMindestBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "EmbeddedConfig{" +
+                "verzeichnis=" + verzeichnis +
+                ", fsyncBeiCommit=" + fsyncBeiCommit +
+                ", syncIntervall=" + syncIntervallMs + "ms" +
+                ", kompaktierungIntervall=" + kompaktierungIntervallMs + "ms" +
+                ", muellAnteil=" + kompaktierungMuellAnteil +
+                '}';
+    }
+}
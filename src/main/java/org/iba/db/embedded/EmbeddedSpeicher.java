@@ -0,0 +1,973 @@
+package org.iba.db.embedded;
+
+import org.iba.exception.BaumTransferException;
+import org.iba.exception.BusinessException;
+import org.iba.exception.DatabaseException;
+import org.iba.exception.ValidationException;
+import org.iba.model.Baum;
+import org.iba.model.Messung;
+import org.iba.model.MesswerteAggregat;
+import org.iba.model.Messwerte;
+import org.iba.model.Parzelle;
+import org.iba.util.IntMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Eingebettete Speicher-Engine für das Profil EMBEDDED (Feldstationen ohne MySQL).
+ * - Jeder Schreibvorgang wird als ein Datensatz an ein Append-only-Log angehängt
+ *   und erst danach auf den Speicherzustand angewendet (atomar pro Operation)
+ * - Primär- und Sekundärindizes (Bäume nach Parzelle, Parzellen nach Name) sowie
+ *   Messreihen, aktuelle Werte und Stunden-/Tageswerte liegen im Speicher
+ * - Beim Öffnen wird das Log vollständig eingelesen; ein durch einen Absturz
+ *   unvollständiges Ende wird verworfen
+ * - Ein Wartungs-Thread führt periodisch fsync aus und kompaktiert das Log, sobald
+ *   es überwiegend aus veralteten Einträgen besteht
+ *
+ * Ohne "fsync bei Commit" überlebt ein bestätigter Schreibvorgang einen Absturz des
+ * Prozesses, bei einem Stromausfall können die letzten Millisekunden (Sync-Intervall)
+ * verloren gehen. Die Semantik entspricht den JDBC-Repositories, einschließlich
+ * Fremdschlüssel- und Eindeutigkeitsprüfungen.
+ */
+public class EmbeddedSpeicher implements LokalerSpeicher {
+
+    static final String LOG_DATEI = "iba.log";
+    static final String KOMPAKT_DATEI = "iba.log.kompakt";
+
+    private static final int OPERATIONEN_PRO_SNAPSHOT_DATENSATZ = 4096;
+
+    // Geschätzte Log-Größen, um den Anteil veralteter Bytes zu bestimmen
+    private static final int DATENSATZ_KOPF_BYTES = LogDatei.KOPF_BYTES + 4;
+    private static final int PARZELLE_BYTES = 48;
+    private static final int BAUM_BYTES = 25;
+    private static final int MESSUNG_BYTES = 29;
+    private static final int KLEINE_OPERATION_BYTES = 9;
+
+    private final EmbeddedConfig config;
+    private final ReentrantReadWriteLock sperre = new ReentrantReadWriteLock();
+    private final Object wartungsSperre = new Object();
+    private final Datensatz datensatz = new Datensatz();
+    private final ScheduledExecutorService wartung;
+    private volatile LogDatei log;
+    private volatile boolean geschlossen = false;
+
+    // Tabellen und Indizes (geschützt durch sperre)
+    private final IntMap<Parzelle> parzellen = new IntMap<>();
+    private final Map<String, Integer> parzelleNachName = new HashMap<>();
+    private final IntMap<Baum> baeume = new IntMap<>();
+    private final IntMap<TreeSet<Integer>> baeumeNachParzelle = new IntMap<>();
+    private final IntMap<MessReihe> messreihen = new IntMap<>();
+    private int naechsteParzelleId = 1;
+    private int naechsteBaumId = 1;
+    private long anzahlMessungen = 0;
+    private long muellBytes = 0;
+    private long kompaktierungen = 0;
+
+    /**
+     * Öffnet den Speicher im konfigurierten Verzeichnis und stellt den letzten Stand her.
+     */
+    public EmbeddedSpeicher(EmbeddedConfig config) throws DatabaseException {
+        this.config = config;
+        Path verzeichnis = config.getVerzeichnis();
+        long start = System.nanoTime();
+        long[] datensaetze = {0};
+
+        try {
+            Files.createDirectories(verzeichnis);
+            // Eine abgebrochene Kompaktierung hinterlässt nur eine unvollständige Kopie
+            Files.deleteIfExists(verzeichnis.resolve(KOMPAKT_DATEI));
+
+            this.log = LogDatei.oeffne(verzeichnis.resolve(LOG_DATEI), nutzdaten -> {
+                wendeAn(nutzdaten);
+                datensaetze[0]++;
+            });
+        } catch (IOException e) {
+            throw new DatabaseException("Eingebetteter Speicher in " + verzeichnis +
+                    " konnte nicht geöffnet werden: " + e.getMessage(), e);
+        }
+
+        System.out.printf("[EmbeddedSpeicher] %d Datensätze wiederhergestellt in %d ms: %s%n",
+                datensaetze[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), this);
+
+        this.wartung = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "iba-embedded-wartung");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!config.isFsyncBeiCommit()) {
+            wartung.scheduleWithFixedDelay(this::synchronisiereStill,
+                    config.getSyncIntervallMs(), config.getSyncIntervallMs(), TimeUnit.MILLISECONDS);
+        }
+        wartung.scheduleWithFixedDelay(this::pruefeKompaktierung,
+                config.getKompaktierungIntervallMs(), config.getKompaktierungIntervallMs(), TimeUnit.MILLISECONDS);
+    }
+
+    // ========================================================================
+    // PARZELLEN
+    // ========================================================================
+
+    /**
+     * Speichert eine neue Parzelle und setzt ihre ID.
+     */
+    @Override
+    public Parzelle speichereParzelle(Parzelle parzelle) throws DatabaseException, ValidationException {
+        sperre.writeLock().lock();
+        try {
+            pruefeNameFrei(parzelle.getName());
+            int parzelleId = naechsteParzelleId;
+
+            datensatz.beginne().parzelle(new Parzelle(parzelleId, parzelle.getName(), parzelle.getAnzahlBaeume(),
+                    parzelle.getFlaecheQm(), parzelle.getKlimaZone(), parzelle.getBesitzerId()));
+            schreibe(datensatz);
+
+            parzelle.setParzelleId(parzelleId);
+            return parzelle;
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Speichert eine Parzelle mit ihren Bäumen in einem Datensatz und setzt alle IDs.
+     * @return Die gespeicherte Parzelle (mit aktualisiertem Baum-Zähler).
+     */
+    @Override
+    public Parzelle speichereParzelleMitBaeumen(Parzelle parzelle, List<Baum> neueBaeume)
+            throws DatabaseException, ValidationException {
+        sperre.writeLock().lock();
+        try {
+            pruefeNameFrei(parzelle.getName());
+            int parzelleId = naechsteParzelleId;
+            int ersteBaumId = naechsteBaumId;
+
+            datensatz.beginne().parzelle(new Parzelle(parzelleId, parzelle.getName(),
+                    parzelle.getAnzahlBaeume() + neueBaeume.size(), parzelle.getFlaecheQm(),
+                    parzelle.getKlimaZone(), parzelle.getBesitzerId()));
+            for (int i = 0; i < neueBaeume.size(); i++) {
+                Baum baum = neueBaeume.get(i);
+                datensatz.baum(new Baum(ersteBaumId + i, parzelleId, baum.getAlterJahre(),
+                        baum.getPflanzenartId(), baum.getBasisBedarf()));
+            }
+            schreibe(datensatz);
+
+            for (int i = 0; i < neueBaeume.size(); i++) {
+                neueBaeume.get(i).setParzelleId(parzelleId);
+                neueBaeume.get(i).setBaumId(ersteBaumId + i);
+            }
+            return kopiere(parzellen.get(parzelleId));
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Löscht eine Parzelle mit allen Bäumen, Messwerten und abgeleiteten Werten.
+     */
+    @Override
+    public boolean loescheParzelleKomplett(int parzelleId) throws DatabaseException, BusinessException {
+        sperre.writeLock().lock();
+        try {
+            if (!parzellen.containsKey(parzelleId)) {
+                throw new BusinessException("Parzelle mit ID " + parzelleId + " existiert nicht");
+            }
+
+            datensatz.beginne().parzelleLoeschen(parzelleId);
+            schreibe(datensatz);
+            return true;
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Transferiert Bäume zwischen zwei Parzellen (alle oder keiner).
+     */
+    @Override
+    public void transferiereBaeume(int vonParzelleId, int zuParzelleId, List<Integer> baumIds)
+            throws DatabaseException, BusinessException {
+        sperre.writeLock().lock();
+        try {
+            if (!parzellen.containsKey(vonParzelleId)) {
+                throw new BusinessException("Quell-Parzelle existiert nicht: " + vonParzelleId);
+            }
+            if (!parzellen.containsKey(zuParzelleId)) {
+                throw new BusinessException("Ziel-Parzelle existiert nicht: " + zuParzelleId);
+            }
+            if (vonParzelleId == zuParzelleId) {
+                throw new BusinessException("Quell- und Ziel-Parzelle müssen unterschiedlich sein");
+            }
+            if (baumIds.isEmpty()) {
+                return;
+            }
+
+            List<Integer> fehlerhaft = new ArrayList<>();
+            for (Integer baumId : baumIds) {
+                Baum baum = baumId != null ? baeume.get(baumId) : null;
+                if (baum == null || baum.getParzelleId() != vonParzelleId) {
+                    fehlerhaft.add(baumId);
+                }
+            }
+            if (!fehlerhaft.isEmpty()) {
+                throw new BaumTransferException(vonParzelleId, fehlerhaft);
+            }
+
+            datensatz.beginne();
+            Set<Integer> transferiert = new HashSet<>();
+            for (Integer baumId : baumIds) {
+                if (transferiert.add(baumId)) {
+                    Baum baum = baeume.get(baumId);
+                    datensatz.baum(new Baum(baumId, zuParzelleId, baum.getAlterJahre(),
+                            baum.getPflanzenartId(), baum.getBasisBedarf()));
+                }
+            }
+            datensatz.anzahlBaeume(vonParzelleId, -transferiert.size());
+            datensatz.anzahlBaeume(zuParzelleId, transferiert.size());
+            schreibe(datensatz);
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Alle Parzellen, sortiert nach Name.
+     */
+    @Override
+    public List<Parzelle> findeAlleParzellen() {
+        List<Parzelle> ergebnis = new ArrayList<>();
+        sperre.readLock().lock();
+        try {
+            parzellen.forEach((id, parzelle) -> ergebnis.add(kopiere(parzelle)));
+        } finally {
+            sperre.readLock().unlock();
+        }
+        ergebnis.sort(Comparator.comparing(Parzelle::getName, String.CASE_INSENSITIVE_ORDER));
+        return ergebnis;
+    }
+
+    // ========================================================================
+    // BÄUME
+    // ========================================================================
+
+    /**
+     * Speichert einen neuen Baum und setzt seine ID.
+     */
+    @Override
+    public Baum speichereBaum(Baum baum) throws DatabaseException, ValidationException {
+        sperre.writeLock().lock();
+        try {
+            pruefeParzelleExistiert(baum.getParzelleId());
+            int baumId = naechsteBaumId;
+
+            datensatz.beginne().baum(new Baum(baumId, baum.getParzelleId(), baum.getAlterJahre(),
+                    baum.getPflanzenartId(), baum.getBasisBedarf()));
+            schreibe(datensatz);
+
+            baum.setBaumId(baumId);
+            return baum;
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Aktualisiert einen bestehenden Baum.
+     * @return false, wenn der Baum nicht existiert.
+     */
+    @Override
+    public boolean aktualisiereBaum(Baum baum) throws DatabaseException, ValidationException {
+        sperre.writeLock().lock();
+        try {
+            if (!baeume.containsKey(baum.getBaumId())) {
+                return false;
+            }
+            pruefeParzelleExistiert(baum.getParzelleId());
+
+            datensatz.beginne().baum(baum);
+            schreibe(datensatz);
+            return true;
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean loescheBaum(int baumId) throws DatabaseException {
+        sperre.writeLock().lock();
+        try {
+            if (!baeume.containsKey(baumId)) {
+                return false;
+            }
+
+            datensatz.beginne().baumLoeschen(baumId);
+            schreibe(datensatz);
+            return true;
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean loescheBaeumeDerParzelle(int parzelleId) throws DatabaseException {
+        sperre.writeLock().lock();
+        try {
+            TreeSet<Integer> ids = baeumeNachParzelle.get(parzelleId);
+            if (ids == null) {
+                return false;
+            }
+
+            datensatz.beginne();
+            for (int baumId : ids) {
+                datensatz.baumLoeschen(baumId);
+            }
+            schreibe(datensatz);
+            return true;
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Baum findeBaum(int baumId) {
+        sperre.readLock().lock();
+        try {
+            Baum baum = baeume.get(baumId);
+            return baum != null ? kopiere(baum) : null;
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bäume einer Parzelle über den Sekundärindex, sortiert nach ID.
+     */
+    @Override
+    public List<Baum> findeBaeumeDerParzelle(int parzelleId) {
+        sperre.readLock().lock();
+        try {
+            List<Baum> ergebnis = new ArrayList<>();
+            fuegeBaeumeHinzu(ergebnis, parzelleId);
+            return ergebnis;
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Alle Bäume, sortiert nach ID.
+     */
+    @Override
+    public List<Baum> findeAlleBaeume() {
+        sperre.readLock().lock();
+        try {
+            int[] ids = baeume.keys();
+            Arrays.sort(ids);
+            List<Baum> ergebnis = new ArrayList<>(ids.length);
+            for (int baumId : ids) {
+                ergebnis.add(kopiere(baeume.get(baumId)));
+            }
+            return ergebnis;
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Alle Bäume, sortiert nach Parzelle und innerhalb der Parzelle nach ID.
+     */
+    @Override
+    public List<Baum> findeAlleBaeumeNachParzelle() {
+        sperre.readLock().lock();
+        try {
+            int[] parzelleIds = baeumeNachParzelle.keys();
+            Arrays.sort(parzelleIds);
+            List<Baum> ergebnis = new ArrayList<>(baeume.size());
+            for (int parzelleId : parzelleIds) {
+                fuegeBaeumeHinzu(ergebnis, parzelleId);
+            }
+            return ergebnis;
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    // ========================================================================
+    // MESSWERTE
+    // ========================================================================
+
+    /**
+     * Speichert eine Messung.
+     * @throws ValidationException wenn die Parzelle nicht existiert.
+     */
+    @Override
+    public void speichereMessung(Messung messung) throws DatabaseException, ValidationException {
+        sperre.writeLock().lock();
+        try {
+            pruefeParzelleExistiert(messung.getParzelleId());
+
+            datensatz.beginne().messung(messung.getParzelleId(), MessReihe.alsZeitpunkt(messung.getZeitstempel()),
+                    messung.getMesswerte().getTemperatur(), messung.getMesswerte().getNiederschlag());
+            schreibe(datensatz);
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Speichert mehrere Messungen in einem Datensatz. Messungen zu unbekannten
+     * Parzellen werden übersprungen.
+     * @return Indizes (in messungen) der übersprungenen Messungen.
+     */
+    @Override
+    public List<Integer> speichereMessungen(List<Messung> messungen) throws DatabaseException {
+        List<Integer> abgelehnt = new ArrayList<>();
+
+        sperre.writeLock().lock();
+        try {
+            datensatz.beginne();
+            for (int i = 0; i < messungen.size(); i++) {
+                Messung messung = messungen.get(i);
+                if (!parzellen.containsKey(messung.getParzelleId())) {
+                    abgelehnt.add(i);
+                    continue;
+                }
+                datensatz.messung(messung.getParzelleId(), MessReihe.alsZeitpunkt(messung.getZeitstempel()),
+                        messung.getMesswerte().getTemperatur(), messung.getMesswerte().getNiederschlag());
+            }
+            schreibe(datensatz);
+        } finally {
+            sperre.writeLock().unlock();
+        }
+        return abgelehnt;
+    }
+
+    /**
+     * Neueste Messung einer Parzelle (null, wenn keine vorhanden).
+     */
+    @Override
+    public Messwerte findeLetzteMessung(int parzelleId) {
+        sperre.readLock().lock();
+        try {
+            return letzteMessung(messreihen.get(parzelleId));
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Neueste Messung für mehrere Parzellen; Parzellen ohne Messung fehlen in der Map.
+     */
+    @Override
+    public IntMap<Messwerte> findeLetzteMessungen(Collection<Integer> parzelleIds) {
+        IntMap<Messwerte> ergebnis = new IntMap<>(parzelleIds.size());
+
+        sperre.readLock().lock();
+        try {
+            for (Integer parzelleId : parzelleIds) {
+                if (parzelleId != null) {
+                    Messwerte messwerte = letzteMessung(messreihen.get(parzelleId));
+                    if (messwerte != null) {
+                        ergebnis.put(parzelleId, messwerte);
+                    }
+                }
+            }
+        } finally {
+            sperre.readLock().unlock();
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Alle Messungen im Zeitraum [von, bis), sortiert nach Parzelle und Zeit.
+     */
+    @Override
+    public List<Messung> findeMessungen(LocalDateTime von, LocalDateTime bis) {
+        long vonZeitpunkt = MessReihe.alsZeitpunkt(von);
+        long bisZeitpunkt = MessReihe.alsZeitpunkt(bis);
+        List<Messung> ergebnis = new ArrayList<>();
+
+        sperre.readLock().lock();
+        try {
+            int[] parzelleIds = messreihen.keys();
+            Arrays.sort(parzelleIds);
+            for (int parzelleId : parzelleIds) {
+                MessReihe reihe = messreihen.get(parzelleId);
+                for (int i = reihe.untereGrenze(vonZeitpunkt);
+                     i < reihe.getAnzahl() && reihe.getZeitpunkt(i) < bisZeitpunkt; i++) {
+                    ergebnis.add(new Messung(parzelleId,
+                            new Messwerte(reihe.getTemperatur(i), reihe.getNiederschlag(i)),
+                            MessReihe.alsZeit(reihe.getZeitpunkt(i))));
+                }
+            }
+        } finally {
+            sperre.readLock().unlock();
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Stunden- bzw. Tageswerte einer Parzelle mit Periodenbeginn in [von, bis).
+     */
+    @Override
+    public List<MesswerteAggregat> findeAggregate(int parzelleId, boolean proStunde,
+                                                  LocalDateTime von, LocalDateTime bis) {
+        sperre.readLock().lock();
+        try {
+            MessReihe reihe = messreihen.get(parzelleId);
+            if (reihe == null) {
+                return new ArrayList<>();
+            }
+            return reihe.findeAggregate(parzelleId, proStunde, MessReihe.alsZeitpunkt(von),
+                    MessReihe.alsZeitpunkt(bis));
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Berechnet Stunden- und Tageswerte der Tage von..bis (jeweils einschließlich) aus den
+     * Rohdaten neu. Da beide hier immer gemeinsam gepflegt werden, ist das nur eine
+     * Konsistenzprüfung; es wird nichts ins Log geschrieben.
+     * @return Anzahl der Tage.
+     */
+    @Override
+    public int baueRollupsNeu(LocalDate von, LocalDate bis) {
+        long vonZeitpunkt = MessReihe.alsZeitpunkt(von.atStartOfDay());
+        long bisZeitpunkt = MessReihe.alsZeitpunkt(bis.plusDays(1).atStartOfDay());
+
+        sperre.writeLock().lock();
+        try {
+            messreihen.forEach((parzelleId, reihe) -> reihe.baueRollupsNeu(vonZeitpunkt, bisZeitpunkt));
+        } finally {
+            sperre.writeLock().unlock();
+        }
+        return (int) Math.max(0, (bisZeitpunkt - vonZeitpunkt) / MessReihe.SEKUNDEN_PRO_TAG);
+    }
+
+    // ========================================================================
+    // WARTUNG
+    // ========================================================================
+
+    /**
+     * Zwingt alle bisher geschriebenen Datensätze auf die Platte.
+     */
+    public void synchronisiere() throws DatabaseException {
+        synchronized (wartungsSperre) {
+            pruefeOffen();
+            try {
+                log.synchronisiere();
+            } catch (IOException e) {
+                throw new DatabaseException("fsync des Logs fehlgeschlagen: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Schreibt den aktuellen Zustand als neues, minimales Log und ersetzt das alte atomar.
+     * Leser laufen währenddessen weiter, Schreiber warten.
+     */
+    public void kompaktiere() throws DatabaseException {
+        synchronized (wartungsSperre) {
+            sperre.readLock().lock();
+            try {
+                pruefeOffen();
+                long start = System.nanoTime();
+                long vorher = log.getGroesse();
+                Path ziel = log.getPfad();
+                Path kopie = config.getVerzeichnis().resolve(KOMPAKT_DATEI);
+
+                try {
+                    try (LogDatei neu = LogDatei.erstelle(kopie)) {
+                        schreibeSnapshot(neu);
+                        neu.synchronisiere();
+                    }
+                    log.close();
+                } catch (IOException e) {
+                    loescheStill(kopie);
+                    throw new DatabaseException("Kompaktierung fehlgeschlagen: " + e.getMessage(), e);
+                }
+
+                try {
+                    Files.move(kopie, ziel, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    muellBytes = 0;
+                    kompaktierungen++;
+                } catch (IOException e) {
+                    loescheStill(kopie);
+                    throw new DatabaseException("Kompaktiertes Log konnte nicht übernommen werden: " +
+                            e.getMessage(), e);
+                } finally {
+                    oeffneLogNeu(ziel);
+                }
+
+                System.out.printf("[EmbeddedSpeicher] Log kompaktiert: %d -> %d KB in %d ms%n",
+                        vorher / 1024, log.getGroesse() / 1024,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } finally {
+                sperre.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Schreibt alle Datensätze auf die Platte und schließt das Log.
+     */
+    @Override
+    public void close() {
+        synchronized (wartungsSperre) {
+            sperre.writeLock().lock();
+            try {
+                if (geschlossen) {
+                    return;
+                }
+                geschlossen = true;
+                wartung.shutdown();
+                try {
+                    log.synchronisiere();
+                    log.close();
+                } catch (IOException e) {
+                    System.err.println("[EmbeddedSpeicher] Fehler beim Schließen des Logs: " + e.getMessage());
+                }
+            } finally {
+                sperre.writeLock().unlock();
+            }
+        }
+        System.out.println("[EmbeddedSpeicher] Geschlossen: " + config.getVerzeichnis());
+    }
+
+    private void synchronisiereStill() {
+        try {
+            synchronisiere();
+        } catch (DatabaseException e) {
+            if (!geschlossen) {
+                System.err.println("[EmbeddedSpeicher] " + e.getMessage());
+            }
+        }
+    }
+
+    private void pruefeKompaktierung() {
+        long muell;
+        long groesse;
+        sperre.readLock().lock();
+        try {
+            if (geschlossen) {
+                return;
+            }
+            muell = muellBytes;
+            groesse = log.getGroesse();
+        } finally {
+            sperre.readLock().unlock();
+        }
+
+        if (muell >= config.getKompaktierungMindestBytes() &&
+                muell >= groesse * config.getKompaktierungMuellAnteil()) {
+            try {
+                kompaktiere();
+            } catch (DatabaseException e) {
+                System.err.println("[EmbeddedSpeicher] " + e.getMessage());
+            }
+        }
+    }
+
+    private void schreibeSnapshot(LogDatei ziel) throws IOException {
+        Datensatz snapshot = new Datensatz().beginne();
+        snapshot.sequenzen(naechsteParzelleId, naechsteBaumId);
+
+        int[] parzelleIds = parzellen.keys();
+        Arrays.sort(parzelleIds);
+        for (int parzelleId : parzelleIds) {
+            snapshot.parzelle(parzellen.get(parzelleId));
+            schreibeWennVoll(ziel, snapshot);
+        }
+
+        int[] baumIds = baeume.keys();
+        Arrays.sort(baumIds);
+        for (int baumId : baumIds) {
+            snapshot.baum(baeume.get(baumId));
+            schreibeWennVoll(ziel, snapshot);
+        }
+
+        for (int parzelleId : parzelleIds) {
+            MessReihe reihe = messreihen.get(parzelleId);
+            for (int i = 0; reihe != null && i < reihe.getAnzahl(); i++) {
+                snapshot.messung(parzelleId, reihe.getZeitpunkt(i), reihe.getTemperatur(i), reihe.getNiederschlag(i));
+                schreibeWennVoll(ziel, snapshot);
+            }
+        }
+
+        if (snapshot.getAnzahlOperationen() > 0) {
+            ziel.haengeAn(snapshot.getDaten(), snapshot.abschliessen(), false);
+        }
+    }
+
+    private static void schreibeWennVoll(LogDatei ziel, Datensatz snapshot) throws IOException {
+        if (snapshot.getAnzahlOperationen() >= OPERATIONEN_PRO_SNAPSHOT_DATENSATZ) {
+            ziel.haengeAn(snapshot.getDaten(), snapshot.abschliessen(), false);
+            snapshot.beginne();
+        }
+    }
+
+    private void oeffneLogNeu(Path pfad) throws DatabaseException {
+        try {
+            log = LogDatei.oeffneZumAnhaengen(pfad);
+        } catch (IOException e) {
+            geschlossen = true;
+            throw new DatabaseException("Log " + pfad + " konnte nicht wieder geöffnet werden: " +
+                    e.getMessage(), e);
+        }
+    }
+
+    private static void loescheStill(Path pfad) {
+        try {
+            Files.deleteIfExists(pfad);
+        } catch (IOException e) {
+            System.err.println("[EmbeddedSpeicher] " + pfad + " konnte nicht gelöscht werden: " + e.getMessage());
+        }
+    }
+
+    // ========================================================================
+    // LOG UND ZUSTAND
+    // ========================================================================
+
+    /**
+     * Hängt den Datensatz an das Log an und wendet ihn danach auf den Zustand an.
+     * Der Aufrufer hält die Schreibsperre.
+     */
+    private void schreibe(Datensatz neu) throws DatabaseException {
+        if (neu.getAnzahlOperationen() == 0) {
+            return;
+        }
+        pruefeOffen();
+
+        try {
+            log.haengeAn(neu.getDaten(), neu.abschliessen(), config.isFsyncBeiCommit());
+            wendeAn(neu.getNutzdaten());
+        } catch (IOException e) {
+            throw new DatabaseException("Schreiben in das Log " + log.getPfad() + " fehlgeschlagen: " +
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Wendet die Operationen eines Datensatzes an (beim Schreiben und beim Wiederherstellen).
+     */
+    private void wendeAn(ByteBuffer daten) throws IOException {
+        int anzahl = daten.getInt();
+        muellBytes += DATENSATZ_KOPF_BYTES;
+
+        for (int i = 0; i < anzahl; i++) {
+            byte typ = daten.get();
+            switch (typ) {
+                case Datensatz.OP_PARZELLE:
+                    wendeParzelleAn(new Parzelle(daten.getInt(), Datensatz.leseText(daten), daten.getInt(),
+                            daten.getDouble(), Datensatz.leseText(daten), daten.getInt()));
+                    break;
+                case Datensatz.OP_PARZELLE_LOESCHEN:
+                    wendeParzelleLoeschenAn(daten.getInt());
+                    break;
+                case Datensatz.OP_ANZAHL_BAEUME:
+                    Parzelle parzelle = parzellen.get(daten.getInt());
+                    int delta = daten.getInt();
+                    if (parzelle != null) {
+                        parzelle.setAnzahlBaeume(parzelle.getAnzahlBaeume() + delta);
+                    }
+                    muellBytes += KLEINE_OPERATION_BYTES;
+                    break;
+                case Datensatz.OP_BAUM:
+                    wendeBaumAn(new Baum(daten.getInt(), daten.getInt(), daten.getInt(), daten.getInt(),
+                            daten.getDouble()));
+                    break;
+                case Datensatz.OP_BAUM_LOESCHEN:
+                    Baum geloescht = baeume.remove(daten.getInt());
+                    if (geloescht != null) {
+                        entferneAusIndex(geloescht);
+                    }
+                    muellBytes += BAUM_BYTES + KLEINE_OPERATION_BYTES;
+                    break;
+                case Datensatz.OP_MESSUNG:
+                    int parzelleId = daten.getInt();
+                    MessReihe reihe = messreihen.get(parzelleId);
+                    if (reihe == null) {
+                        reihe = new MessReihe();
+                        messreihen.put(parzelleId, reihe);
+                    }
+                    reihe.fuegeHinzu(daten.getLong(), daten.getDouble(), daten.getDouble());
+                    anzahlMessungen++;
+                    break;
+                case Datensatz.OP_SEQUENZEN:
+                    naechsteParzelleId = Math.max(naechsteParzelleId, daten.getInt());
+                    naechsteBaumId = Math.max(naechsteBaumId, daten.getInt());
+                    muellBytes += KLEINE_OPERATION_BYTES;
+                    break;
+                default:
+                    throw new IOException("Unbekannte Operation " + typ + " im Log");
+            }
+        }
+    }
+
+    private void wendeParzelleAn(Parzelle parzelle) {
+        Parzelle alt = parzellen.put(parzelle.getParzelleId(), parzelle);
+        if (alt != null) {
+            parzelleNachName.remove(namensSchluessel(alt.getName()));
+            muellBytes += PARZELLE_BYTES;
+        }
+        parzelleNachName.put(namensSchluessel(parzelle.getName()), parzelle.getParzelleId());
+        naechsteParzelleId = Math.max(naechsteParzelleId, parzelle.getParzelleId() + 1);
+    }
+
+    private void wendeParzelleLoeschenAn(int parzelleId) {
+        Parzelle alt = parzellen.remove(parzelleId);
+        if (alt != null) {
+            parzelleNachName.remove(namensSchluessel(alt.getName()));
+        }
+        muellBytes += PARZELLE_BYTES + KLEINE_OPERATION_BYTES;
+
+        TreeSet<Integer> baumIds = baeumeNachParzelle.remove(parzelleId);
+        if (baumIds != null) {
+            for (int baumId : baumIds) {
+                baeume.remove(baumId);
+            }
+            muellBytes += (long) baumIds.size() * BAUM_BYTES;
+        }
+
+        MessReihe reihe = messreihen.remove(parzelleId);
+        if (reihe != null) {
+            anzahlMessungen -= reihe.getAnzahl();
+            muellBytes += (long) reihe.getAnzahl() * MESSUNG_BYTES;
+        }
+    }
+
+    private void wendeBaumAn(Baum baum) {
+        Baum alt = baeume.put(baum.getBaumId(), baum);
+        if (alt != null) {
+            entferneAusIndex(alt);
+            muellBytes += BAUM_BYTES;
+        }
+        baeumeNachParzelle.computeIfAbsent(baum.getParzelleId(), id -> new TreeSet<>()).add(baum.getBaumId());
+        naechsteBaumId = Math.max(naechsteBaumId, baum.getBaumId() + 1);
+    }
+
+    private void entferneAusIndex(Baum baum) {
+        TreeSet<Integer> ids = baeumeNachParzelle.get(baum.getParzelleId());
+        if (ids != null) {
+            ids.remove(baum.getBaumId());
+            if (ids.isEmpty()) {
+                baeumeNachParzelle.remove(baum.getParzelleId());
+            }
+        }
+    }
+
+    private void fuegeBaeumeHinzu(List<Baum> ergebnis, int parzelleId) {
+        TreeSet<Integer> ids = baeumeNachParzelle.get(parzelleId);
+        if (ids != null) {
+            for (int baumId : ids) {
+                ergebnis.add(kopiere(baeume.get(baumId)));
+            }
+        }
+    }
+
+    private void pruefeNameFrei(String name) throws ValidationException {
+        if (parzelleNachName.containsKey(namensSchluessel(name))) {
+            throw new ValidationException("name", name, "Eine Parzelle mit diesem Namen existiert bereits");
+        }
+    }
+
+    private void pruefeParzelleExistiert(int parzelleId) throws ValidationException {
+        if (!parzellen.containsKey(parzelleId)) {
+            throw new ValidationException("parzelleId", parzelleId, "Die angegebene Parzelle existiert nicht");
+        }
+    }
+
+    private void pruefeOffen() throws DatabaseException {
+        if (geschlossen) {
+            throw new DatabaseException("Eingebetteter Speicher ist geschlossen", null, -1);
+        }
+    }
+
+    // Wie die Collation der Spalte parzelle.name: Groß-/Kleinschreibung zählt nicht
+    private static String namensSchluessel(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static Messwerte letzteMessung(MessReihe reihe) {
+        if (reihe == null || reihe.isLeer()) {
+            return null;
+        }
+        int index = reihe.getNeueste();
+        return new Messwerte(reihe.getTemperatur(index), reihe.getNiederschlag(index));
+    }
+
+    private static Parzelle kopiere(Parzelle parzelle) {
+        return new Parzelle(parzelle.getParzelleId(), parzelle.getName(), parzelle.getAnzahlBaeume(),
+                parzelle.getFlaecheQm(), parzelle.getKlimaZone(), parzelle.getBesitzerId());
+    }
+
+    private static Baum kopiere(Baum baum) {
+        return new Baum(baum.getBaumId(), baum.getParzelleId(), baum.getAlterJahre(),
+                baum.getPflanzenartId(), baum.getBasisBedarf());
+    }
+
+    // ========================================================================
+    // STATISTIK
+    // ========================================================================
+
+    public long getLogGroesse() {
+        LogDatei aktuell = log;
+        return aktuell.getGroesse();
+    }
+
+    public long getAnzahlMessungen() {
+        sperre.readLock().lock();
+        try {
+            return anzahlMessungen;
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    public long getAnzahlKompaktierungen() {
+        sperre.readLock().lock();
+        try {
+            return kompaktierungen;
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isGeschlossen() {
+        return geschlossen;
+    }
+
+    @Override
+    public String toString() {
+        sperre.readLock().lock();
+        try {
+            return String.format("EmbeddedSpeicher{verzeichnis=%s, parzellen=%d, baeume=%d, messungen=%d, " +
+                            "log=%d KB, veraltet=%d KB}",
+                    config.getVerzeichnis(), parzellen.size(), baeume.size(), anzahlMessungen,
+                    log.getGroesse() / 1024, muellBytes / 1024);
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+}
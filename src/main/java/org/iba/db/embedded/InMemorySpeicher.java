@@ -0,0 +1,786 @@
+package org.iba.db.embedded;
+
+import org.iba.db.transaction.TransactionManager;
+import org.iba.exception.BaumTransferException;
+import org.iba.exception.BusinessException;
+import org.iba.exception.DatabaseException;
+import org.iba.exception.ValidationException;
+import org.iba.model.Baum;
+import org.iba.model.Messung;
+import org.iba.model.MesswerteAggregat;
+import org.iba.model.Messwerte;
+import org.iba.model.Parzelle;
+import org.iba.util.ExceptionUtils;
+import org.iba.util.IntMap;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Flüchtiger Speicher für das Profil MEMORY (Last- und Skalierungstests ohne MySQL).
+ * - Alle Daten einer Parzelle (Zeile, Bäume, Messreihe) liegen in einem von N Streifen;
+ *   Schreiber verschiedener Streifen sperren sich nie gegenseitig
+ * - Primärindizes und der Sekundärindex Bäume-nach-Parzelle sind IntMaps,
+ *   baum_id -> parzelle_id ist ein eigener, kurz gesperrter Index
+ * - Schreibsperren werden bis zum Ende der Transaktion gehalten (Sperr-Timeout = Fehler 1205);
+ *   Leser sperren nur kurz und sehen keine unbestätigten Änderungen
+ * - Läuft eine TransactionManager-Transaktion, gehören die Änderungen zu ihr
+ *   (Commit, Rollback und Savepoints wie bei JDBC), sonst ist jede Operation atomar
+ *
+ * IDs werden wie AUTO_INCREMENT bei einem Rollback nicht wiederverwendet.
+ */
+public class InMemorySpeicher implements LokalerSpeicher {
+
+    private final Streifen[] streifen;
+    private final Object[] baumIndexSperren;
+    private final List<IntMap<Integer>> baumIndex;
+    private final long sperrTimeoutMs;
+
+    private final ConcurrentHashMap<String, Integer> parzelleNachName = new ConcurrentHashMap<>();
+    private final AtomicInteger naechsteParzelleId = new AtomicInteger(1);
+    private final AtomicInteger naechsteBaumId = new AtomicInteger(1);
+    private final AtomicLong anzahlMessungen = new AtomicLong();
+    private volatile boolean geschlossen = false;
+
+    /**
+     * @param anzahlStreifen Anzahl der Sperr-Streifen (wird auf eine Zweierpotenz aufgerundet).
+     * @param sperrTimeoutMs Maximale Wartezeit auf eine Sperre.
+     */
+    public InMemorySpeicher(int anzahlStreifen, long sperrTimeoutMs) {
+        if (anzahlStreifen <= 0 || sperrTimeoutMs <= 0) {
+            throw new IllegalArgumentException("Streifen und Sperr-Timeout müssen größer als 0 sein: " +
+                    anzahlStreifen + ", " + sperrTimeoutMs + "ms");
+        }
+        int anzahl = 1;
+        while (anzahl < anzahlStreifen) {
+            anzahl <<= 1;
+        }
+        this.streifen = new Streifen[anzahl];
+        this.baumIndexSperren = new Object[anzahl];
+        this.baumIndex = new ArrayList<>(anzahl);
+        for (int i = 0; i < anzahl; i++) {
+            streifen[i] = new Streifen(i);
+            baumIndexSperren[i] = new Object();
+            baumIndex.add(new IntMap<>());
+        }
+        this.sperrTimeoutMs = sperrTimeoutMs;
+    }
+
+    /**
+     * Neue Verbindung für den TransactionManager (siehe InMemoryTransaktion).
+     */
+    public Connection neueVerbindung() throws DatabaseException {
+        pruefeOffen();
+        return new InMemoryTransaktion(sperrTimeoutMs).alsConnection();
+    }
+
+    // ========================================================================
+    // PARZELLEN
+    // ========================================================================
+
+    @Override
+    public Parzelle speichereParzelle(Parzelle parzelle) throws DatabaseException, ValidationException {
+        try (Vorgang vorgang = beginneVorgang()) {
+            int parzelleId = naechsteParzelleId.getAndIncrement();
+            Parzelle neu = new Parzelle(parzelleId, parzelle.getName(), parzelle.getAnzahlBaeume(),
+                    parzelle.getFlaecheQm(), parzelle.getKlimaZone(), parzelle.getBesitzerId());
+
+            Streifen s = schreibe(vorgang, parzelleId);
+            reserviereName(vorgang, neu);
+            s.parzellen.put(parzelleId, neu);
+            vorgang.merke(() -> s.parzellen.remove(parzelleId));
+
+            vorgang.erfolgreich();
+            parzelle.setParzelleId(parzelleId);
+            return parzelle;
+        }
+    }
+
+    @Override
+    public Parzelle speichereParzelleMitBaeumen(Parzelle parzelle, List<Baum> neueBaeume)
+            throws DatabaseException, ValidationException {
+        try (Vorgang vorgang = beginneVorgang()) {
+            int parzelleId = naechsteParzelleId.getAndIncrement();
+            Parzelle neu = new Parzelle(parzelleId, parzelle.getName(),
+                    parzelle.getAnzahlBaeume() + neueBaeume.size(), parzelle.getFlaecheQm(),
+                    parzelle.getKlimaZone(), parzelle.getBesitzerId());
+
+            Streifen s = schreibe(vorgang, parzelleId);
+            reserviereName(vorgang, neu);
+            s.parzellen.put(parzelleId, neu);
+            vorgang.merke(() -> s.parzellen.remove(parzelleId));
+
+            for (Baum baum : neueBaeume) {
+                baum.setParzelleId(parzelleId);
+                baum.setBaumId(naechsteBaumId.getAndIncrement());
+                fuegeBaumEin(vorgang, s, kopiere(baum));
+            }
+
+            vorgang.erfolgreich();
+            return kopiere(neu);
+        }
+    }
+
+    @Override
+    public boolean loescheParzelleKomplett(int parzelleId) throws DatabaseException, BusinessException {
+        try (Vorgang vorgang = beginneVorgang()) {
+            Streifen s = schreibe(vorgang, parzelleId);
+            Parzelle alt = s.parzellen.remove(parzelleId);
+            if (alt == null) {
+                throw new BusinessException("Parzelle mit ID " + parzelleId + " existiert nicht");
+            }
+            vorgang.merke(() -> s.parzellen.put(parzelleId, alt));
+            String name = namensSchluessel(alt.getName());
+            parzelleNachName.remove(name);
+            vorgang.merke(() -> parzelleNachName.put(name, parzelleId));
+
+            IntMap<Baum> baeume = s.baeumeNachParzelle.remove(parzelleId);
+            if (baeume != null) {
+                vorgang.merke(() -> s.baeumeNachParzelle.put(parzelleId, baeume));
+                for (int baumId : baeume.keys()) {
+                    entferneAusBaumIndex(vorgang, baumId, parzelleId);
+                }
+            }
+
+            MessReihe reihe = s.messreihen.remove(parzelleId);
+            if (reihe != null) {
+                anzahlMessungen.addAndGet(-reihe.getAnzahl());
+                vorgang.merke(() -> {
+                    s.messreihen.put(parzelleId, reihe);
+                    anzahlMessungen.addAndGet(reihe.getAnzahl());
+                });
+            }
+
+            vorgang.erfolgreich();
+            return true;
+        }
+    }
+
+    @Override
+    public void transferiereBaeume(int vonParzelleId, int zuParzelleId, List<Integer> baumIds)
+            throws DatabaseException, BusinessException {
+        try (Vorgang vorgang = beginneVorgang()) {
+            Streifen von = streifenVon(vonParzelleId);
+            Streifen zu = streifenVon(zuParzelleId);
+            // Feste Reihenfolge verhindert Verklemmungen zwischen gleichzeitigen Transfers
+            Streifen erster = von.index <= zu.index ? von : zu;
+            Streifen zweiter = erster == von ? zu : von;
+            vorgang.transaktion.sperre(erster.sperre.writeLock(), erster);
+            vorgang.transaktion.sperre(zweiter.sperre.writeLock(), zweiter);
+
+            if (!von.parzellen.containsKey(vonParzelleId)) {
+                throw new BusinessException("Quell-Parzelle existiert nicht: " + vonParzelleId);
+            }
+            if (!zu.parzellen.containsKey(zuParzelleId)) {
+                throw new BusinessException("Ziel-Parzelle existiert nicht: " + zuParzelleId);
+            }
+            if (vonParzelleId == zuParzelleId) {
+                throw new BusinessException("Quell- und Ziel-Parzelle müssen unterschiedlich sein");
+            }
+            if (baumIds.isEmpty()) {
+                vorgang.erfolgreich();
+                return;
+            }
+
+            IntMap<Baum> quelle = von.baeumeNachParzelle.get(vonParzelleId);
+            List<Integer> fehlerhaft = new ArrayList<>();
+            for (Integer baumId : baumIds) {
+                if (baumId == null || quelle == null || !quelle.containsKey(baumId)) {
+                    fehlerhaft.add(baumId);
+                }
+            }
+            if (!fehlerhaft.isEmpty()) {
+                throw new BaumTransferException(vonParzelleId, fehlerhaft);
+            }
+
+            Set<Integer> transferiert = new HashSet<>();
+            for (Integer baumId : baumIds) {
+                if (transferiert.add(baumId)) {
+                    Baum baum = entferneBaum(vorgang, von, vonParzelleId, baumId);
+                    fuegeBaumEin(vorgang, zu, new Baum(baumId, zuParzelleId, baum.getAlterJahre(),
+                            baum.getPflanzenartId(), baum.getBasisBedarf()));
+                }
+            }
+            aendereAnzahlBaeume(vorgang, von.parzellen.get(vonParzelleId), -transferiert.size());
+            aendereAnzahlBaeume(vorgang, zu.parzellen.get(zuParzelleId), transferiert.size());
+
+            vorgang.erfolgreich();
+        }
+    }
+
+    @Override
+    public List<Parzelle> findeAlleParzellen() throws DatabaseException {
+        List<Parzelle> ergebnis = new ArrayList<>();
+        for (Streifen s : streifen) {
+            lese(s);
+            try {
+                s.parzellen.forEach((id, parzelle) -> ergebnis.add(kopiere(parzelle)));
+            } finally {
+                s.sperre.readLock().unlock();
+            }
+        }
+        ergebnis.sort(Comparator.comparing(Parzelle::getName, String.CASE_INSENSITIVE_ORDER));
+        return ergebnis;
+    }
+
+    // ========================================================================
+    // BÄUME
+    // ========================================================================
+
+    @Override
+    public Baum speichereBaum(Baum baum) throws DatabaseException, ValidationException {
+        try (Vorgang vorgang = beginneVorgang()) {
+            Streifen s = schreibe(vorgang, baum.getParzelleId());
+            pruefeParzelleExistiert(s, baum.getParzelleId());
+
+            int baumId = naechsteBaumId.getAndIncrement();
+            fuegeBaumEin(vorgang, s, new Baum(baumId, baum.getParzelleId(), baum.getAlterJahre(),
+                    baum.getPflanzenartId(), baum.getBasisBedarf()));
+
+            vorgang.erfolgreich();
+            baum.setBaumId(baumId);
+            return baum;
+        }
+    }
+
+    @Override
+    public boolean aktualisiereBaum(Baum baum) throws DatabaseException, ValidationException {
+        try (Vorgang vorgang = beginneVorgang()) {
+            Integer altParzelleId = sperreBaum(vorgang, baum.getBaumId());
+            if (altParzelleId == null) {
+                vorgang.erfolgreich();
+                return false;
+            }
+            schreibe(vorgang, baum.getParzelleId());
+            pruefeParzelleExistiert(streifenVon(baum.getParzelleId()), baum.getParzelleId());
+
+            entferneBaum(vorgang, streifenVon(altParzelleId), altParzelleId, baum.getBaumId());
+            fuegeBaumEin(vorgang, streifenVon(baum.getParzelleId()), kopiere(baum));
+
+            vorgang.erfolgreich();
+            return true;
+        }
+    }
+
+    @Override
+    public boolean loescheBaum(int baumId) throws DatabaseException {
+        try (Vorgang vorgang = beginneVorgang()) {
+            Integer parzelleId = sperreBaum(vorgang, baumId);
+            if (parzelleId != null) {
+                entferneBaum(vorgang, streifenVon(parzelleId), parzelleId, baumId);
+            }
+            vorgang.erfolgreich();
+            return parzelleId != null;
+        }
+    }
+
+    @Override
+    public boolean loescheBaeumeDerParzelle(int parzelleId) throws DatabaseException {
+        try (Vorgang vorgang = beginneVorgang()) {
+            Streifen s = schreibe(vorgang, parzelleId);
+            IntMap<Baum> baeume = s.baeumeNachParzelle.remove(parzelleId);
+            if (baeume != null) {
+                vorgang.merke(() -> s.baeumeNachParzelle.put(parzelleId, baeume));
+                for (int baumId : baeume.keys()) {
+                    entferneAusBaumIndex(vorgang, baumId, parzelleId);
+                }
+            }
+            vorgang.erfolgreich();
+            return baeume != null;
+        }
+    }
+
+    @Override
+    public Baum findeBaum(int baumId) throws DatabaseException {
+        while (true) {
+            Integer parzelleId = baumOrt(baumId);
+            if (parzelleId == null) {
+                return null;
+            }
+
+            Streifen s = streifenVon(parzelleId);
+            lese(s);
+            try {
+                IntMap<Baum> baeume = s.baeumeNachParzelle.get(parzelleId);
+                Baum baum = baeume != null ? baeume.get(baumId) : null;
+                if (baum != null) {
+                    return kopiere(baum);
+                }
+            } finally {
+                s.sperre.readLock().unlock();
+            }
+            // Inzwischen verschoben oder gelöscht: Index erneut befragen
+            if (parzelleId.equals(baumOrt(baumId))) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public List<Baum> findeBaeumeDerParzelle(int parzelleId) throws DatabaseException {
+        Streifen s = streifenVon(parzelleId);
+        List<Baum> ergebnis = new ArrayList<>();
+        lese(s);
+        try {
+            fuegeBaeumeHinzu(ergebnis, s.baeumeNachParzelle.get(parzelleId));
+        } finally {
+            s.sperre.readLock().unlock();
+        }
+        return ergebnis;
+    }
+
+    @Override
+    public List<Baum> findeAlleBaeume() throws DatabaseException {
+        List<Baum> ergebnis = sammleAlleBaeume();
+        ergebnis.sort(Comparator.comparingInt(Baum::getBaumId));
+        return ergebnis;
+    }
+
+    @Override
+    public List<Baum> findeAlleBaeumeNachParzelle() throws DatabaseException {
+        List<Baum> ergebnis = sammleAlleBaeume();
+        ergebnis.sort(Comparator.comparingInt(Baum::getParzelleId).thenComparingInt(Baum::getBaumId));
+        return ergebnis;
+    }
+
+    // ========================================================================
+    // MESSWERTE
+    // ========================================================================
+
+    @Override
+    public void speichereMessung(Messung messung) throws DatabaseException, ValidationException {
+        try (Vorgang vorgang = beginneVorgang()) {
+            Streifen s = schreibe(vorgang, messung.getParzelleId());
+            pruefeParzelleExistiert(s, messung.getParzelleId());
+            fuegeMessungEin(vorgang, s, messung);
+            vorgang.erfolgreich();
+        }
+    }
+
+    @Override
+    public List<Integer> speichereMessungen(List<Messung> messungen) throws DatabaseException {
+        List<Integer> abgelehnt = new ArrayList<>();
+
+        try (Vorgang vorgang = beginneVorgang()) {
+            // Alle betroffenen Streifen in fester Reihenfolge sperren
+            boolean[] benoetigt = new boolean[streifen.length];
+            for (Messung messung : messungen) {
+                benoetigt[streifenVon(messung.getParzelleId()).index] = true;
+            }
+            for (int i = 0; i < streifen.length; i++) {
+                if (benoetigt[i]) {
+                    vorgang.transaktion.sperre(streifen[i].sperre.writeLock(), streifen[i]);
+                }
+            }
+
+            for (int i = 0; i < messungen.size(); i++) {
+                Messung messung = messungen.get(i);
+                Streifen s = streifenVon(messung.getParzelleId());
+                if (!s.parzellen.containsKey(messung.getParzelleId())) {
+                    abgelehnt.add(i);
+                    continue;
+                }
+                fuegeMessungEin(vorgang, s, messung);
+            }
+            vorgang.erfolgreich();
+        }
+        return abgelehnt;
+    }
+
+    @Override
+    public Messwerte findeLetzteMessung(int parzelleId) throws DatabaseException {
+        Streifen s = streifenVon(parzelleId);
+        lese(s);
+        try {
+            return letzteMessung(s.messreihen.get(parzelleId));
+        } finally {
+            s.sperre.readLock().unlock();
+        }
+    }
+
+    @Override
+    public IntMap<Messwerte> findeLetzteMessungen(Collection<Integer> parzelleIds) throws DatabaseException {
+        IntMap<Messwerte> ergebnis = new IntMap<>(parzelleIds.size());
+        for (Integer parzelleId : parzelleIds) {
+            if (parzelleId != null) {
+                Messwerte messwerte = findeLetzteMessung(parzelleId);
+                if (messwerte != null) {
+                    ergebnis.put(parzelleId, messwerte);
+                }
+            }
+        }
+        return ergebnis;
+    }
+
+    @Override
+    public List<Messung> findeMessungen(LocalDateTime von, LocalDateTime bis) throws DatabaseException {
+        long vonZeitpunkt = MessReihe.alsZeitpunkt(von);
+        long bisZeitpunkt = MessReihe.alsZeitpunkt(bis);
+        List<Messung> ergebnis = new ArrayList<>();
+
+        for (Streifen s : streifen) {
+            lese(s);
+            try {
+                s.messreihen.forEach((parzelleId, reihe) -> {
+                    for (int i = reihe.untereGrenze(vonZeitpunkt);
+                         i < reihe.getAnzahl() && reihe.getZeitpunkt(i) < bisZeitpunkt; i++) {
+                        ergebnis.add(new Messung(parzelleId,
+                                new Messwerte(reihe.getTemperatur(i), reihe.getNiederschlag(i)),
+                                MessReihe.alsZeit(reihe.getZeitpunkt(i))));
+                    }
+                });
+            } finally {
+                s.sperre.readLock().unlock();
+            }
+        }
+        // Stabil: innerhalb einer Parzelle bleibt die Zeitreihenfolge erhalten
+        ergebnis.sort(Comparator.comparingInt(Messung::getParzelleId));
+        return ergebnis;
+    }
+
+    @Override
+    public List<MesswerteAggregat> findeAggregate(int parzelleId, boolean proStunde, LocalDateTime von,
+                                                  LocalDateTime bis) throws DatabaseException {
+        Streifen s = streifenVon(parzelleId);
+        lese(s);
+        try {
+            MessReihe reihe = s.messreihen.get(parzelleId);
+            if (reihe == null) {
+                return new ArrayList<>();
+            }
+            return reihe.findeAggregate(parzelleId, proStunde, MessReihe.alsZeitpunkt(von),
+                    MessReihe.alsZeitpunkt(bis));
+        } finally {
+            s.sperre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Berechnet Stunden- und Tageswerte der Tage von..bis aus den Rohdaten neu
+     * (sie werden ohnehin gemeinsam gepflegt, daher nur eine Konsistenzprüfung).
+     */
+    @Override
+    public int baueRollupsNeu(LocalDate von, LocalDate bis) throws DatabaseException {
+        long vonZeitpunkt = MessReihe.alsZeitpunkt(von.atStartOfDay());
+        long bisZeitpunkt = MessReihe.alsZeitpunkt(bis.plusDays(1).atStartOfDay());
+
+        for (Streifen s : streifen) {
+            InMemoryTransaktion.warteAuf(s.sperre.writeLock(), s, sperrTimeoutMs);
+            try {
+                s.messreihen.forEach((parzelleId, reihe) -> reihe.baueRollupsNeu(vonZeitpunkt, bisZeitpunkt));
+            } finally {
+                s.sperre.writeLock().unlock();
+            }
+        }
+        return (int) Math.max(0, (bisZeitpunkt - vonZeitpunkt) / MessReihe.SEKUNDEN_PRO_TAG);
+    }
+
+    // ========================================================================
+    // VERWALTUNG
+    // ========================================================================
+
+    @Override
+    public boolean isGeschlossen() {
+        return geschlossen;
+    }
+
+    /**
+     * Verwirft alle Daten.
+     */
+    @Override
+    public void close() {
+        geschlossen = true;
+        System.out.println("[InMemorySpeicher] Geschlossen: " + this);
+    }
+
+    public int getAnzahlStreifen() {
+        return streifen.length;
+    }
+
+    public long getAnzahlMessungen() {
+        return anzahlMessungen.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InMemorySpeicher{streifen=%d, parzellen=%d, messungen=%d, sperrTimeout=%dms}",
+                streifen.length, parzelleNachName.size(), anzahlMessungen.get(), sperrTimeoutMs);
+    }
+
+    // ========================================================================
+    // INTERNE METHODEN (Aufrufer hält die Schreibsperre der betroffenen Streifen)
+    // ========================================================================
+
+    private void reserviereName(Vorgang vorgang, Parzelle parzelle) throws ValidationException {
+        String name = namensSchluessel(parzelle.getName());
+        if (parzelleNachName.putIfAbsent(name, parzelle.getParzelleId()) != null) {
+            throw new ValidationException("name", parzelle.getName(), "Eine Parzelle mit diesem Namen existiert bereits");
+        }
+        vorgang.merke(() -> parzelleNachName.remove(name));
+    }
+
+    private void fuegeBaumEin(Vorgang vorgang, Streifen s, Baum baum) {
+        int baumId = baum.getBaumId();
+        int parzelleId = baum.getParzelleId();
+        s.baeumeNachParzelle.computeIfAbsent(parzelleId, id -> new IntMap<>()).put(baumId, baum);
+        vorgang.merke(() -> {
+            IntMap<Baum> baeume = s.baeumeNachParzelle.get(parzelleId);
+            baeume.remove(baumId);
+            if (baeume.isEmpty()) {
+                s.baeumeNachParzelle.remove(parzelleId);
+            }
+        });
+
+        Integer vorher;
+        synchronized (baumIndexSperren[streifenIndex(baumId)]) {
+            vorher = baumIndex.get(streifenIndex(baumId)).put(baumId, parzelleId);
+        }
+        vorgang.merke(() -> setzeBaumOrt(baumId, vorher));
+    }
+
+    private Baum entferneBaum(Vorgang vorgang, Streifen s, int parzelleId, int baumId) {
+        IntMap<Baum> baeume = s.baeumeNachParzelle.get(parzelleId);
+        Baum baum = baeume.remove(baumId);
+        if (baeume.isEmpty()) {
+            s.baeumeNachParzelle.remove(parzelleId);
+        }
+        vorgang.merke(() -> s.baeumeNachParzelle.computeIfAbsent(parzelleId, id -> new IntMap<>()).put(baumId, baum));
+        entferneAusBaumIndex(vorgang, baumId, parzelleId);
+        return baum;
+    }
+
+    private void entferneAusBaumIndex(Vorgang vorgang, int baumId, int parzelleId) {
+        setzeBaumOrt(baumId, null);
+        vorgang.merke(() -> setzeBaumOrt(baumId, parzelleId));
+    }
+
+    private void aendereAnzahlBaeume(Vorgang vorgang, Parzelle parzelle, int delta) {
+        parzelle.setAnzahlBaeume(parzelle.getAnzahlBaeume() + delta);
+        vorgang.merke(() -> parzelle.setAnzahlBaeume(parzelle.getAnzahlBaeume() - delta));
+    }
+
+    private void fuegeMessungEin(Vorgang vorgang, Streifen s, Messung messung) {
+        int parzelleId = messung.getParzelleId();
+        long zeitpunkt = MessReihe.alsZeitpunkt(messung.getZeitstempel());
+        double temperatur = messung.getMesswerte().getTemperatur();
+        double niederschlag = messung.getMesswerte().getNiederschlag();
+
+        MessReihe reihe = s.messreihen.computeIfAbsent(parzelleId, id -> new MessReihe());
+        reihe.fuegeHinzu(zeitpunkt, temperatur, niederschlag);
+        anzahlMessungen.incrementAndGet();
+        vorgang.merke(() -> {
+            reihe.entferne(zeitpunkt, temperatur, niederschlag);
+            anzahlMessungen.decrementAndGet();
+        });
+    }
+
+    /**
+     * Sperrt den Streifen, in dem der Baum liegt.
+     * @return Parzelle des Baums (null, wenn er nicht existiert).
+     */
+    private Integer sperreBaum(Vorgang vorgang, int baumId) throws DatabaseException {
+        while (true) {
+            Integer parzelleId = baumOrt(baumId);
+            if (parzelleId == null) {
+                return null;
+            }
+            schreibe(vorgang, parzelleId);
+            // Der Index kann sich vor dem Sperren geändert haben
+            if (parzelleId.equals(baumOrt(baumId))) {
+                return parzelleId;
+            }
+        }
+    }
+
+    private Integer baumOrt(int baumId) {
+        synchronized (baumIndexSperren[streifenIndex(baumId)]) {
+            return baumIndex.get(streifenIndex(baumId)).get(baumId);
+        }
+    }
+
+    private void setzeBaumOrt(int baumId, Integer parzelleId) {
+        synchronized (baumIndexSperren[streifenIndex(baumId)]) {
+            if (parzelleId == null) {
+                baumIndex.get(streifenIndex(baumId)).remove(baumId);
+            } else {
+                baumIndex.get(streifenIndex(baumId)).put(baumId, parzelleId);
+            }
+        }
+    }
+
+    private List<Baum> sammleAlleBaeume() throws DatabaseException {
+        List<Baum> ergebnis = new ArrayList<>();
+        for (Streifen s : streifen) {
+            lese(s);
+            try {
+                s.baeumeNachParzelle.forEach((parzelleId, baeume) ->
+                        baeume.forEach((baumId, baum) -> ergebnis.add(kopiere(baum))));
+            } finally {
+                s.sperre.readLock().unlock();
+            }
+        }
+        return ergebnis;
+    }
+
+    private static void fuegeBaeumeHinzu(List<Baum> ergebnis, IntMap<Baum> baeume) {
+        if (baeume != null) {
+            int[] ids = baeume.keys();
+            Arrays.sort(ids);
+            for (int baumId : ids) {
+                ergebnis.add(kopiere(baeume.get(baumId)));
+            }
+        }
+    }
+
+    private static void pruefeParzelleExistiert(Streifen s, int parzelleId) throws ValidationException {
+        if (!s.parzellen.containsKey(parzelleId)) {
+            throw new ValidationException("parzelleId", parzelleId, "Die angegebene Parzelle existiert nicht");
+        }
+    }
+
+    // ========================================================================
+    // SPERREN UND TRANSAKTIONEN
+    // ========================================================================
+
+    private int streifenIndex(int id) {
+        // Aufeinanderfolgende IDs verteilen sich reihum auf die Streifen
+        return id & (streifen.length - 1);
+    }
+
+    private Streifen streifenVon(int parzelleId) {
+        return streifen[streifenIndex(parzelleId)];
+    }
+
+    /**
+     * Sperrt den Streifen der Parzelle bis zum Ende der Transaktion.
+     */
+    private Streifen schreibe(Vorgang vorgang, int parzelleId) throws DatabaseException {
+        Streifen s = streifenVon(parzelleId);
+        vorgang.transaktion.sperre(s.sperre.writeLock(), s);
+        return s;
+    }
+
+    /**
+     * Kurze Lesesperre; der Aufrufer gibt sie im finally frei.
+     */
+    private void lese(Streifen s) throws DatabaseException {
+        pruefeOffen();
+        InMemoryTransaktion.warteAuf(s.sperre.readLock(), s, sperrTimeoutMs);
+    }
+
+    private Vorgang beginneVorgang() throws DatabaseException {
+        pruefeOffen();
+        if (TransactionManager.isTransactionActive()) {
+            try {
+                InMemoryTransaktion laufend = TransactionManager.getCurrentConnection()
+                        .unwrap(InMemoryTransaktion.class);
+                return new Vorgang(laufend, false);
+            } catch (SQLException e) {
+                throw ExceptionUtils.wrapSQLException(e, "Zugriff auf laufende Transaktion");
+            }
+        }
+        return new Vorgang(new InMemoryTransaktion(sperrTimeoutMs), true);
+    }
+
+    private void pruefeOffen() throws DatabaseException {
+        if (geschlossen) {
+            throw new DatabaseException("In-Memory-Speicher ist geschlossen", null, -1);
+        }
+    }
+
+    // Wie die Collation der Spalte parzelle.name: Groß-/Kleinschreibung zählt nicht
+    private static String namensSchluessel(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static Messwerte letzteMessung(MessReihe reihe) {
+        if (reihe == null || reihe.isLeer()) {
+            return null;
+        }
+        int index = reihe.getNeueste();
+        return new Messwerte(reihe.getTemperatur(index), reihe.getNiederschlag(index));
+    }
+
+    private static Parzelle kopiere(Parzelle parzelle) {
+        return new Parzelle(parzelle.getParzelleId(), parzelle.getName(), parzelle.getAnzahlBaeume(),
+                parzelle.getFlaecheQm(), parzelle.getKlimaZone(), parzelle.getBesitzerId());
+    }
+
+    private static Baum kopiere(Baum baum) {
+        return new Baum(baum.getBaumId(), baum.getParzelleId(), baum.getAlterJahre(),
+                baum.getPflanzenartId(), baum.getBasisBedarf());
+    }
+
+    /**
+     * Eine Repository-Operation: entweder Teil der laufenden Transaktion (bei Fehler
+     * wird nur die Operation zurückgenommen, wie ein Statement) oder eine eigene
+     * Transaktion, die am Ende committet bzw. zurückgerollt wird.
+     */
+    private static final class Vorgang implements AutoCloseable {
+        private final InMemoryTransaktion transaktion;
+        private final boolean eigeneTransaktion;
+        private final int marke;
+        private boolean erfolgreich = false;
+
+        Vorgang(InMemoryTransaktion transaktion, boolean eigeneTransaktion) {
+            this.transaktion = transaktion;
+            this.eigeneTransaktion = eigeneTransaktion;
+            this.marke = transaktion.getMarke();
+        }
+
+        void merke(Runnable ruecknahme) {
+            transaktion.merkeRuecknahme(ruecknahme);
+        }
+
+        void erfolgreich() {
+            erfolgreich = true;
+        }
+
+        @Override
+        public void close() {
+            if (eigeneTransaktion) {
+                if (erfolgreich) {
+                    transaktion.commit();
+                } else {
+                    transaktion.rollback();
+                }
+            } else if (!erfolgreich) {
+                transaktion.zuruecksetzenBis(marke);
+            }
+        }
+    }
+
+    /**
+     * Daten aller Parzellen, deren ID auf diesen Streifen fällt.
+     */
+    private static final class Streifen {
+        private final int index;
+        private final ReentrantReadWriteLock sperre = new ReentrantReadWriteLock();
+        private final IntMap<Parzelle> parzellen = new IntMap<>();
+        private final IntMap<IntMap<Baum>> baeumeNachParzelle = new IntMap<>();
+        private final IntMap<MessReihe> messreihen = new IntMap<>();
+
+        Streifen(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String toString() {
+            return "Parzellen-Streifen " + index;
+        }
+    }
+}
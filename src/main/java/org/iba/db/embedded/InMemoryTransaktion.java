@@ -0,0 +1,242 @@
+package org.iba.db.embedded;
+
+import org.iba.exception.DatabaseException;
+import org.iba.exception.DatenbankTimeoutException;
+import org.iba.util.Frist;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Transaktion auf dem InMemorySpeicher.
+ * - Schreibsperren der Parzellen-Streifen werden bis Commit/Rollback gehalten
+ * - Jede Änderung legt eine Rücknahme-Aktion ab; Rollback (auch zu einem Savepoint)
+ *   führt sie in umgekehrter Reihenfolge aus
+ *
+ * Nach außen erscheint sie als java.sql.Connection (siehe alsConnection()), damit der
+ * TransactionManager sie wie eine JDBC-Verbindung öffnen, committen und zurückrollen kann.
+ * SQL wird nicht unterstützt. Eine Transaktion gehört dem Thread, der sie benutzt.
+ */
+final class InMemoryTransaktion implements InvocationHandler {
+
+    private static final AtomicInteger SAVEPOINT_ZAEHLER = new AtomicInteger();
+
+    private final long sperrTimeoutMs;
+    private final List<Runnable> ruecknahmen = new ArrayList<>();
+    private final List<Lock> gehalteneSperren = new ArrayList<>();
+    private boolean autoCommit = true;
+    private boolean readOnly = false;
+    private int isolation = Connection.TRANSACTION_READ_COMMITTED;
+    private boolean geschlossen = false;
+
+    InMemoryTransaktion(long sperrTimeoutMs) {
+        this.sperrTimeoutMs = sperrTimeoutMs;
+    }
+
+    /**
+     * Liefert die Transaktion als Connection (für DBConnector/TransactionManager).
+     */
+    Connection alsConnection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, this);
+    }
+
+    /**
+     * Sperrt bis zum Ende der Transaktion (bereits gehaltene Sperren werden nicht erneut genommen).
+     */
+    void sperre(Lock sperre, Object beschreibung) throws DatabaseException {
+        if (gehalteneSperren.contains(sperre)) {
+            return;
+        }
+        warteAuf(sperre, beschreibung, sperrTimeoutMs);
+        gehalteneSperren.add(sperre);
+    }
+
+    /**
+     * Legt die Rücknahme einer soeben ausgeführten Änderung ab.
+     */
+    void merkeRuecknahme(Runnable ruecknahme) {
+        ruecknahmen.add(ruecknahme);
+    }
+
+    int getMarke() {
+        return ruecknahmen.size();
+    }
+
+    /**
+     * Nimmt alle Änderungen nach der Marke zurück; die Sperren bleiben gehalten.
+     */
+    void zuruecksetzenBis(int marke) {
+        for (int i = ruecknahmen.size() - 1; i >= marke; i--) {
+            ruecknahmen.remove(i).run();
+        }
+    }
+
+    void commit() {
+        ruecknahmen.clear();
+        gibSperrenFrei();
+    }
+
+    void rollback() {
+        zuruecksetzenBis(0);
+        gibSperrenFrei();
+    }
+
+    long getSperrTimeoutMs() {
+        return sperrTimeoutMs;
+    }
+
+    /**
+     * Wartet höchstens timeoutMs auf die Sperre; danach wie MySQL mit Fehler 1205.
+     * Unter einer Frist wird höchstens deren Restzeit gewartet (DatenbankTimeoutException).
+     */
+    static void warteAuf(Lock sperre, Object beschreibung, long timeoutMs) throws DatabaseException {
+        try {
+            long wartezeit = Frist.begrenze(timeoutMs);
+            if (!sperre.tryLock(wartezeit, TimeUnit.MILLISECONDS)) {
+                if (wartezeit < timeoutMs) {
+                    throw new DatenbankTimeoutException("Frist abgelaufen beim Warten auf Sperre: " + beschreibung);
+                }
+                throw new DatabaseException("Sperr-Timeout nach " + timeoutMs + " ms: " + beschreibung,
+                        "HY000", 1205);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Warten auf Sperre unterbrochen: " + beschreibung, e);
+        }
+    }
+
+    private void gibSperrenFrei() {
+        for (int i = gehalteneSperren.size() - 1; i >= 0; i--) {
+            gehalteneSperren.get(i).unlock();
+        }
+        gehalteneSperren.clear();
+    }
+
+    // ========================================================================
+    // CONNECTION
+    // ========================================================================
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+
+        switch (name) {
+            case "close":
+                if (!geschlossen) {
+                    // Wie MySQL: offene Änderungen werden beim Schließen verworfen
+                    rollback();
+                    geschlossen = true;
+                }
+                return null;
+            case "isClosed":
+                return geschlossen;
+            case "isValid":
+                return !geschlossen;
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(this)) {
+                    return this;
+                }
+                throw new SQLException("Keine Implementierung von " + args[0]);
+            case "isWrapperFor":
+                return ((Class<?>) args[0]).isInstance(this);
+            case "toString":
+                return "InMemoryVerbindung[aenderungen=" + ruecknahmen.size() +
+                        ", sperren=" + gehalteneSperren.size() + "]";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                break;
+        }
+
+        pruefeOffen();
+        switch (name) {
+            case "getAutoCommit":
+                return autoCommit;
+            case "setAutoCommit":
+                boolean neu = (Boolean) args[0];
+                if (neu && !autoCommit) {
+                    commit();
+                }
+                autoCommit = neu;
+                return null;
+            case "commit":
+                commit();
+                return null;
+            case "rollback":
+                if (args == null) {
+                    rollback();
+                } else {
+                    zuruecksetzenBis(((Marke) args[0]).position);
+                }
+                return null;
+            case "setSavepoint":
+                return new Marke(SAVEPOINT_ZAEHLER.incrementAndGet(), args == null ? null : (String) args[0],
+                        ruecknahmen.size());
+            case "releaseSavepoint":
+                return null;
+            case "getTransactionIsolation":
+                return isolation;
+            case "setTransactionIsolation":
+                isolation = (Integer) args[0];
+                return null;
+            case "isReadOnly":
+                return readOnly;
+            case "setReadOnly":
+                readOnly = (Boolean) args[0];
+                return null;
+            case "getWarnings":
+                return null;
+            case "clearWarnings":
+                return null;
+            default:
+                throw new SQLFeatureNotSupportedException("Profil MEMORY unterstützt kein SQL (" + name + ")");
+        }
+    }
+
+    private void pruefeOffen() throws SQLException {
+        if (geschlossen) {
+            throw new SQLException("Verbindung ist geschlossen", "08003");
+        }
+    }
+
+    /**
+     * Savepoint = Position im Rücknahme-Protokoll.
+     */
+    private static final class Marke implements Savepoint {
+        private final int id;
+        private final String name;
+        private final int position;
+
+        Marke(int id, String name, int position) {
+            this.id = id;
+            this.name = name;
+            this.position = position;
+        }
+
+        @Override
+        public int getSavepointId() {
+            return id;
+        }
+
+        @Override
+        public String getSavepointName() throws SQLException {
+            if (name == null) {
+                throw new SQLException("Unbenannter Savepoint");
+            }
+            return name;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.iba.db.embedded;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only Log aus Datensätzen der Form [Länge][CRC32C][Nutzdaten].
+ * Ein Datensatz ist die Einheit der Atomarität: nach einem Absturz wird das Log
+ * bis zum ersten unvollständigen oder beschädigten Datensatz gelesen und dort abgeschnitten.
+ *
+ * Geschrieben wird über RandomAccessFile statt FileChannel, weil ein unterbrochener
+ * Thread (Thread.interrupt()) einen FileChannel für alle Benutzer schließen würde.
+ */
+class LogDatei implements AutoCloseable {
+
+    // Länge (int) + Prüfsumme (int)
+    static final int KOPF_BYTES = 8;
+
+    private static final int MAX_DATENSATZ_BYTES = 256 * 1024 * 1024;
+    private static final int LESE_PUFFER_BYTES = 1024 * 1024;
+
+    private final Path pfad;
+    private final RandomAccessFile datei;
+    private final CRC32C pruefsumme = new CRC32C();
+    private long groesse;
+
+    private LogDatei(Path pfad, RandomAccessFile datei, long groesse) throws IOException {
+        this.pfad = pfad;
+        this.datei = datei;
+        this.groesse = groesse;
+        datei.seek(groesse);
+    }
+
+    /**
+     * Öffnet ein bestehendes Log (oder legt es an) und übergibt alle gültigen Datensätze
+     * der Reihe nach an den Leser. Ein beschädigtes Ende wird abgeschnitten.
+     */
+    static LogDatei oeffne(Path pfad, Leser leser) throws IOException {
+        RandomAccessFile datei = new RandomAccessFile(pfad.toFile(), "rw");
+        try {
+            long gueltig = lese(datei.getChannel(), leser);
+            long dateiGroesse = datei.length();
+            if (gueltig < dateiGroesse) {
+                System.err.println("[LogDatei] " + pfad + ": unvollständiges Ende nach Absturz, " +
+                        (dateiGroesse - gueltig) + " Bytes abgeschnitten");
+                datei.setLength(gueltig);
+                datei.getFD().sync();
+            }
+            return new LogDatei(pfad, datei, gueltig);
+
+        } catch (IOException | RuntimeException e) {
+            datei.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Öffnet ein gültiges Log nur zum Anhängen, ohne es zu lesen (z.B. nach der Kompaktierung).
+     */
+    static LogDatei oeffneZumAnhaengen(Path pfad) throws IOException {
+        RandomAccessFile datei = new RandomAccessFile(pfad.toFile(), "rw");
+        return new LogDatei(pfad, datei, datei.length());
+    }
+
+    /**
+     * Legt ein leeres Log an (eine vorhandene Datei wird überschrieben).
+     */
+    static LogDatei erstelle(Path pfad) throws IOException {
+        RandomAccessFile datei = new RandomAccessFile(pfad.toFile(), "rw");
+        datei.setLength(0);
+        return new LogDatei(pfad, datei, 0);
+    }
+
+    /**
+     * Hängt einen Datensatz an. Die ersten KOPF_BYTES von daten sind für Länge und
+     * Prüfsumme reserviert und werden hier gefüllt. Schlägt das Schreiben fehl,
+     * wird das Log auf den vorherigen Stand zurückgesetzt.
+     *
+     * @param laenge Gesamtlänge einschließlich Kopf.
+     * @param sync Nach dem Schreiben fsync ausführen.
+     */
+    void haengeAn(byte[] daten, int laenge, boolean sync) throws IOException {
+        pruefsumme.reset();
+        pruefsumme.update(daten, KOPF_BYTES, laenge - KOPF_BYTES);
+
+        ByteBuffer kopf = ByteBuffer.wrap(daten);
+        kopf.putInt(0, laenge - KOPF_BYTES);
+        kopf.putInt(4, (int) pruefsumme.getValue());
+
+        try {
+            datei.write(daten, 0, laenge);
+            if (sync) {
+                datei.getFD().sync();
+            }
+            groesse += laenge;
+
+        } catch (IOException e) {
+            try {
+                datei.setLength(groesse);
+                datei.seek(groesse);
+            } catch (IOException truncateEx) {
+                e.addSuppressed(truncateEx);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Zwingt alle geschriebenen Datensätze auf die Platte.
+     */
+    void synchronisiere() throws IOException {
+        datei.getFD().sync();
+    }
+
+    long getGroesse() {
+        return groesse;
+    }
+
+    Path getPfad() {
+        return pfad;
+    }
+
+    @Override
+    public void close() throws IOException {
+        datei.close();
+    }
+
+    /**
+     * Liest alle gültigen Datensätze ab Dateianfang.
+     * @return Position hinter dem letzten gültigen Datensatz.
+     */
+    private static long lese(FileChannel kanal, Leser leser) throws IOException {
+        CRC32C pruefsumme = new CRC32C();
+        ByteBuffer puffer = ByteBuffer.allocate(LESE_PUFFER_BYTES).flip();
+        long position = 0;
+
+        while (true) {
+            puffer = fuelle(kanal, puffer, KOPF_BYTES);
+            if (puffer.remaining() < KOPF_BYTES) {
+                break;
+            }
+            int laenge = puffer.getInt();
+            int erwartet = puffer.getInt();
+            if (laenge < 0 || laenge > MAX_DATENSATZ_BYTES) {
+                break;
+            }
+
+            puffer = fuelle(kanal, puffer, laenge);
+            if (puffer.remaining() < laenge) {
+                break;
+            }
+            ByteBuffer nutzdaten = puffer.slice(puffer.position(), laenge);
+            pruefsumme.reset();
+            pruefsumme.update(nutzdaten.duplicate());
+            if ((int) pruefsumme.getValue() != erwartet) {
+                break;
+            }
+
+            leser.verarbeite(nutzdaten);
+            puffer.position(puffer.position() + laenge);
+            position += KOPF_BYTES + laenge;
+        }
+        return position;
+    }
+
+    /**
+     * Sorgt dafür, dass mindestens benoetigt Bytes lesbar sind (sofern die Datei so viele enthält).
+     * Der Puffer ist vor und nach dem Aufruf im Lesemodus.
+     */
+    private static ByteBuffer fuelle(FileChannel kanal, ByteBuffer puffer, int benoetigt) throws IOException {
+        if (puffer.remaining() >= benoetigt) {
+            return puffer;
+        }
+
+        if (puffer.capacity() < benoetigt) {
+            ByteBuffer groesser = ByteBuffer.allocate(Math.max(benoetigt, puffer.capacity() * 2));
+            groesser.put(puffer);
+            puffer = groesser;
+        } else {
+            puffer.compact();
+        }
+
+        while (puffer.hasRemaining()) {
+            if (kanal.read(puffer) < 0) {
+                break;
+            }
+        }
+        return puffer.flip();
+    }
+
+    /**
+     * Verarbeitet die Nutzdaten eines gültigen Datensatzes beim Öffnen.
+     */
+    @FunctionalInterface
+    interface Leser {
+        void verarbeite(ByteBuffer nutzdaten) throws IOException;
+    }
+}
@@ -0,0 +1,83 @@
+package org.iba.db.embedded;
+
+import org.iba.exception.BusinessException;
+import org.iba.exception.DatabaseException;
+import org.iba.exception.ValidationException;
+import org.iba.model.Baum;
+import org.iba.model.Messung;
+import org.iba.model.MesswerteAggregat;
+import org.iba.model.Messwerte;
+import org.iba.model.Parzelle;
+import org.iba.util.IntMap;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Speicher im eigenen Prozess, auf dem die Repositories statt per JDBC arbeiten
+ * (Profile EMBEDDED und MEMORY). Semantik, Sortierung und Fehler entsprechen den
+ * JDBC-Pfaden der Repositories; zurückgegebene Objekte sind Kopien.
+ */
+public interface LokalerSpeicher extends AutoCloseable {
+
+    // Parzellen
+
+    Parzelle speichereParzelle(Parzelle parzelle) throws DatabaseException, ValidationException;
+
+    Parzelle speichereParzelleMitBaeumen(Parzelle parzelle, List<Baum> neueBaeume)
+            throws DatabaseException, ValidationException;
+
+    boolean loescheParzelleKomplett(int parzelleId) throws DatabaseException, BusinessException;
+
+    void transferiereBaeume(int vonParzelleId, int zuParzelleId, List<Integer> baumIds)
+            throws DatabaseException, BusinessException;
+
+    List<Parzelle> findeAlleParzellen() throws DatabaseException;
+
+    // Bäume
+
+    Baum speichereBaum(Baum baum) throws DatabaseException, ValidationException;
+
+    boolean aktualisiereBaum(Baum baum) throws DatabaseException, ValidationException;
+
+    boolean loescheBaum(int baumId) throws DatabaseException;
+
+    boolean loescheBaeumeDerParzelle(int parzelleId) throws DatabaseException;
+
+    Baum findeBaum(int baumId) throws DatabaseException;
+
+    List<Baum> findeBaeumeDerParzelle(int parzelleId) throws DatabaseException;
+
+    List<Baum> findeAlleBaeume() throws DatabaseException;
+
+    List<Baum> findeAlleBaeumeNachParzelle() throws DatabaseException;
+
+    // Messwerte
+
+    void speichereMessung(Messung messung) throws DatabaseException, ValidationException;
+
+    /**
+     * @return Indizes (in messungen) der Messungen zu unbekannten Parzellen, die übersprungen wurden.
+     */
+    List<Integer> speichereMessungen(List<Messung> messungen) throws DatabaseException;
+
+    Messwerte findeLetzteMessung(int parzelleId) throws DatabaseException;
+
+    IntMap<Messwerte> findeLetzteMessungen(Collection<Integer> parzelleIds) throws DatabaseException;
+
+    List<Messung> findeMessungen(LocalDateTime von, LocalDateTime bis) throws DatabaseException;
+
+    List<MesswerteAggregat> findeAggregate(int parzelleId, boolean proStunde, LocalDateTime von,
+                                           LocalDateTime bis) throws DatabaseException;
+
+    int baueRollupsNeu(LocalDate von, LocalDate bis) throws DatabaseException;
+
+    // Verwaltung
+
+    boolean isGeschlossen();
+
+    @Override
+    void close();
+}
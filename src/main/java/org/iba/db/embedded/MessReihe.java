@@ -0,0 +1,210 @@
+package org.iba.db.embedded;
+
+import org.iba.model.MesswerteAggregat;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Alle Messungen einer Parzelle, spaltenweise in primitiven Arrays und nach Zeit sortiert
+ * (24 Bytes pro Messung statt eines Objekts pro Zeile), mit den daraus abgeleiteten
+ * Stunden- und Tageswerten. Zeitpunkte sind Epoch-Sekunden (UTC-naiv, wie DATETIME).
+ * Nicht thread-sicher; der jeweilige Speicher synchronisiert den Zugriff.
+ */
+class MessReihe {
+
+    static final long SEKUNDEN_PRO_STUNDE = 3_600;
+    static final long SEKUNDEN_PRO_TAG = 86_400;
+
+    private long[] zeitpunkte = new long[16];
+    private double[] temperaturen = new double[16];
+    private double[] niederschlaege = new double[16];
+    private int anzahl;
+
+    private final TreeMap<Long, Verdichtung> stuendlich = new TreeMap<>();
+    private final TreeMap<Long, Verdichtung> taeglich = new TreeMap<>();
+
+    /**
+     * Fügt eine Messung ein. Bei gleichem Zeitpunkt steht die spätere Messung hinten
+     * und gilt damit als neueste.
+     */
+    void fuegeHinzu(long zeitpunkt, double temperatur, double niederschlag) {
+        if (anzahl == zeitpunkte.length) {
+            int kapazitaet = anzahl * 2;
+            zeitpunkte = Arrays.copyOf(zeitpunkte, kapazitaet);
+            temperaturen = Arrays.copyOf(temperaturen, kapazitaet);
+            niederschlaege = Arrays.copyOf(niederschlaege, kapazitaet);
+        }
+
+        // Normalfall: Messungen kommen in Zeitreihenfolge und werden nur angehängt
+        int index = anzahl;
+        if (anzahl > 0 && zeitpunkte[anzahl - 1] > zeitpunkt) {
+            index = obereGrenze(zeitpunkt);
+            int verschieben = anzahl - index;
+            System.arraycopy(zeitpunkte, index, zeitpunkte, index + 1, verschieben);
+            System.arraycopy(temperaturen, index, temperaturen, index + 1, verschieben);
+            System.arraycopy(niederschlaege, index, niederschlaege, index + 1, verschieben);
+        }
+
+        zeitpunkte[index] = zeitpunkt;
+        temperaturen[index] = temperatur;
+        niederschlaege[index] = niederschlag;
+        anzahl++;
+
+        verdichte(stuendlich, Math.floorDiv(zeitpunkt, SEKUNDEN_PRO_STUNDE) * SEKUNDEN_PRO_STUNDE,
+                temperatur, niederschlag);
+        verdichte(taeglich, Math.floorDiv(zeitpunkt, SEKUNDEN_PRO_TAG) * SEKUNDEN_PRO_TAG,
+                temperatur, niederschlag);
+    }
+
+    /**
+     * Entfernt die zuletzt eingefügte Messung mit genau diesen Werten (Rücknahme von
+     * fuegeHinzu) und berechnet die Stunden- und Tageswerte ihres Tages neu.
+     * @return false, wenn keine solche Messung existiert.
+     */
+    boolean entferne(long zeitpunkt, double temperatur, double niederschlag) {
+        int erster = untereGrenze(zeitpunkt);
+        for (int index = obereGrenze(zeitpunkt) - 1; index >= erster; index--) {
+            if (temperaturen[index] == temperatur && niederschlaege[index] == niederschlag) {
+                int verschieben = anzahl - index - 1;
+                System.arraycopy(zeitpunkte, index + 1, zeitpunkte, index, verschieben);
+                System.arraycopy(temperaturen, index + 1, temperaturen, index, verschieben);
+                System.arraycopy(niederschlaege, index + 1, niederschlaege, index, verschieben);
+                anzahl--;
+
+                long tag = Math.floorDiv(zeitpunkt, SEKUNDEN_PRO_TAG) * SEKUNDEN_PRO_TAG;
+                baueRollupsNeu(tag, tag + SEKUNDEN_PRO_TAG);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Berechnet Stunden- und Tageswerte im Zeitraum [von, bis) aus den Rohdaten neu.
+     * von und bis müssen auf Tagesgrenzen liegen.
+     */
+    void baueRollupsNeu(long von, long bis) {
+        stuendlich.subMap(von, bis).clear();
+        taeglich.subMap(von, bis).clear();
+
+        for (int i = untereGrenze(von); i < anzahl && zeitpunkte[i] < bis; i++) {
+            verdichte(stuendlich, Math.floorDiv(zeitpunkte[i], SEKUNDEN_PRO_STUNDE) * SEKUNDEN_PRO_STUNDE,
+                    temperaturen[i], niederschlaege[i]);
+            verdichte(taeglich, Math.floorDiv(zeitpunkte[i], SEKUNDEN_PRO_TAG) * SEKUNDEN_PRO_TAG,
+                    temperaturen[i], niederschlaege[i]);
+        }
+    }
+
+    int getAnzahl() {
+        return anzahl;
+    }
+
+    boolean isLeer() {
+        return anzahl == 0;
+    }
+
+    long getZeitpunkt(int index) {
+        return zeitpunkte[index];
+    }
+
+    double getTemperatur(int index) {
+        return temperaturen[index];
+    }
+
+    double getNiederschlag(int index) {
+        return niederschlaege[index];
+    }
+
+    /**
+     * Index der neuesten Messung (-1, wenn leer).
+     */
+    int getNeueste() {
+        return anzahl - 1;
+    }
+
+    /**
+     * Erster Index mit Zeitpunkt >= zeitpunkt.
+     */
+    int untereGrenze(long zeitpunkt) {
+        int links = 0;
+        int rechts = anzahl;
+        while (links < rechts) {
+            int mitte = (links + rechts) >>> 1;
+            if (zeitpunkte[mitte] < zeitpunkt) {
+                links = mitte + 1;
+            } else {
+                rechts = mitte;
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Erster Index mit Zeitpunkt > zeitpunkt.
+     */
+    private int obereGrenze(long zeitpunkt) {
+        int links = 0;
+        int rechts = anzahl;
+        while (links < rechts) {
+            int mitte = (links + rechts) >>> 1;
+            if (zeitpunkte[mitte] <= zeitpunkt) {
+                links = mitte + 1;
+            } else {
+                rechts = mitte;
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Stunden- bzw. Tageswerte mit Periodenbeginn in [von, bis), aufsteigend nach Zeit.
+     */
+    List<MesswerteAggregat> findeAggregate(int parzelleId, boolean proStunde, long von, long bis) {
+        TreeMap<Long, Verdichtung> perioden = proStunde ? stuendlich : taeglich;
+        List<MesswerteAggregat> aggregate = new ArrayList<>();
+
+        for (Map.Entry<Long, Verdichtung> eintrag : perioden.subMap(von, bis).entrySet()) {
+            Verdichtung v = eintrag.getValue();
+            aggregate.add(new MesswerteAggregat(parzelleId, alsZeit(eintrag.getKey()),
+                    v.temperaturMin, v.temperaturMax, v.temperaturSumme / v.anzahl,
+                    v.niederschlagSumme, v.anzahl));
+        }
+        return aggregate;
+    }
+
+    static long alsZeitpunkt(LocalDateTime zeit) {
+        return zeit.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime alsZeit(long zeitpunkt) {
+        return LocalDateTime.ofEpochSecond(zeitpunkt, 0, ZoneOffset.UTC);
+    }
+
+    private static void verdichte(TreeMap<Long, Verdichtung> perioden, long beginn,
+                                  double temperatur, double niederschlag) {
+        Verdichtung v = perioden.get(beginn);
+        if (v == null) {
+            v = new Verdichtung();
+            perioden.put(beginn, v);
+        }
+        v.temperaturMin = Math.min(v.temperaturMin, temperatur);
+        v.temperaturMax = Math.max(v.temperaturMax, temperatur);
+        v.temperaturSumme += temperatur;
+        v.niederschlagSumme += niederschlag;
+        v.anzahl++;
+    }
+
+    private static class Verdichtung {
+        double temperaturMin = Double.POSITIVE_INFINITY;
+        double temperaturMax = Double.NEGATIVE_INFINITY;
+        double temperaturSumme = 0;
+        double niederschlagSumme = 0;
+        int anzahl = 0;
+    }
+}
@@ -0,0 +1,353 @@
+package org.iba.db.pool;
+
+import org.iba.util.Frist;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Einfacher, thread-sicherer JDBC Connection-Pool.
+ * - Minimale/maximale Poolgröße
+ * - Validierung beim Ausleihen
+ * - Entfernen ungenutzter und zu alter Verbindungen (Housekeeping-Thread)
+ * - Timeout beim Warten auf eine freie Verbindung
+ * - Optionaler LRU-Cache für PreparedStatements pro physischer Verbindung
+ *
+ * Ausgeliehene Verbindungen sind Proxies: close() gibt die physische
+ * Verbindung an den Pool zurück, statt sie zu schließen.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SEKUNDEN = 2;
+    private static final long HOUSEKEEPING_INTERVALL_MS = 30_000;
+
+    private final String name;
+    private final PoolConfig config;
+    private final ConnectionFactory factory;
+
+    // Freie Verbindungen; vorne liegen die zuletzt benutzten (LIFO hält wenige Verbindungen warm)
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+
+    // Ein Permit pro ausleihbarer Verbindung begrenzt die Poolgröße
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+
+    // Zähler des Statement-Caches über alle Verbindungen des Pools
+    private final AtomicLong statementCacheTreffer = new AtomicLong();
+    private final AtomicLong statementCacheFehlgriffe = new AtomicLong();
+    private final AtomicLong statementCacheVerdraengungen = new AtomicLong();
+
+    private volatile boolean closed = false;
+    private PrintWriter logWriter;
+    private int loginTimeout;
+
+    public ConnectionPool(String name, PoolConfig config, ConnectionFactory factory) {
+        this.name = name;
+        this.config = config;
+        this.factory = factory;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "iba-pool-" + name + "-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long intervall = Math.min(HOUSEKEEPING_INTERVALL_MS, config.getIdleTimeoutMs());
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, intervall, intervall, TimeUnit.MILLISECONDS);
+
+        // Mindestanzahl an Verbindungen im Hintergrund aufbauen
+        housekeeper.execute(this::fuelleAufMinimum);
+    }
+
+    /**
+     * Leiht eine Verbindung aus dem Pool aus.
+     * Wartet höchstens den konfigurierten Borrow-Timeout auf eine freie Verbindung,
+     * unter einer Frist (siehe Frist) höchstens deren Restzeit.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long borrowTimeoutMs = config.getBorrowTimeoutMs();
+        long wartezeit = Frist.begrenze(borrowTimeoutMs);
+        return getConnection(wartezeit, wartezeit < borrowTimeoutMs);
+    }
+
+    /**
+     * Leiht eine Verbindung aus und wartet höchstens timeoutMs Millisekunden.
+     */
+    public Connection getConnection(long timeoutMs) throws SQLException {
+        return getConnection(timeoutMs, false);
+    }
+
+    /**
+     * Wurde die Wartezeit durch die Frist verkürzt, endet das Warten mit einer
+     * SQLTimeoutException (wird zur DatenbankTimeoutException), sonst wie bisher.
+     */
+    private Connection getConnection(long timeoutMs, boolean durchFristBegrenzt) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection-Pool '" + name + "' ist geschlossen", "08003");
+        }
+
+        try {
+            if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                if (durchFristBegrenzt) {
+                    throw new SQLTimeoutException(String.format(
+                            "Frist abgelaufen beim Warten auf eine Verbindung im Pool '%s' nach %d ms",
+                            name, timeoutMs), "HYT00");
+                }
+                throw new SQLTransientConnectionException(String.format(
+                        "Keine freie Verbindung im Pool '%s' nach %d ms (aktiv: %d, max: %d)",
+                        name, timeoutMs, getActiveConnections(), config.getMaxSize()), "08001");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Warten auf Pool-Verbindung unterbrochen", "08001", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isAbgelaufen(pooled) || (config.isValidateOnBorrow() && !isValid(pooled))) {
+                    evict(pooled);
+                    continue;
+                }
+                return pooled.lease();
+            }
+
+            return erstelleVerbindung().lease();
+
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Nimmt eine Verbindung zurück. Wird vom Connection-Proxy bei close() aufgerufen.
+     */
+    void release(PooledConnection pooled) {
+        try {
+            if (closed || isAbgelaufen(pooled) || !pooled.resetState()) {
+                evict(pooled);
+            } else {
+                pooled.touch();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Schließt den Pool und alle freien Verbindungen.
+     * Ausgeliehene Verbindungen werden bei ihrer Rückgabe geschlossen.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            evict(pooled);
+        }
+    }
+
+    // ========================================================================
+    // INTERNE VERWALTUNG
+    // ========================================================================
+
+    private PooledConnection erstelleVerbindung() throws SQLException {
+        Connection physical = factory.create();
+        totalConnections.incrementAndGet();
+        return new PooledConnection(this, physical, config.getStatementCacheSize());
+    }
+
+    private void evict(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        pooled.closePhysical();
+    }
+
+    private boolean isAbgelaufen(PooledConnection pooled) {
+        return pooled.getAlterMs() > config.getMaxLifetimeMs();
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.getPhysical().isValid(VALIDATION_TIMEOUT_SEKUNDEN);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Entfernt zu alte und zu lange ungenutzte Verbindungen
+     * und stellt anschließend die Mindestgröße wieder her.
+     */
+    private void housekeeping() {
+        for (PooledConnection pooled : idle) {
+            boolean ueberMinimum = totalConnections.get() > config.getMinSize();
+            boolean zuLangeUngenutzt = pooled.getLeerlaufMs() > config.getIdleTimeoutMs();
+
+            if (isAbgelaufen(pooled) || (ueberMinimum && zuLangeUngenutzt)) {
+                // remove() liefert false, wenn die Verbindung gerade ausgeliehen wurde
+                if (idle.remove(pooled)) {
+                    evict(pooled);
+                }
+            }
+        }
+
+        fuelleAufMinimum();
+    }
+
+    private void fuelleAufMinimum() {
+        while (!closed && totalConnections.get() < config.getMinSize()) {
+            try {
+                idle.offerLast(erstelleVerbindung());
+            } catch (SQLException e) {
+                System.err.println("[Pool " + name + "] Verbindung konnte nicht aufgebaut werden: " +
+                        e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // ========================================================================
+    // STATISTIK
+    // ========================================================================
+
+    public String getName() {
+        return name;
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    public int getActiveConnections() {
+        return config.getMaxSize() - permits.availablePermits();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheTreffer.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheFehlgriffe.get();
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCacheVerdraengungen.get();
+    }
+
+    /**
+     * Trefferquote des Statement-Caches (0.0 bis 1.0).
+     */
+    public double getStatementCacheHitRate() {
+        long treffer = statementCacheTreffer.get();
+        long gesamt = treffer + statementCacheFehlgriffe.get();
+        return gesamt == 0 ? 0.0 : (double) treffer / gesamt;
+    }
+
+    void zaehleStatementCacheTreffer() {
+        statementCacheTreffer.incrementAndGet();
+    }
+
+    void zaehleStatementCacheFehlgriff() {
+        statementCacheFehlgriffe.incrementAndGet();
+    }
+
+    void zaehleStatementCacheVerdraengung() {
+        statementCacheVerdraengungen.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "ConnectionPool{name=%s, aktiv=%d, frei=%d, gesamt=%d, stmtCache=%d/%d (Treffer/Fehlgriffe), %s}",
+                name, getActiveConnections(), getIdleConnections(), getTotalConnections(),
+                getStatementCacheHits(), getStatementCacheMisses(), config);
+    }
+
+    // ========================================================================
+    // DATASOURCE-SCHNITTSTELLE
+    // ========================================================================
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException(
+                "Benutzerwechsel wird vom Pool nicht unterstützt; Zugangsdaten kommen aus dem Profil");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("java.util.logging wird nicht verwendet");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("ConnectionPool ist kein Wrapper für " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Erzeugt neue physische Verbindungen für den Pool.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+}
@@ -0,0 +1,105 @@
+package org.iba.db.pool;
+
+import java.util.Properties;
+
+/**
+ * Konfiguration eines Connection-Pools.
+ * Wird pro DBConnector-Profil aus den "pool.*"-Properties gelesen.
+ */
+public final class PoolConfig {
+
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final boolean validateOnBorrow;
+    private final long maxLifetimeMs;
+    private final long borrowTimeoutMs;
+    private final int statementCacheSize;
+
+    public PoolConfig(int minSize, int maxSize, long idleTimeoutMs, boolean validateOnBorrow,
+                      long maxLifetimeMs, long borrowTimeoutMs) {
+        this(minSize, maxSize, idleTimeoutMs, validateOnBorrow, maxLifetimeMs, borrowTimeoutMs, 0);
+    }
+
+    public PoolConfig(int minSize, int maxSize, long idleTimeoutMs, boolean validateOnBorrow,
+                      long maxLifetimeMs, long borrowTimeoutMs, int statementCacheSize) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException(
+                    "Ungültige Poolgröße: min=" + minSize + ", max=" + maxSize);
+        }
+        if (idleTimeoutMs <= 0 || maxLifetimeMs <= 0 || borrowTimeoutMs <= 0) {
+            throw new IllegalArgumentException("Pool-Timeouts müssen größer als 0 sein");
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("Statement-Cache-Größe darf nicht negativ sein");
+        }
+
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validateOnBorrow = validateOnBorrow;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Liest die Pool-Einstellungen aus einer Profil-Konfiguration.
+     * Fehlende Werte werden mit Standardwerten belegt.
+     */
+    public static PoolConfig fromProperties(Properties config) {
+        return new PoolConfig(
+                Integer.parseInt(config.getProperty("pool.minSize", "2")),
+                Integer.parseInt(config.getProperty("pool.maxSize", "10")),
+                Long.parseLong(config.getProperty("pool.idleTimeoutMs", "600000")),
+                Boolean.parseBoolean(config.getProperty("pool.validateOnBorrow", "true")),
+                Long.parseLong(config.getProperty("pool.maxLifetimeMs", "1800000")),
+                Long.parseLong(config.getProperty("pool.borrowTimeoutMs", "30000")),
+                Integer.parseInt(config.getProperty("pool.statementCacheSize", "0"))
+        );
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    public long getMaxLifetimeMs() {
+        return maxLifetimeMs;
+    }
+
+    public long getBorrowTimeoutMs() {
+        return borrowTimeoutMs;
+    }
+
+    /**
+     * Anzahl gecachter PreparedStatements pro Verbindung (0 = kein Cache).
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfig{" +
+                "min=" + minSize +
+                ", max=" + maxSize +
+                ", idleTimeout=" + idleTimeoutMs + "ms" +
+                ", validateOnBorrow=" + validateOnBorrow +
+                ", maxLifetime=" + maxLifetimeMs + "ms" +
+                ", borrowTimeout=" + borrowTimeoutMs + "ms" +
+                ", statementCache=" + statementCacheSize +
+                '}';
+    }
+}
@@ -0,0 +1,169 @@
+package org.iba.db.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Eine physische Verbindung im Pool mit ihren Verwaltungsdaten.
+ * Bei jedem Ausleihen wird ein neuer Proxy erzeugt, damit ein bereits
+ * zurückgegebenes Handle die Verbindung nicht ein zweites Mal freigeben kann.
+ */
+class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final long erstelltAm;
+    private volatile long zuletztBenutztAm;
+
+    // Zustand beim Erzeugen; wird bei der Rückgabe wiederhergestellt
+    private final boolean initialAutoCommit;
+    private final int initialIsolation;
+    private final boolean initialReadOnly;
+
+    // null, wenn der Statement-Cache deaktiviert ist
+    private final StatementCache statementCache;
+
+    PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize) throws SQLException {
+        this.pool = pool;
+        this.physical = physical;
+        this.erstelltAm = System.currentTimeMillis();
+        this.zuletztBenutztAm = erstelltAm;
+        this.initialAutoCommit = physical.getAutoCommit();
+        this.initialIsolation = physical.getTransactionIsolation();
+        this.initialReadOnly = physical.isReadOnly();
+        this.statementCache = statementCacheSize > 0 ? new StatementCache(statementCacheSize, pool) : null;
+    }
+
+    Connection getPhysical() {
+        return physical;
+    }
+
+    long getAlterMs() {
+        return System.currentTimeMillis() - erstelltAm;
+    }
+
+    long getLeerlaufMs() {
+        return System.currentTimeMillis() - zuletztBenutztAm;
+    }
+
+    void touch() {
+        zuletztBenutztAm = System.currentTimeMillis();
+    }
+
+    /**
+     * Erzeugt ein neues logisches Handle auf diese Verbindung.
+     */
+    Connection lease() {
+        touch();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Handle());
+    }
+
+    /**
+     * Setzt Transaktionszustand und Einstellungen auf den Ausgangszustand zurück.
+     * @return false, wenn die Verbindung nicht mehr benutzbar ist.
+     */
+    boolean resetState() {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                // Offene Arbeit eines nicht abgeschlossenen Aufrufers verwerfen
+                physical.rollback();
+            }
+            if (physical.getAutoCommit() != initialAutoCommit) {
+                physical.setAutoCommit(initialAutoCommit);
+            }
+            if (physical.getTransactionIsolation() != initialIsolation) {
+                physical.setTransactionIsolation(initialIsolation);
+            }
+            if (physical.isReadOnly() != initialReadOnly) {
+                physical.setReadOnly(initialReadOnly);
+            }
+            physical.clearWarnings();
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("[Pool " + pool.getName() + "] Verbindung nicht zurücksetzbar: " +
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        if (statementCache != null) {
+            statementCache.closeAll();
+        }
+        try {
+            if (!physical.isClosed()) {
+                physical.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("[Pool " + pool.getName() + "] Fehler beim Schließen der Verbindung: " +
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * InvocationHandler für das logische Handle.
+     */
+    private class Handle implements InvocationHandler {
+
+        private boolean logischGeschlossen = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!logischGeschlossen) {
+                        logischGeschlossen = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return logischGeschlossen || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pool.getName() + "]" +
+                            (logischGeschlossen ? " (zurückgegeben)" : "");
+                default:
+                    break;
+            }
+
+            if (logischGeschlossen) {
+                throw new SQLException("Connection wurde bereits an den Pool zurückgegeben", "08003");
+            }
+
+            if (statementCache != null && method.getName().equals("prepareStatement")) {
+                Class<?>[] parameter = method.getParameterTypes();
+                if (parameter.length == 1) {
+                    return statementCache.prepare(physical, (Connection) proxy, (String) args[0],
+                            StatementCache.KEINE_KEY_ANGABE);
+                }
+                if (parameter.length == 2 && parameter[1] == int.class
+                        && ((Integer) args[1] == Statement.RETURN_GENERATED_KEYS
+                        || (Integer) args[1] == Statement.NO_GENERATED_KEYS)) {
+                    return statementCache.prepare(physical, (Connection) proxy, (String) args[0],
+                            (Integer) args[1]);
+                }
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.iba.db.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lese-Replikate eines Profils mit je einem eigenen Connection-Pool.
+ * - Verbindungen werden reihum (Round-Robin) auf die gesunden Replikate verteilt
+ * - Schlägt der Verbindungsaufbau fehl, gilt das Replikat bis zur nächsten
+ *   erfolgreichen Prüfung als ungesund und wird übersprungen
+ * - Ein Hintergrund-Thread prüft alle Replikate regelmäßig
+ */
+public class ReplicaSet implements AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SEKUNDEN = 2;
+
+    private final String name;
+    private final List<Replikat> replikate = new ArrayList<>();
+    private final AtomicInteger naechstes = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaSet(String name, List<ConnectionPool> pools, long healthCheckIntervallMs) {
+        if (pools.isEmpty()) {
+            throw new IllegalArgumentException("ReplicaSet '" + name + "' benötigt mindestens ein Replikat");
+        }
+
+        this.name = name;
+        for (ConnectionPool pool : pools) {
+            replikate.add(new Replikat(pool));
+        }
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "iba-replicas-" + name + "-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::pruefeGesundheit,
+                healthCheckIntervallMs, healthCheckIntervallMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leiht eine Verbindung vom nächsten gesunden Replikat aus.
+     * @throws SQLTransientConnectionException wenn kein Replikat erreichbar ist.
+     */
+    public Connection getConnection() throws SQLException {
+        int anzahl = replikate.size();
+
+        for (int versuch = 0; versuch < anzahl; versuch++) {
+            Replikat replikat = replikate.get(Math.floorMod(naechstes.getAndIncrement(), anzahl));
+            if (!replikat.gesund) {
+                continue;
+            }
+
+            try {
+                return replikat.pool.getConnection();
+            } catch (SQLTransientConnectionException e) {
+                // Pool nur ausgelastet, das Replikat selbst ist erreichbar
+            } catch (SQLException e) {
+                markiere(replikat, false, e.getMessage());
+            }
+        }
+
+        throw new SQLTransientConnectionException(
+                "Kein gesundes Replikat in '" + name + "' verfügbar", "08001");
+    }
+
+    /**
+     * Prüft alle Replikate und aktualisiert ihren Gesundheitszustand.
+     */
+    public void pruefeGesundheit() {
+        for (Replikat replikat : replikate) {
+            try (Connection conn = replikat.pool.getConnection()) {
+                markiere(replikat, conn.isValid(VALIDATION_TIMEOUT_SEKUNDEN), "Validierung fehlgeschlagen");
+            } catch (SQLTransientConnectionException e) {
+                // Ausgelastet zählt nicht als ungesund
+            } catch (SQLException e) {
+                markiere(replikat, false, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        for (Replikat replikat : replikate) {
+            replikat.pool.close();
+        }
+    }
+
+    private void markiere(Replikat replikat, boolean gesund, String grund) {
+        if (replikat.gesund != gesund) {
+            replikat.gesund = gesund;
+            if (gesund) {
+                System.out.println("[Replikate " + name + "] " + replikat.pool.getName() + " wieder verfügbar");
+            } else {
+                System.err.println("[Replikate " + name + "] " + replikat.pool.getName() +
+                        " als ungesund markiert: " + grund);
+            }
+        }
+    }
+
+    // ========================================================================
+    // STATISTIK
+    // ========================================================================
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAnzahlReplikate() {
+        return replikate.size();
+    }
+
+    public int getAnzahlGesund() {
+        int gesund = 0;
+        for (Replikat replikat : replikate) {
+            if (replikat.gesund) {
+                gesund++;
+            }
+        }
+        return gesund;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ReplicaSet{name=" + name + ", gesund=" +
+                getAnzahlGesund() + "/" + replikate.size());
+        for (Replikat replikat : replikate) {
+            sb.append(", ").append(replikat.pool.getName()).append(replikat.gesund ? "=ok" : "=ungesund");
+        }
+        return sb.append('}').toString();
+    }
+
+    private static class Replikat {
+        private final ConnectionPool pool;
+        private volatile boolean gesund = true;
+
+        Replikat(ConnectionPool pool) {
+            this.pool = pool;
+        }
+    }
+}
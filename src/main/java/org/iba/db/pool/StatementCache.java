@@ -0,0 +1,203 @@
+package org.iba.db.pool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU-Cache für PreparedStatements einer physischen Verbindung, Schlüssel ist der SQL-Text.
+ * Ausgegebene Statements sind Proxies: close() setzt sie nur zurück und legt sie
+ * in den Cache zurück. Physisch geschlossen werden sie erst bei Verdrängung aus
+ * dem Cache oder wenn die Verbindung aus dem Pool entfernt wird.
+ */
+class StatementCache {
+
+    // Wert für "ohne RETURN_GENERATED_KEYS-Angabe"
+    static final int KEINE_KEY_ANGABE = -1;
+
+    private final int maxSize;
+    private final ConnectionPool pool;
+
+    // accessOrder = true: Iteration beginnt beim am längsten nicht benutzten Eintrag
+    private final LinkedHashMap<Schluessel, Eintrag> eintraege = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int maxSize, ConnectionPool pool) {
+        this.maxSize = maxSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Liefert ein (wieder)verwendbares PreparedStatement für den SQL-Text.
+     * Ist das gecachte Statement gerade in Benutzung (z.B. verschachtelte Abfragen
+     * mit demselben SQL), wird ein ungecachtes Statement erzeugt.
+     */
+    synchronized PreparedStatement prepare(Connection physical, Connection logisch,
+                                           String sql, int autoGeneratedKeys) throws SQLException {
+        Schluessel schluessel = new Schluessel(sql, autoGeneratedKeys);
+        Eintrag eintrag = eintraege.get(schluessel);
+
+        if (eintrag != null && !eintrag.inBenutzung) {
+            pool.zaehleStatementCacheTreffer();
+            eintrag.inBenutzung = true;
+            return eintrag.lease(logisch);
+        }
+
+        pool.zaehleStatementCacheFehlgriff();
+        PreparedStatement statement = autoGeneratedKeys == KEINE_KEY_ANGABE
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+
+        if (eintrag != null) {
+            // Schlüssel belegt: Statement wird nach Benutzung direkt geschlossen
+            return statement;
+        }
+
+        eintrag = new Eintrag(statement);
+        eintrag.inBenutzung = true;
+        eintraege.put(schluessel, eintrag);
+        verdraengeUeberzaehlige();
+        return eintrag.lease(logisch);
+    }
+
+    /**
+     * Schließt alle gecachten Statements (Verbindung wird aus dem Pool entfernt).
+     */
+    synchronized void closeAll() {
+        for (Eintrag eintrag : eintraege.values()) {
+            schliesse(eintrag.physical);
+        }
+        eintraege.clear();
+    }
+
+    synchronized int size() {
+        return eintraege.size();
+    }
+
+    private void verdraengeUeberzaehlige() {
+        Iterator<Eintrag> iterator = eintraege.values().iterator();
+        while (eintraege.size() > maxSize && iterator.hasNext()) {
+            Eintrag eintrag = iterator.next();
+            iterator.remove();
+            pool.zaehleStatementCacheVerdraengung();
+
+            if (eintrag.inBenutzung) {
+                // Wird beim logischen close() geschlossen
+                eintrag.verdraengt = true;
+            } else {
+                schliesse(eintrag.physical);
+            }
+        }
+    }
+
+    private synchronized void zurueckgeben(Eintrag eintrag) {
+        eintrag.inBenutzung = false;
+        if (eintrag.verdraengt || !eintrag.resetState()) {
+            eintraege.values().remove(eintrag);
+            schliesse(eintrag.physical);
+        }
+    }
+
+    private static void schliesse(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Fehler beim Schließen des gecachten Statement: " + e.getMessage());
+        }
+    }
+
+    private record Schluessel(String sql, int autoGeneratedKeys) {
+    }
+
+    /**
+     * Ein gecachtes Statement samt Benutzungszustand.
+     */
+    private class Eintrag {
+        private final PreparedStatement physical;
+        private boolean inBenutzung;
+        private boolean verdraengt;
+
+        // Von Aufrufern veränderte Einstellungen, die bei Rückgabe zurückgesetzt werden
+        private final List<String> geaenderteEinstellungen = new ArrayList<>();
+
+        Eintrag(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        PreparedStatement lease(Connection logisch) {
+            boolean[] logischGeschlossen = {false};
+
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                if (!logischGeschlossen[0]) {
+                                    logischGeschlossen[0] = true;
+                                    zurueckgeben(this);
+                                }
+                                return null;
+                            case "isClosed":
+                                return logischGeschlossen[0] || physical.isClosed();
+                            case "getConnection":
+                                return logisch;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "setQueryTimeout":
+                            case "setFetchSize":
+                            case "setMaxRows":
+                                geaenderteEinstellungen.add(method.getName());
+                                break;
+                            default:
+                                break;
+                        }
+
+                        if (logischGeschlossen[0]) {
+                            throw new SQLException("Statement wurde bereits geschlossen");
+                        }
+
+                        try {
+                            return method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        boolean resetState() {
+            try {
+                ResultSet offen = physical.getResultSet();
+                if (offen != null) {
+                    offen.close();
+                }
+                physical.clearParameters();
+                physical.clearBatch();
+                physical.clearWarnings();
+
+                for (String einstellung : geaenderteEinstellungen) {
+                    switch (einstellung) {
+                        case "setQueryTimeout" -> physical.setQueryTimeout(0);
+                        case "setFetchSize" -> physical.setFetchSize(0);
+                        case "setMaxRows" -> physical.setMaxRows(0);
+                        default -> { }
+                    }
+                }
+                geaenderteEinstellungen.clear();
+                return true;
+
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+}
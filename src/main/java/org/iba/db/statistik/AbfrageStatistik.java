@@ -0,0 +1,215 @@
+package org.iba.db.statistik;
+
+import org.iba.db.DBConnector;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Laufzeitstatistik aller über die Repositories und den TransactionManager ausgeführten
+ * Statements, zusammengefasst nach normalisierter SQL-Vorlage (siehe VorlagenStatistik).
+ * Statements oberhalb von "stats.slowQueryMs" werden mit ihren Bind-Parametern auf
+ * System.err protokolliert, bei "stats.explain" zu SELECTs zusätzlich mit EXPLAIN.
+ *
+ * Ist die Statistik im aktiven Profil deaktiviert, liefert messe() das Statement unverändert.
+ */
+public final class AbfrageStatistik {
+
+    // Schutz vor unbegrenztem Wachstum bei SQL mit eingebetteten Literalen
+    private static final int MAX_VORLAGEN = 1000;
+    private static final String UEBRIGE = "<weitere Vorlagen>";
+
+    private static final Map<String, VorlagenStatistik> VORLAGEN = new ConcurrentHashMap<>();
+    private static final Map<String, String> NORMALISIERT = new ConcurrentHashMap<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern ZAHL_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern PLATZHALTER_LISTE = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern LEERRAUM = Pattern.compile("\\s+");
+
+    private static volatile StatistikConfig festeConfig;
+    private static volatile StatistikConfig profilConfig;
+    private static volatile DBConnector.Profile configProfil;
+
+    private AbfrageStatistik() {
+        // Utility-Klasse, keine Instanzierung
+    }
+
+    /**
+     * Umhüllt ein frisch vorbereitetes Statement, sodass seine Ausführungen erfasst werden.
+     * @param verbindung Verbindung des Statements (für EXPLAIN bei langsamen Abfragen).
+     */
+    public static PreparedStatement messe(Connection verbindung, PreparedStatement stmt, String sql) {
+        StatistikConfig config = getConfig();
+        if (!config.isEnabled()) {
+            return stmt;
+        }
+        GemessenesStatement handler = new GemessenesStatement(stmt, verbindung, sql, statistikFuer(sql), config);
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, handler);
+    }
+
+    /**
+     * Erfasst eine Operation, die nicht über ein PreparedStatement läuft (z.B. COMMIT).
+     */
+    public static void erfasse(String vorlage, long nanos, boolean fehlgeschlagen) {
+        StatistikConfig config = getConfig();
+        if (!config.isEnabled()) {
+            return;
+        }
+        statistikFuer(vorlage).erfasse(nanos, fehlgeschlagen);
+        if (nanos >= config.getSlowQueryMs() * 1_000_000L) {
+            System.err.printf("[SlowQuery] %.1f ms%s: %s%n", nanos / 1_000_000.0,
+                    fehlgeschlagen ? " (fehlgeschlagen)" : "", vorlage);
+        }
+    }
+
+    /**
+     * Statistik der Vorlage zu diesem SQL-Text (null, wenn noch nie ausgeführt).
+     */
+    public static VorlagenStatistik get(String sql) {
+        return VORLAGEN.get(normalisiere(sql));
+    }
+
+    /**
+     * Alle Vorlagen, absteigend nach Gesamtzeit.
+     */
+    public static List<VorlagenStatistik> getStatistiken() {
+        List<VorlagenStatistik> statistiken = new ArrayList<>(VORLAGEN.values());
+        statistiken.sort(Comparator.comparingDouble(VorlagenStatistik::getGesamtzeitMs).reversed());
+        return statistiken;
+    }
+
+    /**
+     * Textbericht der teuersten Vorlagen (nach Gesamtzeit).
+     */
+    public static String bericht(int anzahl) {
+        StringBuilder bericht = new StringBuilder("=== Abfrage-Statistik (Top ").append(anzahl).append(") ===\n");
+        List<VorlagenStatistik> statistiken = getStatistiken();
+        for (int i = 0; i < Math.min(anzahl, statistiken.size()); i++) {
+            VorlagenStatistik s = statistiken.get(i);
+            bericht.append(String.format("%8.1f ms gesamt | %s%n", s.getGesamtzeitMs(), s));
+        }
+        return bericht.toString();
+    }
+
+    public static void zuruecksetzen() {
+        VORLAGEN.clear();
+    }
+
+    /**
+     * Setzt die Konfiguration unabhängig vom Profil (z.B. für Tests); null kehrt zur
+     * Konfiguration des aktiven Profils zurück.
+     */
+    public static void konfiguriere(StatistikConfig config) {
+        festeConfig = config;
+    }
+
+    public static StatistikConfig getConfig() {
+        StatistikConfig config = festeConfig;
+        if (config != null) {
+            return config;
+        }
+
+        DBConnector.Profile profil = DBConnector.getActiveProfile();
+        config = profilConfig;
+        if (config == null || configProfil != profil) {
+            config = DBConnector.getStatistikConfig();
+            profilConfig = config;
+            configProfil = profil;
+        }
+        return config;
+    }
+
+    /**
+     * Normalisiert SQL zu einer Vorlage: String- und Zahl-Literale werden zu ?,
+     * Platzhalter-Listen zu "?, ...", Leerraum wird zusammengefasst.
+     */
+    public static String normalisiere(String sql) {
+        String vorlage = NORMALISIERT.get(sql);
+        if (vorlage != null) {
+            return vorlage;
+        }
+
+        vorlage = STRING_LITERAL.matcher(sql).replaceAll("?");
+        vorlage = ZAHL_LITERAL.matcher(vorlage).replaceAll("?");
+        vorlage = PLATZHALTER_LISTE.matcher(vorlage).replaceAll("?, ...");
+        vorlage = LEERRAUM.matcher(vorlage).replaceAll(" ").trim();
+
+        if (NORMALISIERT.size() < MAX_VORLAGEN * 10) {
+            NORMALISIERT.put(sql, vorlage);
+        }
+        return vorlage;
+    }
+
+    static VorlagenStatistik statistikFuer(String sql) {
+        String vorlage = normalisiere(sql);
+        VorlagenStatistik statistik = VORLAGEN.get(vorlage);
+        if (statistik != null) {
+            return statistik;
+        }
+        if (VORLAGEN.size() >= MAX_VORLAGEN) {
+            vorlage = UEBRIGE;
+        }
+        return VORLAGEN.computeIfAbsent(vorlage, VorlagenStatistik::new);
+    }
+
+    /**
+     * Protokolliert ein langsames Statement; bei erfolgreichen SELECTs optional mit Ausführungsplan.
+     */
+    static void protokolliereLangsam(String sql, long nanos, long zeilen, String parameter,
+                                     SQLException fehler, Connection verbindung, Object[] werte,
+                                     StatistikConfig config) {
+        StringBuilder eintrag = new StringBuilder();
+        eintrag.append(String.format("[SlowQuery] %.1f ms, %d Zeilen: %s", nanos / 1_000_000.0, zeilen,
+                LEERRAUM.matcher(sql).replaceAll(" ").trim()));
+        eintrag.append("\n[SlowQuery]   Parameter: ").append(parameter);
+        if (fehler != null) {
+            eintrag.append("\n[SlowQuery]   Fehler: ").append(fehler.getMessage());
+        } else if (config.isExplain() && istSelect(sql)) {
+            eintrag.append(erklaere(sql, verbindung, werte));
+        }
+        System.err.println(eintrag);
+    }
+
+    private static boolean istSelect(String sql) {
+        String anfang = sql.stripLeading();
+        return anfang.regionMatches(true, 0, "SELECT", 0, 6) || anfang.regionMatches(true, 0, "WITH", 0, 4);
+    }
+
+    private static String erklaere(String sql, Connection verbindung, Object[] werte) {
+        StringBuilder plan = new StringBuilder();
+        // Mit Angabe des ResultSet-Typs am Statement-Cache des Pools vorbei: das einmalige
+        // EXPLAIN soll keine gecachten Statements der Anwendung verdrängen
+        try (PreparedStatement explain = verbindung.prepareStatement("EXPLAIN " + sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            for (int i = 0; i < werte.length; i++) {
+                explain.setObject(i + 1, werte[i]);
+            }
+            try (var rs = explain.executeQuery()) {
+                var meta = rs.getMetaData();
+                while (rs.next()) {
+                    plan.append("\n[SlowQuery]   EXPLAIN:");
+                    for (int spalte = 1; spalte <= meta.getColumnCount(); spalte++) {
+                        Object wert = rs.getObject(spalte);
+                        if (wert != null) {
+                            plan.append(' ').append(meta.getColumnLabel(spalte)).append('=').append(wert);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plan.append("\n[SlowQuery]   EXPLAIN fehlgeschlagen: ").append(e.getMessage());
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,229 @@
+package org.iba.db.statistik;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Misst die Ausführungen eines PreparedStatements und merkt sich die Bind-Parameter
+ * für das Slow-Query-Protokoll. Bei Abfragen zählt ein umhülltes ResultSet die gelesenen
+ * Zeilen; langsame Abfragen werden daher erst beim Schließen des Statements protokolliert
+ * (dann ist auch die Verbindung für ein EXPLAIN frei, z.B. nach einer Streaming-Abfrage).
+ * Gemessen wird die Dauer von execute*(), bei Streaming also bis zur ersten Zeile.
+ */
+final class GemessenesStatement implements InvocationHandler {
+
+    private static final int MAX_PARAMETER_LAENGE = 100;
+
+    private final PreparedStatement ziel;
+    private final Connection verbindung;
+    private final String sql;
+    private final VorlagenStatistik statistik;
+    private final StatistikConfig config;
+
+    private Object[] parameter = new Object[8];
+    private int anzahlParameter;
+    private int batchZeilen;
+
+    // Offene langsame Abfrage, die beim Schließen protokolliert wird
+    private long langsamNanos = -1;
+    private Object[] langsamParameter;
+    private long gelesen;
+
+    GemessenesStatement(PreparedStatement ziel, Connection verbindung, String sql,
+                        VorlagenStatistik statistik, StatistikConfig config) {
+        this.ziel = ziel;
+        this.verbindung = verbindung;
+        this.sql = sql;
+        this.statistik = statistik;
+        this.config = config;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+
+        if (args == null) {
+            switch (name) {
+                case "executeQuery":
+                    return fuehreAbfrageAus(method);
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "execute":
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return fuehreAenderungAus(method);
+                case "addBatch":
+                    batchZeilen++;
+                    break;
+                case "clearParameters":
+                    anzahlParameter = 0;
+                    break;
+                case "clearBatch":
+                    batchZeilen = 0;
+                    break;
+                case "close":
+                    protokolliereOffeneAbfrage();
+                    break;
+                default:
+                    break;
+            }
+        } else if (args.length >= 2 && name.startsWith("set") && args[0] instanceof Integer) {
+            merkeParameter((Integer) args[0], name.equals("setNull") ? null : args[1]);
+        }
+
+        return delegiere(ziel, method, args);
+    }
+
+    private Object fuehreAbfrageAus(Method method) throws Throwable {
+        long start = System.nanoTime();
+        ResultSet rs;
+        try {
+            rs = (ResultSet) delegiere(ziel, method, null);
+        } catch (SQLException e) {
+            beende(System.nanoTime() - start, 0, e);
+            throw e;
+        }
+        long dauer = System.nanoTime() - start;
+        statistik.erfasse(dauer, false);
+
+        protokolliereOffeneAbfrage();
+        if (dauer >= config.getSlowQueryMs() * 1_000_000L) {
+            langsamNanos = dauer;
+            langsamParameter = Arrays.copyOf(parameter, anzahlParameter);
+            gelesen = 0;
+        }
+
+        return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                new ZaehlendesResultSet(rs));
+    }
+
+    private Object fuehreAenderungAus(Method method) throws Throwable {
+        long start = System.nanoTime();
+        Object ergebnis;
+        try {
+            ergebnis = delegiere(ziel, method, null);
+        } catch (SQLException e) {
+            beende(System.nanoTime() - start, 0, e);
+            batchZeilen = 0;
+            throw e;
+        }
+
+        beende(System.nanoTime() - start, geaenderteZeilen(ergebnis), null);
+        batchZeilen = 0;
+        return ergebnis;
+    }
+
+    private void beende(long nanos, long zeilen, SQLException fehler) {
+        statistik.erfasse(nanos, fehler != null);
+        statistik.addZeilen(zeilen);
+        if (nanos >= config.getSlowQueryMs() * 1_000_000L) {
+            AbfrageStatistik.protokolliereLangsam(sql, nanos, zeilen, formatiereParameter(),
+                    fehler, verbindung, Arrays.copyOf(parameter, anzahlParameter), config);
+        }
+    }
+
+    private void protokolliereOffeneAbfrage() {
+        if (langsamNanos < 0) {
+            return;
+        }
+        long nanos = langsamNanos;
+        langsamNanos = -1;
+        AbfrageStatistik.protokolliereLangsam(sql, nanos, gelesen, formatiere(langsamParameter, 0),
+                null, verbindung, langsamParameter, config);
+    }
+
+    private static long geaenderteZeilen(Object ergebnis) {
+        if (ergebnis instanceof Integer || ergebnis instanceof Long) {
+            return Math.max(0, ((Number) ergebnis).longValue());
+        }
+        long summe = 0;
+        if (ergebnis instanceof int[]) {
+            for (int anzahl : (int[]) ergebnis) {
+                summe += Math.max(0, anzahl);
+            }
+        } else if (ergebnis instanceof long[]) {
+            for (long anzahl : (long[]) ergebnis) {
+                summe += Math.max(0, anzahl);
+            }
+        }
+        return summe;
+    }
+
+    private void merkeParameter(int index, Object wert) {
+        if (index < 1) {
+            return;
+        }
+        if (index > parameter.length) {
+            parameter = Arrays.copyOf(parameter, Math.max(index, parameter.length * 2));
+        }
+        parameter[index - 1] = wert;
+        anzahlParameter = Math.max(anzahlParameter, index);
+    }
+
+    private String formatiereParameter() {
+        return formatiere(Arrays.copyOf(parameter, anzahlParameter), batchZeilen);
+    }
+
+    private static String formatiere(Object[] werte, int batchZeilen) {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < werte.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            Object wert = werte[i];
+            if (wert == null) {
+                text.append("NULL");
+            } else if (wert instanceof byte[]) {
+                text.append('<').append(((byte[]) wert).length).append(" Bytes>");
+            } else if (wert instanceof CharSequence) {
+                String s = wert.toString();
+                text.append('\'')
+                        .append(s.length() > MAX_PARAMETER_LAENGE ? s.substring(0, MAX_PARAMETER_LAENGE) + "..." : s)
+                        .append('\'');
+            } else {
+                text.append(wert);
+            }
+        }
+        text.append(']');
+        if (batchZeilen > 1) {
+            text.append(" (letzte von ").append(batchZeilen).append(" Batch-Zeilen)");
+        }
+        return text.toString();
+    }
+
+    private static Object delegiere(Object ziel, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(ziel, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Zählt die gelesenen Zeilen eines ResultSets.
+     */
+    private final class ZaehlendesResultSet implements InvocationHandler {
+        private final ResultSet rs;
+
+        ZaehlendesResultSet(ResultSet rs) {
+            this.rs = rs;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object ergebnis = delegiere(rs, method, args);
+            if (args == null && method.getName().equals("next") && (Boolean) ergebnis) {
+                statistik.addZeilen(1);
+                gelesen++;
+            }
+            return ergebnis;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.iba.db.statistik;
+
+import java.util.Properties;
+
+/**
+ * Konfiguration der Abfrage-Statistik.
+ * Wird pro DBConnector-Profil aus den "stats.*"-Properties gelesen.
+ */
+public final class StatistikConfig {
+
+    private final boolean enabled;
+    private final long slowQueryMs;
+    private final boolean explain;
+
+    public StatistikConfig(boolean enabled, long slowQueryMs, boolean explain) {
+        if (slowQueryMs < 0) {
+            throw new IllegalArgumentException("Slow-Query-Schwelle darf nicht negativ sein: " + slowQueryMs);
+        }
+
+        this.enabled = enabled;
+        this.slowQueryMs = slowQueryMs;
+        this.explain = explain;
+    }
+
+    /**
+     * Liest die Statistik-Einstellungen aus einer Profil-Konfiguration.
+     * Ohne Angabe ist die Statistik deaktiviert.
+     */
+    public static StatistikConfig fromProperties(Properties config) {
+        return new StatistikConfig(
+                Boolean.parseBoolean(config.getProperty("stats.enabled", "false")),
+                Long.parseLong(config.getProperty("stats.slowQueryMs", "1000")),
+                Boolean.parseBoolean(config.getProperty("stats.explain", "false"))
+        );
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ab dieser Ausführungsdauer wird ein Statement mit seinen Parametern protokolliert.
+     */
+    public long getSlowQueryMs() {
+        return slowQueryMs;
+    }
+
+    /**
+     * Ob zu langsamen SELECTs der Ausführungsplan (EXPLAIN) mitprotokolliert wird.
+     */
+    public boolean isExplain() {
+        return explain;
+    }
+
+    @Override
+    public String toString() {
+        return "StatistikConfig{" +
+                "enabled=" + enabled +
+                ", slowQuery=" + slowQueryMs + "ms" +
+                ", explain=" + explain +
+                '}';
+    }
+}
@@ -0,0 +1,153 @@
+package org.iba.db.statistik;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kennzahlen einer SQL-Vorlage: Ausführungen, Fehler, Zeilen und Latenzverteilung.
+ * Die Verteilung zählt pro Latenzklasse (obere Grenzen siehe getGrenzenMs(), dazu
+ * eine Klasse für alles darüber); Perzentile sind daher auf die Klassengrenze gerundet.
+ * Thread-sicher, ohne Sperren.
+ */
+public final class VorlagenStatistik {
+
+    // Obere Klassengrenzen in Mikrosekunden (grob logarithmisch)
+    private static final long[] GRENZEN_MIKROS = {
+            100, 250, 500,
+            1_000, 2_500, 5_000,
+            10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000,
+            10_000_000, 30_000_000
+    };
+
+    private final String vorlage;
+    private final LongAdder ausfuehrungen = new LongAdder();
+    private final LongAdder fehler = new LongAdder();
+    private final LongAdder zeilen = new LongAdder();
+    private final LongAdder summeNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray verteilung = new AtomicLongArray(GRENZEN_MIKROS.length + 1);
+
+    VorlagenStatistik(String vorlage) {
+        this.vorlage = vorlage;
+    }
+
+    void erfasse(long nanos, boolean fehlgeschlagen) {
+        ausfuehrungen.increment();
+        if (fehlgeschlagen) {
+            fehler.increment();
+        }
+        summeNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        verteilung.incrementAndGet(klasse(nanos));
+    }
+
+    void addZeilen(long anzahl) {
+        zeilen.add(anzahl);
+    }
+
+    private static int klasse(long nanos) {
+        long mikros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        for (int i = 0; i < GRENZEN_MIKROS.length; i++) {
+            if (mikros <= GRENZEN_MIKROS[i]) {
+                return i;
+            }
+        }
+        return GRENZEN_MIKROS.length;
+    }
+
+    /**
+     * Normalisierter SQL-Text (Literale durch ? ersetzt, Leerraum zusammengefasst).
+     */
+    public String getVorlage() {
+        return vorlage;
+    }
+
+    public long getAusfuehrungen() {
+        return ausfuehrungen.sum();
+    }
+
+    public long getFehler() {
+        return fehler.sum();
+    }
+
+    /**
+     * Gelesene (SELECT) bzw. geänderte Zeilen aller Ausführungen.
+     */
+    public long getZeilen() {
+        return zeilen.sum();
+    }
+
+    public double getGesamtzeitMs() {
+        return summeNanos.sum() / 1_000_000.0;
+    }
+
+    public double getMittelMs() {
+        long anzahl = getAusfuehrungen();
+        return anzahl == 0 ? 0 : getGesamtzeitMs() / anzahl;
+    }
+
+    public double getMaxMs() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Obere Grenze der Latenzklasse, in die das Perzentil fällt (z.B. 0.99 für p99).
+     * Liegt es oberhalb der letzten Grenze, wird das Maximum geliefert.
+     */
+    public double getPerzentilMs(double anteil) {
+        if (anteil <= 0 || anteil > 1) {
+            throw new IllegalArgumentException("Anteil muss in (0, 1] liegen: " + anteil);
+        }
+        long[] anzahlen = getVerteilung();
+        long gesamt = 0;
+        for (long anzahl : anzahlen) {
+            gesamt += anzahl;
+        }
+        if (gesamt == 0) {
+            return 0;
+        }
+
+        long ziel = (long) Math.ceil(anteil * gesamt);
+        long kumuliert = 0;
+        for (int i = 0; i < GRENZEN_MIKROS.length; i++) {
+            kumuliert += anzahlen[i];
+            if (kumuliert >= ziel) {
+                return GRENZEN_MIKROS[i] / 1000.0;
+            }
+        }
+        return getMaxMs();
+    }
+
+    /**
+     * Anzahl Ausführungen pro Latenzklasse (letzter Eintrag: oberhalb der letzten Grenze).
+     */
+    public long[] getVerteilung() {
+        long[] kopie = new long[verteilung.length()];
+        for (int i = 0; i < kopie.length; i++) {
+            kopie[i] = verteilung.get(i);
+        }
+        return kopie;
+    }
+
+    /**
+     * Obere Grenzen der Latenzklassen in Millisekunden.
+     */
+    public static double[] getGrenzenMs() {
+        double[] grenzen = new double[GRENZEN_MIKROS.length];
+        for (int i = 0; i < grenzen.length; i++) {
+            grenzen[i] = GRENZEN_MIKROS[i] / 1000.0;
+        }
+        return grenzen;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d x, %d Fehler, %d Zeilen, mittel=%.2fms, p50=%.2fms, p99=%.2fms, max=%.2fms: %s",
+                getAusfuehrungen(), getFehler(), getZeilen(), getMittelMs(),
+                getPerzentilMs(0.5), getPerzentilMs(0.99), getMaxMs(), vorlage);
+    }
+}
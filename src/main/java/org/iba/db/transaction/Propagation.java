@@ -0,0 +1,34 @@
+package org.iba.db.transaction;
+
+/**
+ * Verhalten von executeInTransaction, wenn bereits eine Transaktion aktiv ist.
+ * Ohne aktive Transaktion wird in allen Modi eine neue Haupttransaktion gestartet.
+ */
+public enum Propagation {
+
+    /**
+     * Nimmt an der laufenden Transaktion teil, ohne Savepoint (keine zusätzlichen Roundtrips).
+     * Scheitert die Operation, wird die umgebende Transaktion bzw. der umgebende Savepoint
+     * als rollback-only markiert und beim Abschluss zurückgerollt.
+     */
+    REQUIRED,
+
+    /**
+     * Eigener Savepoint innerhalb der laufenden Transaktion; ein Fehler rollt nur bis
+     * zum Savepoint zurück, die äußere Transaktion kann fortgesetzt werden.
+     */
+    NESTED,
+
+    /**
+     * Unabhängige Transaktion auf einer eigenen Verbindung; die laufende Transaktion ist
+     * solange ausgesetzt. Achtung: Zeilen, die die äußere Transaktion gesperrt hat,
+     * führen hier zum Lock-Wait-Timeout.
+     */
+    REQUIRES_NEW,
+
+    /**
+     * Nur lesend: eine neue Haupttransaktion läuft auf einer read-only markierten Verbindung,
+     * innerhalb einer laufenden Transaktion wird wie bei REQUIRED ohne Savepoint teilgenommen.
+     */
+    READ_ONLY
+}
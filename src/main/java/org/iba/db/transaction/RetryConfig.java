@@ -0,0 +1,82 @@
+package org.iba.db.transaction;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Wiederholungsstrategie für Transaktionen, die an Deadlock (1213) oder
+ * Lock-Wait-Timeout (1205) scheitern.
+ * Wird pro DBConnector-Profil aus den "tx.retry.*"-Properties gelesen.
+ */
+public final class RetryConfig {
+
+    /** Keine Wiederholung. */
+    public static final RetryConfig KEINE = new RetryConfig(1, 0, 0);
+
+    private final int maxVersuche;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+
+    /**
+     * @param maxVersuche Versuche insgesamt (1 = keine Wiederholung).
+     * @param backoffMs Wartezeit vor der ersten Wiederholung, verdoppelt sich mit jeder weiteren.
+     * @param maxBackoffMs Obergrenze der Wartezeit.
+     */
+    public RetryConfig(int maxVersuche, long backoffMs, long maxBackoffMs) {
+        if (maxVersuche < 1) {
+            throw new IllegalArgumentException("Mindestens ein Versuch nötig: " + maxVersuche);
+        }
+        if (backoffMs < 0 || maxBackoffMs < backoffMs) {
+            throw new IllegalArgumentException(
+                    "Ungültiger Backoff: " + backoffMs + "ms, maximal " + maxBackoffMs + "ms");
+        }
+
+        this.maxVersuche = maxVersuche;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    /**
+     * Liest die Wiederholungsstrategie aus einer Profil-Konfiguration.
+     * Ohne Angabe wird nicht wiederholt.
+     */
+    public static RetryConfig fromProperties(Properties config) {
+        return new RetryConfig(
+                Integer.parseInt(config.getProperty("tx.retry.maxAttempts", "1")),
+                Long.parseLong(config.getProperty("tx.retry.backoffMs", "0")),
+                Long.parseLong(config.getProperty("tx.retry.maxBackoffMs", "0"))
+        );
+    }
+
+    public int getMaxVersuche() {
+        return maxVersuche;
+    }
+
+    public long getBackoffMs() {
+        return backoffMs;
+    }
+
+    public long getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    /**
+     * Wartezeit vor dem angegebenen Versuch (2 = erste Wiederholung): exponentiell wachsend,
+     * die zweite Hälfte zufällig (Jitter), damit kollidierende Transaktionen auseinanderlaufen.
+     */
+    long wartezeitMs(int versuch) {
+        long basis = backoffMs << Math.min(versuch - 2, 30);
+        long grenze = Math.min(maxBackoffMs, basis < 0 ? maxBackoffMs : basis);
+        long haelfte = grenze / 2;
+        return haelfte + ThreadLocalRandom.current().nextLong(grenze - haelfte + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryConfig{" +
+                "maxVersuche=" + maxVersuche +
+                ", backoff=" + backoffMs + "ms" +
+                ", maxBackoff=" + maxBackoffMs + "ms" +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package org.iba.db.transaction;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Zähler der Transaktions-Wiederholungen (siehe TransactionManager.getRetryStatistik()).
+ */
+public final class RetryStatistik {
+
+    private final LongAdder wiederholungen = new LongAdder();
+    private final LongAdder erfolgreichNachWiederholung = new LongAdder();
+    private final LongAdder aufgegeben = new LongAdder();
+
+    RetryStatistik() {
+    }
+
+    void wiederholung() {
+        wiederholungen.increment();
+    }
+
+    void erfolgreichNachWiederholung() {
+        erfolgreichNachWiederholung.increment();
+    }
+
+    void aufgegeben() {
+        aufgegeben.increment();
+    }
+
+    /**
+     * Anzahl wiederholter Versuche (ohne den jeweils ersten).
+     */
+    public long getWiederholungen() {
+        return wiederholungen.sum();
+    }
+
+    /**
+     * Transaktionen, die erst nach mindestens einer Wiederholung committet wurden.
+     */
+    public long getErfolgreichNachWiederholung() {
+        return erfolgreichNachWiederholung.sum();
+    }
+
+    /**
+     * Transaktionen, die auch nach dem letzten Versuch an Deadlock/Lock-Timeout scheiterten.
+     */
+    public long getAufgegeben() {
+        return aufgegeben.sum();
+    }
+
+    public void zuruecksetzen() {
+        wiederholungen.reset();
+        erfolgreichNachWiederholung.reset();
+        aufgegeben.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "RetryStatistik{" +
+                "wiederholungen=" + getWiederholungen() +
+                ", erfolgreichNachWiederholung=" + getErfolgreichNachWiederholung() +
+                ", aufgegeben=" + getAufgegeben() +
+                '}';
+    }
+}
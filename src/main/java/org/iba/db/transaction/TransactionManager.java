@@ -1,136 +1,466 @@
 package org.iba.db.transaction;
 
+import org.iba.db.DBConnector;
+import org.iba.db.statistik.AbfrageStatistik;
 import org.iba.exception.DatabaseException;
+import org.iba.exception.DatenbankTimeoutException;
 import org.iba.util.ExceptionUtils;
+import org.iba.util.Frist;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Savepoint;
-import java.util.Stack;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 
 /**
  * Verwaltet Datenbanktransaktionen mit Unterstützung für:
- * - Verschachtelte Transaktionen (Savepoints)
+ * - Verschachtelte Transaktionen mit Propagation (REQUIRED, NESTED per Savepoint, REQUIRES_NEW, READ_ONLY)
  * - Automatisches Rollback bei Fehlern
- * - Connection Pooling (einfache Implementierung)
- * - Transaction Timeouts
+ * - Lesetransaktionen mit konsistentem Snapshot, auch auf Replikaten (executeReadOnly)
+ * - Wiederholung bei Deadlock und Lock-Wait-Timeout (Backoff mit Jitter, siehe RetryConfig)
+ * - Connection Pooling (Verbindungen kommen aus dem Pool des aktiven DBConnector-Profils,
+ *   erst bei der ersten Anweisung und nur bis Commit/Rollback)
+ * - Transaction Timeouts (Frist pro Transaktion bzw. Aufruf, siehe Frist; wirkt auf Query-Timeout,
+ *   Warten auf Pool-Verbindung und Sperren, Rollback bei Ablauf)
  */
 public class TransactionManager {
 
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/IBA_Olive_DEV";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "Chakeb1978&";
-
     // ThreadLocal für thread-sichere Transaktionen
     private static final ThreadLocal<TransactionContext> currentTransaction =
             ThreadLocal.withInitial(() -> null);
 
+    private static final RetryStatistik RETRY_STATISTIK = new RetryStatistik();
+
+    private static final TransaktionsStatistik TRANSAKTIONS_STATISTIK = new TransaktionsStatistik();
+
+    private static final String SNAPSHOT_SQL = "START TRANSACTION READ ONLY, WITH CONSISTENT SNAPSHOT";
+
     /**
      * Führt eine Operation innerhalb einer Transaktion aus.
      * Automatisches Commit bei Erfolg, Rollback bei Exception.
+     * Innerhalb einer laufenden Transaktion wird ein Savepoint gesetzt (Propagation.NESTED).
+     * Scheitert eine Haupttransaktion an Deadlock oder Lock-Wait-Timeout, wird sie gemäß
+     * der RetryConfig des aktiven Profils vollständig wiederholt; die Operation muss daher
+     * außerhalb der Datenbank frei von Seiteneffekten sein.
      */
     public static <T> T executeInTransaction(TransactionalOperation<T> operation)
             throws DatabaseException {
+        return executeInTransaction(Propagation.NESTED, DBConnector.getRetryConfig(), operation);
+    }
+
+    /**
+     * Wie executeInTransaction(operation), mit eigener Wiederholungsstrategie.
+     */
+    public static <T> T executeInTransaction(RetryConfig retry, TransactionalOperation<T> operation)
+            throws DatabaseException {
+        return executeInTransaction(Propagation.NESTED, retry, operation);
+    }
+
+    /**
+     * Wie executeInTransaction(operation), mit expliziter Propagation (siehe Propagation).
+     */
+    public static <T> T executeInTransaction(Propagation propagation, TransactionalOperation<T> operation)
+            throws DatabaseException {
+        return executeInTransaction(propagation, DBConnector.getRetryConfig(), operation);
+    }
+
+    /**
+     * Wie executeInTransaction(propagation, operation), mit eigener Frist für diesen Aufruf
+     * einschließlich aller Wiederholungen (kann eine bestehende Frist nur verkürzen).
+     * Nach Ablauf wird die Operation abgebrochen, zurückgerollt und eine
+     * DatenbankTimeoutException geworfen.
+     */
+    public static <T> T executeInTransaction(Propagation propagation, long timeoutMs,
+                                             TransactionalOperation<T> operation)
+            throws DatabaseException {
+        return Frist.innerhalb(timeoutMs, () -> executeInTransaction(propagation, operation));
+    }
+
+    /**
+     * Führt eine Operation mit der angegebenen Propagation und Wiederholungsstrategie aus.
+     * Verschachtelte Aufrufe werden nie einzeln wiederholt: Deadlocks rollen bei MySQL die
+     * gesamte Transaktion zurück, wiederholt wird daher nur auf der äußersten Ebene
+     * (bzw. von einer REQUIRES_NEW-Transaktion, die unabhängig von der äußeren ist).
+     * Eine neue Haupttransaktion erhält die Frist "tx.timeoutMs" des aktiven Profils.
+     */
+    public static <T> T executeInTransaction(Propagation propagation, RetryConfig retry,
+                                             TransactionalOperation<T> operation)
+            throws DatabaseException {
+
+        TransactionContext aeussere = currentTransaction.get();
+        if (aeussere == null) {
+            return mitTransaktionsFrist(() -> wiederhole(propagation, retry, operation));
+        }
+        if (propagation != Propagation.REQUIRES_NEW) {
+            return fuehreAus(propagation, operation);
+        }
 
+        // Äußere Transaktion aussetzen, bis die neue abgeschlossen ist
+        currentTransaction.remove();
+        try {
+            return mitTransaktionsFrist(() -> wiederhole(propagation, retry, operation));
+        } finally {
+            currentTransaction.set(aeussere);
+        }
+    }
+
+    private static <T> T mitTransaktionsFrist(Frist.Aufgabe<T, DatabaseException> aufgabe)
+            throws DatabaseException {
+        long timeoutMs = DBConnector.getTransaktionsTimeoutMs();
+        return timeoutMs > 0 ? Frist.innerhalb(timeoutMs, aufgabe) : aufgabe.ausfuehren();
+    }
+
+    /**
+     * Führt eine Haupttransaktion aus und wiederholt sie bei Deadlock/Lock-Wait-Timeout.
+     */
+    private static <T> T wiederhole(Propagation propagation, RetryConfig retry,
+                                    TransactionalOperation<T> operation) throws DatabaseException {
+        for (int versuch = 1; ; versuch++) {
+            try {
+                T result = fuehreAus(propagation, operation);
+                if (versuch > 1) {
+                    RETRY_STATISTIK.erfolgreichNachWiederholung();
+                }
+                return result;
+
+            } catch (DatabaseException e) {
+                if (!istVoruebergehend(e)) {
+                    throw e;
+                }
+                if (versuch >= retry.getMaxVersuche()) {
+                    if (retry.getMaxVersuche() > 1) {
+                        RETRY_STATISTIK.aufgegeben();
+                    }
+                    throw e;
+                }
+
+                long wartezeit = retry.wartezeitMs(versuch + 1);
+                if (Frist.begrenze(wartezeit) < wartezeit) {
+                    // Die nächste Wiederholung würde die Frist überschreiten
+                    RETRY_STATISTIK.aufgegeben();
+                    throw e;
+                }
+                System.err.println("[Transaction] Versuch " + versuch + " von " + retry.getMaxVersuche() +
+                        " gescheitert (" + e.getMessage() + "), Wiederholung in " + wartezeit + " ms");
+                try {
+                    Thread.sleep(wartezeit);
+                } catch (InterruptedException unterbrochen) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                RETRY_STATISTIK.wiederholung();
+            }
+        }
+    }
+
+    /**
+     * Ein Versuch: Transaktion beginnen bzw. beitreten, Operation ausführen, Commit oder Rollback.
+     */
+    private static <T> T fuehreAus(Propagation propagation, TransactionalOperation<T> operation)
+            throws DatabaseException {
         TransactionContext context = null;
-        Connection connection = null;
+        Ebene ebene = null;
+        boolean hauptTransaktion = false;
+
+        if (Frist.istAbgelaufen()) {
+            throw new DatenbankTimeoutException("Frist vor Transaktionsbeginn abgelaufen: " + Frist.aktuelle());
+        }
 
         try {
-            // 1. Transaktion starten
-            context = beginTransaction();
-            connection = context.getConnection();
+            // 1. Transaktion starten bzw. Ebene in der laufenden Transaktion anlegen
+            context = beginTransaction(propagation);
+            hauptTransaktion = context.isRootTransaction();
+            ebene = hauptTransaktion ? null : context.getAktuelleEbene();
 
             // 2. Operation ausführen
-            T result = operation.execute(connection);
+            T result = operation.execute(context.getConnection());
 
-            // 3. Bei Erfolg: Commit
-            commitTransaction(context);
+            // 3. Bei Erfolg: Commit, außer eine teilnehmende Operation ist gescheitert
+            //    oder die Frist ist inzwischen abgelaufen
+            if (Frist.istAbgelaufen()) {
+                throw new DatenbankTimeoutException("Frist abgelaufen, Transaktion wird zurückgerollt: " +
+                        Frist.aktuelle());
+            }
+            if (hauptTransaktion ? context.isRollbackOnly() : ebene.rollbackOnly) {
+                throw new DatabaseException("Transaktion wurde als rollback-only markiert, " +
+                        "da eine teilnehmende Operation fehlgeschlagen ist", null, -1);
+            }
+            commitTransaction(context, ebene);
 
             return result;
 
         } catch (Exception e) {
             // 4. Bei Fehler: Rollback
             if (context != null) {
-                rollbackTransaction(context, e);
+                rollbackTransaction(context, hauptTransaktion, ebene, e);
             }
 
             // 5. Exception umwandeln/weiterschleudern
-            if (e instanceof DatabaseException) {
-                throw (DatabaseException) e;
-            } else if (e instanceof SQLException) {
-                throw ExceptionUtils.wrapSQLException((SQLException) e, "Transaktionsoperation");
-            } else {
-                throw new DatabaseException("Transaktionsfehler: " + e.getMessage(), e);
-            }
+            throw alsDatabaseException(e);
 
         } finally {
             // 6. Resources aufräumen
-            cleanupTransaction(context);
+            cleanupTransaction(context, hauptTransaktion);
         }
     }
 
     /**
-     * Startet eine neue Transaktion oder erstellt einen Savepoint für verschachtelte Transaktionen.
+     * Führt eine reine Leseoperation aus (Berichte, Neuberechnungen über alle Parzellen),
+     * in einem konsistenten Snapshot ohne Schreibsperren; siehe executeReadOnly(boolean, operation).
      */
-    private static TransactionContext beginTransaction() throws SQLException {
-        TransactionContext parentContext = currentTransaction.get();
+    public static <T> T executeReadOnly(TransactionalOperation<T> operation) throws DatabaseException {
+        return executeReadOnly(true, operation);
+    }
 
-        if (parentContext == null) {
-            // Neue Haupttransaktion
-            Connection connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    /**
+     * Führt eine reine Leseoperation auf einer read-only markierten Verbindung aus, die wie
+     * DBConnector.getReadConnection() an ein Replikat gehen kann (außer innerhalb von lesePrimaer()).
+     * Repository-Aufrufe in der Operation verwenden diese Verbindung.
+     * Mit konsistentem Snapshot sehen alle Abfragen denselben Datenstand (REPEATABLE READ,
+     * START TRANSACTION WITH CONSISTENT SNAPSHOT), sonst läuft jede Abfrage im Auto-Commit.
+     * Anders als bei Schreibtransaktionen gibt es weder Protokollausgaben noch Commit und keine
+     * Wiederholung: die Rückgabe der Verbindung an den Pool beendet die Lesetransaktion.
+     * Innerhalb einer laufenden Transaktion wird diese ohne Savepoint mitbenutzt; scheitert die
+     * Leseoperation, kann sie dennoch committet werden (außer nach einem Deadlock).
+     * Die Transaktions-Frist "tx.timeoutMs" gilt hier nicht (lange Berichte), eine Frist des
+     * Aufrufers (Frist.innerhalb) dagegen schon.
+     */
+    public static <T> T executeReadOnly(boolean konsistenterSnapshot, TransactionalOperation<T> operation)
+            throws DatabaseException {
+
+        if (isTransactionActive()) {
+            return executeInTransaction(Propagation.READ_ONLY, RetryConfig.KEINE, operation);
+        }
+
+        TransactionContext context = new TransactionContext(() -> oeffneLeseverbindung(konsistenterSnapshot));
+        currentTransaction.set(context);
+
+        try {
+            return operation.execute(context.getConnection());
+
+        } catch (Exception e) {
+            throw alsDatabaseException(e);
+
+        } finally {
+            Connection connection = context.beende();
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("[Transaction] Fehler beim Schließen der Leseverbindung: " + e.getMessage());
+                }
+            }
+            currentTransaction.remove();
+            fuehreNachAbschlussAus(context);
+        }
+    }
+
+    /**
+     * Öffnet die Verbindung einer Lesetransaktion (beim ersten Zugriff der Operation).
+     */
+    private static Connection oeffneLeseverbindung(boolean konsistenterSnapshot)
+            throws SQLException, DatabaseException {
+        Connection connection = DBConnector.getReadConnection();
+        try {
+            if (!connection.isReadOnly()) {
+                connection.setReadOnly(true);
+            }
+            if (konsistenterSnapshot) {
+                beginneSnapshot(connection);
+            }
+            return connection;
+        } catch (SQLException | DatabaseException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Startet eine Lesetransaktion mit konsistentem Snapshot. Die lokalen Speicher (Profile
+     * EMBEDDED/MEMORY) verstehen kein SQL, dort genügt das Abschalten von Auto-Commit.
+     */
+    private static void beginneSnapshot(Connection connection) throws SQLException, DatabaseException {
+        gemessen("SET autocommit=0", () -> {
             connection.setAutoCommit(false);
-            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            return null;
+        });
+        // Nur unter REPEATABLE READ gilt der Snapshot für alle Abfragen, nicht nur für eine
+        if (connection.getTransactionIsolation() != Connection.TRANSACTION_REPEATABLE_READ) {
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        }
+        if (DBConnector.getLokalerSpeicher() == null) {
+            gemessen(SNAPSHOT_SQL, () -> {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute(SNAPSHOT_SQL);
+                }
+                return null;
+            });
+        }
+    }
 
-            TransactionContext newContext = new TransactionContext(connection);
+    /**
+     * Wandelt eine Exception der Operation in eine DatabaseException um.
+     */
+    private static DatabaseException alsDatabaseException(Exception e) {
+        if (e instanceof DatabaseException) {
+            return (DatabaseException) e;
+        } else if (e instanceof SQLException) {
+            return ExceptionUtils.wrapSQLException((SQLException) e, "Transaktionsoperation");
+        } else {
+            return new DatabaseException("Transaktionsfehler: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Startet eine neue Transaktion oder legt für verschachtelte Aufrufe eine Ebene an
+     * (mit Savepoint nur bei Propagation.NESTED). Die Verbindung einer neuen Transaktion
+     * wird erst bei der ersten Anweisung geholt (siehe TransactionContext).
+     */
+    private static TransactionContext beginTransaction(Propagation propagation) throws SQLException {
+        TransactionContext parentContext = currentTransaction.get();
+
+        if (parentContext == null) {
+            TransactionContext newContext = new TransactionContext(() -> oeffneVerbindung(propagation));
             currentTransaction.set(newContext);
 
             System.out.println("[Transaction] Neue Transaktion gestartet");
             return newContext;
 
-        } else {
+        } else if (propagation == Propagation.NESTED) {
+            if (!parentContext.isGebunden()) {
+                // Noch keine Anweisung ausgeführt: ein Rollback dieser Ebene ist ein vollständiges Rollback
+                parentContext.pushEbene(new Ebene(propagation, null));
+                return parentContext;
+            }
+
             // Verschachtelte Transaktion (Savepoint)
-            Savepoint savepoint = parentContext.getConnection().setSavepoint();
-            parentContext.pushSavepoint(savepoint);
+            Connection connection = parentContext.getGebundeneVerbindung();
+            Savepoint savepoint = gemessen("SAVEPOINT", connection::setSavepoint);
+            parentContext.pushEbene(new Ebene(propagation, savepoint));
 
             System.out.println("[Transaction] Savepoint erstellt: " + savepoint.getSavepointId());
             return parentContext; // Verwende Parent-Context
+
+        } else {
+            // REQUIRED/READ_ONLY: Teilnahme ohne Savepoint
+            parentContext.pushEbene(new Ebene(propagation, null));
+            return parentContext;
         }
     }
 
     /**
-     * Führt ein Commit durch (nur für Haupttransaktion).
+     * Öffnet die Verbindung einer Haupttransaktion aus dem Pool des aktiven Profils.
      */
-    private static void commitTransaction(TransactionContext context) throws SQLException {
-        if (context.isRootTransaction()) {
-            context.getConnection().commit();
-            System.out.println("[Transaction] Commit erfolgreich");
-        } else {
-            // Für Savepoints: Release
-            Savepoint savepoint = context.popSavepoint();
-            if (savepoint != null) {
-                context.getConnection().releaseSavepoint(savepoint);
-                System.out.println("[Transaction] Savepoint released: " + savepoint.getSavepointId());
+    private static Connection oeffneVerbindung(Propagation propagation) throws SQLException, DatabaseException {
+        Connection connection = DBConnector.getConnection();
+        try {
+            gemessen("SET autocommit=0", () -> {
+                connection.setAutoCommit(false);
+                return null;
+            });
+            int isolation = DBConnector.getTransactionIsolation();
+            if (connection.getTransactionIsolation() != isolation) {
+                connection.setTransactionIsolation(isolation);
+            }
+            if (propagation == Propagation.READ_ONLY) {
+                // Der Pool setzt read-only bei Rückgabe zurück
+                connection.setReadOnly(true);
             }
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
         }
     }
 
     /**
-     * Führt ein Rollback durch.
+     * Führt ein Commit durch (nur für Haupttransaktion, sonst Release des Savepoints).
+     * Ohne gebundene Verbindung gibt es nichts zu committen.
      */
-    private static void rollbackTransaction(TransactionContext context, Exception cause) {
+    private static void commitTransaction(TransactionContext context, Ebene ebene)
+            throws SQLException {
+        Connection connection = context.getGebundeneVerbindung();
+        if (ebene == null) {
+            if (connection == null) {
+                System.out.println("[Transaction] Transaktion ohne Datenbankzugriff beendet");
+                return;
+            }
+            gemessen("COMMIT", () -> {
+                connection.commit();
+                return null;
+            });
+            System.out.println("[Transaction] Commit erfolgreich");
+            return;
+        }
+
+        // Ebene erst nach erfolgreichem Release entfernen, sonst rollt der Fehlerpfad sie zurück
+        Savepoint savepoint = ebene.savepoint;
+        if (savepoint != null) {
+            gemessen("RELEASE SAVEPOINT", () -> {
+                connection.releaseSavepoint(savepoint);
+                return null;
+            });
+            System.out.println("[Transaction] Savepoint released: " + savepoint.getSavepointId());
+        }
+        context.entferneEbene(ebene);
+    }
+
+    /**
+     * Führt ein Rollback durch. Teilnehmende Ebenen ohne Savepoint markieren stattdessen
+     * die umgebende Transaktion bzw. den umgebenden Savepoint als rollback-only.
+     * Eine gescheiterte Leseoperation (READ_ONLY) hat nichts geändert und lässt die umgebende
+     * Transaktion unberührt, außer bei einem Deadlock: dann hat MySQL die Transaktion bereits
+     * selbst zurückgerollt. Ohne gebundene Verbindung gibt es nichts zurückzurollen.
+     */
+    private static void rollbackTransaction(TransactionContext context, boolean hauptTransaktion,
+                                            Ebene ebene, Exception cause) {
+        Connection connection = context.getGebundeneVerbindung();
         try {
-            if (context.isRootTransaction()) {
-                context.getConnection().rollback();
+            if (hauptTransaktion) {
+                if (connection != null) {
+                    gemessen("ROLLBACK", () -> {
+                        connection.rollback();
+                        return null;
+                    });
+                }
                 System.err.println("[Transaction] Rollback der Haupttransaktion aufgrund von: " +
                         cause.getMessage());
-            } else {
-                Savepoint savepoint = context.peekSavepoint();
+            } else if (ebene != null && context.entferneEbene(ebene)) {
+                Savepoint savepoint = ebene.savepoint;
                 if (savepoint != null) {
-                    context.getConnection().rollback(savepoint);
+                    gemessen("ROLLBACK TO SAVEPOINT", () -> {
+                        connection.rollback(savepoint);
+                        return null;
+                    });
                     System.err.println("[Transaction] Rollback zu Savepoint: " +
                             savepoint.getSavepointId() + " aufgrund von: " +
                             cause.getMessage());
+                } else if (ebene.propagation == Propagation.NESTED) {
+                    // Ebene begann vor der ersten Anweisung, der Savepoint wäre der Transaktionsbeginn
+                    if (connection != null) {
+                        gemessen("ROLLBACK", () -> {
+                            connection.rollback();
+                            return null;
+                        });
+                    }
+                    System.err.println("[Transaction] Rollback bis Transaktionsbeginn aufgrund von: " +
+                            cause.getMessage());
+                } else if (ebene.propagation == Propagation.READ_ONLY && !istVoruebergehend(cause)) {
+                    System.err.println("[Transaction] READ_ONLY-Operation fehlgeschlagen, " +
+                            "Transaktion läuft weiter: " + cause.getMessage());
+                } else {
+                    context.markiereRollbackOnly();
+                    System.err.println("[Transaction] " + ebene.propagation +
+                            "-Operation fehlgeschlagen, Transaktion ist rollback-only: " +
+                            cause.getMessage());
                 }
             }
         } catch (SQLException rollbackEx) {
@@ -142,26 +472,110 @@ public class TransactionManager {
     /**
      * Räumt Transaktionsressourcen auf.
      */
-    private static void cleanupTransaction(TransactionContext context) {
-        if (context != null && context.isRootTransaction()) {
+    private static void cleanupTransaction(TransactionContext context, boolean hauptTransaktion) {
+        if (context != null && hauptTransaktion) {
             try {
-                Connection connection = context.getConnection();
-
-                // Zurück zu Auto-Commit Mode
-                connection.setAutoCommit(true);
-                connection.close();
-
-                System.out.println("[Transaction] Transaktion beendet, Connection geschlossen");
+                // Rückgabe an den Pool; dieser stellt Auto-Commit und Isolationslevel wieder her
+                Connection connection = context.beende();
+                if (connection != null) {
+                    connection.close();
+                    System.out.println("[Transaction] Transaktion beendet, Connection zurückgegeben");
+                }
 
             } catch (SQLException e) {
                 System.err.println("[Transaction] Fehler beim Cleanup: " + e.getMessage());
             } finally {
                 // Aus ThreadLocal entfernen
                 currentTransaction.remove();
+                fuehreNachAbschlussAus(context);
             }
         }
     }
 
+    /**
+     * Führt die registrierten Abschluss-Aktionen aus (Transaktion ist bereits beendet).
+     */
+    private static void fuehreNachAbschlussAus(TransactionContext context) {
+        for (Runnable aktion : context.getNachAbschluss()) {
+            try {
+                aktion.run();
+            } catch (RuntimeException e) {
+                System.err.println("[Transaction] Fehler in Abschluss-Aktion: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Führt eine Transaktionssteuerung aus und erfasst ihre Dauer in der AbfrageStatistik.
+     */
+    private static <T> T gemessen(String vorlage, SqlAktion<T> aktion) throws SQLException {
+        long start = System.nanoTime();
+        boolean erfolgreich = false;
+        try {
+            T ergebnis = aktion.ausfuehren();
+            erfolgreich = true;
+            return ergebnis;
+        } finally {
+            AbfrageStatistik.erfasse(vorlage, System.nanoTime() - start, !erfolgreich);
+        }
+    }
+
+    /**
+     * Registriert eine Aktion, die nach Commit oder Rollback der Haupttransaktion
+     * ausgeführt wird (z.B. Cache-Invalidierung). Ohne aktive Transaktion wird
+     * die Aktion sofort ausgeführt.
+     */
+    public static void nachAbschluss(Runnable aktion) {
+        TransactionContext context = currentTransaction.get();
+
+        if (context != null) {
+            context.addNachAbschluss(aktion);
+        } else {
+            aktion.run();
+        }
+    }
+
+    /**
+     * Prüft, ob eine Exception auf einen vorübergehenden Sperrkonflikt zurückgeht
+     * (Deadlock 1213 bzw. SQLState 40001, Lock-Wait-Timeout 1205), auch als Ursache.
+     */
+    public static boolean istVoruebergehend(Throwable fehler) {
+        for (Throwable t = fehler; t != null; t = t.getCause()) {
+            if (t instanceof DatenbankTimeoutException) {
+                return false; // Frist abgelaufen, eine Wiederholung käme zu spät
+            }
+            if (t instanceof SQLException) {
+                SQLException sqlEx = (SQLException) t;
+                if (ExceptionUtils.isVoruebergehend(sqlEx)) {
+                    return true;
+                }
+            } else if (t instanceof DatabaseException) {
+                DatabaseException dbEx = (DatabaseException) t;
+                if (ExceptionUtils.isVoruebergehend(dbEx.getDatabaseErrorCode(), dbEx.getSqlState())) {
+                    return true;
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Zähler der Wiederholungen wegen Deadlock/Lock-Timeout.
+     */
+    public static RetryStatistik getRetryStatistik() {
+        return RETRY_STATISTIK;
+    }
+
+    /**
+     * Zähler der abgeschlossenen Haupt- und Lesetransaktionen.
+     */
+    public static TransaktionsStatistik getTransaktionsStatistik() {
+        return TRANSAKTIONS_STATISTIK;
+    }
+
     /**
      * Gibt die aktuelle Connection zurück (für Repository-Operationen).
      */
@@ -171,14 +585,8 @@ public class TransactionManager {
         if (context != null) {
             return context.getConnection();
         } else {
-            // Keine aktive Transaktion - neue Connection öffnen
-            try {
-                Connection connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                connection.setAutoCommit(true); // Implizite Transaktionen
-                return connection;
-            } catch (SQLException e) {
-                throw ExceptionUtils.wrapSQLException(e, "Verbindungsaufbau");
-            }
+            // Keine aktive Transaktion - Connection (Auto-Commit) über DBConnector
+            return DBConnector.getConnection();
         }
     }
 
@@ -191,42 +599,177 @@ public class TransactionManager {
 
     /**
      * TransactionContext Klasse für Transaktionszustand.
+     * Jeder verschachtelte Aufruf legt eine Ebene auf den Stack (mit Savepoint nur bei NESTED).
+     * Die Operation erhält einen Stellvertreter der Verbindung; die echte Verbindung wird erst
+     * beim ersten Zugriff geholt, Transaktionen ohne Datenbankzugriff belegen keine.
      */
     private static class TransactionContext {
+        private final Verbinder verbinder;
         private final Connection connection;
-        private final Stack<Savepoint> savepoints = new Stack<>();
-        private final boolean isRootTransaction;
-
-        public TransactionContext(Connection connection) {
-            this.connection = connection;
-            this.isRootTransaction = true;
+        private final Deque<Ebene> ebenen = new ArrayDeque<>();
+        private final List<Runnable> nachAbschluss = new ArrayList<>();
+        private Connection gebunden;
+        private boolean beendet;
+        private boolean rollbackOnly;
+
+        public TransactionContext(Verbinder verbinder) {
+            this.verbinder = verbinder;
+            this.connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new VerzoegerteVerbindung());
         }
 
+        /**
+         * Stellvertreter der Verbindung (für Operation und Repositories).
+         */
         public Connection getConnection() {
             return connection;
         }
 
-        public void pushSavepoint(Savepoint savepoint) {
-            savepoints.push(savepoint);
+        public boolean isGebunden() {
+            return gebunden != null;
+        }
+
+        /**
+         * Die echte Verbindung, null solange noch keine Anweisung ausgeführt wurde.
+         */
+        public Connection getGebundeneVerbindung() {
+            return gebunden;
+        }
+
+        private Connection binde() throws SQLException {
+            if (gebunden == null) {
+                if (beendet) {
+                    throw new SQLException("Transaktion ist bereits beendet");
+                }
+                try {
+                    gebunden = verbinder.verbinde();
+                } catch (DatabaseException e) {
+                    throw new SQLException(e.getMessage(), e.getSqlState(), e.getDatabaseErrorCode(), e);
+                }
+            }
+            return gebunden;
+        }
+
+        /**
+         * Beendet den Kontext und liefert die gebundene Verbindung zum Schließen (oder null).
+         */
+        public Connection beende() {
+            beendet = true;
+            Connection ergebnis = gebunden;
+            gebunden = null;
+            TRANSAKTIONS_STATISTIK.beendet(ergebnis != null);
+            return ergebnis;
+        }
+
+        public void pushEbene(Ebene ebene) {
+            ebenen.push(ebene);
         }
 
-        public Savepoint popSavepoint() {
-            return savepoints.isEmpty() ? null : savepoints.pop();
+        public Ebene getAktuelleEbene() {
+            return ebenen.peek();
         }
 
-        public Savepoint peekSavepoint() {
-            return savepoints.isEmpty() ? null : savepoints.peek();
+        /**
+         * Entfernt die oberste Ebene, sofern es die angegebene ist.
+         */
+        public boolean entferneEbene(Ebene ebene) {
+            if (ebenen.peek() != ebene) {
+                return false;
+            }
+            ebenen.pop();
+            return true;
+        }
+
+        /**
+         * Markiert die nächste umgebende NESTED-Ebene, sonst die Haupttransaktion als rollback-only.
+         */
+        public void markiereRollbackOnly() {
+            for (Ebene ebene : ebenen) {
+                if (ebene.propagation == Propagation.NESTED) {
+                    ebene.rollbackOnly = true;
+                    return;
+                }
+            }
+            rollbackOnly = true;
+        }
+
+        public boolean isRollbackOnly() {
+            return rollbackOnly;
         }
 
         public boolean isRootTransaction() {
-            return isRootTransaction && savepoints.isEmpty();
+            return ebenen.isEmpty();
+        }
+
+        public void addNachAbschluss(Runnable aktion) {
+            nachAbschluss.add(aktion);
+        }
+
+        public List<Runnable> getNachAbschluss() {
+            return nachAbschluss;
+        }
+
+        /**
+         * Bindet die Verbindung beim ersten Methodenaufruf. close() ist während der gesamten
+         * Transaktion wirkungslos: die Verbindung gehört dem TransactionManager und wird nur
+         * von ihm nach Commit bzw. Rollback zurückgegeben.
+         */
+        private final class VerzoegerteVerbindung implements InvocationHandler {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "toString":
+                        return "Transaktionsverbindung[" + (gebunden != null ? gebunden : "nicht gebunden") + "]";
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "close":
+                        return null;
+                    case "isClosed":
+                        if (beendet || gebunden == null) {
+                            return beendet;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+
+                Connection ziel = binde();
+                try {
+                    return method.invoke(ziel, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
         }
+    }
 
-        public int getSavepointLevel() {
-            return savepoints.size();
+    /**
+     * Eine verschachtelte Ebene innerhalb einer Transaktion.
+     */
+    private static final class Ebene {
+        private final Propagation propagation;
+        private final Savepoint savepoint;
+        private boolean rollbackOnly;
+
+        Ebene(Propagation propagation, Savepoint savepoint) {
+            this.propagation = propagation;
+            this.savepoint = savepoint;
         }
     }
 
+    @FunctionalInterface
+    private interface Verbinder {
+        Connection verbinde() throws SQLException, DatabaseException;
+    }
+
+    @FunctionalInterface
+    private interface SqlAktion<T> {
+        T ausfuehren() throws SQLException;
+    }
+
     /**
      * Functional Interface für transaktionale Operationen.
      */
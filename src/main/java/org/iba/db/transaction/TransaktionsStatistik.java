@@ -0,0 +1,50 @@
+package org.iba.db.transaction;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Zähler der abgeschlossenen Transaktionen (siehe TransactionManager.getTransaktionsStatistik()).
+ */
+public final class TransaktionsStatistik {
+
+    private final LongAdder transaktionen = new LongAdder();
+    private final LongAdder ohneDatenbank = new LongAdder();
+
+    TransaktionsStatistik() {
+    }
+
+    void beendet(boolean mitVerbindung) {
+        transaktionen.increment();
+        if (!mitVerbindung) {
+            ohneDatenbank.increment();
+        }
+    }
+
+    /**
+     * Abgeschlossene Haupt- und Lesetransaktionen (verschachtelte Aufrufe zählen nicht).
+     */
+    public long getTransaktionen() {
+        return transaktionen.sum();
+    }
+
+    /**
+     * Transaktionen, die ohne eine einzige Anweisung endeten und daher keine Verbindung belegten
+     * (z.B. Abbruch bei der Validierung oder nur Cache-Treffer).
+     */
+    public long getOhneDatenbank() {
+        return ohneDatenbank.sum();
+    }
+
+    public void zuruecksetzen() {
+        transaktionen.reset();
+        ohneDatenbank.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "TransaktionsStatistik{" +
+                "transaktionen=" + getTransaktionen() +
+                ", ohneDatenbank=" + getOhneDatenbank() +
+                '}';
+    }
+}
@@ -0,0 +1,29 @@
+package org.iba.exception;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wird geworfen, wenn beim Transfer von Bäumen einzelne Bäume nicht existieren
+ * oder nicht zur Quell-Parzelle gehören. Enthält die betroffenen Baum-IDs.
+ */
+public class BaumTransferException extends BusinessException {
+
+    private final int vonParzelleId;
+    private final List<Integer> fehlerhafteBaumIds;
+
+    public BaumTransferException(int vonParzelleId, List<Integer> fehlerhafteBaumIds) {
+        super(String.format("Bäume %s gehören nicht zur Parzelle %d oder existieren nicht",
+                fehlerhafteBaumIds, vonParzelleId));
+        this.vonParzelleId = vonParzelleId;
+        this.fehlerhafteBaumIds = Collections.unmodifiableList(fehlerhafteBaumIds);
+    }
+
+    public int getVonParzelleId() {
+        return vonParzelleId;
+    }
+
+    public List<Integer> getFehlerhafteBaumIds() {
+        return fehlerhafteBaumIds;
+    }
+}
@@ -27,6 +27,12 @@ public class DatabaseException extends IbaException {
         this.errorCode = errorCode;
     }
 
+    protected DatabaseException(ErrorCode code, String message, String sqlState, int errorCode, Throwable cause) {
+        super(code, message, cause);
+        this.sqlState = sqlState;
+        this.errorCode = errorCode;
+    }
+
     public String getSqlState() {
         return sqlState;
     }
@@ -0,0 +1,17 @@
+package org.iba.exception;
+
+/**
+ * Wird geworfen, wenn eine Datenbankoperation ihre Frist überschreitet (Query-Timeout,
+ * Warten auf Verbindung oder Sperre, abgelaufene Transaktions-Frist).
+ * Eine laufende Transaktion ist beim Werfen bereits zurückgerollt.
+ */
+public class DatenbankTimeoutException extends DatabaseException {
+
+    public DatenbankTimeoutException(String message) {
+        super(ErrorCode.DATABASE_TIMEOUT, message, "HYT00", -1, null);
+    }
+
+    public DatenbankTimeoutException(String message, String sqlState, int errorCode, Throwable cause) {
+        super(ErrorCode.DATABASE_TIMEOUT, message, sqlState, errorCode, cause);
+    }
+}
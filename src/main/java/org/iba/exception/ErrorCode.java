@@ -14,6 +14,7 @@ public enum ErrorCode {
     DATABASE_CONNECTION_ERROR("ERR-1002", "Datenbankverbindungsfehler"),
     DATABASE_QUERY_ERROR("ERR-1003", "Datenbankabfragefehler"),
     DATABASE_CONSTRAINT_VIOLATION("ERR-1004", "Datenbank-Constraint-Verletzung"),
+    DATABASE_TIMEOUT("ERR-1005", "Zeitüberschreitung bei Datenbankoperation"),
 
     // Validierungsfehler
     VALIDATION_ERROR("ERR-2001", "Validierungsfehler"),
@@ -13,4 +13,8 @@ public class SensorFehlerException extends IbaException {
     public SensorFehlerException(String message, Throwable cause) {
         super(ErrorCode.SENSOR_ERROR, message, cause);
     }
+
+    public SensorFehlerException(ErrorCode errorCode, String message) {
+        super(errorCode, message);
+    }
 }
\ No newline at end of file
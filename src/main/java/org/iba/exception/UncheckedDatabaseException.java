@@ -0,0 +1,18 @@
+package org.iba.exception;
+
+/**
+ * Ungeprüfte Hülle für eine DatabaseException.
+ * Wird dort verwendet, wo funktionale Schnittstellen keine geprüften Exceptions erlauben
+ * (z.B. beim Lesen aus einem Stream von Datenbankzeilen).
+ */
+public class UncheckedDatabaseException extends RuntimeException {
+
+    public UncheckedDatabaseException(DatabaseException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized DatabaseException getCause() {
+        return (DatabaseException) super.getCause();
+    }
+}
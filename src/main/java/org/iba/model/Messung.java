@@ -0,0 +1,53 @@
+package org.iba.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Eine einzelne Messung einer Parzelle zu einem bestimmten Zeitpunkt.
+ * Wird für die Batch-Erfassung von Messwerten (z.B. von Gateways) verwendet
+ * und entspricht einer Zeile der SQL-Tabelle 'messwerte'.
+ */
+public class Messung {
+
+    private final int parzelleId;
+    private final Messwerte messwerte;
+    private final LocalDateTime zeitstempel;
+
+    /**
+     * @param parzelleId Die Parzelle, zu der die Messung gehört.
+     * @param messwerte Die gemessenen Werte (Temperatur, Niederschlag).
+     * @param zeitstempel Zeitpunkt der Messung; null bedeutet "jetzt".
+     * @throws IllegalArgumentException wenn keine Messwerte angegeben sind.
+     */
+    public Messung(int parzelleId, Messwerte messwerte, LocalDateTime zeitstempel) {
+        if (messwerte == null) {
+            throw new IllegalArgumentException("Messwerte dürfen nicht null sein.");
+        }
+
+        this.parzelleId = parzelleId;
+        this.messwerte = messwerte;
+        this.zeitstempel = zeitstempel != null ? zeitstempel : LocalDateTime.now();
+    }
+
+    public int getParzelleId() {
+        return parzelleId;
+    }
+
+    public Messwerte getMesswerte() {
+        return messwerte;
+    }
+
+    public LocalDateTime getZeitstempel() {
+        return zeitstempel;
+    }
+
+    @Override
+    public String toString() {
+        return "Messung{" +
+                "parzelleId=" + parzelleId +
+                ", temperatur=" + messwerte.getTemperatur() + "°C" +
+                ", niederschlag=" + messwerte.getNiederschlag() + "mm" +
+                ", zeitstempel=" + zeitstempel +
+                '}';
+    }
+}
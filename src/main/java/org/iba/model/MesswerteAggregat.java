@@ -0,0 +1,75 @@
+package org.iba.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Verdichtete Messwerte einer Parzelle für einen Zeitraum (Stunde oder Tag).
+ * Entspricht einer Zeile der SQL-Tabellen 'messwerte_stuendlich' bzw. 'messwerte_taeglich'.
+ */
+public class MesswerteAggregat {
+
+    private final int parzelleId;
+    private final LocalDateTime periodeBeginn;
+    private final double temperaturMin;
+    private final double temperaturMax;
+    private final double temperaturDurchschnitt;
+    private final double niederschlagSumme;
+    private final int anzahl;
+
+    /**
+     * @param parzelleId Die Parzelle, zu der die Werte gehören.
+     * @param periodeBeginn Beginn der Stunde bzw. des Tages.
+     * @param anzahl Anzahl der verdichteten Messungen.
+     */
+    public MesswerteAggregat(int parzelleId, LocalDateTime periodeBeginn, double temperaturMin,
+                             double temperaturMax, double temperaturDurchschnitt,
+                             double niederschlagSumme, int anzahl) {
+        this.parzelleId = parzelleId;
+        this.periodeBeginn = periodeBeginn;
+        this.temperaturMin = temperaturMin;
+        this.temperaturMax = temperaturMax;
+        this.temperaturDurchschnitt = temperaturDurchschnitt;
+        this.niederschlagSumme = niederschlagSumme;
+        this.anzahl = anzahl;
+    }
+
+    public int getParzelleId() {
+        return parzelleId;
+    }
+
+    public LocalDateTime getPeriodeBeginn() {
+        return periodeBeginn;
+    }
+
+    public double getTemperaturMin() {
+        return temperaturMin;
+    }
+
+    public double getTemperaturMax() {
+        return temperaturMax;
+    }
+
+    public double getTemperaturDurchschnitt() {
+        return temperaturDurchschnitt;
+    }
+
+    public double getNiederschlagSumme() {
+        return niederschlagSumme;
+    }
+
+    public int getAnzahl() {
+        return anzahl;
+    }
+
+    @Override
+    public String toString() {
+        return "MesswerteAggregat{" +
+                "parzelleId=" + parzelleId +
+                ", periodeBeginn=" + periodeBeginn +
+                ", temperatur=" + temperaturMin + ".." + temperaturMax + "°C" +
+                " (Ø " + String.format("%.1f", temperaturDurchschnitt) + "°C)" +
+                ", niederschlag=" + niederschlagSumme + "mm" +
+                ", anzahl=" + anzahl +
+                '}';
+    }
+}
@@ -1,6 +1,8 @@
 package org.iba.sensor;
 
+import org.iba.exception.ErrorCode;
 import org.iba.exception.SensorFehlerException;
+import org.iba.util.Frist;
 
 import java.util.Random;
 
@@ -21,20 +23,25 @@ public class BodenfeuchteSensor implements Sensor {
      * durch eine externe API-Abfrage.
      *
      * @return Simulierte Bodenfeuchte als double.
-     * @throws SensorFehlerException Wird geworfen, wenn eine Zeitüberschreitung,
-     * ein Verbindungsfehler oder ein ungültiger Wert auftritt.
+     * @throws SensorFehlerException Wird geworfen, wenn eine Zeitüberschreitung (auch der Frist
+     * des Aufrufers, siehe Frist), ein Verbindungsfehler oder ein ungültiger Wert auftritt.
      */
     @Override
     public double messWertLesen() throws SensorFehlerException {
-        // [1] Netzwerk-Latenz simulieren
+        // [1] Netzwerk-Latenz simulieren (höchstens bis zum Ablauf einer Frist des Aufrufers)
+        long wartezeit = Frist.begrenze(SIMULIERTE_LATENZ_MS);
         try {
             System.out.println("[Sensor] Simuliere externe Datenabfrage...");
-            Thread.sleep(SIMULIERTE_LATENZ_MS);
+            Thread.sleep(wartezeit);
         } catch (InterruptedException e) {
             // Wird selten geworfen, behandelt aber den Fall, wenn der Thread unterbrochen wird.
             Thread.currentThread().interrupt();
             throw new SensorFehlerException("Simulierter API-Aufruf unterbrochen.", e);
         }
+        if (wartezeit < SIMULIERTE_LATENZ_MS) {
+            throw new SensorFehlerException(ErrorCode.SENSOR_TIMEOUT,
+                    "API-Verbindung: Frist von " + Frist.aktuelle().getTimeoutMs() + " ms überschritten.");
+        }
 
         // [2] Realistische Fehlerbedingungen simulieren (15% der Fälle)
         if (RANDOM.nextDouble() < REALISTISCHE_FEHLERQUOTE) {
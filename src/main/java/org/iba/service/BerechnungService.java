@@ -6,6 +6,7 @@ import org.iba.db.ParzelleRepository;
 import org.iba.model.Baum;
 import org.iba.model.Messwerte;
 import org.iba.model.Parzelle;
+import org.iba.util.IntMap;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -42,10 +43,16 @@ public class BerechnungService {
                 return ergebnisse;
             }
 
-            // 2. Für jede Parzelle berechnen
+            // 2. Letzte Messwerte aller Parzellen gesammelt laden
+            List<Integer> parzelleIds = alleParzellen.stream()
+                    .map(Parzelle::getParzelleId)
+                    .collect(Collectors.toList());
+            IntMap<Messwerte> letzteMessungen = messwerteRepository.findeLetzteMessungen(parzelleIds);
+
+            // 3. Für jede Parzelle berechnen
             for (Parzelle parzelle : alleParzellen) {
                 try {
-                    double bedarf = berechneFuerParzelle(parzelle);
+                    double bedarf = berechneFuerParzelle(parzelle, letzteMessungen.get(parzelle.getParzelleId()));
                     ergebnisse.put(parzelle.getName(), bedarf);
                 } catch (Exception e) {
                     System.err.println("Fehler bei Parzelle " + parzelle.getName() + ": " + e.getMessage());
@@ -64,10 +71,9 @@ public class BerechnungService {
     /**
      * Berechnung für einzelne Parzelle.
      */
-    private double berechneFuerParzelle(Parzelle parzelle) {
+    private double berechneFuerParzelle(Parzelle parzelle, Messwerte messwerte) {
         try {
-            // 1. Messwerte laden
-            Messwerte messwerte = messwerteRepository.findeLetzteMessung(parzelle.getParzelleId());
+            // 1. Messwerte prüfen
             if (messwerte == null) {
                 System.out.println("Keine Messwerte für " + parzelle.getName());
                 return 0.0;
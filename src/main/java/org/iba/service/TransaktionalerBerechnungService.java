@@ -3,10 +3,12 @@ package org.iba.service;
 import org.iba.db.BaumRepository;
 import org.iba.db.MesswerteRepository;
 import org.iba.db.ParzelleRepository;
+import org.iba.db.transaction.TransactionManager;
 import org.iba.exception.*;
 import org.iba.model.Baum;
 import org.iba.model.Messwerte;
 import org.iba.model.Parzelle;
+import org.iba.util.IntMap;
 
 import java.util.*;
 
@@ -50,16 +52,36 @@ public class TransaktionalerBerechnungService {
 
     /**
      * Berechnet und speichert Bewässerungsempfehlungen für alle Parzellen.
+     * Gelesen wird in einer Lesetransaktion mit konsistentem Snapshot. Letzte Messwerte
+     * werden gesammelt geladen, die Bäume in einem einzigen Durchlauf
+     * parzellenweise verarbeitet (konstante Anzahl Abfragen statt zwei Abfragen pro Parzelle,
+     * ohne alle Bäume gleichzeitig im Speicher zu halten).
      */
     public Map<Integer, Double> berechneUndSpeichereFuerAlleParzellen() throws BusinessException {
         Map<Integer, Double> empfehlungen = new HashMap<>();
 
         try {
-            List<Parzelle> parzellen = parzelleRepository.findAlle();
+            // Parzellen, Messwerte und Bäume aus demselben Snapshot lesen
+            List<Parzelle> parzellen = new ArrayList<>();
+            IntMap<Double> bedarfProParzelle = TransactionManager.executeReadOnly(connection -> {
+                parzellen.addAll(parzelleRepository.findAlle());
+
+                List<Integer> parzelleIds = new ArrayList<>(parzellen.size());
+                for (Parzelle parzelle : parzellen) {
+                    parzelleIds.add(parzelle.getParzelleId());
+                }
+                IntMap<Messwerte> letzteMessungen = messwerteRepository.findeLetzteMessungen(parzelleIds);
+
+                // Parzellen ohne Bäume tauchen hier nicht auf und haben Bedarf 0
+                IntMap<Double> bedarf = new IntMap<>(parzellen.size());
+                baumRepository.fuerJedeParzelle((parzelleId, baeume) ->
+                        bedarf.put(parzelleId, berechneWasserbedarf(baeume, letzteMessungen.get(parzelleId))));
+                return bedarf;
+            });
 
             for (Parzelle parzelle : parzellen) {
                 try {
-                    double wasserbedarf = berechneWasserbedarfFuerParzelle(parzelle.getParzelleId());
+                    double wasserbedarf = bedarfProParzelle.getOrDefault(parzelle.getParzelleId(), 0.0);
 
                     // Speichere die Empfehlung (könnte auch transaktional sein)
                     speichereBewaesserungsEmpfehlung(parzelle.getParzelleId(), wasserbedarf);
@@ -196,24 +218,8 @@ public class TransaktionalerBerechnungService {
                 return 0.0;
             }
 
-            // 2. Messwerte laden
-            Messwerte messwerte = messwerteRepository.findeLetzteMessung(parzelleId);
-            if (messwerte == null) {
-                // Fallback: Standardwerte
-                messwerte = new Messwerte(20.0, 0.0);
-            }
-
-            // 3. Berechnung (vereinfacht)
-            double basisBedarf = baeume.stream()
-                    .mapToDouble(Baum::getBasisBedarf)
-                    .sum();
-
-            double temperaturFaktor = Math.max(0.5, (messwerte.getTemperatur() - 25.0) / 50.0 + 1.0);
-            double niederschlagFaktor = messwerte.getNiederschlag() > 5.0 ? 0.5 :
-                    messwerte.getNiederschlag() > 1.0 ? 0.8 : 1.0;
-
-            double bedarf = basisBedarf * temperaturFaktor * niederschlagFaktor;
-            return Math.min(Math.max(0.0, bedarf), basisBedarf * 2.0);
+            // 2. Messwerte laden und berechnen
+            return berechneWasserbedarf(baeume, messwerteRepository.findeLetzteMessung(parzelleId));
 
         } catch (Exception e) {
             System.err.println("Fehler bei Berechnung für Parzelle " + parzelleId +
@@ -222,6 +228,32 @@ public class TransaktionalerBerechnungService {
         }
     }
 
+    /**
+     * Berechnet den Wasserbedarf aus bereits geladenen Bäumen und Messwerten.
+     */
+    private double berechneWasserbedarf(List<Baum> baeume, Messwerte messwerte) {
+        if (baeume.isEmpty()) {
+            return 0.0;
+        }
+
+        if (messwerte == null) {
+            // Fallback: Standardwerte
+            messwerte = new Messwerte(20.0, 0.0);
+        }
+
+        // Berechnung (vereinfacht)
+        double basisBedarf = baeume.stream()
+                .mapToDouble(Baum::getBasisBedarf)
+                .sum();
+
+        double temperaturFaktor = Math.max(0.5, (messwerte.getTemperatur() - 25.0) / 50.0 + 1.0);
+        double niederschlagFaktor = messwerte.getNiederschlag() > 5.0 ? 0.5 :
+                messwerte.getNiederschlag() > 1.0 ? 0.8 : 1.0;
+
+        double bedarf = basisBedarf * temperaturFaktor * niederschlagFaktor;
+        return Math.min(Math.max(0.0, bedarf), basisBedarf * 2.0);
+    }
+
     /**
      * Speichert eine Bewässerungsempfehlung.
      */
@@ -1,9 +1,11 @@
 package org.iba.util;
 
 import org.iba.exception.DatabaseException;
+import org.iba.exception.DatenbankTimeoutException;
 import org.iba.exception.IbaException;
 
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 
 /**
  * Utility-Klasse für Exception-Transformation und -Handling.
@@ -15,18 +17,55 @@ public class ExceptionUtils {
     }
 
     /**
-     * Wandelt eine SQLException in eine DatabaseException um.
+     * Wandelt eine SQLException in eine DatabaseException um
+     * (Zeitüberschreitungen in eine DatenbankTimeoutException).
      */
     public static DatabaseException wrapSQLException(SQLException sqlEx, String operation) {
+        String message = String.format("Fehler bei Datenbankoperation '%s': %s",
+                operation, sqlEx.getMessage());
+
+        if (isTimeout(sqlEx)) {
+            return new DatenbankTimeoutException(message, sqlEx.getSQLState(), sqlEx.getErrorCode(), sqlEx);
+        }
         return new DatabaseException(
-                String.format("Fehler bei Datenbankoperation '%s': %s",
-                        operation, sqlEx.getMessage()),
+                message,
                 sqlEx.getSQLState(),
                 sqlEx.getErrorCode(),
                 sqlEx
         );
     }
 
+    /**
+     * Überprüft, ob es sich um eine Zeitüberschreitung handelt (Query-Timeout,
+     * MySQL max_execution_time). Ein abgebrochenes Statement (HY008/1317) zählt nur dazu,
+     * wenn die Frist des aktuellen Threads abgelaufen ist, also der per setQueryTimeout
+     * gesetzte Timeout gegriffen hat. Andere Fehler bleiben, was sie sind, auch nach Ablauf
+     * der Frist. Lock-Wait-Timeouts (1205) zählen nicht dazu, sie werden wiederholt.
+     */
+    public static boolean isTimeout(SQLException sqlEx) {
+        return sqlEx instanceof SQLTimeoutException ||
+                sqlEx.getErrorCode() == 3024 || // Query execution was interrupted, max_execution_time exceeded
+                (isAbgebrochen(sqlEx) && Frist.istAbgelaufen());
+    }
+
+    private static boolean isAbgebrochen(SQLException sqlEx) {
+        return sqlEx.getErrorCode() == 1317 || // Query execution was interrupted
+                "HY008".equals(sqlEx.getSQLState()); // Operation canceled
+    }
+
+    /**
+     * Überprüft, ob es sich um einen vorübergehenden Sperrkonflikt handelt (Deadlock 1213
+     * bzw. SQLState 40001, Lock-Wait-Timeout 1205). Nach einem Deadlock hat MySQL die
+     * Transaktion bereits zurückgerollt; nur die Wiederholung der ganzen Transaktion hilft.
+     */
+    public static boolean isVoruebergehend(SQLException sqlEx) {
+        return isVoruebergehend(sqlEx.getErrorCode(), sqlEx.getSQLState());
+    }
+
+    public static boolean isVoruebergehend(int errorCode, String sqlState) {
+        return errorCode == 1213 || errorCode == 1205 || "40001".equals(sqlState);
+    }
+
     /**
      * Überprüft, ob es sich um einen Constraint-Violation-Fehler handelt.
      */
@@ -0,0 +1,130 @@
+package org.iba.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frist (Deadline) des aktuellen Threads für Transaktionen und einzelne Aufrufe.
+ * Datenbank- und Sensorzugriffe begrenzen ihre Wartezeiten auf die Restzeit:
+ * Statement.setQueryTimeout, Warten auf eine Pool-Verbindung oder Sperre, Sensor-Abfragen.
+ * Verschachtelte Fristen können die äußere nur verkürzen, nie verlängern.
+ */
+public final class Frist {
+
+    private static final ThreadLocal<Frist> AKTUELL = new ThreadLocal<>();
+
+    private final long timeoutMs;
+    private final long endeNanos;
+
+    private Frist(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        this.endeNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * Führt die Aufgabe mit einer Frist von timeoutMs Millisekunden aus (gilt auch für
+     * alle darin gestarteten Transaktionen und Abfragen dieses Threads).
+     */
+    public static <T, E extends Exception> T innerhalb(long timeoutMs, Aufgabe<T, E> aufgabe) throws E {
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("Frist muss größer als 0 sein: " + timeoutMs);
+        }
+
+        Frist vorherige = AKTUELL.get();
+        Frist neue = new Frist(timeoutMs);
+        if (vorherige != null && vorherige.endeNanos - neue.endeNanos <= 0) {
+            return aufgabe.ausfuehren(); // Äußere Frist endet früher
+        }
+
+        AKTUELL.set(neue);
+        try {
+            return aufgabe.ausfuehren();
+        } finally {
+            if (vorherige == null) {
+                AKTUELL.remove();
+            } else {
+                AKTUELL.set(vorherige);
+            }
+        }
+    }
+
+    /**
+     * Führt die Aufgabe unter einer bereits bestehenden Frist aus (z.B. in einem anderen Thread).
+     * Ohne Frist (null) läuft sie unbegrenzt.
+     */
+    public static <T, E extends Exception> T unter(Frist frist, Aufgabe<T, E> aufgabe) throws E {
+        Frist vorherige = AKTUELL.get();
+        if (frist == null || frist == vorherige) {
+            return aufgabe.ausfuehren();
+        }
+
+        AKTUELL.set(frist);
+        try {
+            return aufgabe.ausfuehren();
+        } finally {
+            if (vorherige == null) {
+                AKTUELL.remove();
+            } else {
+                AKTUELL.set(vorherige);
+            }
+        }
+    }
+
+    /**
+     * Frist des aktuellen Threads oder null.
+     */
+    public static Frist aktuelle() {
+        return AKTUELL.get();
+    }
+
+    /**
+     * Prüft, ob die Frist des aktuellen Threads abgelaufen ist (ohne Frist: false).
+     */
+    public static boolean istAbgelaufen() {
+        Frist frist = AKTUELL.get();
+        return frist != null && frist.isAbgelaufen();
+    }
+
+    /**
+     * Begrenzt eine Wartezeit auf die Restzeit der aktuellen Frist (mindestens 0).
+     */
+    public static long begrenze(long wartezeitMs) {
+        Frist frist = AKTUELL.get();
+        return frist == null ? wartezeitMs : Math.min(wartezeitMs, frist.getRestMs());
+    }
+
+    /**
+     * Query-Timeout in Sekunden für Statement.setQueryTimeout (aufgerundet, 0 = ohne Frist).
+     */
+    public static int abfrageTimeoutSekunden() {
+        Frist frist = AKTUELL.get();
+        if (frist == null) {
+            return 0;
+        }
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (frist.getRestMs() + 999) / 1000));
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public long getRestMs() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(endeNanos - System.nanoTime()));
+    }
+
+    public boolean isAbgelaufen() {
+        return endeNanos - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Frist{timeout=" + timeoutMs + "ms, rest=" + getRestMs() + "ms}";
+    }
+
+    /**
+     * Aufgabe, die unter einer Frist ausgeführt wird.
+     */
+    @FunctionalInterface
+    public interface Aufgabe<T, E extends Exception> {
+        T ausfuehren() throws E;
+    }
+}
@@ -0,0 +1,228 @@
+package org.iba.util;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Hash-Map mit primitiven int-Schlüsseln (offene Adressierung, lineares Sondieren).
+ * Vermeidet das Boxing von Integer-Schlüsseln und die Entry-Objekte einer HashMap,
+ * was bei Zehntausenden Parzellen oder Bäumen deutlich Speicher und GC-Last spart.
+ * Null-Werte sind nicht erlaubt (null bedeutet "kein Eintrag"). Nicht thread-sicher.
+ */
+public class IntMap<V> {
+
+    private static final int MINDEST_KAPAZITAET = 8;
+    private static final float LADEFAKTOR = 0.6f;
+
+    private int[] schluessel;
+    private Object[] werte;
+    private int anzahl;
+    private int grenze;
+
+    public IntMap() {
+        this(MINDEST_KAPAZITAET);
+    }
+
+    /**
+     * @param erwarteteGroesse Anzahl erwarteter Einträge (vermeidet Umkopieren).
+     */
+    public IntMap(int erwarteteGroesse) {
+        int kapazitaet = MINDEST_KAPAZITAET;
+        while (kapazitaet * LADEFAKTOR < erwarteteGroesse) {
+            kapazitaet <<= 1;
+        }
+        allokiere(kapazitaet);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int index = finde(key);
+        return index < 0 ? null : (V) werte[index];
+    }
+
+    public V getOrDefault(int key, V standard) {
+        V wert = get(key);
+        return wert != null ? wert : standard;
+    }
+
+    public boolean containsKey(int key) {
+        return finde(key) >= 0;
+    }
+
+    /**
+     * Setzt den Wert für einen Schlüssel.
+     * @return Der vorherige Wert oder null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntMap erlaubt keine null-Werte");
+        }
+
+        int maske = schluessel.length - 1;
+        int index = streue(key) & maske;
+
+        while (werte[index] != null) {
+            if (schluessel[index] == key) {
+                V alt = (V) werte[index];
+                werte[index] = value;
+                return alt;
+            }
+            index = (index + 1) & maske;
+        }
+
+        schluessel[index] = key;
+        werte[index] = value;
+        if (++anzahl > grenze) {
+            vergroessere();
+        }
+        return null;
+    }
+
+    /**
+     * Liefert den Wert oder legt ihn mit der Funktion an (z.B. zum Gruppieren).
+     */
+    public V computeIfAbsent(int key, IntFunction<V> erzeuger) {
+        V wert = get(key);
+        if (wert == null) {
+            wert = erzeuger.apply(key);
+            put(key, wert);
+        }
+        return wert;
+    }
+
+    /**
+     * Entfernt einen Eintrag.
+     * @return Der entfernte Wert oder null.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int index = finde(key);
+        if (index < 0) {
+            return null;
+        }
+
+        V alt = (V) werte[index];
+        schliesseLuecke(index);
+        anzahl--;
+        return alt;
+    }
+
+    public int size() {
+        return anzahl;
+    }
+
+    public boolean isEmpty() {
+        return anzahl == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(werte, null);
+        anzahl = 0;
+    }
+
+    /**
+     * Alle Schlüssel (unsortiert).
+     */
+    public int[] keys() {
+        int[] ergebnis = new int[anzahl];
+        int i = 0;
+        for (int index = 0; index < werte.length; index++) {
+            if (werte[index] != null) {
+                ergebnis[i++] = schluessel[index];
+            }
+        }
+        return ergebnis;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(IntObjConsumer<? super V> aktion) {
+        for (int index = 0; index < werte.length; index++) {
+            if (werte[index] != null) {
+                aktion.accept(schluessel[index], (V) werte[index]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(key).append('=').append(value);
+        });
+        return sb.append('}').toString();
+    }
+
+    // ========================================================================
+    // INTERNE METHODEN
+    // ========================================================================
+
+    private int finde(int key) {
+        int maske = schluessel.length - 1;
+        int index = streue(key) & maske;
+
+        while (werte[index] != null) {
+            if (schluessel[index] == key) {
+                return index;
+            }
+            index = (index + 1) & maske;
+        }
+        return -1;
+    }
+
+    /**
+     * Rückwärtsverschiebung nach dem Löschen, damit Sondierketten nicht abreißen.
+     */
+    private void schliesseLuecke(int luecke) {
+        int maske = schluessel.length - 1;
+        int index = (luecke + 1) & maske;
+
+        while (werte[index] != null) {
+            int ideal = streue(schluessel[index]) & maske;
+            // Eintrag darf in die Lücke, wenn die Lücke zwischen Idealposition und aktueller Position liegt
+            if (((index - ideal) & maske) >= ((index - luecke) & maske)) {
+                schluessel[luecke] = schluessel[index];
+                werte[luecke] = werte[index];
+                luecke = index;
+            }
+            index = (index + 1) & maske;
+        }
+        werte[luecke] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void vergroessere() {
+        int[] alteSchluessel = schluessel;
+        Object[] alteWerte = werte;
+
+        allokiere(schluessel.length << 1);
+        anzahl = 0;
+        for (int index = 0; index < alteWerte.length; index++) {
+            if (alteWerte[index] != null) {
+                put(alteSchluessel[index], (V) alteWerte[index]);
+            }
+        }
+    }
+
+    private void allokiere(int kapazitaet) {
+        schluessel = new int[kapazitaet];
+        werte = new Object[kapazitaet];
+        grenze = (int) (kapazitaet * LADEFAKTOR);
+    }
+
+    private static int streue(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Consumer für Schlüssel-Wert-Paare ohne Boxing des Schlüssels.
+     */
+    @FunctionalInterface
+    public interface IntObjConsumer<V> {
+        void accept(int key, V value);
+    }
+}
@@ -0,0 +1,59 @@
+package org.iba.Integrationstest;
+
+import org.iba.db.DBConnector;
+import org.iba.db.transaction.TransactionManager;
+import org.iba.exception.DatabaseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Testet das Lese-Routing auf Replikate gegen echte MySQL-Instanzen.
+ * Läuft nur mit gesetzter Replikat-Liste, z.B.
+ * -Diba.test.replicaUrls=jdbc:mysql://localhost:3307/IBA_Olive_TEST
+ */
+public class ReplikatRoutingTest {
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(!System.getProperty("iba.test.replicaUrls", "").isBlank(),
+                "Keine Replikate konfiguriert (iba.test.replicaUrls)");
+        DBConnector.setActiveProfile(DBConnector.Profile.TEST);
+    }
+
+    @AfterEach
+    void tearDown() {
+        DBConnector.shutdown();
+        DBConnector.setActiveProfile(DBConnector.Profile.DEVELOPMENT);
+    }
+
+    @Test
+    void testLesenGehtAnReplikat() throws DatabaseException, SQLException {
+        try (Connection conn = DBConnector.getReadConnection()) {
+            assertTrue(conn.isReadOnly(), "Lesezugriffe sollten an ein Replikat gehen.");
+        }
+    }
+
+    @Test
+    void testLesePrimaerUndTransaktionBleibenAufPrimaer() throws Exception {
+        boolean primaer = DBConnector.lesePrimaer(() -> {
+            try (Connection conn = DBConnector.getReadConnection()) {
+                return !conn.isReadOnly();
+            } catch (SQLException e) {
+                throw new DatabaseException("Verbindung nicht prüfbar", e);
+            }
+        });
+        assertTrue(primaer, "Innerhalb von lesePrimaer() sollte der Primärserver gelesen werden.");
+
+        TransactionManager.executeInTransaction(conn -> {
+            assertFalse(conn.isReadOnly(), "Transaktionen sollten auf dem Primärserver laufen.");
+            return null;
+        });
+    }
+}
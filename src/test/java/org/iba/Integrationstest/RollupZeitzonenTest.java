@@ -0,0 +1,98 @@
+package org.iba.Integrationstest;
+
+import org.iba.db.DBConnector;
+import org.iba.db.MesswerteRepository;
+import org.iba.db.ParzelleRepository;
+import org.iba.db.SchemaManager;
+import org.iba.model.Messung;
+import org.iba.model.Messwerte;
+import org.iba.model.MesswerteAggregat;
+import org.iba.model.Parzelle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Testet gegen MySQL (Profil TEST), dass inkrementell gepflegte und neu aufgebaute
+ * Stunden-/Tageswerte übereinstimmen, wenn die JVM nicht in UTC läuft (die Sitzung
+ * läuft in serverTimezone=UTC). Wird ohne erreichbare Datenbank übersprungen.
+ */
+public class RollupZeitzonenTest {
+
+    // +05:30: weder Stunden- noch Tagesgrenzen fallen mit UTC zusammen
+    private static final TimeZone JVM_ZEITZONE = TimeZone.getTimeZone("Asia/Kolkata");
+
+    private static final LocalDate TAG = LocalDate.of(2024, 3, 10);
+
+    private final ParzelleRepository parzelleRepository = new ParzelleRepository();
+    private final MesswerteRepository messwerteRepository = new MesswerteRepository();
+
+    private TimeZone vorherigeZeitzone;
+    private Parzelle parzelle;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        vorherigeZeitzone = TimeZone.getDefault();
+        // Vor dem Verbindungsaufbau: der Treiber rechnet mit der JVM-Zeitzone der Verbindung
+        TimeZone.setDefault(JVM_ZEITZONE);
+        DBConnector.setActiveProfile(DBConnector.Profile.TEST);
+        assumeTrue(DBConnector.testConnection(), "Keine MySQL-Datenbank für Profil TEST erreichbar");
+
+        new SchemaManager().migriere();
+        parzelle = parzelleRepository.speichere(
+                new Parzelle(0, "Zeitzone-" + System.nanoTime(), 0, 100.0, "Mediterran", 101));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try {
+            if (parzelle != null) {
+                parzelleRepository.loescheParzelleKomplett(parzelle.getParzelleId());
+            }
+        } finally {
+            DBConnector.shutdown();
+            DBConnector.setActiveProfile(DBConnector.Profile.DEVELOPMENT);
+            TimeZone.setDefault(vorherigeZeitzone);
+        }
+    }
+
+    @Test
+    void testInkrementellGleichNeuaufbau() throws Exception {
+        int id = parzelle.getParzelleId();
+        // 05:20/05:40 liegen in derselben JVM-Stunde, aber in verschiedenen UTC-Stunden und -Tagen
+        messwerteRepository.speichereBatch(List.of(
+                new Messung(id, new Messwerte(10.0, 0.0), TAG.atTime(5, 20)),
+                new Messung(id, new Messwerte(12.0, 1.0), TAG.atTime(5, 40)),
+                new Messung(id, new Messwerte(25.0, 0.0), TAG.atTime(14, 45)),
+                new Messung(id, new Messwerte(27.0, 0.5), TAG.atTime(14, 50))));
+
+        List<String> stuendlich = stundenwerte(id);
+        List<String> taeglich = tageswerte(id);
+        assertEquals(3, stuendlich.size(), stuendlich.toString());
+        assertEquals(2, taeglich.size(), taeglich.toString());
+
+        messwerteRepository.baueRollupsNeu(TAG.minusDays(2), TAG.plusDays(2));
+
+        assertEquals(stuendlich, stundenwerte(id));
+        assertEquals(taeglich, tageswerte(id));
+    }
+
+    private List<String> stundenwerte(int id) throws Exception {
+        LocalDateTime von = TAG.minusDays(2).atStartOfDay();
+        return messwerteRepository.findeStundenwerte(id, von, von.plusDays(5)).stream()
+                .map(MesswerteAggregat::toString).toList();
+    }
+
+    private List<String> tageswerte(int id) throws Exception {
+        return messwerteRepository.findeTageswerte(id, TAG.minusDays(2), TAG.plusDays(2)).stream()
+                .map(MesswerteAggregat::toString).toList();
+    }
+}
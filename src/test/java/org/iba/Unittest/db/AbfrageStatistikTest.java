@@ -0,0 +1,202 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.statistik.AbfrageStatistik;
+import org.iba.db.statistik.StatistikConfig;
+import org.iba.db.statistik.VorlagenStatistik;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für die Abfrage-Statistik (mit Attrappen statt MySQL).
+ */
+class AbfrageStatistikTest {
+
+    @BeforeEach
+    void setUp() {
+        AbfrageStatistik.konfiguriere(new StatistikConfig(true, 60_000, false));
+        AbfrageStatistik.zuruecksetzen();
+    }
+
+    @AfterEach
+    void tearDown() {
+        AbfrageStatistik.konfiguriere(null);
+        AbfrageStatistik.zuruecksetzen();
+    }
+
+    @Test
+    void testNormalisierungFasstLiteraleUndListenZusammen() {
+        assertEquals("SELECT * FROM baum WHERE parzelle_id = ? AND baum_id IN (?, ...)",
+                AbfrageStatistik.normalisiere("SELECT *\n  FROM baum WHERE parzelle_id = 42 AND baum_id IN (?, ?,?)"));
+        assertEquals("DELETE FROM messwerte_2024_06 WHERE name = ? LIMIT ?",
+                AbfrageStatistik.normalisiere("DELETE FROM messwerte_2024_06 WHERE name = 'O''Brien' LIMIT 10"));
+    }
+
+    @Test
+    void testAusfuehrungenZeilenUndFehlerProVorlage() throws Exception {
+        String sql = "UPDATE baum SET alter_jahre = ? WHERE baum_id = ?";
+        Connection verbindung = attrappe(Connection.class, Map.of());
+
+        PreparedStatement erfolgreich = AbfrageStatistik.messe(verbindung,
+                attrappe(PreparedStatement.class, Map.of("executeUpdate", args -> 3)), sql);
+        erfolgreich.setInt(1, 5);
+        erfolgreich.executeUpdate();
+        erfolgreich.executeUpdate();
+
+        PreparedStatement fehlerhaft = AbfrageStatistik.messe(verbindung,
+                attrappe(PreparedStatement.class, Map.of("executeUpdate", args -> {
+                    throw new SQLException("Deadlock found", "40001", 1213);
+                })), sql);
+        assertThrows(SQLException.class, fehlerhaft::executeUpdate);
+
+        VorlagenStatistik statistik = AbfrageStatistik.get(sql);
+        assertEquals(3, statistik.getAusfuehrungen());
+        assertEquals(1, statistik.getFehler());
+        assertEquals(6, statistik.getZeilen());
+    }
+
+    @Test
+    void testGeleseneZeilenWerdenGezaehlt() throws Exception {
+        String sql = "SELECT * FROM parzelle ORDER BY name";
+        PreparedStatement stmt = AbfrageStatistik.messe(attrappe(Connection.class, Map.of()),
+                attrappe(PreparedStatement.class, Map.of("executeQuery", args -> ergebnis(List.of("a", "b", "c")))),
+                sql);
+
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                assertNotNull(rs.getObject(1));
+            }
+        }
+
+        assertEquals(3, AbfrageStatistik.get(sql).getZeilen());
+    }
+
+    @Test
+    void testLatenzverteilungUndPerzentile() {
+        for (int i = 0; i < 98; i++) {
+            AbfrageStatistik.erfasse("COMMIT", TimeUnit.MICROSECONDS.toNanos(800), false);
+        }
+        AbfrageStatistik.erfasse("COMMIT", TimeUnit.MILLISECONDS.toNanos(40), false);
+        AbfrageStatistik.erfasse("COMMIT", TimeUnit.MILLISECONDS.toNanos(40), false);
+
+        VorlagenStatistik statistik = AbfrageStatistik.get("COMMIT");
+        assertEquals(1.0, statistik.getPerzentilMs(0.5));
+        assertEquals(50.0, statistik.getPerzentilMs(0.99));
+        assertEquals(40.0, statistik.getMaxMs(), 0.001);
+        assertEquals(100, statistik.getAusfuehrungen());
+    }
+
+    @Test
+    void testLangsameAbfrageWirdMitParameternUndExplainProtokolliert() throws Exception {
+        AbfrageStatistik.konfiguriere(new StatistikConfig(true, 0, true));
+        String sql = "SELECT * FROM baum WHERE parzelle_id = ?";
+        List<String> erklaert = new ArrayList<>();
+
+        Connection verbindung = attrappe(Connection.class, Map.of("prepareStatement", args -> {
+            // Überladung mit ResultSet-Typ: nicht über den Statement-Cache
+            assertEquals(3, args.length);
+            erklaert.add((String) args[0]);
+            return attrappe(PreparedStatement.class, Map.of("executeQuery", a -> plan()));
+        }));
+        PreparedStatement stmt = AbfrageStatistik.messe(verbindung,
+                attrappe(PreparedStatement.class, Map.of("executeQuery", args -> ergebnis(List.of("x")))), sql);
+
+        String protokoll = fangeSystemErr(() -> {
+            stmt.setInt(1, 7);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    // lesen
+                }
+            }
+            stmt.close();
+        });
+
+        assertEquals(List.of("EXPLAIN " + sql), erklaert);
+        assertTrue(protokoll.contains("1 Zeilen: " + sql), protokoll);
+        assertTrue(protokoll.contains("Parameter: [7]"), protokoll);
+        assertTrue(protokoll.contains("EXPLAIN: table=baum type=ref"), protokoll);
+    }
+
+    @Test
+    void testDeaktivierteStatistikLiefertStatementUnveraendert() {
+        AbfrageStatistik.konfiguriere(new StatistikConfig(false, 0, false));
+        PreparedStatement stmt = attrappe(PreparedStatement.class, Map.of());
+
+        assertSame(stmt, AbfrageStatistik.messe(attrappe(Connection.class, Map.of()), stmt, "SELECT 1"));
+        AbfrageStatistik.erfasse("COMMIT", 1_000, false);
+        assertNull(AbfrageStatistik.get("COMMIT"));
+    }
+
+    // ========================================================================
+    // ATTRAPPEN
+    // ========================================================================
+
+    @FunctionalInterface
+    private interface Antwort {
+        Object auf(Object[] args) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Ablauf {
+        void ausfuehren() throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T attrappe(Class<T> typ, Map<String, Antwort> antworten) {
+        return (T) Proxy.newProxyInstance(typ.getClassLoader(), new Class<?>[]{typ}, (proxy, method, args) -> {
+            Antwort antwort = antworten.get(method.getName());
+            if (antwort != null) {
+                return antwort.auf(args);
+            }
+            if (method.getReturnType() == boolean.class) {
+                return false;
+            }
+            return method.getReturnType() == int.class ? 0 : null;
+        });
+    }
+
+    private static ResultSet ergebnis(List<String> zeilen) {
+        int[] position = {-1};
+        return attrappe(ResultSet.class, Map.of(
+                "next", args -> ++position[0] < zeilen.size(),
+                "getObject", args -> zeilen.get(position[0])));
+    }
+
+    private static ResultSet plan() {
+        int[] position = {-1};
+        ResultSetMetaData meta = attrappe(ResultSetMetaData.class, Map.of(
+                "getColumnCount", args -> 2,
+                "getColumnLabel", args -> (Integer) args[0] == 1 ? "table" : "type"));
+        return attrappe(ResultSet.class, Map.of(
+                "next", args -> ++position[0] < 1,
+                "getMetaData", args -> meta,
+                "getObject", args -> (Integer) args[0] == 1 ? "baum" : "ref"));
+    }
+
+    private static String fangeSystemErr(Ablauf ablauf) throws Exception {
+        PrintStream original = System.err;
+        ByteArrayOutputStream puffer = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(puffer, true));
+        try {
+            ablauf.ausfuehren();
+        } finally {
+            System.setErr(original);
+        }
+        return puffer.toString();
+    }
+}
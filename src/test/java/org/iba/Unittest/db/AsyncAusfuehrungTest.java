@@ -0,0 +1,221 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.AsyncAusfuehrung;
+import org.iba.db.BaseRepository;
+import org.iba.db.DBConnector;
+import org.iba.db.MesswerteRepository;
+import org.iba.db.transaction.TransactionManager;
+import org.iba.exception.ValidationException;
+import org.iba.model.Messwerte;
+import org.iba.model.Parzelle;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für die asynchronen Repository-Aufrufe (ohne MySQL).
+ */
+class AsyncAusfuehrungTest extends InMemoryTestBasis {
+
+    @Test
+    void testFanOutUeberParzellenAufVirtuellenThreads() throws Exception {
+        MesswerteRepository messwerteRepository = new MesswerteRepository();
+
+        List<CompletableFuture<Void>> schreiben = new ArrayList<>();
+        List<Integer> parzelleIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Parzelle parzelle = parzelleRepository.speichere(new Parzelle(0, "P" + i, 0, 10.0, "mediterran", 1));
+            parzelleIds.add(parzelle.getParzelleId());
+            schreiben.add(messwerteRepository.speichereAsync(new Messwerte(i % 40, 0.0), parzelle.getParzelleId()));
+        }
+        CompletableFuture.allOf(schreiben.toArray(CompletableFuture<?>[]::new)).get(10, TimeUnit.SECONDS);
+
+        List<CompletableFuture<Messwerte>> lesen = new ArrayList<>();
+        for (int parzelleId : parzelleIds) {
+            lesen.add(messwerteRepository.findeLetzteMessungAsync(parzelleId));
+        }
+        for (int i = 0; i < lesen.size(); i++) {
+            assertEquals(i % 40, lesen.get(i).get(10, TimeUnit.SECONDS).getTemperatur());
+        }
+
+        assertTrue(AsyncAusfuehrung.starte(() -> Thread.currentThread().isVirtual()).get());
+    }
+
+    @Test
+    void testFehlerDesRepositorysSchliessenFutureAb() {
+        CompletableFuture<Void> future = new MesswerteRepository().speichereAsync(new Messwerte(20.0, 0.0), 999);
+
+        ExecutionException fehler = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(ValidationException.class, fehler.getCause());
+    }
+
+    @Test
+    void testGleichzeitigeAufrufeSindBegrenzt() throws Exception {
+        // DEVELOPMENT: async.maxParallel = 5 (ohne Verbindungsaufbau)
+        DBConnector.setActiveProfile(DBConnector.Profile.DEVELOPMENT);
+        int limit = DBConnector.getAsyncMaxParallel();
+        AtomicInteger laufend = new AtomicInteger();
+        AtomicInteger maximum = new AtomicInteger();
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(AsyncAusfuehrung.starte(() -> {
+                maximum.accumulateAndGet(laufend.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                laufend.decrementAndGet();
+                return 1;
+            }));
+        }
+        for (CompletableFuture<Integer> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(5, limit);
+        assertTrue(maximum.get() <= limit, "Maximal gleichzeitig: " + maximum.get());
+        assertTrue(maximum.get() > 1);
+    }
+
+    @Test
+    void testAbbruchUnterbrichtWartendenAufruf() throws Exception {
+        CountDownLatch gestartet = new CountDownLatch(1);
+        CountDownLatch unterbrochen = new CountDownLatch(1);
+
+        CompletableFuture<Void> future = AsyncAusfuehrung.starte(() -> {
+            gestartet.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                unterbrochen.countDown();
+            }
+            return null;
+        });
+        assertTrue(gestartet.await(10, TimeUnit.SECONDS));
+
+        assertTrue(future.cancel(false));
+        assertTrue(unterbrochen.await(10, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, future::join);
+    }
+
+    @Test
+    void testAbbruchWirdAnLaufendesStatementWeitergegeben() throws Exception {
+        LangsameAbfrage repository = new LangsameAbfrage();
+
+        CompletableFuture<Integer> future = repository.frageAb();
+        assertTrue(repository.ausgefuehrt.await(10, TimeUnit.SECONDS));
+
+        assertTrue(future.cancel(true));
+        assertTrue(repository.abgebrochen.await(10, TimeUnit.SECONDS));
+        assertTrue(repository.geschlossen.await(10, TimeUnit.SECONDS));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    void testVerbindungWirdErstNachDemAbbruchZurueckgegeben() throws Exception {
+        LangsameAbfrage repository = new LangsameAbfrage();
+        repository.abbruchDauerMs = 200;
+
+        CompletableFuture<Integer> future = repository.frageAb();
+        assertTrue(repository.ausgefuehrt.await(10, TimeUnit.SECONDS));
+
+        assertTrue(future.cancel(true));
+        assertTrue(repository.geschlossen.await(10, TimeUnit.SECONDS));
+        // Sonst könnte cancel() die Abfrage eines anderen Aufrufers derselben Verbindung treffen
+        assertEquals(List.of("cancel", "close"), repository.ablauf);
+    }
+
+    /**
+     * Auch Statements, die eine Transaktion selbst über vorbereiten() anlegt (z.B. Insert und
+     * Projektionen in MesswerteRepository), werden abgebrochen.
+     */
+    @Test
+    void testAbbruchErreichtStatementInTransaktion() throws Exception {
+        LangsameAbfrage repository = new LangsameAbfrage();
+
+        CompletableFuture<Integer> future = repository.aendereInTransaktion();
+        assertTrue(repository.ausgefuehrt.await(10, TimeUnit.SECONDS));
+
+        assertTrue(future.cancel(true));
+        assertTrue(repository.abgebrochen.await(10, TimeUnit.SECONDS));
+        assertTrue(repository.statementGeschlossen.await(10, TimeUnit.SECONDS));
+        assertTrue(future.isCancelled());
+        assertEquals(List.of("cancel"), repository.ablauf);
+    }
+
+    /**
+     * Repository auf einer Attrappen-Verbindung, deren Abfrage bis Statement.cancel() blockiert.
+     */
+    private static class LangsameAbfrage extends BaseRepository {
+        final CountDownLatch ausgefuehrt = new CountDownLatch(1);
+        final CountDownLatch abgebrochen = new CountDownLatch(1);
+        final CountDownLatch geschlossen = new CountDownLatch(1);
+        final CountDownLatch statementGeschlossen = new CountDownLatch(1);
+        final List<String> ablauf = Collections.synchronizedList(new ArrayList<>());
+        volatile long abbruchDauerMs;
+
+        CompletableFuture<Integer> frageAb() {
+            return async(() -> executeQuery("SELECT SLEEP(60)", rs -> 1));
+        }
+
+        CompletableFuture<Integer> aendereInTransaktion() {
+            return async(() -> TransactionManager.executeInTransaction(conn -> {
+                try (PreparedStatement stmt = vorbereiten(getLeseConnection(), "UPDATE parzelle SET name = name")) {
+                    return stmt.executeUpdate();
+                }
+            }));
+        }
+
+        @Override
+        protected Connection getLeseConnection() {
+            PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(
+                    getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "executeQuery", "executeUpdate" -> {
+                            ausgefuehrt.countDown();
+                            if (!abgebrochen.await(10, TimeUnit.SECONDS)) {
+                                throw new SQLException("Nicht abgebrochen");
+                            }
+                            throw new SQLException("Query execution was interrupted", "70100", 1317);
+                        }
+                        case "cancel" -> {
+                            abgebrochen.countDown();
+                            // Treiber baut für KILL QUERY eine eigene Verbindung auf
+                            Thread.sleep(abbruchDauerMs);
+                            ablauf.add("cancel");
+                            yield null;
+                        }
+                        case "close" -> {
+                            statementGeschlossen.countDown();
+                            yield null;
+                        }
+                        default -> null;
+                    });
+
+            return (Connection) Proxy.newProxyInstance(
+                    getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "prepareStatement" -> stmt;
+                        case "isClosed" -> false;
+                        case "close" -> {
+                            ablauf.add("close");
+                            geschlossen.countDown();
+                            yield null;
+                        }
+                        default -> null;
+                    });
+        }
+    }
+}
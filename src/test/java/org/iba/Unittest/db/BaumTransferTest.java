@@ -0,0 +1,117 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.BaumRepository;
+import org.iba.exception.BaumTransferException;
+import org.iba.exception.BusinessException;
+import org.iba.model.Baum;
+import org.iba.model.Parzelle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für ParzelleRepository.transferiereBaeume (Profil MEMORY, gleicher Vertrag wie MySQL).
+ */
+class BaumTransferTest extends InMemoryTestBasis {
+
+    private final BaumRepository baumRepository = new BaumRepository();
+
+    private Parzelle von;
+    private Parzelle zu;
+    private Baum erster;
+    private Baum zweiter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Über speichereParzelleMitBaeumen, damit der Baum-Zähler der Quell-Parzelle stimmt
+        von = parzelleRepository.speichereParzelleMitBaeumen(parzelle("Von"),
+                new ArrayList<>(List.of(new Baum(0, 5, 1, 40.0), new Baum(0, 8, 1, 55.0))));
+        zu = neueParzelle("Zu");
+        List<Baum> baeume = baumRepository.findByParzelleId(von.getParzelleId());
+        erster = baeume.get(0);
+        zweiter = baeume.get(1);
+    }
+
+    private int anzahlBaeume(Parzelle parzelle) throws Exception {
+        return parzelleRepository.findAlle().stream()
+                .filter(p -> p.getParzelleId() == parzelle.getParzelleId())
+                .findFirst().orElseThrow().getAnzahlBaeume();
+    }
+
+    private void assertNichtsVerschoben() throws Exception {
+        assertEquals(2, baumRepository.findByParzelleId(von.getParzelleId()).size());
+        assertTrue(baumRepository.findByParzelleId(zu.getParzelleId()).isEmpty());
+        assertEquals(2, anzahlBaeume(von));
+        assertEquals(0, anzahlBaeume(zu));
+    }
+
+    @Test
+    void testTransferVerschiebtBaeumeUndZaehler() throws Exception {
+        parzelleRepository.transferiereBaeume(von.getParzelleId(), zu.getParzelleId(),
+                List.of(erster.getBaumId(), zweiter.getBaumId()));
+
+        assertEquals(2, baumRepository.findByParzelleId(zu.getParzelleId()).size());
+        assertEquals(zu.getParzelleId(), baumRepository.findById(erster.getBaumId()).getParzelleId());
+        assertEquals(0, anzahlBaeume(von));
+        assertEquals(2, anzahlBaeume(zu));
+    }
+
+    @Test
+    void testDoppelteIdsWerdenEinmalVerschoben() throws Exception {
+        parzelleRepository.transferiereBaeume(von.getParzelleId(), zu.getParzelleId(),
+                List.of(erster.getBaumId(), erster.getBaumId()));
+
+        assertEquals(zu.getParzelleId(), baumRepository.findById(erster.getBaumId()).getParzelleId());
+        assertEquals(von.getParzelleId(), baumRepository.findById(zweiter.getBaumId()).getParzelleId());
+        assertEquals(1, anzahlBaeume(von));
+        assertEquals(1, anzahlBaeume(zu));
+    }
+
+    @Test
+    void testFehlerhafteIdsWerdenAlleGemeldet() throws Exception {
+        Baum fremd = baumRepository.speichere(new Baum(zu.getParzelleId(), 3, 1, 30.0));
+
+        BaumTransferException fehler = assertThrows(BaumTransferException.class,
+                () -> parzelleRepository.transferiereBaeume(von.getParzelleId(), zu.getParzelleId(),
+                        Arrays.asList(erster.getBaumId(), null, 4711, fremd.getBaumId())));
+
+        assertEquals(Arrays.asList(null, 4711, fremd.getBaumId()), fehler.getFehlerhafteBaumIds());
+        assertEquals(von.getParzelleId(), fehler.getVonParzelleId());
+        // Alles oder nichts: auch der gültige Baum bleibt in der Quell-Parzelle
+        assertEquals(von.getParzelleId(), baumRepository.findById(erster.getBaumId()).getParzelleId());
+        assertEquals(2, anzahlBaeume(von));
+        assertEquals(0, anzahlBaeume(zu));
+    }
+
+    @Test
+    void testUnbekannteZielParzelle() throws Exception {
+        BusinessException fehler = assertThrows(BusinessException.class,
+                () -> parzelleRepository.transferiereBaeume(von.getParzelleId(), 999,
+                        List.of(erster.getBaumId())));
+
+        assertFalse(fehler instanceof BaumTransferException);
+        assertTrue(fehler.getMessage().contains("Ziel-Parzelle"), fehler.getMessage());
+        assertNichtsVerschoben();
+    }
+
+    @Test
+    void testGleicheQuelleUndZiel() throws Exception {
+        assertThrows(BusinessException.class,
+                () -> parzelleRepository.transferiereBaeume(von.getParzelleId(), von.getParzelleId(),
+                        List.of(erster.getBaumId())));
+
+        assertNichtsVerschoben();
+    }
+
+    @Test
+    void testLeereListeAendertNichts() throws Exception {
+        parzelleRepository.transferiereBaeume(von.getParzelleId(), zu.getParzelleId(), List.of());
+
+        assertNichtsVerschoben();
+    }
+}
@@ -0,0 +1,313 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.pool.ConnectionPool;
+import org.iba.db.pool.PoolConfig;
+import org.iba.exception.DatenbankTimeoutException;
+import org.iba.util.ExceptionUtils;
+import org.iba.util.Frist;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für den ConnectionPool.
+ * Verwendet simulierte Verbindungen, damit keine Datenbank benötigt wird.
+ */
+class ConnectionPoolTest {
+
+    private final List<FakeVerbindung> erzeugt = new ArrayList<>();
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool erstellePool(int min, int max, long maxLifetimeMs, long borrowTimeoutMs) {
+        return erstellePool(new PoolConfig(min, max, 60_000, true, maxLifetimeMs, borrowTimeoutMs));
+    }
+
+    private ConnectionPool erstellePool(PoolConfig config) {
+        return new ConnectionPool("unittest", config, () -> {
+            FakeVerbindung fake = new FakeVerbindung();
+            erzeugt.add(fake);
+            return fake.proxy();
+        });
+    }
+
+    /**
+     * Eine zurückgegebene Verbindung wird beim nächsten Ausleihen wiederverwendet.
+     */
+    @Test
+    void testVerbindungWirdWiederverwendet() throws SQLException {
+        pool = erstellePool(0, 2, 60_000, 1_000);
+
+        Connection erste = pool.getConnection();
+        erste.close();
+        Connection zweite = pool.getConnection();
+        zweite.close();
+
+        assertEquals(1, erzeugt.size(), "Es sollte nur eine physische Verbindung erzeugt werden.");
+        assertFalse(erzeugt.get(0).geschlossen, "Die physische Verbindung darf nicht geschlossen werden.");
+        assertTrue(erste.isClosed(), "Das logische Handle sollte als geschlossen gelten.");
+    }
+
+    /**
+     * Ein bereits zurückgegebenes Handle darf nicht mehr benutzt werden.
+     */
+    @Test
+    void testZurueckgegebenesHandleIstUnbenutzbar() throws SQLException {
+        pool = erstellePool(0, 1, 60_000, 1_000);
+
+        Connection conn = pool.getConnection();
+        conn.close();
+
+        assertThrows(SQLException.class, conn::getAutoCommit);
+        assertDoesNotThrow(conn::close, "Mehrfaches close() sollte ignoriert werden.");
+        assertEquals(0, pool.getActiveConnections());
+    }
+
+    /**
+     * Ist der Pool erschöpft, schlägt das Ausleihen nach dem Timeout fehl.
+     */
+    @Test
+    void testBorrowTimeoutBeiErschoepftemPool() throws SQLException {
+        pool = erstellePool(0, 1, 60_000, 50);
+
+        Connection belegt = pool.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+        assertEquals(1, pool.getTotalConnections(), "Die Maximalgröße darf nicht überschritten werden.");
+
+        belegt.close();
+        assertDoesNotThrow(() -> pool.getConnection().close());
+    }
+
+    /**
+     * Verkürzt eine Frist das Warten, endet es mit einer Zeitüberschreitung statt 08001.
+     */
+    @Test
+    void testFristBegrenztWartenAufVerbindung() throws SQLException {
+        pool = erstellePool(0, 1, 60_000, 5_000);
+
+        Connection belegt = pool.getConnection();
+
+        assertThrows(SQLTimeoutException.class, () -> Frist.innerhalb(50, pool::getConnection));
+        assertInstanceOf(DatenbankTimeoutException.class, ExceptionUtils.wrapSQLException(
+                assertThrows(SQLException.class, () -> Frist.innerhalb(50, pool::getConnection)), "Ausleihen"));
+
+        belegt.close();
+    }
+
+    /**
+     * Ungültige Verbindungen werden beim Ausleihen verworfen und ersetzt.
+     */
+    @Test
+    void testUngueltigeVerbindungWirdErsetzt() throws SQLException {
+        pool = erstellePool(0, 1, 60_000, 1_000);
+
+        pool.getConnection().close();
+        erzeugt.get(0).gueltig = false;
+
+        pool.getConnection().close();
+
+        assertEquals(2, erzeugt.size());
+        assertTrue(erzeugt.get(0).geschlossen, "Die ungültige Verbindung sollte geschlossen werden.");
+    }
+
+    /**
+     * Verbindungen, deren maximale Lebensdauer überschritten ist, werden nicht erneut ausgegeben.
+     */
+    @Test
+    void testMaxLifetimeWirdEingehalten() throws Exception {
+        pool = erstellePool(0, 1, 20, 1_000);
+
+        pool.getConnection().close();
+        Thread.sleep(40);
+        pool.getConnection().close();
+
+        assertEquals(2, erzeugt.size());
+        assertTrue(erzeugt.get(0).geschlossen);
+    }
+
+    /**
+     * Bei der Rückgabe werden offene Transaktionen verworfen und Auto-Commit wiederhergestellt.
+     */
+    @Test
+    void testZustandWirdBeiRueckgabeZurueckgesetzt() throws SQLException {
+        pool = erstellePool(0, 1, 60_000, 1_000);
+
+        Connection conn = pool.getConnection();
+        conn.setAutoCommit(false);
+        conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        conn.close();
+
+        FakeVerbindung fake = erzeugt.get(0);
+        assertTrue(fake.rollbacks > 0, "Offene Arbeit sollte zurückgerollt werden.");
+        assertTrue(fake.autoCommit);
+        assertEquals(Connection.TRANSACTION_READ_COMMITTED, fake.isolation);
+    }
+
+    /**
+     * Dasselbe SQL wird auf derselben physischen Verbindung nur einmal vorbereitet.
+     */
+    @Test
+    void testStatementCacheTrefferBeiGleichemSql() throws SQLException {
+        pool = erstellePool(new PoolConfig(0, 1, 60_000, true, 60_000, 1_000, 2));
+
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("SELECT 1")) {
+                stmt.setInt(1, i);
+            }
+        }
+
+        FakeVerbindung fake = erzeugt.get(0);
+        assertEquals(1, fake.vorbereitet.size(), "Das Statement sollte nur einmal vorbereitet werden.");
+        assertEquals(0, fake.geschlosseneStatements, "Gecachte Statements dürfen nicht geschlossen werden.");
+        assertEquals(2, pool.getStatementCacheHits());
+        assertEquals(1, pool.getStatementCacheMisses());
+    }
+
+    /**
+     * Bei vollem Cache wird das am längsten nicht benutzte Statement geschlossen.
+     */
+    @Test
+    void testStatementCacheVerdraengtLru() throws SQLException {
+        pool = erstellePool(new PoolConfig(0, 1, 60_000, true, 60_000, 1_000, 2));
+
+        try (Connection conn = pool.getConnection()) {
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 2").close();
+            conn.prepareStatement("SELECT 1").close(); // "SELECT 2" ist jetzt am ältesten
+            conn.prepareStatement("SELECT 3").close();
+            conn.prepareStatement("SELECT 1").close();
+        }
+
+        FakeVerbindung fake = erzeugt.get(0);
+        assertEquals(List.of("SELECT 1", "SELECT 2", "SELECT 3"), fake.vorbereitet);
+        assertEquals(1, fake.geschlosseneStatements);
+        assertEquals(1, pool.getStatementCacheEvictions());
+    }
+
+    /**
+     * Wird dasselbe SQL verschachtelt benutzt, bekommt der innere Aufruf ein eigenes Statement.
+     */
+    @Test
+    void testStatementCacheBeiVerschachtelterBenutzung() throws SQLException {
+        pool = erstellePool(new PoolConfig(0, 1, 60_000, true, 60_000, 1_000, 2));
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement aussen = conn.prepareStatement("SELECT 1");
+             PreparedStatement innen = conn.prepareStatement("SELECT 1")) {
+            assertNotSame(aussen, innen);
+        }
+
+        assertEquals(1, erzeugt.get(0).geschlosseneStatements,
+                "Das ungecachte innere Statement sollte geschlossen werden.");
+    }
+
+    /**
+     * Mit Angabe des ResultSet-Typs (z.B. EXPLAIN der AbfrageStatistik) wird nicht gecacht.
+     */
+    @Test
+    void testStatementCacheUmgehenMitResultSetTyp() throws SQLException {
+        pool = erstellePool(new PoolConfig(0, 1, 60_000, true, 60_000, 1_000, 2));
+
+        try (Connection conn = pool.getConnection()) {
+            for (int i = 0; i < 2; i++) {
+                conn.prepareStatement("EXPLAIN SELECT 1", ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY).close();
+            }
+        }
+
+        FakeVerbindung fake = erzeugt.get(0);
+        assertEquals(List.of("EXPLAIN SELECT 1", "EXPLAIN SELECT 1"), fake.vorbereitet);
+        assertEquals(2, fake.geschlosseneStatements);
+        assertEquals(0, pool.getStatementCacheHits());
+        assertEquals(0, pool.getStatementCacheMisses());
+    }
+
+    /**
+     * Wird eine Verbindung aus dem Pool entfernt, werden ihre gecachten Statements geschlossen.
+     */
+    @Test
+    void testStatementCacheWirdBeiEntfernenDerVerbindungGeleert() throws SQLException {
+        pool = erstellePool(new PoolConfig(0, 1, 60_000, true, 60_000, 1_000, 4));
+
+        try (Connection conn = pool.getConnection()) {
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 2").close();
+        }
+        pool.close();
+
+        assertEquals(2, erzeugt.get(0).geschlosseneStatements);
+        assertTrue(erzeugt.get(0).geschlossen);
+    }
+
+    /**
+     * Simulierte physische Verbindung.
+     */
+    private static class FakeVerbindung {
+        boolean geschlossen = false;
+        boolean gueltig = true;
+        boolean autoCommit = true;
+        boolean readOnly = false;
+        int isolation = Connection.TRANSACTION_READ_COMMITTED;
+        int rollbacks = 0;
+        final List<String> vorbereitet = new ArrayList<>();
+        int geschlosseneStatements = 0;
+
+        PreparedStatement statement(String sql) {
+            vorbereitet.add(sql);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close": geschlosseneStatements++; return null;
+                            case "hashCode": return System.identityHashCode(proxy);
+                            case "equals": return proxy == args[0];
+                            default: return null;
+                        }
+                    });
+        }
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close": geschlossen = true; return null;
+                            case "isClosed": return geschlossen;
+                            case "isValid": return gueltig && !geschlossen;
+                            case "getAutoCommit": return autoCommit;
+                            case "setAutoCommit": autoCommit = (Boolean) args[0]; return null;
+                            case "getTransactionIsolation": return isolation;
+                            case "setTransactionIsolation": isolation = (Integer) args[0]; return null;
+                            case "isReadOnly": return readOnly;
+                            case "setReadOnly": readOnly = (Boolean) args[0]; return null;
+                            case "rollback": rollbacks++; return null;
+                            case "prepareStatement": return statement((String) args[0]);
+                            case "hashCode": return System.identityHashCode(proxy);
+                            case "equals": return proxy == args[0];
+                            default: return null;
+                        }
+                    });
+        }
+    }
+}
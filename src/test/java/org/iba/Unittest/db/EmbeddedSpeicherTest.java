@@ -0,0 +1,210 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.embedded.EmbeddedConfig;
+import org.iba.db.embedded.EmbeddedSpeicher;
+import org.iba.exception.BaumTransferException;
+import org.iba.exception.BusinessException;
+import org.iba.exception.ValidationException;
+import org.iba.model.Baum;
+import org.iba.model.Messung;
+import org.iba.model.MesswerteAggregat;
+import org.iba.model.Messwerte;
+import org.iba.model.Parzelle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.iba.Unittest.db.InMemoryTestBasis.parzelle;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für den eingebetteten Speicher (Profil EMBEDDED).
+ * Jeder Test arbeitet in einem eigenen temporären Verzeichnis.
+ */
+class EmbeddedSpeicherTest {
+
+    private static final LocalDateTime BEGINN = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+    @TempDir
+    Path verzeichnis;
+
+    private EmbeddedSpeicher speicher;
+
+    @AfterEach
+    void tearDown() {
+        if (speicher != null) {
+            speicher.close();
+        }
+    }
+
+    private EmbeddedSpeicher oeffne() throws Exception {
+        if (speicher != null) {
+            speicher.close();
+        }
+        // Lange Intervalle: die Tests stoßen Sync und Kompaktierung selbst an
+        speicher = new EmbeddedSpeicher(new EmbeddedConfig(verzeichnis, false, 60_000, 60_000, 0.5, 0));
+        return speicher;
+    }
+
+    @Test
+    void testParzelleUndBaeumeSpeichernUndLaden() throws Exception {
+        oeffne();
+        List<Baum> baeume = new ArrayList<>(List.of(new Baum(0, 10, 1, 50.0), new Baum(0, 20, 1, 60.0)));
+
+        Parzelle parzelle = speicher.speichereParzelleMitBaeumen(parzelle("Nord"), baeume);
+
+        assertTrue(parzelle.getParzelleId() > 0);
+        assertEquals(2, parzelle.getAnzahlBaeume());
+        assertEquals(parzelle.getParzelleId(), baeume.get(0).getParzelleId());
+        assertTrue(baeume.get(1).getBaumId() > baeume.get(0).getBaumId());
+        assertEquals(2, speicher.findeBaeumeDerParzelle(parzelle.getParzelleId()).size());
+        assertEquals(20, speicher.findeBaum(baeume.get(1).getBaumId()).getAlterJahre());
+    }
+
+    @Test
+    void testEindeutigerNameUndFremdschluessel() throws Exception {
+        oeffne();
+        speicher.speichereParzelle(parzelle("Süd"));
+
+        ValidationException doppelt = assertThrows(ValidationException.class,
+                () -> speicher.speichereParzelle(parzelle("SÜD")));
+        assertEquals("name", doppelt.getFieldName());
+
+        ValidationException unbekannt = assertThrows(ValidationException.class,
+                () -> speicher.speichereBaum(new Baum(999, 5, 1, 40.0)));
+        assertEquals("parzelleId", unbekannt.getFieldName());
+
+        assertThrows(BusinessException.class, () -> speicher.loescheParzelleKomplett(999));
+    }
+
+    @Test
+    void testTransferIstAtomar() throws Exception {
+        oeffne();
+        Parzelle von = speicher.speichereParzelle(parzelle("Von"));
+        Parzelle zu = speicher.speichereParzelle(parzelle("Zu"));
+        Baum baum = speicher.speichereBaum(new Baum(von.getParzelleId(), 5, 1, 40.0));
+
+        BaumTransferException e = assertThrows(BaumTransferException.class,
+                () -> speicher.transferiereBaeume(von.getParzelleId(), zu.getParzelleId(),
+                        List.of(baum.getBaumId(), 4711)));
+        assertEquals(List.of(4711), e.getFehlerhafteBaumIds());
+        assertEquals(von.getParzelleId(), speicher.findeBaum(baum.getBaumId()).getParzelleId());
+
+        speicher.transferiereBaeume(von.getParzelleId(), zu.getParzelleId(), List.of(baum.getBaumId()));
+        assertEquals(zu.getParzelleId(), speicher.findeBaum(baum.getBaumId()).getParzelleId());
+        assertTrue(speicher.findeBaeumeDerParzelle(von.getParzelleId()).isEmpty());
+    }
+
+    @Test
+    void testWiederherstellungNachNeustart() throws Exception {
+        oeffne();
+        Parzelle parzelle = speicher.speichereParzelle(parzelle("Ost"));
+        Baum baum = speicher.speichereBaum(new Baum(parzelle.getParzelleId(), 7, 2, 45.0));
+        speicher.speichereMessung(new Messung(parzelle.getParzelleId(), new Messwerte(21.5, 3.0), BEGINN));
+        Parzelle geloescht = speicher.speichereParzelle(parzelle("Weg"));
+        speicher.loescheParzelleKomplett(geloescht.getParzelleId());
+
+        oeffne();
+
+        assertEquals(1, speicher.findeAlleParzellen().size());
+        assertEquals(7, speicher.findeBaum(baum.getBaumId()).getAlterJahre());
+        assertEquals(21.5, speicher.findeLetzteMessung(parzelle.getParzelleId()).getTemperatur());
+        // IDs gelöschter Parzellen werden nicht wiederverwendet
+        Parzelle neu = speicher.speichereParzelle(parzelle("Neu"));
+        assertTrue(neu.getParzelleId() > geloescht.getParzelleId());
+    }
+
+    @Test
+    void testUnvollstaendigesEndeWirdVerworfen() throws Exception {
+        oeffne();
+        Parzelle parzelle = speicher.speichereParzelle(parzelle("West"));
+        speicher.close();
+        speicher = null;
+
+        // Simulierter Absturz mitten im Schreiben eines Datensatzes
+        Path log = verzeichnis.resolve("iba.log");
+        long gueltig = Files.size(log);
+        Files.write(log, new byte[]{0, 0, 1, 0, 42, 42, 42}, StandardOpenOption.APPEND);
+
+        oeffne();
+        assertEquals(gueltig, Files.size(log));
+        assertEquals("West", speicher.findeAlleParzellen().get(0).getName());
+
+        speicher.speichereBaum(new Baum(parzelle.getParzelleId(), 3, 1, 30.0));
+        oeffne();
+        assertEquals(1, speicher.findeAlleBaeume().size());
+    }
+
+    @Test
+    void testKompaktierungErhaeltZustand() throws Exception {
+        oeffne();
+        Parzelle parzelle = speicher.speichereParzelle(parzelle("Kompakt"));
+        Baum baum = speicher.speichereBaum(new Baum(parzelle.getParzelleId(), 1, 1, 10.0));
+        for (int i = 2; i <= 200; i++) {
+            baum.setAlterJahre(i);
+            speicher.aktualisiereBaum(baum);
+        }
+        speicher.speichereMessung(new Messung(parzelle.getParzelleId(), new Messwerte(18.0, 0.5), BEGINN));
+        long vorher = speicher.getLogGroesse();
+
+        speicher.kompaktiere();
+
+        assertTrue(speicher.getLogGroesse() < vorher / 10);
+        assertEquals(1, speicher.getAnzahlKompaktierungen());
+        oeffne();
+        assertEquals(200, speicher.findeBaum(baum.getBaumId()).getAlterJahre());
+        assertEquals(1, speicher.getAnzahlMessungen());
+        assertEquals(1, speicher.findeAlleBaeume().size());
+    }
+
+    @Test
+    void testStundenwerteUndLetzteMessung() throws Exception {
+        oeffne();
+        int parzelleId = speicher.speichereParzelle(parzelle("Rollup")).getParzelleId();
+
+        // Außer der Reihe: die zuletzt eingefügte ist nicht die neueste
+        speicher.speichereMessung(new Messung(parzelleId, new Messwerte(20.0, 1.0), BEGINN.plusMinutes(30)));
+        speicher.speichereMessung(new Messung(parzelleId, new Messwerte(10.0, 2.0), BEGINN.plusMinutes(10)));
+        speicher.speichereMessung(new Messung(parzelleId, new Messwerte(30.0, 0.0), BEGINN.plusHours(1)));
+
+        assertEquals(30.0, speicher.findeLetzteMessung(parzelleId).getTemperatur());
+
+        List<MesswerteAggregat> stunden = speicher.findeAggregate(parzelleId, true, BEGINN, BEGINN.plusDays(1));
+        assertEquals(2, stunden.size());
+        assertEquals(BEGINN, stunden.get(0).getPeriodeBeginn());
+        assertEquals(10.0, stunden.get(0).getTemperaturMin());
+        assertEquals(20.0, stunden.get(0).getTemperaturMax());
+        assertEquals(15.0, stunden.get(0).getTemperaturDurchschnitt());
+        assertEquals(3.0, stunden.get(0).getNiederschlagSumme());
+
+        assertEquals(1, speicher.baueRollupsNeu(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 1)));
+        List<MesswerteAggregat> tage = speicher.findeAggregate(parzelleId, false, BEGINN, BEGINN.plusDays(1));
+        assertEquals(3, tage.get(0).getAnzahl());
+
+        List<Messung> messungen = speicher.findeMessungen(BEGINN, BEGINN.plusHours(1));
+        assertEquals(2, messungen.size());
+        assertEquals(BEGINN.plusMinutes(10), messungen.get(0).getZeitstempel());
+    }
+
+    @Test
+    void testBatchMeldetUnbekannteParzellen() throws Exception {
+        oeffne();
+        int parzelleId = speicher.speichereParzelle(parzelle("Batch")).getParzelleId();
+
+        List<Integer> abgelehnt = speicher.speichereMessungen(List.of(
+                new Messung(parzelleId, new Messwerte(15.0, 0.0), BEGINN),
+                new Messung(999, new Messwerte(15.0, 0.0), BEGINN),
+                new Messung(parzelleId, new Messwerte(16.0, 0.0), BEGINN.plusMinutes(1))));
+
+        assertEquals(List.of(1), abgelehnt);
+        assertEquals(2, speicher.getAnzahlMessungen());
+    }
+}
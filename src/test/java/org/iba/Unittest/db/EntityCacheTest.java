@@ -0,0 +1,141 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.cache.EntityCache;
+import org.iba.exception.DatabaseException;
+import org.iba.model.Baum;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für den EntityCache (ohne Datenbank, der Lader wird simuliert).
+ */
+class EntityCacheTest {
+
+    private final AtomicInteger ladevorgaenge = new AtomicInteger();
+
+    private EntityCache<Integer, Baum> erstelleCache(int maxEntries, long ttlMs) {
+        return new EntityCache<>("unittest", maxEntries, ttlMs,
+                b -> new Baum(b.getBaumId(), b.getParzelleId(), b.getAlterJahre(),
+                        b.getPflanzenartId(), b.getBasisBedarf()));
+    }
+
+    private Baum lade(int baumId) {
+        ladevorgaenge.incrementAndGet();
+        return new Baum(baumId, 1, 10, 1, 50.0);
+    }
+
+    /**
+     * Ein zweiter Zugriff auf denselben Schlüssel wird aus dem Cache bedient.
+     */
+    @Test
+    void testTrefferNachErstemLaden() throws DatabaseException {
+        EntityCache<Integer, Baum> cache = erstelleCache(10, 60_000);
+
+        cache.hole(1, () -> lade(1));
+        Baum baum = cache.hole(1, () -> lade(1));
+
+        assertEquals(1, baum.getBaumId());
+        assertEquals(1, ladevorgaenge.get(), "Der Baum sollte nur einmal geladen werden.");
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0.0001);
+    }
+
+    /**
+     * Änderungen am zurückgegebenen Objekt dürfen den Cache nicht verändern.
+     */
+    @Test
+    void testAusgabeIstKopie() throws DatabaseException {
+        EntityCache<Integer, Baum> cache = erstelleCache(10, 60_000);
+
+        cache.hole(1, () -> lade(1)).setAlterJahre(99);
+        Baum ausCache = cache.hole(1, () -> lade(1));
+        ausCache.setAlterJahre(77);
+
+        assertEquals(10, cache.hole(1, () -> lade(1)).getAlterJahre());
+    }
+
+    /**
+     * Bei voller Größe wird der am längsten ungenutzte Eintrag verdrängt.
+     */
+    @Test
+    void testLruVerdraengung() throws DatabaseException {
+        EntityCache<Integer, Baum> cache = erstelleCache(2, 60_000);
+
+        cache.hole(1, () -> lade(1));
+        cache.hole(2, () -> lade(2));
+        cache.hole(1, () -> lade(1)); // 2 ist jetzt am ältesten
+        cache.hole(3, () -> lade(3));
+        cache.hole(1, () -> lade(1));
+        cache.hole(2, () -> lade(2));
+
+        assertEquals(4, ladevorgaenge.get(), "Nur Baum 2 sollte erneut geladen werden.");
+        assertEquals(2, cache.size());
+        assertTrue(cache.getEvictions() >= 1);
+    }
+
+    /**
+     * Abgelaufene Einträge werden neu geladen.
+     */
+    @Test
+    void testTtlAblauf() throws Exception {
+        EntityCache<Integer, Baum> cache = erstelleCache(10, 20);
+
+        cache.hole(1, () -> lade(1));
+        Thread.sleep(40);
+        cache.hole(1, () -> lade(1));
+
+        assertEquals(2, ladevorgaenge.get());
+        assertEquals(1, cache.getExpirations());
+    }
+
+    /**
+     * Invalidierung entfernt genau die betroffenen Einträge.
+     */
+    @Test
+    void testGezielteInvalidierung() throws DatabaseException {
+        EntityCache<Integer, Baum> cache = erstelleCache(10, 60_000);
+
+        cache.hole(1, () -> lade(1));
+        cache.hole(2, () -> lade(2));
+        cache.invalidiereWenn((id, baum) -> baum.getBaumId() == 2);
+
+        cache.hole(1, () -> lade(1));
+        cache.hole(2, () -> lade(2));
+
+        assertEquals(3, ladevorgaenge.get(), "Nur der invalidierte Baum sollte neu geladen werden.");
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    /**
+     * Ein Ladevorgang, während dessen invalidiert wurde, darf seinen alten Stand nicht cachen.
+     */
+    @Test
+    void testInvalidierungWaehrendLadenVerwirftErgebnis() throws DatabaseException {
+        EntityCache<Integer, Baum> cache = erstelleCache(10, 60_000);
+
+        cache.hole(1, () -> {
+            Baum alt = lade(1);
+            cache.invalidiere(1); // paralleler Schreibzugriff
+            return alt;
+        });
+        cache.hole(1, () -> lade(1));
+
+        assertEquals(2, ladevorgaenge.get());
+        assertEquals(0, cache.getHits());
+    }
+
+    /**
+     * null-Ergebnisse (nicht gefunden) werden nicht gecacht.
+     */
+    @Test
+    void testNullWirdNichtGecacht() throws DatabaseException {
+        EntityCache<Integer, Baum> cache = erstelleCache(10, 60_000);
+
+        assertNull(cache.hole(1, () -> null));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,223 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.BaumRepository;
+import org.iba.db.MesswerteRepository;
+import org.iba.db.transaction.TransactionManager;
+import org.iba.exception.DatabaseException;
+import org.iba.exception.ValidationException;
+import org.iba.model.Baum;
+import org.iba.model.Messung;
+import org.iba.model.Messwerte;
+import org.iba.model.Parzelle;
+import org.iba.service.TransaktionalerBerechnungService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für den In-Memory-Speicher (Profil MEMORY) über die normalen Repositories
+ * und den TransactionManager.
+ */
+class InMemorySpeicherTest extends InMemoryTestBasis {
+
+    private final BaumRepository baumRepository = new BaumRepository();
+    private final MesswerteRepository messwerteRepository = new MesswerteRepository();
+
+    @Test
+    void testRollbackVerwirftAlleAenderungen() throws Exception {
+        Parzelle bestehend = neueParzelle("Bestehend");
+
+        assertThrows(DatabaseException.class, () -> TransactionManager.executeInTransaction(conn -> {
+            neueParzelle("Neu");
+            baumRepository.speichere(new Baum(bestehend.getParzelleId(), 4, 1, 30.0));
+            messwerteRepository.speichere(new Messwerte(22.0, 0.0), bestehend.getParzelleId());
+            throw new IllegalStateException("Abbruch");
+        }));
+
+        assertEquals(1, parzelleRepository.findAlle().size());
+        assertTrue(baumRepository.findByParzelleId(bestehend.getParzelleId()).isEmpty());
+        assertNull(messwerteRepository.findeLetzteMessung(bestehend.getParzelleId()));
+        // Der Name der zurückgerollten Parzelle ist wieder frei
+        assertNotNull(neueParzelle("Neu"));
+    }
+
+    @Test
+    void testVerschachtelteTransaktionNimmtNurSavepointZurueck() throws Exception {
+        Parzelle parzelle = neueParzelle("Savepoint");
+
+        TransactionManager.executeInTransaction(conn -> {
+            baumRepository.speichere(new Baum(parzelle.getParzelleId(), 1, 1, 10.0));
+            try {
+                TransactionManager.executeInTransaction(inner -> {
+                    baumRepository.speichere(new Baum(parzelle.getParzelleId(), 2, 1, 10.0));
+                    throw new IllegalStateException("Nur die innere Transaktion scheitert");
+                });
+            } catch (DatabaseException erwartet) {
+                // Weiter in der äußeren Transaktion
+            }
+            return null;
+        });
+
+        List<Baum> baeume = baumRepository.findByParzelleId(parzelle.getParzelleId());
+        assertEquals(1, baeume.size());
+        assertEquals(1, baeume.get(0).getAlterJahre());
+    }
+
+    @Test
+    void testGescheiterteOperationInTransaktionIstAtomar() throws Exception {
+        Parzelle von = neueParzelle("Von");
+        Parzelle zu = neueParzelle("Zu");
+        Baum baum = baumRepository.speichere(new Baum(von.getParzelleId(), 3, 1, 20.0));
+
+        TransactionManager.executeInTransaction(conn -> {
+            // Unbekannter Baum: der Transfer schlägt fehl, die Transaktion läuft weiter
+            assertThrows(Exception.class, () -> parzelleRepository.transferiereBaeume(
+                    von.getParzelleId(), zu.getParzelleId(), List.of(baum.getBaumId(), 999)));
+            messwerteRepository.speichere(new Messwerte(18.0, 1.0), zu.getParzelleId());
+            return null;
+        });
+
+        assertEquals(von.getParzelleId(), baumRepository.findById(baum.getBaumId()).getParzelleId());
+        assertEquals(18.0, messwerteRepository.findeLetzteMessung(zu.getParzelleId()).getTemperatur());
+    }
+
+    @Test
+    void testSchreiberVerschiedenerParzellenBlockierenSichNicht() throws Exception {
+        Parzelle erste = neueParzelle("Erste");
+        Parzelle zweite = neueParzelle("Zweite");
+        CountDownLatch gesperrt = new CountDownLatch(1);
+        CountDownLatch weiter = new CountDownLatch(1);
+
+        // Hält die Sperre der ersten Parzelle bis zum Commit
+        CompletableFuture<Void> langeTransaktion = CompletableFuture.runAsync(() -> {
+            try {
+                TransactionManager.executeInTransaction(conn -> {
+                    messwerteRepository.speichere(new Messwerte(20.0, 0.0), erste.getParzelleId());
+                    gesperrt.countDown();
+                    assertTrue(weiter.await(10, TimeUnit.SECONDS));
+                    return null;
+                });
+            } catch (DatabaseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(gesperrt.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> andereParzelle = CompletableFuture.runAsync(() -> {
+            try {
+                messwerteRepository.speichere(new Messwerte(25.0, 0.0), zweite.getParzelleId());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        andereParzelle.get(2, TimeUnit.SECONDS);
+
+        // Unbestätigte Änderungen sind für andere nicht sichtbar; Leser warten auf den Commit
+        CompletableFuture<Messwerte> leser = CompletableFuture.supplyAsync(() -> {
+            try {
+                return messwerteRepository.findeLetzteMessung(erste.getParzelleId());
+            } catch (DatabaseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(leser.isDone());
+
+        weiter.countDown();
+        langeTransaktion.get(10, TimeUnit.SECONDS);
+        assertEquals(20.0, leser.get(10, TimeUnit.SECONDS).getTemperatur());
+    }
+
+    @Test
+    void testBatchUndStreamAbfragen() throws Exception {
+        Parzelle parzelle = neueParzelle("Batch");
+        LocalDateTime beginn = LocalDateTime.of(2024, 6, 1, 8, 0);
+        List<Messung> messungen = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messungen.add(new Messung(parzelle.getParzelleId(), new Messwerte(15.0 + i, 0.0), beginn.plusMinutes(i)));
+        }
+        messungen.add(new Messung(999, new Messwerte(15.0, 0.0), beginn));
+
+        var ergebnis = messwerteRepository.speichereBatch(messungen);
+
+        assertEquals(10, ergebnis.getAnzahlGespeichert());
+        assertEquals(1, ergebnis.getFehler().size());
+        try (var stream = messwerteRepository.streamMessungen(beginn, beginn.plusHours(1))) {
+            assertEquals(10, stream.count());
+        }
+        assertEquals(24.0, messwerteRepository.findeLetzteMessung(parzelle.getParzelleId()).getTemperatur());
+    }
+
+    /**
+     * Eine nachträglich eingelieferte ältere Messung verdrängt die neueste nicht.
+     */
+    @Test
+    void testAeltereMessungUeberschreibtLetzteNicht() throws Exception {
+        Parzelle parzelle = neueParzelle("Nachzügler");
+        LocalDateTime mittag = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+        messwerteRepository.speichereBatch(List.of(
+                new Messung(parzelle.getParzelleId(), new Messwerte(25.0, 0.0), mittag)));
+        messwerteRepository.speichereBatch(List.of(
+                new Messung(parzelle.getParzelleId(), new Messwerte(10.0, 2.0), mittag.minusHours(4))));
+
+        assertEquals(25.0, messwerteRepository.findeLetzteMessung(parzelle.getParzelleId()).getTemperatur());
+        assertEquals(25.0, messwerteRepository.findeLetzteMessungen(List.of(parzelle.getParzelleId()))
+                .get(parzelle.getParzelleId()).getTemperatur());
+        try (var stream = messwerteRepository.streamMessungen(mittag.minusHours(5), mittag.plusHours(1))) {
+            assertEquals(2, stream.count());
+        }
+    }
+
+    /**
+     * Messungen für eine unbekannte Parzelle werden als Validierungsfehler gemeldet.
+     */
+    @Test
+    void testUnbekannteParzelleIstValidierungsfehler() throws Exception {
+        ValidationException fehler = assertThrows(ValidationException.class,
+                () -> messwerteRepository.speichere(new Messwerte(20.0, 0.0), 999));
+        assertEquals("parzelleId", fehler.getFieldName());
+        assertEquals(999, fehler.getInvalidValue());
+
+        var ergebnis = messwerteRepository.speichereBatch(List.of(
+                new Messung(999, new Messwerte(20.0, 0.0), LocalDateTime.of(2024, 6, 1, 8, 0))));
+        assertEquals(0, ergebnis.getAnzahlGespeichert());
+        assertInstanceOf(ValidationException.class, ergebnis.getFehler().get(0).getUrsache());
+        assertNull(messwerteRepository.findeLetzteMessung(999));
+    }
+
+    @Test
+    void testTransaktionalerServiceLaeuftUnveraendert() throws Exception {
+        TransaktionalerBerechnungService service =
+                new TransaktionalerBerechnungService(parzelleRepository, baumRepository, messwerteRepository);
+
+        Parzelle nord = service.initialisiereNeueParzelle("Nord", 300.0, "Mediterran", 101,
+                new ArrayList<>(List.of(new Baum(0, 3, 1, 15.0), new Baum(0, 7, 1, 22.0))));
+        Parzelle sued = service.initialisiereNeueParzelle("Süd", 200.0, "Mediterran", 101, new ArrayList<>());
+        service.berechneUndAktualisiereFuerParzelle(nord.getParzelleId(), new Messwerte(30.0, 0.0));
+
+        Map<Integer, Double> empfehlungen = service.berechneUndSpeichereFuerAlleParzellen();
+        assertEquals(2, empfehlungen.size());
+        assertTrue(empfehlungen.get(nord.getParzelleId()) > 37.0);
+        assertEquals(0.0, empfehlungen.get(sued.getParzelleId()));
+
+        List<Integer> baumIds = new ArrayList<>();
+        for (Baum baum : baumRepository.findByParzelleId(nord.getParzelleId())) {
+            baumIds.add(baum.getBaumId());
+        }
+        service.transferiereBaeumeZwischenParzellen(nord.getParzelleId(), sued.getParzelleId(), baumIds);
+        assertEquals(2, baumRepository.findByParzelleId(sued.getParzelleId()).size());
+
+        assertTrue(service.loescheParzelleKomplett(nord.getParzelleId()));
+        assertEquals(1, parzelleRepository.findAlle().size());
+        assertEquals(2, parzelleRepository.findAlle().get(0).getAnzahlBaeume());
+    }
+}
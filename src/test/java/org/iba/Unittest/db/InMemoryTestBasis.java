@@ -0,0 +1,51 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.DBConnector;
+import org.iba.db.ParzelleRepository;
+import org.iba.db.statistik.AbfrageStatistik;
+import org.iba.db.statistik.StatistikConfig;
+import org.iba.model.Parzelle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Grundlage der Unittests auf dem Profil MEMORY (ohne MySQL): aktiviert vor jedem Test
+ * das Profil und eine leere Abfragestatistik und stellt danach den vorherigen Zustand
+ * wieder her. Jeder Test beginnt mit einem leeren Speicher.
+ */
+abstract class InMemoryTestBasis {
+
+    protected final ParzelleRepository parzelleRepository = new ParzelleRepository();
+
+    private DBConnector.Profile vorherigesProfil;
+
+    @BeforeEach
+    void aktiviereInMemoryProfil() {
+        vorherigesProfil = DBConnector.getActiveProfile();
+        DBConnector.setActiveProfile(DBConnector.Profile.MEMORY);
+        AbfrageStatistik.konfiguriere(new StatistikConfig(true, 60_000, false));
+        AbfrageStatistik.zuruecksetzen();
+    }
+
+    @AfterEach
+    void stelleProfilWiederHer() {
+        AbfrageStatistik.konfiguriere(null);
+        AbfrageStatistik.zuruecksetzen();
+        DBConnector.shutdown();
+        DBConnector.setActiveProfile(vorherigesProfil);
+    }
+
+    /**
+     * Speichert eine Parzelle mit Standardwerten.
+     */
+    protected Parzelle neueParzelle(String name) throws Exception {
+        return parzelleRepository.speichere(parzelle(name));
+    }
+
+    /**
+     * Ungespeicherte Parzelle mit Standardwerten (100 m², mediterran, Besitzer 1).
+     */
+    static Parzelle parzelle(String name) {
+        return new Parzelle(0, name, 0, 100.0, "mediterran", 1);
+    }
+}
@@ -0,0 +1,102 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.statistik.AbfrageStatistik;
+import org.iba.db.transaction.RetryConfig;
+import org.iba.db.transaction.TransactionManager;
+import org.iba.exception.DatabaseException;
+import org.iba.model.Parzelle;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für TransactionManager.executeReadOnly (Profil MEMORY).
+ */
+class LesetransaktionTest extends InMemoryTestBasis {
+
+    @Test
+    void testSnapshotLaeuftReadOnlyOhneCommit() throws Exception {
+        parzelleRepository.speichere(new Parzelle(0, "Bericht", 0, 100.0, "mediterran", 1));
+
+        List<Parzelle> parzellen = TransactionManager.executeReadOnly(conn -> {
+            assertTrue(conn.isReadOnly());
+            assertFalse(conn.getAutoCommit());
+            assertEquals(Connection.TRANSACTION_REPEATABLE_READ, conn.getTransactionIsolation());
+            assertSame(conn, TransactionManager.getCurrentConnection());
+            return parzelleRepository.findAlle();
+        });
+
+        assertEquals(1, parzellen.size());
+        assertFalse(TransactionManager.isTransactionActive());
+        assertNull(AbfrageStatistik.get("COMMIT"));
+    }
+
+    @Test
+    void testOhneSnapshotBleibtAutoCommit() throws Exception {
+        TransactionManager.executeReadOnly(false, conn -> {
+            assertTrue(conn.isReadOnly());
+            assertTrue(conn.getAutoCommit());
+            return null;
+        });
+
+        assertNull(AbfrageStatistik.get("SET autocommit=0"));
+    }
+
+    @Test
+    void testInnerhalbEinerTransaktionWirdDieseMitbenutzt() throws Exception {
+        TransactionManager.executeInTransaction(conn -> {
+            Connection lesend = TransactionManager.executeReadOnly(inner -> inner);
+            assertSame(conn, lesend);
+            return null;
+        });
+
+        assertNull(AbfrageStatistik.get("SAVEPOINT"));
+    }
+
+    /**
+     * Ein gescheiterter Bericht innerhalb einer Schreibtransaktion verhindert deren Commit nicht.
+     */
+    @Test
+    void testFehlerInnerhalbEinerTransaktionVerhindertCommitNicht() throws Exception {
+        TransactionManager.executeInTransaction(conn -> {
+            neueParzelle("Bleibt");
+            assertThrows(DatabaseException.class, () -> TransactionManager.executeReadOnly(lese -> {
+                throw new IllegalStateException("Bericht fehlgeschlagen");
+            }));
+            return null;
+        });
+
+        assertEquals(List.of("Bleibt"), parzelleRepository.findAlle().stream().map(Parzelle::getName).toList());
+    }
+
+    /**
+     * Nach einem Deadlock hat MySQL die Transaktion bereits zurückgerollt: kein Commit.
+     */
+    @Test
+    void testDeadlockInnerhalbEinerTransaktionVerhindertCommit() throws Exception {
+        assertThrows(DatabaseException.class, () -> TransactionManager.executeInTransaction(RetryConfig.KEINE, conn -> {
+            neueParzelle("Verworfen");
+            assertThrows(DatabaseException.class, () -> TransactionManager.executeReadOnly(lese -> {
+                throw new SQLException("Deadlock found when trying to get lock", "40001", 1213);
+            }));
+            return null;
+        }));
+
+        assertEquals(List.of(), parzelleRepository.findAlle());
+    }
+
+    @Test
+    void testFehlerWirdAlsDatabaseExceptionWeitergegeben() {
+        DatabaseException fehler = assertThrows(DatabaseException.class,
+                () -> TransactionManager.executeReadOnly(conn -> {
+                    throw new IllegalStateException("Bericht fehlgeschlagen");
+                }));
+
+        assertTrue(fehler.getMessage().contains("Bericht fehlgeschlagen"));
+        assertFalse(TransactionManager.isTransactionActive());
+    }
+}
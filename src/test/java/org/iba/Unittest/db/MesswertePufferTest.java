@@ -0,0 +1,215 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.BatchErgebnis;
+import org.iba.db.MesswertePuffer;
+import org.iba.exception.DatabaseException;
+import org.iba.model.Messung;
+import org.iba.model.Messwerte;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für den MesswertePuffer (der Datenbank-Schreiber wird simuliert).
+ */
+class MesswertePufferTest {
+
+    private final List<Integer> batchGroessen = Collections.synchronizedList(new ArrayList<>());
+    private MesswertePuffer puffer;
+
+    @AfterEach
+    void tearDown() {
+        if (puffer != null) {
+            puffer.close();
+        }
+    }
+
+    private MesswertePuffer.BatchSchreiber protokollierenderSchreiber() {
+        return messungen -> {
+            batchGroessen.add(messungen.size());
+            return new BatchErgebnis<>();
+        };
+    }
+
+    private Messung messung(int parzelleId) {
+        return new Messung(parzelleId, new Messwerte(20.0, 0.0), null);
+    }
+
+    /**
+     * Volle Batches werden sofort geschrieben, der Rest nach Ablauf der Wartezeit.
+     */
+    @Test
+    void testBatchesNachGroesseUndZeit() throws Exception {
+        puffer = new MesswertePuffer(protokollierenderSchreiber(), 100, 3, 50, 1_000);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            futures.add(puffer.einreihen(messung(1)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).get(2, TimeUnit.SECONDS);
+
+        assertEquals(7, batchGroessen.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchGroessen.stream().allMatch(groesse -> groesse <= 3),
+                "Kein Batch darf größer als die Batchgröße sein: " + batchGroessen);
+    }
+
+    /**
+     * flush() kehrt erst zurück, wenn alle vorher eingereihten Messungen geschrieben sind.
+     */
+    @Test
+    void testFlushWartetAufSchreiben() throws Exception {
+        puffer = new MesswertePuffer(protokollierenderSchreiber(), 100, 50, 60_000, 1_000);
+
+        CompletableFuture<Void> erste = puffer.einreihen(messung(1));
+        CompletableFuture<Void> zweite = puffer.einreihen(messung(2));
+        puffer.flush();
+
+        assertTrue(erste.isDone() && zweite.isDone());
+        assertEquals(List.of(2), batchGroessen);
+    }
+
+    /**
+     * close() schreibt alle noch gepufferten Messungen und nimmt danach keine mehr an.
+     */
+    @Test
+    void testCloseSchreibtRestUndLehntDanachAb() throws Exception {
+        puffer = new MesswertePuffer(protokollierenderSchreiber(), 100, 50, 60_000, 1_000);
+
+        CompletableFuture<Void> future = puffer.einreihen(messung(1));
+        puffer.close();
+
+        assertTrue(future.isDone());
+        assertEquals(1, batchGroessen.stream().mapToInt(Integer::intValue).sum());
+        assertThrows(DatabaseException.class, () -> puffer.einreihen(messung(1)));
+    }
+
+    /**
+     * Ein Aufrufer, der beim Schließen noch in den vollen Puffer einreiht, geht nicht verloren:
+     * close() wartet auf ihn, seine Messung wird geschrieben.
+     */
+    @Test
+    void testEinreihenWaehrendCloseGehtNichtVerloren() throws Exception {
+        CountDownLatch schreibtErsten = new CountDownLatch(1);
+        CountDownLatch weiter = new CountDownLatch(1);
+        puffer = new MesswertePuffer(messungen -> {
+            schreibtErsten.countDown();
+            try {
+                weiter.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batchGroessen.add(messungen.size());
+            return new BatchErgebnis<>();
+        }, 1, 1, 1, 5_000);
+
+        CompletableFuture<Void> erste = puffer.einreihen(messung(1));
+        assertTrue(schreibtErsten.await(2, TimeUnit.SECONDS));
+        CompletableFuture<Void> zweite = puffer.einreihen(messung(1));
+
+        // Puffer voll: die dritte Messung wartet im Einreihen, während geschlossen wird
+        CompletableFuture<CompletableFuture<Void>> dritte = CompletableFuture.supplyAsync(() -> {
+            try {
+                return puffer.einreihen(messung(1));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        CompletableFuture<Void> geschlossen = CompletableFuture.runAsync(puffer::close);
+        Thread.sleep(100);
+        weiter.countDown();
+
+        geschlossen.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(erste, zweite, dritte.get(5, TimeUnit.SECONDS)).get(2, TimeUnit.SECONDS);
+        assertEquals(List.of(1, 1, 1), batchGroessen);
+        assertThrows(DatabaseException.class, () -> puffer.einreihen(messung(1)));
+    }
+
+    /**
+     * Viele Aufrufer gleichzeitig zu close(): jede angenommene Messung wird geschrieben.
+     */
+    @Test
+    void testEinreihenParallelZuClose() throws Exception {
+        for (int durchlauf = 0; durchlauf < 200; durchlauf++) {
+            batchGroessen.clear();
+            MesswertePuffer aktueller = new MesswertePuffer(protokollierenderSchreiber(), 1, 1, 1, 1_000);
+            List<CompletableFuture<Void>> angenommen = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch start = new CountDownLatch(1);
+
+            List<Thread> aufrufer = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                        while (true) {
+                            angenommen.add(aktueller.einreihen(messung(1)));
+                        }
+                    } catch (Exception e) {
+                        // Geschlossen: weitere Messungen werden abgelehnt
+                    }
+                });
+                thread.start();
+                aufrufer.add(thread);
+            }
+            start.countDown();
+            Thread.sleep(1);
+            aktueller.close();
+            for (Thread thread : aufrufer) {
+                thread.join(5_000);
+            }
+
+            CompletableFuture.allOf(angenommen.toArray(CompletableFuture<?>[]::new)).get(2, TimeUnit.SECONDS);
+            assertEquals(angenommen.size(), batchGroessen.size());
+        }
+    }
+
+    /**
+     * Ist der Puffer voll, schlägt das Einreihen nach dem Timeout fehl (Backpressure).
+     */
+    @Test
+    void testBackpressureBeiVollemPuffer() throws Exception {
+        CountDownLatch freigabe = new CountDownLatch(1);
+        puffer = new MesswertePuffer(messungen -> {
+            try {
+                freigabe.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new BatchErgebnis<>();
+        }, 2, 1, 10, 50);
+
+        puffer.einreihen(messung(1)); // wird vom blockierten Writer übernommen
+        Thread.sleep(50);
+        puffer.einreihen(messung(2));
+        puffer.einreihen(messung(3));
+
+        assertThrows(DatabaseException.class, () -> puffer.einreihen(messung(4)));
+        freigabe.countDown();
+    }
+
+    /**
+     * Schlägt das Schreiben fehl, werden die Futures mit dem Fehler abgeschlossen.
+     */
+    @Test
+    void testSchreibfehlerWirdGemeldet() throws Exception {
+        puffer = new MesswertePuffer(messungen -> {
+            throw new DatabaseException("Verbindung verloren", null, -1);
+        }, 100, 10, 10, 1_000);
+
+        CompletableFuture<Void> future = puffer.einreihen(messung(1));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(DatabaseException.class, e.getCause());
+        assertThrows(DatabaseException.class, () -> puffer.speichereUndWarte(messung(2)));
+        assertEquals(2, puffer.getAnzahlFehlgeschlagen());
+    }
+}
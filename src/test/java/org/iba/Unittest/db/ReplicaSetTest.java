@@ -0,0 +1,170 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.pool.ConnectionPool;
+import org.iba.db.pool.PoolConfig;
+import org.iba.db.pool.ReplicaSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für das ReplicaSet (Round-Robin und Health-Checks).
+ * Verwendet simulierte Replikate, damit keine Datenbank benötigt wird.
+ */
+class ReplicaSetTest {
+
+    private final List<FakeReplikat> replikate = new ArrayList<>();
+    private final int[] ausgeliehen = new int[3];
+    private ReplicaSet replicaSet;
+
+    @AfterEach
+    void tearDown() {
+        if (replicaSet != null) {
+            replicaSet.close();
+        }
+    }
+
+    /**
+     * Leiht eine Verbindung aus und zählt, von welchem Replikat sie stammt.
+     */
+    private void leiheUndGibZurueck() throws SQLException {
+        try (Connection conn = replicaSet.getConnection()) {
+            for (int i = 0; i < replikate.size(); i++) {
+                if (conn.toString().contains("replica-" + i)) {
+                    ausgeliehen[i]++;
+                }
+            }
+        }
+    }
+
+    private ReplicaSet erstelleReplicaSet(int anzahl) {
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (int i = 0; i < anzahl; i++) {
+            FakeReplikat replikat = new FakeReplikat();
+            replikate.add(replikat);
+            pools.add(new ConnectionPool("replica-" + i, new PoolConfig(0, 2, 60_000, true, 60_000, 50),
+                    replikat::verbinde));
+        }
+        // Langes Intervall: die Tests stoßen die Prüfung selbst an
+        return new ReplicaSet("unittest", pools, 60_000);
+    }
+
+    /**
+     * Verbindungen werden reihum auf die Replikate verteilt.
+     */
+    @Test
+    void testRoundRobin() throws SQLException {
+        replicaSet = erstelleReplicaSet(2);
+
+        for (int i = 0; i < 4; i++) {
+            leiheUndGibZurueck();
+        }
+
+        assertEquals(2, ausgeliehen[0]);
+        assertEquals(2, ausgeliehen[1]);
+    }
+
+    /**
+     * Ein nicht erreichbares Replikat wird markiert und danach übersprungen.
+     */
+    @Test
+    void testAusgefallenesReplikatWirdUebersprungen() throws SQLException {
+        replicaSet = erstelleReplicaSet(2);
+        replikate.get(0).erreichbar = false;
+
+        for (int i = 0; i < 4; i++) {
+            leiheUndGibZurueck();
+        }
+
+        assertEquals(1, replicaSet.getAnzahlGesund());
+        assertEquals(1, replikate.get(0).verbindungsversuche, "Das ungesunde Replikat sollte nicht erneut versucht werden.");
+        assertEquals(4, ausgeliehen[1]);
+    }
+
+    /**
+     * Nach erfolgreicher Prüfung wird ein wieder erreichbares Replikat erneut benutzt.
+     */
+    @Test
+    void testReplikatKehrtNachHealthCheckZurueck() throws SQLException {
+        replicaSet = erstelleReplicaSet(2);
+        replikate.get(0).erreichbar = false;
+        replicaSet.pruefeGesundheit();
+        assertEquals(1, replicaSet.getAnzahlGesund());
+
+        replikate.get(0).erreichbar = true;
+        replicaSet.pruefeGesundheit();
+        assertEquals(2, replicaSet.getAnzahlGesund());
+
+        leiheUndGibZurueck();
+        leiheUndGibZurueck();
+        assertEquals(1, ausgeliehen[0]);
+    }
+
+    /**
+     * Ohne gesundes Replikat schlägt das Ausleihen transient fehl (Aufrufer weicht auf den Primärserver aus).
+     */
+    @Test
+    void testKeinGesundesReplikat() {
+        replicaSet = erstelleReplicaSet(2);
+        replikate.forEach(replikat -> replikat.erreichbar = false);
+
+        assertThrows(SQLTransientConnectionException.class, replicaSet::getConnection);
+        assertEquals(0, replicaSet.getAnzahlGesund());
+    }
+
+    /**
+     * Ein ausgelasteter Pool macht ein Replikat nicht ungesund.
+     */
+    @Test
+    void testAusgelastetesReplikatBleibtGesund() throws SQLException {
+        replicaSet = erstelleReplicaSet(1);
+
+        Connection erste = replicaSet.getConnection();
+        Connection zweite = replicaSet.getConnection();
+        assertThrows(SQLTransientConnectionException.class, replicaSet::getConnection);
+        assertEquals(1, replicaSet.getAnzahlGesund());
+
+        erste.close();
+        zweite.close();
+    }
+
+    /**
+     * Simuliertes Replikat, dessen Erreichbarkeit umgeschaltet werden kann.
+     */
+    private static class FakeReplikat {
+        volatile boolean erreichbar = true;
+        int verbindungsversuche = 0;
+
+        Connection verbinde() throws SQLException {
+            verbindungsversuche++;
+            if (!erreichbar) {
+                throw new SQLException("Communications link failure", "08S01");
+            }
+            boolean[] geschlossen = {false};
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close": geschlossen[0] = true; return null;
+                            case "isClosed": return geschlossen[0];
+                            case "isValid": return erreichbar && !geschlossen[0];
+                            case "getAutoCommit": return true;
+                            case "getTransactionIsolation": return Connection.TRANSACTION_READ_COMMITTED;
+                            case "isReadOnly": return true;
+                            case "hashCode": return System.identityHashCode(proxy);
+                            case "equals": return proxy == args[0];
+                            default: return null;
+                        }
+                    });
+        }
+    }
+}
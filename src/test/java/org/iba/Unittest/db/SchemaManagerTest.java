@@ -0,0 +1,250 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.SchemaManager;
+import org.iba.exception.DatabaseException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für Partitionsdefinitionen und Migrationen des SchemaManagers
+ * (die Datenbank wird simuliert).
+ */
+class SchemaManagerTest {
+
+    @Test
+    void testPartitionsName() {
+        assertEquals("p202601", SchemaManager.partitionsName(YearMonth.of(2026, 1)));
+        assertEquals("p202612", SchemaManager.partitionsName(YearMonth.of(2026, 12)));
+    }
+
+    /**
+     * Jeder Monat endet am Ersten des Folgemonats, auch über den Jahreswechsel.
+     */
+    @Test
+    void testPartitionsklauselUeberJahreswechsel() {
+        String klausel = SchemaManager.erstellePartitionsklausel(YearMonth.of(2026, 11), YearMonth.of(2027, 1));
+
+        assertEquals("PARTITION p202611 VALUES LESS THAN ('2026-12-01 00:00:00'), " +
+                "PARTITION p202612 VALUES LESS THAN ('2027-01-01 00:00:00'), " +
+                "PARTITION p202701 VALUES LESS THAN ('2027-02-01 00:00:00'), " +
+                "PARTITION pmax VALUES LESS THAN (MAXVALUE)", klausel);
+    }
+
+    /**
+     * Die Auffang-Partition ist immer vorhanden, damit keine Zeile abgewiesen wird.
+     */
+    @Test
+    void testPartitionsklauselEndetMitAuffangpartition() {
+        String klausel = SchemaManager.erstellePartitionsklausel(YearMonth.of(2026, 5), YearMonth.of(2026, 5));
+
+        assertTrue(klausel.endsWith("PARTITION pmax VALUES LESS THAN (MAXVALUE)"));
+        assertEquals(2, klausel.split("PARTITION ").length - 1);
+    }
+
+    /**
+     * Upgrade einer unpartitionierten Tabelle nach abgebrochenem Lauf: der Rest von
+     * messwerte_neu wird verworfen, messwert_id mitkopiert, alles unter der Schema-Sperre.
+     */
+    @Test
+    void testUpgradeKopiertMesswerteMitId() throws Exception {
+        FakeSchema schema = new FakeSchema(1);
+        schema.tabellen.addAll(Set.of("messwerte", "messwerte_neu"));
+        schema.spalten.add("messwerte.messwert_id");
+
+        assertEquals(3, new SchemaManager().migriere(schema.verbindung()));
+
+        List<String> sql = schema.protokoll;
+        assertTrue(sql.get(0).startsWith("SELECT GET_LOCK('iba_schema_migration'"), sql.get(0));
+        assertTrue(sql.get(sql.size() - 1).startsWith("SELECT RELEASE_LOCK('iba_schema_migration'"));
+
+        int verwerfen = schema.index("DROP TABLE IF EXISTS messwerte_neu");
+        int anlegen = schema.index("CREATE TABLE messwerte_neu (");
+        int kopieren = schema.index("INSERT INTO messwerte_neu");
+        int tauschen = schema.index("RENAME TABLE messwerte TO messwerte_alt, messwerte_neu TO messwerte");
+        assertTrue(verwerfen < anlegen && anlegen < kopieren && kopieren < tauschen, sql.toString());
+        assertEquals("INSERT INTO messwerte_neu (messwert_id, parzelle_id, temperatur, niederschlag, zeitstempel) " +
+                "SELECT messwert_id, parzelle_id, temperatur, niederschlag, zeitstempel FROM messwerte",
+                sql.get(kopieren));
+        assertEquals(List.of(2, 3, 4), schema.eingetrageneVersionen);
+    }
+
+    /**
+     * Abbruch nach dem RENAME: messwerte ist bereits partitioniert, nur die alte Tabelle bleibt.
+     */
+    @Test
+    void testWiederaufnahmeNachTauschEntferntAlteTabelle() throws Exception {
+        FakeSchema schema = new FakeSchema(1);
+        schema.tabellen.addAll(Set.of("messwerte", "messwerte_alt"));
+        schema.partitioniere(YearMonth.now().minusMonths(2), YearMonth.now().plusMonths(SchemaManager.MONATE_VORLAUF));
+
+        new SchemaManager().migriere(schema.verbindung());
+
+        assertTrue(schema.protokoll.contains("DROP TABLE IF EXISTS messwerte_alt"));
+        assertEquals(-1, schema.index("CREATE TABLE messwerte"));
+        assertEquals(-1, schema.index("INSERT INTO messwerte_neu"));
+    }
+
+    /**
+     * Bekommt die Instanz die Schema-Sperre nicht, wird nichts verändert.
+     */
+    @Test
+    void testOhneSchemaSperreKeineMigration() {
+        FakeSchema schema = new FakeSchema(0);
+        schema.sperreFrei = false;
+
+        assertThrows(DatabaseException.class, () -> new SchemaManager().migriere(schema.verbindung()));
+
+        assertEquals(1, schema.protokoll.size());
+        assertTrue(schema.eingetrageneVersionen.isEmpty());
+    }
+
+    /**
+     * Vorrollen prüft, ob pmax Messungen enthält, und teilt sie danach auf.
+     */
+    @Test
+    void testVorrollenPrueftPmax() throws Exception {
+        FakeSchema schema = new FakeSchema(4);
+        schema.tabellen.add("messwerte");
+        schema.partitioniere(YearMonth.now().minusMonths(1), YearMonth.now());
+        schema.pmaxBelegt = true;
+
+        assertEquals(0, new SchemaManager().migriere(schema.verbindung()));
+
+        int pruefen = schema.index("SELECT 1 FROM messwerte PARTITION (pmax)");
+        int aufteilen = schema.index("ALTER TABLE messwerte REORGANIZE PARTITION pmax INTO (");
+        assertTrue(pruefen >= 0 && pruefen < aufteilen, schema.protokoll.toString());
+        assertTrue(schema.protokoll.get(aufteilen).contains(
+                SchemaManager.partitionsName(YearMonth.now().plusMonths(SchemaManager.MONATE_VORLAUF))));
+    }
+
+    /**
+     * Simuliertes MySQL-Schema: beantwortet die Abfragen des SchemaManagers und
+     * protokolliert alle ausgeführten Anweisungen.
+     */
+    private static class FakeSchema {
+        final Set<String> tabellen = new HashSet<>();
+        final Set<String> spalten = new HashSet<>();
+        final List<String> partitionen = new ArrayList<>();
+        final List<String> protokoll = new ArrayList<>();
+        final List<Integer> eingetrageneVersionen = new ArrayList<>();
+        int version;
+        boolean sperreFrei = true;
+        boolean pmaxBelegt = false;
+
+        FakeSchema(int version) {
+            this.version = version;
+        }
+
+        void partitioniere(YearMonth von, YearMonth bis) {
+            partitionen.clear();
+            for (YearMonth monat = von; !monat.isAfter(bis); monat = monat.plusMonths(1)) {
+                partitionen.add(SchemaManager.partitionsName(monat));
+            }
+            partitionen.add("pmax");
+        }
+
+        int index(String anfang) {
+            for (int i = 0; i < protokoll.size(); i++) {
+                if (protokoll.get(i).startsWith(anfang)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Connection verbindung() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "createStatement" -> anweisung(null);
+                        case "prepareStatement" -> anweisung((String) args[0]);
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+        }
+
+        private Statement anweisung(String vorbereitet) {
+            Map<Integer, Object> parameter = new HashMap<>();
+            Class<?> typ = vorbereitet != null ? PreparedStatement.class : Statement.class;
+            return (Statement) Proxy.newProxyInstance(
+                    Statement.class.getClassLoader(),
+                    new Class<?>[]{typ},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length == 2 && args[0] instanceof Integer) {
+                            parameter.put((Integer) args[0], args[1]);
+                            return null;
+                        }
+                        if (!name.startsWith("execute")) {
+                            return null;
+                        }
+                        String sql = vorbereitet != null ? vorbereitet : (String) args[0];
+                        List<Object> zeilen = fuehreAus(sql, parameter);
+                        return switch (name) {
+                            case "executeQuery" -> ergebnis(zeilen);
+                            case "executeUpdate" -> 1;
+                            default -> false;
+                        };
+                    });
+        }
+
+        private List<Object> fuehreAus(String sql, Map<Integer, Object> parameter) {
+            protokoll.add(sql);
+            if (sql.startsWith("SELECT GET_LOCK")) {
+                return List.of(sperreFrei ? 1 : 0);
+            } else if (sql.startsWith("SELECT RELEASE_LOCK")) {
+                return List.of(1);
+            } else if (sql.contains("MAX(version)")) {
+                return List.of(version);
+            } else if (sql.contains("INFORMATION_SCHEMA.TABLES")) {
+                return tabellen.contains(parameter.get(1)) ? List.of(1) : List.of();
+            } else if (sql.contains("INFORMATION_SCHEMA.COLUMNS")) {
+                return spalten.contains(parameter.get(1) + "." + parameter.get(2)) ? List.of(1) : List.of();
+            } else if (sql.contains("INFORMATION_SCHEMA.PARTITIONS")) {
+                return new ArrayList<>(partitionen);
+            } else if (sql.contains("MIN(zeitstempel)")) {
+                return List.of(Timestamp.valueOf(YearMonth.now().minusMonths(2).atDay(1).atStartOfDay()));
+            } else if (sql.contains("PARTITION (pmax)")) {
+                return pmaxBelegt ? List.of(1) : List.of();
+            } else if (sql.startsWith("INSERT INTO schema_version")) {
+                eingetrageneVersionen.add((Integer) parameter.get(1));
+            } else if (sql.startsWith("CREATE TABLE messwerte_neu") || sql.startsWith("CREATE TABLE messwerte (")) {
+                tabellen.add(sql.startsWith("CREATE TABLE messwerte_neu") ? "messwerte_neu" : "messwerte");
+            } else if (sql.startsWith("RENAME TABLE messwerte TO messwerte_alt")) {
+                partitioniere(YearMonth.now().minusMonths(2), YearMonth.now().plusMonths(SchemaManager.MONATE_VORLAUF));
+            }
+            return List.of();
+        }
+
+        private static ResultSet ergebnis(List<Object> zeilen) {
+            int[] position = {-1};
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "next" -> ++position[0] < zeilen.size();
+                        case "getInt" -> ((Number) zeilen.get(position[0])).intValue();
+                        case "getString" -> String.valueOf(zeilen.get(position[0]));
+                        case "getTimestamp" -> zeilen.get(position[0]);
+                        default -> null;
+                    });
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.MesswerteRepository;
+import org.iba.db.statistik.AbfrageStatistik;
+import org.iba.db.transaction.Propagation;
+import org.iba.db.transaction.TransactionManager;
+import org.iba.exception.DatabaseException;
+import org.iba.exception.DatenbankTimeoutException;
+import org.iba.exception.ErrorCode;
+import org.iba.model.Messwerte;
+import org.iba.model.Parzelle;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für Transaktions-Fristen (Profil MEMORY).
+ */
+class TransaktionsFristTest extends InMemoryTestBasis {
+
+    private final MesswerteRepository messwerteRepository = new MesswerteRepository();
+
+    @Test
+    void testWartenAufSperreEndetMitDerFrist() throws Exception {
+        Parzelle gesperrt = neueParzelle("Gesperrt");
+        Parzelle frei = neueParzelle("Frei");
+        CountDownLatch gehalten = new CountDownLatch(1);
+        CountDownLatch weiter = new CountDownLatch(1);
+
+        // Hält die Sperre der ersten Parzelle, bis der Test sie freigibt
+        CompletableFuture<Void> sperrende = CompletableFuture.runAsync(() -> {
+            try {
+                TransactionManager.executeInTransaction(conn -> {
+                    messwerteRepository.speichere(new Messwerte(20.0, 0.0), gesperrt.getParzelleId());
+                    gehalten.countDown();
+                    assertTrue(weiter.await(10, TimeUnit.SECONDS));
+                    return null;
+                });
+            } catch (DatabaseException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(gehalten.await(10, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        DatabaseException fehler = assertThrows(DatabaseException.class,
+                () -> TransactionManager.executeInTransaction(Propagation.NESTED, 200, conn -> {
+                    messwerteRepository.speichere(new Messwerte(15.0, 0.0), frei.getParzelleId());
+                    messwerteRepository.speichere(new Messwerte(25.0, 0.0), gesperrt.getParzelleId());
+                    return null;
+                }));
+        long dauerMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        weiter.countDown();
+        sperrende.get(10, TimeUnit.SECONDS);
+
+        assertInstanceOf(DatenbankTimeoutException.class, fehler);
+        assertEquals(ErrorCode.DATABASE_TIMEOUT, fehler.getErrorCode());
+        // Deutlich vor dem Sperr-Timeout des Speichers (5 s), ohne Wiederholung
+        assertTrue(dauerMs < 2_000, "Dauer: " + dauerMs + " ms");
+        assertNull(messwerteRepository.findeLetzteMessung(frei.getParzelleId()));
+    }
+
+    @Test
+    void testAbgelaufeneFristVerhindertCommit() throws Exception {
+        assertThrows(DatenbankTimeoutException.class,
+                () -> TransactionManager.executeInTransaction(Propagation.NESTED, 50, conn -> {
+                    Parzelle parzelle = neueParzelle("Zu spät");
+                    Thread.sleep(100);
+                    return parzelle;
+                }));
+
+        assertNull(AbfrageStatistik.get("COMMIT"));
+        assertEquals(1, AbfrageStatistik.get("ROLLBACK").getAusfuehrungen());
+        assertEquals(List.of(), parzelleRepository.findAlle());
+        assertFalse(TransactionManager.isTransactionActive());
+    }
+
+    @Test
+    void testAbgelaufeneFristStartetKeineTransaktion() {
+        AtomicBoolean gestartet = new AtomicBoolean();
+        assertThrows(DatenbankTimeoutException.class,
+                () -> TransactionManager.executeInTransaction(Propagation.NESTED, 50, conn -> {
+                    Thread.sleep(100);
+                    return TransactionManager.executeInTransaction(Propagation.REQUIRES_NEW, neu -> {
+                        gestartet.set(true);
+                        return null;
+                    });
+                }));
+
+        assertFalse(gestartet.get());
+    }
+
+    @Test
+    void testAndereFehlerBleibenNachAblaufDerFristErhalten() {
+        DatabaseException fehler = assertThrows(DatabaseException.class,
+                () -> TransactionManager.executeInTransaction(Propagation.NESTED, 50, conn -> {
+                    Thread.sleep(100);
+                    throw new SQLException("Duplicate entry 'Beet' for key 'name'", "23000", 1062);
+                }));
+
+        assertFalse(fehler instanceof DatenbankTimeoutException);
+        assertEquals(1062, fehler.getDatabaseErrorCode());
+    }
+}
@@ -0,0 +1,110 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.statistik.AbfrageStatistik;
+import org.iba.db.transaction.Propagation;
+import org.iba.db.transaction.TransactionManager;
+import org.iba.exception.DatabaseException;
+import org.iba.model.Parzelle;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für die Propagation verschachtelter Transaktionen (Profil MEMORY).
+ */
+class TransaktionsPropagationTest extends InMemoryTestBasis {
+
+    private List<String> namen() throws Exception {
+        return parzelleRepository.findAlle().stream().map(Parzelle::getName).sorted().toList();
+    }
+
+    @Test
+    void testRequiredNimmtOhneSavepointTeil() throws Exception {
+        TransactionManager.executeInTransaction(conn -> {
+            Connection innere = TransactionManager.executeInTransaction(Propagation.REQUIRED, inner -> inner);
+            assertSame(conn, innere);
+            return null;
+        });
+        assertNull(AbfrageStatistik.get("SAVEPOINT"));
+
+        TransactionManager.executeInTransaction(conn -> {
+            neueParzelle("Aussen");
+            return TransactionManager.executeInTransaction(Propagation.NESTED, inner -> null);
+        });
+        assertEquals(1, AbfrageStatistik.get("SAVEPOINT").getAusfuehrungen());
+        assertEquals(1, AbfrageStatistik.get("RELEASE SAVEPOINT").getAusfuehrungen());
+    }
+
+    @Test
+    void testGescheiterteRequiredOperationRolltGesamteTransaktionZurueck() throws Exception {
+        DatabaseException fehler = assertThrows(DatabaseException.class,
+                () -> TransactionManager.executeInTransaction(conn -> {
+                    neueParzelle("Aussen");
+                    try {
+                        TransactionManager.executeInTransaction(Propagation.REQUIRED, inner -> {
+                            throw new IllegalStateException("Innere Operation scheitert");
+                        });
+                    } catch (DatabaseException erwartet) {
+                        // Fehler wird geschluckt, die Transaktion ist trotzdem rollback-only
+                    }
+                    return null;
+                }));
+
+        assertTrue(fehler.getMessage().contains("rollback-only"), fehler.getMessage());
+        assertTrue(namen().isEmpty());
+    }
+
+    @Test
+    void testRequiredInnerhalbNestedMarkiertNurDenSavepoint() throws Exception {
+        TransactionManager.executeInTransaction(conn -> {
+            neueParzelle("Aussen");
+            assertThrows(DatabaseException.class, () -> TransactionManager.executeInTransaction(Propagation.NESTED, nested -> {
+                neueParzelle("Savepoint");
+                try {
+                    TransactionManager.executeInTransaction(Propagation.REQUIRED, inner -> {
+                        throw new IllegalStateException("Innere Operation scheitert");
+                    });
+                } catch (DatabaseException erwartet) {
+                    // Savepoint ist rollback-only
+                }
+                return null;
+            }));
+            return null;
+        });
+
+        assertEquals(List.of("Aussen"), namen());
+    }
+
+    @Test
+    void testRequiresNewCommittetUnabhaengigVonAeussererTransaktion() throws Exception {
+        assertThrows(DatabaseException.class, () -> TransactionManager.executeInTransaction(conn -> {
+            neueParzelle("Aussen");
+            TransactionManager.executeInTransaction(Propagation.REQUIRES_NEW, neu -> {
+                assertNotSame(conn, neu);
+                neueParzelle("Eigenstaendig");
+                return null;
+            });
+            // Äußere Transaktion ist wieder aktiv
+            assertSame(conn, TransactionManager.getCurrentConnection());
+            throw new IllegalStateException("Äußere Transaktion scheitert");
+        }));
+
+        assertEquals(List.of("Eigenstaendig"), namen());
+    }
+
+    @Test
+    void testReadOnlyNurFuerNeueHaupttransaktion() throws Exception {
+        assertTrue(TransactionManager.executeInTransaction(Propagation.READ_ONLY, Connection::isReadOnly));
+
+        TransactionManager.executeInTransaction(conn -> {
+            Connection innere = TransactionManager.executeInTransaction(Propagation.READ_ONLY, inner -> inner);
+            assertSame(conn, innere);
+            assertFalse(innere.isReadOnly());
+            return null;
+        });
+        assertNull(AbfrageStatistik.get("SAVEPOINT"));
+    }
+}
@@ -0,0 +1,94 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.transaction.RetryConfig;
+import org.iba.db.transaction.RetryStatistik;
+import org.iba.db.transaction.TransactionManager;
+import org.iba.exception.DatabaseException;
+import org.iba.model.Parzelle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für die Wiederholung von Transaktionen bei Deadlock/Lock-Timeout (Profil MEMORY).
+ */
+class TransaktionsWiederholungTest extends InMemoryTestBasis {
+
+    private static final RetryConfig DREI_VERSUCHE = new RetryConfig(3, 1, 5);
+
+    private final RetryStatistik statistik = TransactionManager.getRetryStatistik();
+
+    @BeforeEach
+    void setUp() {
+        statistik.zuruecksetzen();
+    }
+
+    @Test
+    void testDeadlockWirdWiederholtUndNurLetzterVersuchCommittet() throws Exception {
+        AtomicInteger versuche = new AtomicInteger();
+
+        Parzelle ergebnis = TransactionManager.executeInTransaction(DREI_VERSUCHE, conn -> {
+            Parzelle parzelle = parzelleRepository.speichere(new Parzelle(0, "Hotspot", 0, 10.0, "mediterran", 1));
+            if (versuche.incrementAndGet() < 3) {
+                throw new DatabaseException("Deadlock found when trying to get lock", "40001", 1213);
+            }
+            return parzelle;
+        });
+
+        assertEquals(3, versuche.get());
+        assertEquals("Hotspot", ergebnis.getName());
+        assertEquals(1, parzelleRepository.findAlle().size());
+        assertEquals(2, statistik.getWiederholungen());
+        assertEquals(1, statistik.getErfolgreichNachWiederholung());
+        assertEquals(0, statistik.getAufgegeben());
+    }
+
+    @Test
+    void testAndereFehlerWerdenNichtWiederholt() {
+        AtomicInteger versuche = new AtomicInteger();
+
+        assertThrows(DatabaseException.class, () -> TransactionManager.executeInTransaction(DREI_VERSUCHE, conn -> {
+            versuche.incrementAndGet();
+            throw new DatabaseException("Duplicate entry", "23000", 1062);
+        }));
+
+        assertEquals(1, versuche.get());
+        assertEquals(0, statistik.getWiederholungen());
+    }
+
+    @Test
+    void testNachLetztemVersuchWirdAufgegeben() {
+        AtomicInteger versuche = new AtomicInteger();
+
+        DatabaseException fehler = assertThrows(DatabaseException.class,
+                () -> TransactionManager.executeInTransaction(DREI_VERSUCHE, conn -> {
+                    versuche.incrementAndGet();
+                    throw new IllegalStateException("Sperre nicht erhalten",
+                            new DatabaseException("Lock wait timeout exceeded", "HY000", 1205));
+                }));
+
+        assertEquals(3, versuche.get());
+        assertTrue(TransactionManager.istVoruebergehend(fehler));
+        assertEquals(2, statistik.getWiederholungen());
+        assertEquals(1, statistik.getAufgegeben());
+    }
+
+    @Test
+    void testVerschachtelteTransaktionWirdNurAufAeussersterEbeneWiederholt() {
+        AtomicInteger innereVersuche = new AtomicInteger();
+
+        assertThrows(DatabaseException.class, () -> TransactionManager.executeInTransaction(
+                new RetryConfig(2, 1, 5), conn ->
+                        TransactionManager.executeInTransaction(DREI_VERSUCHE, inner -> {
+                            innereVersuche.incrementAndGet();
+                            throw new DatabaseException("Deadlock", "40001", 1213);
+                        })));
+
+        // Ein innerer Versuch pro äußerem Versuch
+        assertEquals(2, innereVersuche.get());
+        assertEquals(1, statistik.getWiederholungen());
+    }
+}
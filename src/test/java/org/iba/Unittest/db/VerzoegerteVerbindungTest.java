@@ -0,0 +1,94 @@
+package org.iba.Unittest.db;
+
+import org.iba.db.statistik.AbfrageStatistik;
+import org.iba.db.transaction.TransactionManager;
+import org.iba.db.transaction.TransaktionsStatistik;
+import org.iba.exception.DatabaseException;
+import org.iba.model.Parzelle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für das verzögerte Binden der Transaktionsverbindung (Profil MEMORY).
+ */
+class VerzoegerteVerbindungTest extends InMemoryTestBasis {
+
+    private final TransaktionsStatistik statistik = TransactionManager.getTransaktionsStatistik();
+
+    @BeforeEach
+    void setUp() {
+        statistik.zuruecksetzen();
+    }
+
+    @Test
+    void testTransaktionOhneAnweisungHoltKeineVerbindung() throws Exception {
+        assertThrows(DatabaseException.class, () -> TransactionManager.executeInTransaction(conn -> {
+            throw new IllegalArgumentException("Validierung fehlgeschlagen");
+        }));
+        TransactionManager.executeInTransaction(conn -> null);
+
+        assertEquals(2, statistik.getTransaktionen());
+        assertEquals(2, statistik.getOhneDatenbank());
+        assertNull(AbfrageStatistik.get("SET autocommit=0"));
+        assertNull(AbfrageStatistik.get("COMMIT"));
+        assertNull(AbfrageStatistik.get("ROLLBACK"));
+    }
+
+    @Test
+    void testErsteAnweisungBindetVerbindung() throws Exception {
+        TransactionManager.executeInTransaction(conn -> {
+            neueParzelle("Erste");
+            return neueParzelle("Zweite");
+        });
+
+        assertEquals(1, statistik.getTransaktionen());
+        assertEquals(0, statistik.getOhneDatenbank());
+        assertEquals(1, AbfrageStatistik.get("SET autocommit=0").getAusfuehrungen());
+        assertEquals(1, AbfrageStatistik.get("COMMIT").getAusfuehrungen());
+    }
+
+    @Test
+    void testVerschachtelteEbeneVorErsterAnweisungRolltAllesZurueck() throws Exception {
+        TransactionManager.executeInTransaction(conn -> {
+            assertThrows(DatabaseException.class, () -> TransactionManager.executeInTransaction(inner -> {
+                neueParzelle("Verworfen");
+                throw new IllegalStateException("Innere Transaktion scheitert");
+            }));
+            return neueParzelle("Behalten");
+        });
+
+        assertNull(AbfrageStatistik.get("SAVEPOINT"));
+        assertEquals(List.of("Behalten"),
+                parzelleRepository.findAlle().stream().map(Parzelle::getName).toList());
+    }
+
+    @Test
+    void testSchliessenDerTransaktionsverbindungIstWirkungslos() throws Exception {
+        TransactionManager.executeInTransaction(conn -> {
+            neueParzelle("Erste");
+            conn.close();
+            assertFalse(conn.isClosed());
+            return neueParzelle("Zweite");
+        });
+
+        assertEquals(1, AbfrageStatistik.get("COMMIT").getAusfuehrungen());
+        assertEquals(2, parzelleRepository.findAlle().size());
+    }
+
+    @Test
+    void testVerbindungNachAbschlussNichtMehrNutzbar() throws Exception {
+        Connection aussen = TransactionManager.executeInTransaction(conn -> {
+            conn.getAutoCommit();
+            return conn;
+        });
+
+        assertTrue(aussen.isClosed());
+        assertThrows(SQLException.class, aussen::getAutoCommit);
+    }
+}
@@ -0,0 +1,58 @@
+package org.iba.Unittest.model;
+
+import org.iba.model.Messung;
+import org.iba.model.Messwerte;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für die Messung-Modellklasse (Batch-Erfassung).
+ */
+class MessungTest {
+
+    private static final int TEST_PARZELLE_ID = 42;
+
+    /**
+     * Testet die Erstellung mit allen Werten und die Getter.
+     */
+    @Test
+    void testGueltigeMessungErstellung() {
+        // ARRANGE
+        Messwerte messwerte = new Messwerte(25.0, 3.5);
+        LocalDateTime zeitpunkt = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+        // ACT
+        Messung messung = new Messung(TEST_PARZELLE_ID, messwerte, zeitpunkt);
+
+        // ASSERT
+        assertEquals(TEST_PARZELLE_ID, messung.getParzelleId());
+        assertSame(messwerte, messung.getMesswerte());
+        assertEquals(zeitpunkt, messung.getZeitstempel());
+    }
+
+    /**
+     * Ohne Zeitstempel wird der aktuelle Zeitpunkt verwendet.
+     */
+    @Test
+    void testOhneZeitstempelWirdJetztVerwendet() {
+        LocalDateTime vorher = LocalDateTime.now();
+
+        Messung messung = new Messung(TEST_PARZELLE_ID, new Messwerte(20.0, 0.0), null);
+
+        assertNotNull(messung.getZeitstempel());
+        assertFalse(messung.getZeitstempel().isBefore(vorher));
+    }
+
+    /**
+     * Ohne Messwerte ist eine Messung ungültig.
+     */
+    @Test
+    void testOhneMesswerteWirftException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new Messung(TEST_PARZELLE_ID, null, LocalDateTime.now()),
+                "Fehlende Messwerte sollten eine IllegalArgumentException auslösen.");
+    }
+}
@@ -0,0 +1,73 @@
+package org.iba.Unittest.util;
+
+import org.iba.exception.ErrorCode;
+import org.iba.exception.SensorFehlerException;
+import org.iba.sensor.BodenfeuchteSensor;
+import org.iba.util.Frist;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für die Frist (Deadline) des aktuellen Threads.
+ */
+class FristTest {
+
+    @Test
+    void testOhneFristUnbegrenzt() {
+        assertNull(Frist.aktuelle());
+        assertFalse(Frist.istAbgelaufen());
+        assertEquals(500, Frist.begrenze(500));
+        assertEquals(0, Frist.abfrageTimeoutSekunden());
+    }
+
+    @Test
+    void testVerschachtelteFristVerkuerztNur() {
+        Frist.innerhalb(1_000, () -> {
+            Frist aeussere = Frist.aktuelle();
+
+            // Längere innere Frist: die äußere bleibt maßgeblich
+            Frist.innerhalb(60_000, () -> {
+                assertSame(aeussere, Frist.aktuelle());
+                return null;
+            });
+
+            Frist.innerhalb(100, () -> {
+                assertEquals(100, Frist.aktuelle().getTimeoutMs());
+                assertTrue(Frist.begrenze(500) <= 100);
+                assertEquals(1, Frist.abfrageTimeoutSekunden());
+                return null;
+            });
+
+            assertSame(aeussere, Frist.aktuelle());
+            return null;
+        });
+
+        assertNull(Frist.aktuelle());
+    }
+
+    @Test
+    void testFristWirdAufAnderenThreadUebertragen() throws Exception {
+        Frist frist = Frist.innerhalb(1_000, Frist::aktuelle);
+        Frist[] imThread = new Frist[1];
+
+        Thread thread = new Thread(() -> imThread[0] = Frist.unter(frist, Frist::aktuelle));
+        thread.start();
+        thread.join();
+
+        assertSame(frist, imThread[0]);
+    }
+
+    @Test
+    void testSensorBrichtBeiAbgelaufenerFristAb() {
+        SensorFehlerException fehler = assertThrows(SensorFehlerException.class,
+                () -> Frist.innerhalb(50, () -> new BodenfeuchteSensor().messWertLesen()));
+
+        assertEquals(ErrorCode.SENSOR_TIMEOUT, fehler.getErrorCode());
+    }
+
+    @Test
+    void testUngueltigeFrist() {
+        assertThrows(IllegalArgumentException.class, () -> Frist.innerhalb(0, () -> null));
+    }
+}
@@ -0,0 +1,105 @@
+package org.iba.Unittest.util;
+
+import org.iba.util.IntMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unittests für die IntMap (Map mit primitiven int-Schlüsseln).
+ */
+class IntMapTest {
+
+    /**
+     * Testet Einfügen, Lesen und Überschreiben.
+     */
+    @Test
+    void testPutUndGet() {
+        IntMap<String> map = new IntMap<>();
+
+        assertNull(map.put(1, "eins"));
+        assertNull(map.put(0, "null"));
+        assertNull(map.put(-5, "minus fünf"));
+        assertEquals("eins", map.put(1, "EINS"), "put() sollte den alten Wert zurückgeben.");
+
+        assertEquals(3, map.size());
+        assertEquals("EINS", map.get(1));
+        assertEquals("null", map.get(0));
+        assertEquals("minus fünf", map.get(-5));
+        assertNull(map.get(2));
+        assertEquals("standard", map.getOrDefault(2, "standard"));
+    }
+
+    /**
+     * Null-Werte sind nicht erlaubt.
+     */
+    @Test
+    void testNullWertWirftException() {
+        IntMap<String> map = new IntMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+    }
+
+    /**
+     * computeIfAbsent legt fehlende Einträge genau einmal an.
+     */
+    @Test
+    void testComputeIfAbsent() {
+        IntMap<StringBuilder> map = new IntMap<>();
+
+        map.computeIfAbsent(7, k -> new StringBuilder()).append("a");
+        map.computeIfAbsent(7, k -> new StringBuilder()).append("b");
+
+        assertEquals(1, map.size());
+        assertEquals("ab", map.get(7).toString());
+    }
+
+    /**
+     * Vergleicht viele zufällige Operationen mit einer HashMap (inkl. Löschen und Vergrößern).
+     */
+    @Test
+    void testVerhaeltSichWieHashMap() {
+        IntMap<Integer> map = new IntMap<>();
+        Map<Integer, Integer> referenz = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(referenz.remove(key), map.remove(key));
+            } else {
+                assertEquals(referenz.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(referenz.size(), map.size());
+        referenz.forEach((key, value) -> assertEquals(value, map.get(key)));
+
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(referenz.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), keys);
+    }
+
+    /**
+     * forEach besucht jeden Eintrag genau einmal.
+     */
+    @Test
+    void testForEach() {
+        IntMap<Integer> map = new IntMap<>(100);
+        for (int i = 1; i <= 100; i++) {
+            map.put(i, i * 2);
+        }
+
+        int[] summe = {0};
+        map.forEach((key, value) -> {
+            assertEquals(key * 2, value.intValue());
+            summe[0] += key;
+        });
+
+        assertEquals(5050, summe[0]);
+    }
+}